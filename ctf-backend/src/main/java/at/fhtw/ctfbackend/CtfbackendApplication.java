@@ -2,8 +2,10 @@ package at.fhtw.ctfbackend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CtfbackendApplication {
 
 	public static void main(String[] args) {
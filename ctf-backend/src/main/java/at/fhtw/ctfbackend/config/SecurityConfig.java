@@ -4,6 +4,7 @@ import at.fhtw.ctfbackend.filter.RateLimitFilter;
 import at.fhtw.ctfbackend.security.JwtAuthenticationFilter;
 import at.fhtw.ctfbackend.security.JwtUtil;
 import at.fhtw.ctfbackend.services.UserService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -67,6 +68,8 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // Streamed responses finish in an async dispatch the JWT filter doesn't see; authorized on the first one
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/error").permitAll()
                         .requestMatchers("/api/login").permitAll()
                         .requestMatchers("/api/health").permitAll() 
@@ -80,6 +83,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/solves/top-solvers").permitAll()
                         .requestMatchers("/api/solves/most-solved").permitAll()
                         .requestMatchers("/api/solves/total-count").permitAll()
+                        .requestMatchers("/api/solves/stream").permitAll()
+                        .requestMatchers("/api/scoreboard/me").authenticated()
+                        .requestMatchers("/api/scoreboard", "/api/scoreboard/timeline").permitAll()
                         .requestMatchers("/api/challenges/admin/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/api/challenges/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/challenges/**").hasRole("ADMIN")
@@ -0,0 +1,94 @@
+package at.fhtw.ctfbackend.controller;
+
+import at.fhtw.ctfbackend.dto.InstanceStatsDto;
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import at.fhtw.ctfbackend.services.ContainerStatsStore;
+import at.fhtw.ctfbackend.services.DockerHostRegistry;
+import at.fhtw.ctfbackend.services.EnvironmentService;
+import at.fhtw.ctfbackend.services.ResourceScheduler;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/instances")
+public class AdminInstanceController {
+
+    private final ChallengeInstanceRepository instanceRepo;
+    private final ContainerStatsStore statsStore;
+    private final EnvironmentService envService;
+    private final ResourceScheduler scheduler;
+
+    public AdminInstanceController(
+        ChallengeInstanceRepository instanceRepo,
+        ContainerStatsStore statsStore,
+        EnvironmentService envService,
+        ResourceScheduler scheduler
+    ) {
+        this.instanceRepo = instanceRepo;
+        this.statsStore = statsStore;
+        this.envService = envService;
+        this.scheduler = scheduler;
+    }
+
+    // Resource usage of every RUNNING instance, busiest first
+    @GetMapping("/stats")
+    public List<InstanceStatsDto> getInstanceStats() {
+        return instanceRepo.findByStatus("RUNNING").stream()
+            .map(this::toDto)
+            .sorted((a, b) -> Double.compare(
+                b.getCpuPercent() != null ? b.getCpuPercent() : -1,
+                a.getCpuPercent() != null ? a.getCpuPercent() : -1))
+            .toList();
+    }
+
+    // Committed CPU/memory of admitted instances against what each Docker host offers
+    @GetMapping("/capacity")
+    public List<ResourceScheduler.Usage> getCapacity() {
+        return scheduler.usage();
+    }
+
+    // Sample series of one instance, oldest first; since is epoch ms
+    @GetMapping("/{instanceId}/stats")
+    public ResponseEntity<List<ContainerStatsStore.Sample>> getInstanceStatsHistory(
+        @PathVariable String instanceId,
+        @RequestParam(defaultValue = "0") long since
+    ) {
+        if (instanceRepo.findByInstanceId(instanceId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(statsStore.history(instanceId, since));
+    }
+
+    private InstanceStatsDto toDto(ChallengeInstanceEntity inst) {
+        InstanceStatsDto dto = InstanceStatsDto.builder()
+            .instanceId(inst.getInstanceId())
+            .username(inst.getUsername())
+            .challengeId(inst.getChallengeId())
+            .containerName(inst.getContainerName())
+            .dockerHost(inst.getDockerHost() != null ? inst.getDockerHost() : DockerHostRegistry.LOCAL)
+            .expiresAt(inst.getExpiresAt())
+            .pausedAt(inst.getPausedAt())
+            .lastActivityAt(Instant.ofEpochMilli(envService.lastActiveAt(inst)))
+            .build();
+
+        List<ContainerStatsStore.Sample> samples = statsStore.history(inst.getInstanceId(), 0);
+        if (samples.isEmpty()) {
+            dto.setSamples(0);
+            return dto;
+        }
+        ContainerStatsStore.Sample latest = samples.get(samples.size() - 1);
+        dto.setSampledAt(Instant.ofEpochMilli(latest.sampledAt()));
+        dto.setCpuPercent(latest.cpuPercent());
+        dto.setMemoryBytes(latest.memoryBytes());
+        dto.setMemoryLimitBytes(latest.memoryLimitBytes());
+        dto.setNetRxBytes(latest.netRxBytes());
+        dto.setNetTxBytes(latest.netTxBytes());
+        dto.setSamples(samples.size());
+        dto.setAvgCpuPercent(samples.stream().mapToDouble(ContainerStatsStore.Sample::cpuPercent).average().orElse(0));
+        dto.setPeakMemoryBytes(samples.stream().mapToLong(ContainerStatsStore.Sample::memoryBytes).max().orElse(0));
+        return dto;
+    }
+}
@@ -1,11 +1,14 @@
 package at.fhtw.ctfbackend.controller;
 
 import at.fhtw.ctfbackend.dto.ChallengeDto;
+import at.fhtw.ctfbackend.services.BuildLogService;
 import at.fhtw.ctfbackend.services.ChallengeService;
+import at.fhtw.ctfbackend.services.ImagePrebuildService;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.List;
@@ -20,9 +23,15 @@ public class ChallengeController {
     private static final Logger logger = LoggerFactory.getLogger(ChallengeController.class);
 
     private final ChallengeService challengeService;
+    private final ImagePrebuildService imagePrebuildService;
+    private final BuildLogService buildLogService;
 
-    public ChallengeController(ChallengeService challengeService) {
+    public ChallengeController(ChallengeService challengeService,
+                               ImagePrebuildService imagePrebuildService,
+                               BuildLogService buildLogService) {
         this.challengeService = challengeService;
+        this.imagePrebuildService = imagePrebuildService;
+        this.buildLogService = buildLogService;
     }
 
     @GetMapping
@@ -210,4 +219,56 @@ public class ChallengeController {
     public Map<String, Object> getAdminStats() {
         return challengeService.getAdminStats();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/admin/{id}/image")
+    public ResponseEntity<Map<String, Object>> getImageBuildInfo(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(challengeService.getImageBuildInfo(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/admin/{id}/image/build")
+    public ResponseEntity<Map<String, Object>> rebuildImage(@PathVariable String id) {
+        try {
+            challengeService.getImageBuildInfo(id);
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+        imagePrebuildService.queue(id);
+        return ResponseEntity.accepted().body(Map.of("challengeId", id, "status", "QUEUED"));
+    }
+
+    @GetMapping("/admin/{id}/resources")
+    public ResponseEntity<Map<String, Object>> getResourceProfile(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(challengeService.getResourceProfile(id));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Body: {"memoryMb": 256, "cpus": 0.5}; a missing or null field goes back to the default
+    @PutMapping("/admin/{id}/resources")
+    public ResponseEntity<Map<String, Object>> updateResourceProfile(@PathVariable String id,
+                                                                     @RequestBody Map<String, Number> body) {
+        Number memoryMb = body.get("memoryMb");
+        Number cpus = body.get("cpus");
+        try {
+            return ResponseEntity.ok(challengeService.updateResourceProfile(id,
+                    memoryMb != null ? memoryMb.intValue() : null,
+                    cpus != null ? cpus.doubleValue() : null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Live build output: "start", "line" and "result" events, replaying the last build first
+    @GetMapping(value = "/admin/{id}/image/logs", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBuildLog(@PathVariable String id) {
+        return buildLogService.subscribe(id);
+    }
+}
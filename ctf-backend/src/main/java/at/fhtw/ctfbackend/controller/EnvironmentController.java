@@ -2,21 +2,32 @@ package at.fhtw.ctfbackend.controller;
 
 import at.fhtw.ctfbackend.dto.ChallengeInstanceResponse;
 import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.services.AdmissionService;
 import at.fhtw.ctfbackend.services.EnvironmentService;
+import at.fhtw.ctfbackend.services.ProvisioningService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/environment")
 public class EnvironmentController {
 
     private final EnvironmentService envService;
+    private final ProvisioningService provisioningService;
+    private final AdmissionService admissionService;
 
-    public EnvironmentController(EnvironmentService envService) {
+    public EnvironmentController(EnvironmentService envService, ProvisioningService provisioningService,
+                                 AdmissionService admissionService) {
         this.envService = envService;
+        this.provisioningService = provisioningService;
+        this.admissionService = admissionService;
     }
 
     // 1) Start environment for a challenge
@@ -29,44 +40,37 @@ public class EnvironmentController {
 
         ChallengeInstanceEntity inst = envService.startEnvironment(username, challengeId);
 
-        ChallengeInstanceResponse response = new ChallengeInstanceResponse(
-                inst.getInstanceId(),
-                inst.getUsername(),
-                inst.getChallengeId(),
-                inst.getContainerName(),
-                inst.getFlagHash(),
-                inst.getCreatedAt(),
-                inst.getExpiresAt(),
-                inst.getStatus(),
-                inst.getSshPort()
-        );
-
-        return ResponseEntity.ok(response);
+        return accepted(inst);
     }
 
-    // 2) Optional: Get instance status
+    // 2) Optional: Get instance status; resumes an idle-paused instance unless touch=false (background polling)
     @GetMapping("/instance/{instanceId}")
-    public ResponseEntity<?> getInstance(@PathVariable String instanceId) {
-        var inst = envService.getInstance(instanceId);
+    public ResponseEntity<?> getInstance(@PathVariable String instanceId,
+                                         @RequestParam(defaultValue = "true") boolean touch) {
+        var inst = touch ? envService.touch(instanceId) : envService.getInstance(instanceId);
         if (inst == null) {
             return ResponseEntity.notFound().build();
         }
 
-        ChallengeInstanceResponse response = new ChallengeInstanceResponse(
-                inst.getInstanceId(),
-                inst.getUsername(),
-                inst.getChallengeId(),
-                inst.getContainerName(),
-                inst.getFlagHash(),
-                inst.getCreatedAt(),
-                inst.getExpiresAt(),
-                inst.getStatus(),
-                inst.getSshPort()
-        );
+        ChallengeInstanceResponse response = toResponse(inst);
 
         return ResponseEntity.ok(response);
     }
 
+    // 2a) Terminal activity reported by the gateway (on connect and while data flows)
+    @PostMapping("/instance/{instanceId}/activity")
+    public ResponseEntity<Void> reportActivity(@PathVariable String instanceId) {
+        return envService.touch(instanceId) != null
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // 2b) Progress stream (QUEUED, BUILDING, STARTING, READY, FAILED) for a provisioning instance
+    @GetMapping(value = "/instance/{instanceId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter instanceEvents(@PathVariable String instanceId) throws Exception {
+        return provisioningService.subscribe(instanceId, () -> envService.getInstance(instanceId));
+    }
+
     // 3) Optional: Stop environment
     @PostMapping("/stop/{instanceId}")
     public ResponseEntity<?> stopInstance(@PathVariable String instanceId) {
@@ -95,20 +99,10 @@ public class EnvironmentController {
         try {
             ChallengeInstanceEntity inst = envService.buildAndStartChallenge(username, challengeId);
 
-            ChallengeInstanceResponse response = new ChallengeInstanceResponse(
-                    inst.getInstanceId(),
-                    inst.getUsername(),
-                    inst.getChallengeId(),
-                    inst.getContainerName(),
-                    inst.getFlagHash(),
-                    inst.getCreatedAt(),
-                    inst.getExpiresAt(),
-                    inst.getStatus(),
-                    inst.getSshPort()
-            );
-
-            return ResponseEntity.ok(response);
+            return accepted(inst);
 
+        } catch (RejectedExecutionException | TooManyInstancesException e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of(
                     "error", "Failed to build and start challenge",
@@ -116,4 +110,32 @@ public class EnvironmentController {
             ));
         }
     }
+
+    // Provisioning continues in the background; 200 once the instance is already usable
+    private ResponseEntity<ChallengeInstanceResponse> accepted(ChallengeInstanceEntity inst) {
+        HttpStatus status = "PROVISIONING".equals(inst.getStatus()) ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(toResponse(inst));
+    }
+
+    private ChallengeInstanceResponse toResponse(ChallengeInstanceEntity inst) {
+        ChallengeInstanceResponse response = new ChallengeInstanceResponse(
+                inst.getInstanceId(),
+                inst.getUsername(),
+                inst.getChallengeId(),
+                inst.getContainerName(),
+                inst.getFlagHash(),
+                inst.getCreatedAt(),
+                inst.getExpiresAt(),
+                inst.getStatus(),
+                inst.getSshPort(),
+                inst.getReadyAt()
+        );
+        response.setPausedAt(inst.getPausedAt());
+        response.setSshHost(envService.sshHost(inst));
+        admissionService.queueStatus(inst.getInstanceId()).ifPresent(queued -> {
+            response.setQueuePosition(queued.position());
+            response.setEstimatedWaitSeconds(queued.estimatedWaitSeconds());
+        });
+        return response;
+    }
 }
@@ -1,44 +1,30 @@
 package at.fhtw.ctfbackend.controller;
 
 import at.fhtw.ctfbackend.dto.SubmitFlagRequestDto;
-import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
-import at.fhtw.ctfbackend.services.EnvironmentService;
 import at.fhtw.ctfbackend.services.FlagService;
-import at.fhtw.ctfbackend.services.UserService;
+import at.fhtw.ctfbackend.services.SolveSubmissionService;
 import java.util.Map;
+import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/flags")
 public class FlagController {
 
-    private final UserService userService;
     private static final Logger logger = LoggerFactory.getLogger(
         FlagController.class
     );
     private final FlagService flagService;
-    private final EnvironmentService envService;
-    private final ChallengeInstanceRepository instanceRepo;
 
-    public FlagController(
-        FlagService flagService,
-        EnvironmentService envService,
-        ChallengeInstanceRepository instanceRepo,
-        UserService userService
-    ) {
+    public FlagController(FlagService flagService) {
         this.flagService = flagService;
-        this.envService = envService;
-        this.instanceRepo = instanceRepo;
-        this.userService = userService;
     }
 
     @PostMapping("/submit")
-    @Transactional //  Add this annotation
     public ResponseEntity<Map<String, Object>> submitFlag(
         Authentication auth,
         @RequestBody SubmitFlagRequestDto request
@@ -62,57 +48,29 @@ public class FlagController {
             );
         }
 
-        // NEW: Check if user already solved this challenge
-        boolean alreadySolved = flagService.hasUserSolvedChallenge(
-            username,
-            challengeId
-        );
-
-        if (alreadySolved) {
-            return ResponseEntity.badRequest().body(
-                Map.of(
-                    "message",
-                    "Flag already submitted.",
-                    "status",
-                    "warning"
-                )
-            );
+        // Answered from SolvedStateCache, so a repeated submit costs no query at all
+        if (flagService.hasUserSolvedChallenge(username, challengeId)) {
+            return alreadySubmitted();
         }
 
-        // NEW: record that user solved the challenge
-        boolean isNewSolve = flagService.recordSolve(username, challengeId);
-
-        if (!isNewSolve) {
+        // Penalty, insert, points and solve count in one statement; empty if already solved.
+        // The instance is torn down afterwards from the outbox, not while the student waits
+        Optional<SolveSubmissionService.RecordedSolve> recorded;
+        try {
+            recorded = flagService.recordSolve(username, challengeId);
+        } catch (Exception e) {
+            logger.error("Error recording solve: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(
                 Map.of("message", "Failed to record solve.", "status", "error")
             );
         }
 
-        // Auto-cleanup dynamic challenge container after successful solve
-        try {
-            var instances = instanceRepo.findByUserAndChallengeIdAndStatus(
-                userService.getRequiredUser(username),
-                challengeId,
-                "RUNNING"
-            );
-            if (!instances.isEmpty()) {
-                String instanceId = instances.get(0).getInstanceId();
-                envService.cleanupAndReleasePort(instanceId);
-                logger.info(
-                    "Auto-cleaned environment after solve: {}",
-                    instanceId
-                );
-            }
-        } catch (Exception cleanupEx) {
-            logger.warn(
-                "Failed to auto-cleanup environment after solve: {}",
-                cleanupEx.getMessage()
-            );
+        if (recorded.isEmpty()) {
+            return alreadySubmitted();
         }
 
-        //  Get the updated solve count AFTER the transaction commits
-        long solveCount = flagService.getSolveCountForChallenge(challengeId);
-        int pointsEarned = flagService.getPointsEarned(username, challengeId);
+        long solveCount = recorded.get().solveCount();
+        int pointsEarned = recorded.get().pointsEarned();
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("message", "Correct flag!");
@@ -122,4 +80,15 @@ public class FlagController {
 
         return ResponseEntity.ok(response);
     }
+
+    private ResponseEntity<Map<String, Object>> alreadySubmitted() {
+        return ResponseEntity.badRequest().body(
+            Map.of(
+                "message",
+                "Flag already submitted.",
+                "status",
+                "warning"
+            )
+        );
+    }
 }
@@ -0,0 +1,60 @@
+package at.fhtw.ctfbackend.controller;
+
+import at.fhtw.ctfbackend.dto.ScoreboardEntryDto;
+import at.fhtw.ctfbackend.dto.ScoreboardPageDto;
+import at.fhtw.ctfbackend.dto.ScoreTimelineDto;
+import at.fhtw.ctfbackend.services.ScoreboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/scoreboard")
+public class ScoreboardController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_TIMELINE_USERS = 25;
+    private static final int MAX_TIMELINE_POINTS = 500;
+
+    private final ScoreboardService scoreboard;
+
+    public ScoreboardController(ScoreboardService scoreboard) {
+        this.scoreboard = scoreboard;
+    }
+
+    // Public, served from memory
+    @GetMapping
+    public ResponseEntity<ScoreboardPageDto> getScoreboard(@RequestParam(defaultValue = "0") int page,
+                                                           @RequestParam(defaultValue = "50") int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        var entries = scoreboard.page(pageNumber, pageSize).stream().map(this::toDto).toList();
+        return ResponseEntity.ok(new ScoreboardPageDto(entries, pageNumber, pageSize, scoreboard.userCount()));
+    }
+
+    // The authenticated user's own rank; 404 until their first solve
+    @GetMapping("/me")
+    public ResponseEntity<ScoreboardEntryDto> getMyRank(Authentication auth) {
+        return scoreboard.rankOf(auth.getName())
+                .map(ranked -> ResponseEntity.ok(toDto(ranked)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Score over time of the top users, for the scoreboard chart
+    @GetMapping("/timeline")
+    public ResponseEntity<ScoreTimelineDto> getTimeline(@RequestParam(defaultValue = "10") int top,
+                                                        @RequestParam(defaultValue = "100") int points) {
+        ScoreboardService.Timeline timeline = scoreboard.timeline(
+                Math.max(1, Math.min(top, MAX_TIMELINE_USERS)),
+                Math.max(2, Math.min(points, MAX_TIMELINE_POINTS)));
+        var series = timeline.series().stream()
+                .map(s -> new ScoreTimelineDto.Series(s.rank(), s.username(), s.points()))
+                .toList();
+        return ResponseEntity.ok(new ScoreTimelineDto(timeline.at(), series));
+    }
+
+    private ScoreboardEntryDto toDto(ScoreboardService.Ranked ranked) {
+        ScoreboardService.Standing s = ranked.standing();
+        return new ScoreboardEntryDto(ranked.rank(), s.username(), s.points(), s.solveCount(), s.lastSolveAt());
+    }
+}
@@ -1,10 +1,16 @@
 package at.fhtw.ctfbackend.controller;
 
 import at.fhtw.ctfbackend.dto.SolveResponse;
+import at.fhtw.ctfbackend.services.SolveFeedService;
+import at.fhtw.ctfbackend.services.SolveListingService;
+import at.fhtw.ctfbackend.services.SolveListingService.Filter;
 import at.fhtw.ctfbackend.services.SolveService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,9 +25,14 @@ public class SolveController {
     private static final Logger logger = LoggerFactory.getLogger(SolveController.class);
 
     private final SolveService solveService;
+    private final SolveFeedService solveFeed;
+    private final SolveListingService solveListing;
 
-    public SolveController(SolveService solveService) {
+    public SolveController(SolveService solveService, SolveFeedService solveFeed,
+                           SolveListingService solveListing) {
         this.solveService = solveService;
+        this.solveFeed = solveFeed;
+        this.solveListing = solveListing;
     }
 
     /**
@@ -37,14 +48,18 @@ public class SolveController {
     }
 
     /**
-     * Get all users who solved a specific challenge
+     * Get all users who solved a specific challenge, oldest first
      * @param challengeId The challenge ID
-     * @return List of solves for the challenge
+     * @param limit Page size; without it the whole list is streamed
+     * @param cursor nextCursor of the previous page
+     * @return Page of solves, or the list of all solves for the challenge
      */
     @GetMapping("/challenge/{challengeId}")
-    public ResponseEntity<List<SolveResponse>> getSolversForChallenge(@PathVariable String challengeId) {
-        List<SolveResponse> solves = solveService.getSolversForChallenge(challengeId);
-        return ResponseEntity.ok(solves);
+    public ResponseEntity<?> getSolversForChallenge(
+            @PathVariable String challengeId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return list(Filter.challenge(challengeId), limit, cursor);
     }
 
     /**
@@ -109,43 +124,64 @@ public class SolveController {
     }
 
     /**
-     * Get solves by category
+     * Get solves by category, oldest first
      * @param category The category to filter by
-     * @return List of solves in the specified category
+     * @param limit Page size; without it the whole list is streamed
+     * @param cursor nextCursor of the previous page
+     * @return Page of solves, or the list of all solves in the specified category
      */
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<SolveResponse>> getSolvesByCategory(@PathVariable String category) {
-        List<SolveResponse> solves = solveService.getSolvesByCategory(category);
-        return ResponseEntity.ok(solves);
+    public ResponseEntity<?> getSolvesByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return list(Filter.category(category), limit, cursor);
     }
 
     /**
-     * Get solves by difficulty
+     * Get solves by difficulty, oldest first
      * @param difficulty The difficulty to filter by
-     * @return List of solves with the specified difficulty
+     * @param limit Page size; without it the whole list is streamed
+     * @param cursor nextCursor of the previous page
+     * @return Page of solves, or the list of all solves with the specified difficulty
      */
     @GetMapping("/difficulty/{difficulty}")
-    public ResponseEntity<List<SolveResponse>> getSolvesByDifficulty(@PathVariable String difficulty) {
-        List<SolveResponse> solves = solveService.getSolvesByDifficulty(difficulty);
-        return ResponseEntity.ok(solves);
+    public ResponseEntity<?> getSolvesByDifficulty(
+            @PathVariable String difficulty,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        return list(Filter.difficulty(difficulty), limit, cursor);
     }
 
     /**
-     * Get solves within a time range
+     * Get solves within a time range, oldest first
      * @param start Start time (ISO format)
      * @param end End time (ISO format)
-     * @return List of solves within the time range
+     * @param limit Page size; without it the whole list is streamed
+     * @param cursor nextCursor of the previous page
+     * @return Page of solves, or the list of all solves within the time range
      */
     @GetMapping("/time-range")
-    public ResponseEntity<List<SolveResponse>> getSolvesByTimeRange(
+    public ResponseEntity<?> getSolvesByTimeRange(
             @RequestParam String start,
-            @RequestParam String end) {
+            @RequestParam String end,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         
         LocalDateTime startTime = LocalDateTime.parse(start);
         LocalDateTime endTime = LocalDateTime.parse(end);
         
-        List<SolveResponse> solves = solveService.getSolvesByTimeRange(startTime, endTime);
-        return ResponseEntity.ok(solves);
+        return list(Filter.timeRange(startTime, endTime), limit, cursor);
+    }
+
+    // A page when asked for one, otherwise the full JSON array written while the rows are read
+    private ResponseEntity<?> list(Filter filter, Integer limit, String cursor) {
+        if (limit != null || cursor != null) {
+            int size = limit != null ? limit : SolveListingService.MAX_PAGE_SIZE;
+            return ResponseEntity.ok(solveListing.page(filter, cursor, size));
+        }
+        StreamingResponseBody body = out -> solveListing.stream(filter, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     /**
@@ -193,4 +229,14 @@ public class SolveController {
         long totalCount = solveService.getTotalSolveCount();
         return ResponseEntity.ok(Map.of("totalSolves", totalCount));
     }
+
+    /**
+     * Live feed of new solves as Server-Sent Events ("solve"), instead of polling
+     * /recent, /top-solvers and /total-count
+     * @return Event stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSolves() {
+        return solveFeed.subscribe();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package at.fhtw.ctfbackend.controller;
+
+public class TooManyInstancesException extends RuntimeException {
+    public TooManyInstancesException(String message) {
+        super(message);
+    }
+}
@@ -17,10 +17,15 @@ public class ChallengeInstanceResponse {
     private Instant expiresAt;
     private String status;
     private Integer sshPort;
+    private Instant readyAt;
+    private Integer queuePosition;        // only while waiting for a free slot
+    private Long estimatedWaitSeconds;
+    private Instant pausedAt;             // set while paused for being idle
+    private String sshHost;               // Docker worker the SSH port is published on; null = local
 
     public ChallengeInstanceResponse(String instanceId, String username, String challengeId,
                                      String containerName, String flagHash, Instant createdAt,
-                                     Instant expiresAt, String status, Integer sshPort) {
+                                     Instant expiresAt, String status, Integer sshPort, Instant readyAt) {
         this.instanceId = instanceId;
         this.username = username;
         this.challengeId = challengeId;
@@ -30,5 +35,6 @@ public class ChallengeInstanceResponse {
         this.expiresAt = expiresAt;
         this.status = status;
         this.sshPort = sshPort;
+        this.readyAt = readyAt;
     }
 }
@@ -0,0 +1,25 @@
+package at.fhtw.ctfbackend.dto;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+public class InstanceProgressEvent {
+    private final String instanceId;
+    private final String phase;     // QUEUED, BUILDING, STARTING, READY, FAILED
+    private final String status;    // instance status at the time of the event
+    private final Integer sshPort;
+    private final String message;
+    private final Instant timestamp;
+
+    public InstanceProgressEvent(String instanceId, String phase, String status,
+                                 Integer sshPort, String message) {
+        this.instanceId = instanceId;
+        this.phase = phase;
+        this.status = status;
+        this.sshPort = sshPort;
+        this.message = message;
+        this.timestamp = Instant.now();
+    }
+}
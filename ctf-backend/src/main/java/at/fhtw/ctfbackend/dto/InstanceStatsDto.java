@@ -0,0 +1,39 @@
+package at.fhtw.ctfbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Resource usage of one running instance for the admin overview: the latest sample plus
+ * aggregates over the samples still held in memory. Usage fields are null until the
+ * first sample.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InstanceStatsDto {
+    private String instanceId;
+    private String username;
+    private String challengeId;
+    private String containerName;
+    private String dockerHost;
+    private Instant expiresAt;
+    private Instant pausedAt;
+    private Instant lastActivityAt;
+
+    private Instant sampledAt;
+    private Double cpuPercent;
+    private Long memoryBytes;
+    private Long memoryLimitBytes;
+    private Long netRxBytes;
+    private Long netTxBytes;
+
+    private Integer samples;
+    private Double avgCpuPercent;
+    private Long peakMemoryBytes;
+}
@@ -0,0 +1,27 @@
+package at.fhtw.ctfbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreTimelineDto {
+    // Sample times shared by all series
+    private List<LocalDateTime> timestamps;
+    private List<Series> series;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Series {
+        private int rank;
+        private String username;
+        // Score at each of the timestamps
+        private int[] points;
+    }
+}
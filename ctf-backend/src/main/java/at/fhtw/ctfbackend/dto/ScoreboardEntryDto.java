@@ -0,0 +1,21 @@
+package at.fhtw.ctfbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the scoreboard. Users are ranked by points, ties go to whoever got there first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreboardEntryDto {
+    private int rank;
+    private String username;
+    private int points;
+    private int solveCount;
+    private LocalDateTime lastSolveAt;
+}
@@ -0,0 +1,17 @@
+package at.fhtw.ctfbackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoreboardPageDto {
+    private List<ScoreboardEntryDto> entries;
+    private int page;
+    private int size;
+    private int totalUsers;
+}
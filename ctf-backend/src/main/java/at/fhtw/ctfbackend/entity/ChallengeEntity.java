@@ -3,6 +3,8 @@ package at.fhtw.ctfbackend.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
+
 @Entity
 @Table(name = "challenges")
 @Getter
@@ -41,6 +43,20 @@ public class ChallengeEntity {
     @Column(columnDefinition = "TEXT")
     private String hintsJson;
 
+    // Image pre-build state, maintained by ImageBuildCoordinator
+    private String imageBuildStatus;    // QUEUED, BUILDING, READY, FAILED
+    private String imageTag;
+    private Long imageBuildDurationMs;
+    private Long imageSizeBytes;
+    private Instant imageBuiltAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String imageBuildError;
+
+    // Container limits; null means the environment.resources defaults (see ResourceScheduler)
+    private Integer memoryLimitMb;
+    private Double cpuLimit;
+
     public byte[] getDownload() {
         return downloadZip;
     }
@@ -7,7 +7,10 @@ import lombok.Setter;
 import java.time.Instant;
 
 @Entity
-@Table(name = "challenge_instances")
+@Table(name = "challenge_instances", indexes = {
+        // Expiry reaper: RUNNING rows by deadline
+        @Index(name = "idx_challenge_instances_status_expires", columnList = "status, expires_at")
+})
 @Getter
 @Setter
 public class ChallengeInstanceEntity {
@@ -29,8 +32,12 @@ public class ChallengeInstanceEntity {
 
     private Instant createdAt;
     private Instant expiresAt;
+    private Instant readyAt;    // sshd answered; null until then
+    private Instant pausedAt;   // docker paused for being idle; null while running normally
 
-    private String status;      // RUNNING, STOPPED, EXPIRED
+    private String status;      // PROVISIONING, RUNNING, STOPPED, EXPIRED, FAILED, DEAD
 
-    private Integer sshPort;
+    private Integer sshPort;    // null until provisioning allocated one
+
+    private String dockerHost;  // DockerHostRegistry id the container was placed on; null = local
 }
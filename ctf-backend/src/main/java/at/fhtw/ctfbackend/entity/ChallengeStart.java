@@ -0,0 +1,36 @@
+package at.fhtw.ctfbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * When a user first engaged with a challenge (hint, instance or flag submission).
+ * Basis for the solve rate and time-to-solve in challenge_stats; written with plain SQL.
+ */
+@Entity
+@Table(
+        name = "challenge_starts",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"challenge_id", "username"})
+        }
+)
+@Getter
+@Setter
+public class ChallengeStart {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "challenge_id", nullable = false)
+    private String challengeId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+}
@@ -0,0 +1,46 @@
+package at.fhtw.ctfbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model behind the challenge statistics endpoint, one row per challenge.
+ * Maintained with plain SQL by ChallengeStatsService; the entity only defines the table.
+ */
+@Entity
+@Table(name = "challenge_stats")
+@Getter
+@Setter
+public class ChallengeStats {
+
+    @Id
+    @Column(name = "challenge_id")
+    private String challengeId;
+
+    @Column(name = "solve_count", nullable = false)
+    private long solveCount;
+
+    // Distinct users who revealed a hint, started an instance or submitted a flag
+    @Column(name = "started_count", nullable = false)
+    private long startedCount;
+
+    // Flag submissions, right or wrong
+    @Column(name = "attempt_count", nullable = false)
+    private long attemptCount;
+
+    @Column(name = "first_blood_user")
+    private String firstBloodUser;
+
+    @Column(name = "first_blood_at")
+    private LocalDateTime firstBloodAt;
+
+    // From a user's start to their solve
+    @Column(name = "median_solve_seconds")
+    private Double medianSolveSeconds;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
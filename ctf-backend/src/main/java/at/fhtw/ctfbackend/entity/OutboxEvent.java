@@ -0,0 +1,51 @@
+package at.fhtw.ctfbackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Side effect of a committed write, carried out later by OutboxDispatcher.
+ * Rows are written in the same statement as the change itself and read with plain SQL;
+ * the entity only defines the table.
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+        // Dispatcher: due PENDING rows in insertion order
+        @Index(name = "idx_outbox_events_status_available", columnList = "status, available_at")
+})
+@Getter
+@Setter
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;   // SOLVE_RECORDED
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;     // JSON
+
+    @Column(nullable = false, length = 20)
+    private String status;      // PENDING, DONE, FAILED
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // Not before this: claim lease or retry backoff
+    @Column(name = "available_at", nullable = false)
+    private Instant availableAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -13,6 +13,13 @@ import java.time.LocalDateTime;
         name = "solves",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"username", "challenge_id"})
+        },
+        indexes = {
+                // Per-challenge counts and challenge_stats refreshes
+                @Index(name = "idx_solves_challenge", columnList = "challenge_id"),
+                // Keyset listings: the next page starts at (solved_at, id) instead of sorting every match
+                @Index(name = "idx_solves_solved_at_id", columnList = "solved_at, id"),
+                @Index(name = "idx_solves_challenge_solved_at_id", columnList = "challenge_id, solved_at, id")
         }
 )
 @Getter
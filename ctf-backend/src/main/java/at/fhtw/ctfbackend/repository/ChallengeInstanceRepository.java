@@ -3,8 +3,14 @@ package at.fhtw.ctfbackend.repository;
 import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
 import at.fhtw.ctfbackend.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,4 +30,48 @@ public interface ChallengeInstanceRepository extends JpaRepository<ChallengeInst
     );
 
     Optional<ChallengeInstanceEntity> findByInstanceId(String instanceId);
+
+    List<ChallengeInstanceEntity> findByStatus(String status);
+
+    List<ChallengeInstanceEntity> findByStatusIn(Collection<String> statuses);
+
+    Optional<ChallengeInstanceEntity> findFirstByContainerNameAndStatus(String containerName, String status);
+
+    // Compare-and-set on status, so a Docker event can't overwrite a concurrent stop or expiry
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChallengeInstanceEntity i SET i.status = :to WHERE i.instanceId = :instanceId AND i.status = :from")
+    int transitionStatus(@Param("instanceId") String instanceId, @Param("from") String from, @Param("to") String to);
+
+    // Provisioning writes; each is a no-op once the instance left PROVISIONING (e.g. stopped meanwhile).
+    // The port is only meaningful together with the host admission placed the instance on
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChallengeInstanceEntity i SET i.dockerHost = :dockerHost, i.sshPort = :sshPort " +
+           "WHERE i.instanceId = :instanceId AND i.status = 'PROVISIONING'")
+    int assignPort(@Param("instanceId") String instanceId, @Param("dockerHost") String dockerHost,
+                   @Param("sshPort") Integer sshPort);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChallengeInstanceEntity i SET i.dockerHost = :dockerHost, i.containerName = :containerName, " +
+           "i.sshPort = :sshPort WHERE i.instanceId = :instanceId AND i.status = 'PROVISIONING'")
+    int assignContainer(@Param("instanceId") String instanceId, @Param("dockerHost") String dockerHost,
+                        @Param("containerName") String containerName, @Param("sshPort") Integer sshPort);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChallengeInstanceEntity i SET i.status = 'RUNNING', i.readyAt = :readyAt, i.expiresAt = :expiresAt " +
+           "WHERE i.instanceId = :instanceId AND i.status = 'PROVISIONING'")
+    int markRunning(@Param("instanceId") String instanceId, @Param("readyAt") Instant readyAt,
+                    @Param("expiresAt") Instant expiresAt);
+
+    // Only the pause marker, so it never clobbers a status written concurrently
+    @Modifying
+    @Transactional
+    @Query("UPDATE ChallengeInstanceEntity i SET i.pausedAt = :pausedAt WHERE i.instanceId = :instanceId")
+    int updatePausedAt(@Param("instanceId") String instanceId, @Param("pausedAt") Instant pausedAt);
+
+    // Served by idx_challenge_instances_status_expires
+    List<ChallengeInstanceEntity> findByStatusAndExpiresAtBefore(String status, Instant before);
 }
@@ -2,9 +2,14 @@
 
     import at.fhtw.ctfbackend.entity.ChallengeEntity;
     import org.springframework.data.jpa.repository.JpaRepository;
+    import org.springframework.data.jpa.repository.Modifying;
     import org.springframework.data.jpa.repository.Query;
+    import org.springframework.data.repository.query.Param;
     import org.springframework.stereotype.Repository;
+    import org.springframework.transaction.annotation.Propagation;
+    import org.springframework.transaction.annotation.Transactional;
 
+    import java.time.Instant;
     import java.util.List;
 
     @Repository
@@ -15,4 +20,26 @@
 
         @Query("SELECT c.difficulty, COUNT(c) FROM ChallengeEntity c GROUP BY c.difficulty")
         List<Object[]> countChallengesByDifficulty();
+
+        // Flag checks only need these columns, not the whole row with its download zip
+        @Query("SELECT c.id, c.requiresInstance, c.flag FROM ChallengeEntity c")
+        List<Object[]> findFlagInfo();
+
+        @Query("SELECT c.id, c.requiresInstance, c.flag FROM ChallengeEntity c WHERE c.id = :id")
+        List<Object[]> findFlagInfoById(@Param("id") String id);
+
+        // Build bookkeeping runs outside the admin's request, so it only touches its own columns
+        @Modifying
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        @Query("UPDATE ChallengeEntity c SET c.imageBuildStatus = :status WHERE c.id = :id")
+        int updateImageBuildStatus(@Param("id") String id, @Param("status") String status);
+
+        @Modifying
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        @Query("UPDATE ChallengeEntity c SET c.imageBuildStatus = :status, c.imageTag = :tag, " +
+               "c.imageBuildDurationMs = :durationMs, c.imageSizeBytes = :sizeBytes, " +
+               "c.imageBuiltAt = :builtAt, c.imageBuildError = :error WHERE c.id = :id")
+        int recordImageBuild(@Param("id") String id, @Param("status") String status, @Param("tag") String tag,
+                             @Param("durationMs") Long durationMs, @Param("sizeBytes") Long sizeBytes,
+                             @Param("builtAt") Instant builtAt, @Param("error") String error);
     }
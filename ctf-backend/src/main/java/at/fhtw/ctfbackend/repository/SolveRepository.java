@@ -10,7 +10,6 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Pageable;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,12 +25,25 @@ public interface SolveRepository extends JpaRepository<Solve, Long> {
     @Query(value = "SELECT COUNT(*) FROM solves WHERE challenge_id = :challengeId", nativeQuery = true)
     long countByChallengeIdNative(@Param("challengeId") String challengeId);
 
-    //  FIXED - Custom queries for challenge ID navigation
-    @Query("SELECT s FROM Solve s WHERE s.challenge.id = :challengeId")
-    List<Solve> findByChallengeId(@Param("challengeId") String challengeId);
-
     @Query("SELECT s FROM Solve s WHERE s.username = :username AND s.challenge.id = :challengeId")
     Optional<Solve> findByUsernameAndChallengeId(@Param("username") String username, @Param("challengeId") String challengeId);
+
+    // Everything SolvedStateCache needs for one user, without loading the solves themselves
+    @Query("SELECT s.challenge.id FROM Solve s WHERE s.username = :username")
+    List<String> findChallengeIdsByUsername(@Param("username") String username);
+
+    // Scoreboard rows: username, challenge id, points, solved at; oldest first
+    @Query("SELECT s.username, s.challenge.id, s.pointsEarned, s.solvedAt FROM Solve s ORDER BY s.solvedAt")
+    List<Object[]> findScoreRows();
+
+    @Query("SELECT s.username, s.challenge.id, s.pointsEarned, s.solvedAt FROM Solve s WHERE s.username = :username ORDER BY s.solvedAt")
+    List<Object[]> findScoreRowsByUsername(@Param("username") String username);
+
+    // User statistics: category, difficulty, solve count, points; no row if the user doesn't exist
+    @Query("SELECT c.category, c.difficulty, COUNT(s.id), COALESCE(SUM(s.pointsEarned), 0) " +
+           "FROM UserEntity u LEFT JOIN Solve s ON s.user = u LEFT JOIN s.challenge c " +
+           "WHERE u.username = :username GROUP BY c.category, c.difficulty")
+    List<Object[]> findSolveDistributionByUsername(@Param("username") String username);
 
     @Query("SELECT s FROM Solve s WHERE s.user = :user AND s.challenge.id = :challengeId")
     Optional<Solve> findByUserAndChallengeId(@Param("user") UserEntity user, @Param("challengeId") String challengeId);
@@ -48,20 +60,10 @@ public interface SolveRepository extends JpaRepository<Solve, Long> {
     @Query("SELECT s FROM Solve s ORDER BY s.solvedAt DESC")
     List<Solve> findRecentSolves(Pageable pageable);
 
-    // Find solves within a time range
-    List<Solve> findBySolvedAtBetween(LocalDateTime start, LocalDateTime end);
-
     //  FIXED - Use Pageable with limit
     @Query("SELECT s.username, COUNT(s) as solveCount FROM Solve s GROUP BY s.username ORDER BY solveCount DESC")
     List<Object[]> findTopSolvers(Pageable pageable);
 
     @Query("SELECT s.challenge.id, COUNT(s) as solveCount FROM Solve s GROUP BY s.challenge.id ORDER BY solveCount DESC")
     List<Object[]> findMostSolvedChallenges(Pageable pageable);
-
-    //  FIXED - Add @Param
-    @Query("SELECT s FROM Solve s WHERE s.challenge.category = :category")
-    List<Solve> findByCategory(@Param("category") String category);
-
-    @Query("SELECT s FROM Solve s WHERE s.challenge.difficulty = :difficulty")
-    List<Solve> findByDifficulty(@Param("difficulty") String difficulty);
 }
@@ -0,0 +1,288 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.controller.TooManyInstancesException;
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decides which instances the Docker hosts run at once, and where.
+ *
+ * Every active instance (PROVISIONING or RUNNING) holds a slot and its challenge's
+ * resource reservation (see ResourceScheduler) until it is stopped, expires, fails or
+ * dies. The scheduler places every admitted instance on a host (stored as its
+ * dockerHost) before it is provisioned. Starts that don't fit any host's remaining
+ * budget, or exceed the hard cap
+ * environment.admission.max-instances, wait in one FIFO queue. Smaller instances may
+ * start ahead of a queue head that doesn't fit yet, but only until that head has waited
+ * environment.admission.backfill-window-ms; after that the room is kept for it.
+ * A user can hold at most environment.admission.max-per-user slots, queued ones
+ * included, so nobody can fill the queue alone. When the queue is full, starts are
+ * rejected right away instead of piling up.
+ */
+@Service
+public class AdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionService.class);
+
+    // Weight of the newest sample in the moving average of the time between two freed slots
+    private static final double EWMA_ALPHA = 0.2;
+    private static final long ASSUMED_LIFETIME_MS = 3_600_000;
+
+    public record QueueStatus(int position, long estimatedWaitSeconds) {}
+
+    private record Waiting(ChallengeInstanceEntity instance, ResourceProfile profile, Set<String> warmHosts,
+                           Runnable start, long enqueuedAt) {}
+
+    private record Slot(String username, ResourceScheduler.Reservation reservation, long takenAt) {}
+
+    private final ChallengeInstanceRepository instanceRepo;
+    private final ProvisioningService provisioning;
+    private final ResourceScheduler scheduler;
+    private final int maxActive;
+    private final int maxPerUser;
+    private final int queueCapacity;
+    private final long backfillWindowMs;
+
+    // All guarded by this
+    private final Map<String, Slot> active = new HashMap<>();          // by instanceId
+    private final LinkedHashMap<String, Waiting> queue = new LinkedHashMap<>();
+    private final Map<String, Integer> slotsPerUser = new HashMap<>(); // active + queued
+    private double releaseIntervalMs;
+    private long lastReleaseAt;
+
+    public AdmissionService(ChallengeInstanceRepository instanceRepo,
+                            ProvisioningService provisioning,
+                            ResourceScheduler scheduler,
+                            @Value("${environment.admission.max-instances:200}") int maxActive,
+                            @Value("${environment.admission.max-per-user:2}") int maxPerUser,
+                            @Value("${environment.admission.queue-capacity:100}") int queueCapacity,
+                            @Value("${environment.admission.backfill-window-ms:120000}") long backfillWindowMs) {
+        this.instanceRepo = instanceRepo;
+        this.provisioning = provisioning;
+        this.scheduler = scheduler;
+        this.maxActive = Math.max(1, maxActive);
+        this.maxPerUser = Math.max(1, maxPerUser);
+        this.queueCapacity = queueCapacity;
+        this.backfillWindowMs = backfillWindowMs;
+        // Until slots have been seen freeing up, assume full-length instances ending evenly
+        this.releaseIntervalMs = (double) ASSUMED_LIFETIME_MS / this.maxActive;
+    }
+
+    /**
+     * Take a slot for a saved PROVISIONING instance and run start, or queue it until a slot frees up.
+     * start must not throw; it runs on the caller's thread or on the thread that freed the slot.
+     *
+     * @return empty if started right away, otherwise the position in the queue
+     * @throws TooManyInstancesException if the user already holds max-per-user slots
+     * @throws RejectedExecutionException if the queue is full or the challenge could never fit the host
+     */
+    public Optional<QueueStatus> admit(ChallengeInstanceEntity inst, Runnable start) {
+        String instanceId = inst.getInstanceId();
+        String username = inst.getUsername();
+        ResourceProfile profile = scheduler.profileFor(inst.getChallengeId());
+        if (!scheduler.fitsEmptyHost(profile)) {
+            throw new RejectedExecutionException("This challenge needs more resources than any host has");
+        }
+        Set<String> warmHosts = scheduler.hostsWithImage(inst.getChallengeId());
+        QueueStatus status;
+
+        synchronized (this) {
+            int held = slotsPerUser.getOrDefault(username, 0);
+            if (held >= maxPerUser) {
+                throw new TooManyInstancesException("You already have " + held
+                        + " environments running or queued, stop one before starting another");
+            }
+
+            long now = System.currentTimeMillis();
+            Optional<String> host = mayOvertakeQueue(now) && active.size() < maxActive
+                    ? scheduler.tryPlace(instanceId, profile, warmHosts)
+                    : Optional.empty();
+            if (host.isPresent()) {
+                inst.setDockerHost(host.get());
+                active.put(instanceId, new Slot(username, new ResourceScheduler.Reservation(host.get(), profile), now));
+                slotsPerUser.merge(username, 1, Integer::sum);
+                status = null;
+            } else if (queue.size() >= queueCapacity) {
+                throw new RejectedExecutionException("All environment slots are busy and the queue is full, please retry later");
+            } else {
+                queue.put(instanceId, new Waiting(inst, profile, warmHosts, start, now));
+                slotsPerUser.merge(username, 1, Integer::sum);
+                status = statusAt(queue.size());
+            }
+        }
+
+        if (status == null) {
+            start.run();
+            return Optional.empty();
+        }
+
+        logger.info("Instance {} of {} queued at position {} (~{}s)", instanceId, username,
+                status.position(), status.estimatedWaitSeconds());
+        provisioning.publish(inst, ProvisioningService.Phase.QUEUED, queuedMessage(status));
+        return Optional.of(status);
+    }
+
+    /**
+     * Give back the slot of an instance that stopped, expired, failed or died,
+     * or drop it from the queue. Safe to call more than once.
+     */
+    public void release(String instanceId) {
+        synchronized (this) {
+            Slot slot = active.remove(instanceId);
+            String username;
+            if (slot != null) {
+                scheduler.release(instanceId);
+                username = slot.username();
+                long now = System.currentTimeMillis();
+                // Only intervals under load say anything about how fast the queue moves
+                if (!queue.isEmpty()) {
+                    long since = Math.max(lastReleaseAt, queue.values().iterator().next().enqueuedAt());
+                    releaseIntervalMs = EWMA_ALPHA * (now - since) + (1 - EWMA_ALPHA) * releaseIntervalMs;
+                }
+                lastReleaseAt = now;
+            } else {
+                Waiting waiting = queue.remove(instanceId);
+                if (waiting == null) return;
+                username = waiting.instance().getUsername();
+            }
+            slotsPerUser.computeIfPresent(username, (u, n) -> n > 1 ? n - 1 : null);
+        }
+        drain();
+    }
+
+    /**
+     * Position and estimated wait of a queued instance
+     */
+    public synchronized Optional<QueueStatus> queueStatus(String instanceId) {
+        int position = 1;
+        for (String queued : queue.keySet()) {
+            if (queued.equals(instanceId)) {
+                return Optional.of(statusAt(position));
+            }
+            position++;
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Rebuild the slot table from the instances table: picks up instances that were running
+     * before a restart and frees slots whose release was missed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${environment.admission.resync-interval-ms:60000}",
+               initialDelayString = "${environment.admission.resync-interval-ms:60000}")
+    public void resync() {
+        long snapshotAt = System.currentTimeMillis();
+        List<ChallengeInstanceEntity> rows = instanceRepo.findByStatusIn(List.of("RUNNING", "PROVISIONING"));
+        // Looked up outside the lock, profiles may need a DB read
+        Map<String, ResourceProfile> profiles = new HashMap<>();
+        rows.forEach(inst -> profiles.put(inst.getInstanceId(), scheduler.profileFor(inst.getChallengeId())));
+
+        int freed;
+        synchronized (this) {
+            Map<String, Slot> current = new HashMap<>();
+            for (ChallengeInstanceEntity inst : rows) {
+                if (!queue.containsKey(inst.getInstanceId())) {
+                    String host = inst.getDockerHost() != null ? inst.getDockerHost() : DockerHostRegistry.LOCAL;
+                    current.put(inst.getInstanceId(), active.getOrDefault(inst.getInstanceId(), new Slot(inst.getUsername(),
+                            new ResourceScheduler.Reservation(host, profiles.get(inst.getInstanceId())), snapshotAt)));
+                }
+            }
+            // Slots taken after the query ran aren't in it yet
+            active.forEach((id, slot) -> {
+                if (slot.takenAt() >= snapshotAt) current.putIfAbsent(id, slot);
+            });
+            freed = (int) active.keySet().stream().filter(id -> !current.containsKey(id)).count();
+
+            active.clear();
+            active.putAll(current);
+            Map<String, ResourceScheduler.Reservation> reservations = new HashMap<>();
+            active.forEach((id, slot) -> reservations.put(id, slot.reservation()));
+            scheduler.reset(reservations);
+            slotsPerUser.clear();
+            active.values().forEach(slot -> slotsPerUser.merge(slot.username(), 1, Integer::sum));
+            queue.values().forEach(w -> slotsPerUser.merge(w.instance().getUsername(), 1, Integer::sum));
+        }
+
+        if (freed > 0) {
+            logger.info("Admission resync freed {} leaked slots", freed);
+        }
+        drain();
+    }
+
+    public synchronized int getActiveCount() {
+        return active.size();
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Start queued instances that fit, in order, then tell the rest where they stand
+     */
+    private void drain() {
+        List<Waiting> toStart = new ArrayList<>();
+        List<Map.Entry<ChallengeInstanceEntity, QueueStatus>> moved = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            Iterator<Waiting> it = queue.values().iterator();
+            while (it.hasNext() && active.size() < maxActive) {
+                Waiting next = it.next();
+                String instanceId = next.instance().getInstanceId();
+                Optional<String> host = scheduler.tryPlace(instanceId, next.profile(), next.warmHosts());
+                if (host.isEmpty()) {
+                    // Let smaller ones behind it backfill, unless it has waited long enough
+                    if (now - next.enqueuedAt() >= backfillWindowMs) break;
+                    continue;
+                }
+                it.remove();
+                next.instance().setDockerHost(host.get());
+                active.put(instanceId, new Slot(next.instance().getUsername(),
+                        new ResourceScheduler.Reservation(host.get(), next.profile()), now));
+                toStart.add(next);
+            }
+            if (!toStart.isEmpty()) {
+                int position = 1;
+                for (Waiting waiting : queue.values()) {
+                    moved.add(Map.entry(waiting.instance(), statusAt(position++)));
+                }
+            }
+        }
+
+        for (Waiting waiting : toStart) {
+            logger.info("Instance {} admitted after {} ms in queue", waiting.instance().getInstanceId(),
+                    System.currentTimeMillis() - waiting.enqueuedAt());
+            waiting.start().run();
+        }
+        for (var entry : moved) {
+            provisioning.publish(entry.getKey(), ProvisioningService.Phase.QUEUED, queuedMessage(entry.getValue()));
+        }
+    }
+
+    // Caller holds the lock. Starting ahead of the queue is backfilling too, same window
+    private boolean mayOvertakeQueue(long now) {
+        return queue.isEmpty() || now - queue.values().iterator().next().enqueuedAt() < backfillWindowMs;
+    }
+
+    // Caller holds the lock
+    private QueueStatus statusAt(int position) {
+        return new QueueStatus(position, Math.round(position * releaseIntervalMs / 1000));
+    }
+
+    private static String queuedMessage(QueueStatus status) {
+        return "Waiting for a free slot (position " + status.position() + ", about "
+                + Math.max(1, Math.round(status.estimatedWaitSeconds() / 60.0)) + " min)";
+    }
+}
@@ -0,0 +1,119 @@
+package at.fhtw.ctfbackend.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the most recent image build output per challenge and streams it live
+ * to admins. A new subscriber first gets the buffered lines, then follows along.
+ */
+@Service
+public class BuildLogService {
+
+    public record BuildLogEvent(String image, String line, Instant timestamp) {}
+
+    public record BuildResultEvent(String image, boolean success, String message) {}
+
+    private static final class BuildLog {
+        final String image;
+        final Deque<BuildLogEvent> lines = new ArrayDeque<>();
+        BuildResultEvent result;
+
+        BuildLog(String image) {
+            this.image = image;
+        }
+    }
+
+    private final int maxLines;
+    private final Map<String, BuildLog> logs = new ConcurrentHashMap<>();
+    private final SseEmitterRegistry<String> streams;
+
+    public BuildLogService(@Value("${docker.build.log-lines:500}") int maxLines,
+                           @Value("${docker.build.log-sse-timeout-ms:600000}") long sseTimeoutMs) {
+        this.maxLines = maxLines;
+        this.streams = new SseEmitterRegistry<>(sseTimeoutMs);
+    }
+
+    /**
+     * Start a fresh log for a build, replacing the previous one
+     */
+    public void begin(String challengeId, String image) {
+        logs.put(challengeId, new BuildLog(image));
+        streams.send(challengeId, "start", new BuildLogEvent(image, null, Instant.now()));
+    }
+
+    public void append(String challengeId, String line) {
+        BuildLog log = logs.get(challengeId);
+        if (log == null) return;
+
+        BuildLogEvent event = new BuildLogEvent(log.image, line, Instant.now());
+        synchronized (log) {
+            if (log.lines.size() == maxLines) {
+                log.lines.removeFirst();
+            }
+            log.lines.addLast(event);
+        }
+        streams.send(challengeId, "line", event);
+    }
+
+    public void finish(String challengeId, boolean success, String message) {
+        BuildLog log = logs.get(challengeId);
+        if (log == null) return;
+
+        BuildResultEvent result = new BuildResultEvent(log.image, success, message);
+        synchronized (log) {
+            log.result = result;
+        }
+        streams.send(challengeId, "result", result);
+    }
+
+    public List<String> getLines(String challengeId) {
+        BuildLog log = logs.get(challengeId);
+        if (log == null) return List.of();
+
+        synchronized (log) {
+            return log.lines.stream().map(BuildLogEvent::line).toList();
+        }
+    }
+
+    /**
+     * Replay the buffered output, then stream new lines. The stream stays open across
+     * builds, so an admin watching a challenge also sees the next rebuild.
+     */
+    public SseEmitter subscribe(String challengeId) {
+        // Register before taking the snapshot so no line is lost in between (one may arrive twice)
+        SseEmitter emitter = streams.register(challengeId);
+
+        BuildLog log = logs.get(challengeId);
+        if (log == null) {
+            return emitter;
+        }
+
+        List<BuildLogEvent> snapshot;
+        BuildResultEvent result;
+        synchronized (log) {
+            snapshot = new ArrayList<>(log.lines);
+            result = log.result;
+        }
+
+        streams.send(emitter, "start", new BuildLogEvent(log.image, null, Instant.now()));
+        for (BuildLogEvent event : snapshot) {
+            if (!streams.send(emitter, "line", event)) {
+                return emitter;
+            }
+        }
+        if (result != null) {
+            streams.send(emitter, "result", result);
+        }
+        return emitter;
+    }
+}
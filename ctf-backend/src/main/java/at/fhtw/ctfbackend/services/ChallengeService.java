@@ -6,6 +6,7 @@ import at.fhtw.ctfbackend.repository.ChallengeRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -23,11 +24,24 @@ public class ChallengeService {
 
     private final ChallengeRepository repo;
     private final ChallengeFileStorageService fileStorageService;
+    private final ContainerPoolService containerPool;
+    private final ResourceScheduler scheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlagVerificationIndex flagIndex;
+    private final ChallengeStatsService challengeStats;
     private final ObjectMapper objectMapper;
 
-    public ChallengeService(ChallengeRepository repo, ChallengeFileStorageService fileStorageService) {
+    public ChallengeService(ChallengeRepository repo, ChallengeFileStorageService fileStorageService,
+                            ContainerPoolService containerPool, ResourceScheduler scheduler,
+                            ApplicationEventPublisher eventPublisher, FlagVerificationIndex flagIndex,
+                            ChallengeStatsService challengeStats) {
         this.repo = repo;
         this.fileStorageService = fileStorageService;
+        this.containerPool = containerPool;
+        this.scheduler = scheduler;
+        this.eventPublisher = eventPublisher;
+        this.flagIndex = flagIndex;
+        this.challengeStats = challengeStats;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -144,6 +158,11 @@ public class ChallengeService {
         try {
             ChallengeEntity savedEntity = repo.saveAndFlush(entity);
 
+            // Build the image in the background once this transaction commits
+            if (savedEntity.isRequiresInstance()) {
+                eventPublisher.publishEvent(new ImagePrebuildService.ChallengeFilesChanged(challengeId));
+            }
+
             logger.info("Challenge created: {}", challengeId);
             return toDto(savedEntity);
         } catch (Exception e) {
@@ -200,6 +219,9 @@ public class ChallengeService {
                 filesMap.put(fileName, getFileType(fileName));
             }
             existingEntity.setDockerFilesJson(objectMapper.writeValueAsString(filesMap));
+
+            // Idle pooled containers were started from the old files
+            containerPool.evict(id);
         }
 
         // Handle hints update
@@ -210,6 +232,17 @@ public class ChallengeService {
         }
 
         ChallengeEntity updatedEntity = repo.save(existingEntity);
+        // Flag or requiresInstance may have changed; the next submission reloads them
+        flagIndex.evictChallenge(id);
+
+        // Docker files and downloads are both part of the build context
+        boolean contextChanged = (dockerFiles != null && dockerFiles.length > 0)
+                || (downloadFile != null && !downloadFile.isEmpty())
+                || Boolean.TRUE.equals(requiresInstance);
+        if (updatedEntity.isRequiresInstance() && contextChanged) {
+            eventPublisher.publishEvent(new ImagePrebuildService.ChallengeFilesChanged(id));
+        }
+
         logger.info("Challenge updated: {}", id);
         return toDto(updatedEntity);
     }
@@ -229,10 +262,59 @@ public class ChallengeService {
             fileStorageService.deleteChallengeFolder(id);
         }
 
+        containerPool.evict(id);
         repo.deleteById(id);
+        flagIndex.evictChallenge(id);
+        challengeStats.forget(id);
         logger.info("Challenge deleted: {}", id);
     }
 
+    /**
+     * Image pre-build state of a challenge for the admin UI
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getImageBuildInfo(String id) {
+        ChallengeEntity entity = repo.findById(id)
+                .orElseThrow(() -> new RuntimeException("Challenge not found: " + id));
+
+        Map<String, Object> info = new HashMap<>();
+        info.put("challengeId", id);
+        info.put("requiresInstance", entity.isRequiresInstance());
+        info.put("status", entity.getImageBuildStatus());
+        info.put("imageTag", entity.getImageTag());
+        info.put("durationMs", entity.getImageBuildDurationMs());
+        info.put("sizeBytes", entity.getImageSizeBytes());
+        info.put("builtAt", entity.getImageBuiltAt());
+        info.put("error", entity.getImageBuildError());
+        return info;
+    }
+
+    public Map<String, Object> getResourceProfile(String id) {
+        ChallengeEntity entity = repo.findById(id)
+                .orElseThrow(() -> new RuntimeException("Challenge not found: " + id));
+        return resourceInfo(entity, scheduler.profileFor(id));
+    }
+
+    /**
+     * Set the challenge's container limits (nulls reset to the defaults).
+     * Pooled containers still have the old limits, so the pool is refilled.
+     */
+    public Map<String, Object> updateResourceProfile(String id, Integer memoryMb, Double cpus) {
+        ResourceProfile profile = scheduler.updateProfile(id, memoryMb, cpus);
+        containerPool.evict(id);
+        containerPool.requestRefill(id);
+        return resourceInfo(repo.findById(id).orElseThrow(), profile);
+    }
+
+    private static Map<String, Object> resourceInfo(ChallengeEntity entity, ResourceProfile profile) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("challengeId", entity.getId());
+        info.put("memoryMb", profile.memoryMb());
+        info.put("cpus", profile.cpus());
+        info.put("isDefault", entity.getMemoryLimitMb() == null && entity.getCpuLimit() == null);
+        return info;
+    }
+
     /**
      * Get Docker files for a challenge
      */
@@ -0,0 +1,265 @@
+package at.fhtw.ctfbackend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintains the challenge_stats read model so the statistics endpoint is one primary-key
+ * lookup instead of counting solves and loading the whole challenge.
+ *
+ * Flag submissions and starts (first hint, instance or submission of a user) are counted
+ * in memory and flushed every few seconds, so the submit path doesn't write. Solve count,
+ * first blood and median time-to-solve are recomputed for the one challenge on each
+ * SolveRecorded event; that is idempotent, as outbox listeners have to be.
+ */
+@Service
+public class ChallengeStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChallengeStatsService.class);
+
+    public record ChallengeStatistics(String challengeId, String title, String category, String difficulty,
+                                      Integer points, long solveCount, long startedCount, long attemptCount,
+                                      String firstBloodUser, LocalDateTime firstBloodAt, Double medianSolveSeconds) {
+
+        /**
+         * Share of the users who started the challenge that solved it, null before anyone started
+         */
+        public Double solveRate() {
+            return startedCount > 0 ? Math.min(1.0, (double) solveCount / startedCount) : null;
+        }
+    }
+
+    record Start(String challengeId, String username) {}
+
+    // Unknown challenge ids (typos in submissions) are skipped by the EXISTS
+    private static final String START_SQL = """
+            WITH inserted AS (
+                INSERT INTO challenge_starts (challenge_id, username, started_at)
+                SELECT :challengeId, :username, :startedAt
+                WHERE EXISTS (SELECT 1 FROM challenges WHERE id = :challengeId)
+                ON CONFLICT (challenge_id, username) DO NOTHING
+                RETURNING challenge_id
+            )
+            INSERT INTO challenge_stats (challenge_id, solve_count, started_count, attempt_count, updated_at)
+            SELECT challenge_id, 0, 1, 0, now() FROM inserted
+            ON CONFLICT (challenge_id) DO UPDATE
+            SET started_count = challenge_stats.started_count + 1, updated_at = now()
+            """;
+
+    private static final String ATTEMPTS_SQL = """
+            INSERT INTO challenge_stats (challenge_id, solve_count, started_count, attempt_count, updated_at)
+            SELECT :challengeId, 0, 0, :attempts, now()
+            WHERE EXISTS (SELECT 1 FROM challenges WHERE id = :challengeId)
+            ON CONFLICT (challenge_id) DO UPDATE
+            SET attempt_count = challenge_stats.attempt_count + EXCLUDED.attempt_count, updated_at = now()
+            """;
+
+    // Aggregates over the challenge's solves only (idx_solves_challenge)
+    private static final String SOLVE_AGGREGATES = """
+            COUNT(s.id),
+            (ARRAY_AGG(s.username ORDER BY s.solved_at, s.id))[1],
+            MIN(s.solved_at),
+            PERCENTILE_CONT(0.5) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM s.solved_at - st.started_at))
+            """;
+
+    private static final String REFRESH_SOLVES_SQL = """
+            INSERT INTO challenge_stats (challenge_id, started_count, attempt_count, updated_at,
+                                         solve_count, first_blood_user, first_blood_at, median_solve_seconds)
+            SELECT :challengeId, 0, 0, now(),
+                   %s
+            FROM solves s
+            LEFT JOIN challenge_starts st
+                   ON st.challenge_id = s.challenge_id AND st.username = s.username AND st.started_at <= s.solved_at
+            WHERE s.challenge_id = :challengeId
+            HAVING EXISTS (SELECT 1 FROM challenges WHERE id = :challengeId)
+            ON CONFLICT (challenge_id) DO UPDATE
+            SET solve_count = EXCLUDED.solve_count, first_blood_user = EXCLUDED.first_blood_user,
+                first_blood_at = EXCLUDED.first_blood_at, median_solve_seconds = EXCLUDED.median_solve_seconds,
+                updated_at = now()
+            """.formatted(SOLVE_AGGREGATES);
+
+    // Existing data: starts from hint reveals, instances and (lacking anything earlier) the solve itself
+    private static final String BACKFILL_STARTS_SQL = """
+            INSERT INTO challenge_starts (challenge_id, username, started_at)
+            SELECT challenge_id, username, MIN(started_at)
+            FROM (
+                SELECT challenge_id, username, revealed_at AS started_at FROM hint_reveals
+                UNION ALL
+                SELECT challenge_id, username, created_at::timestamp FROM challenge_instances
+                UNION ALL
+                SELECT challenge_id, username, solved_at FROM solves
+            ) earliest
+            WHERE username IS NOT NULL AND started_at IS NOT NULL
+              AND challenge_id IN (SELECT id FROM challenges)
+            GROUP BY challenge_id, username
+            ON CONFLICT (challenge_id, username) DO NOTHING
+            """;
+
+    private static final String BACKFILL_STATS_SQL = """
+            INSERT INTO challenge_stats (challenge_id, started_count, attempt_count, updated_at,
+                                         solve_count, first_blood_user, first_blood_at, median_solve_seconds)
+            SELECT c.id, (SELECT COUNT(*) FROM challenge_starts cs WHERE cs.challenge_id = c.id), 0, now(),
+                   %s
+            FROM challenges c
+            LEFT JOIN solves s ON s.challenge_id = c.id
+            LEFT JOIN challenge_starts st
+                   ON st.challenge_id = s.challenge_id AND st.username = s.username AND st.started_at <= s.solved_at
+            GROUP BY c.id
+            ON CONFLICT (challenge_id) DO NOTHING
+            """.formatted(SOLVE_AGGREGATES);
+
+    private static final String GET_SQL = """
+            SELECT c.id, c.title, c.category, c.difficulty, c.points,
+                   s.solve_count, s.started_count, s.attempt_count,
+                   s.first_blood_user, s.first_blood_at, s.median_solve_seconds
+            FROM challenges c
+            LEFT JOIN challenge_stats s ON s.challenge_id = c.id
+            WHERE c.id = :challengeId
+            """;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    private final Map<String, LongAdder> attempts = new ConcurrentHashMap<>();
+    // First time a user was seen on a challenge since the last flush
+    private final Map<Start, LocalDateTime> starts = new ConcurrentHashMap<>();
+
+    public ChallengeStatsService(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * A flag submission, right or wrong. Also counts as the user starting the challenge.
+     */
+    public void recordAttempt(String username, String challengeId) {
+        if (challengeId == null) return;
+        attempts.computeIfAbsent(challengeId, id -> new LongAdder()).increment();
+        recordStart(username, challengeId);
+    }
+
+    /**
+     * The user engaged with the challenge (hint, instance, submission). Only the first time counts.
+     */
+    public void recordStart(String username, String challengeId) {
+        if (username == null || challengeId == null) return;
+        starts.putIfAbsent(new Start(challengeId, username), LocalDateTime.now());
+    }
+
+    public Optional<ChallengeStatistics> getStatistics(String challengeId) {
+        List<ChallengeStatistics> rows = jdbc.query(GET_SQL, new MapSqlParameterSource("challengeId", challengeId),
+                (rs, i) -> {
+                    Timestamp firstBloodAt = rs.getTimestamp("first_blood_at");
+                    double median = rs.getDouble("median_solve_seconds");
+                    Double medianSeconds = rs.wasNull() ? null : median;
+                    return new ChallengeStatistics(rs.getString("id"), rs.getString("title"),
+                            rs.getString("category"), rs.getString("difficulty"), (Integer) rs.getObject("points"),
+                            rs.getLong("solve_count"), rs.getLong("started_count"), rs.getLong("attempt_count"),
+                            rs.getString("first_blood_user"),
+                            firstBloodAt != null ? firstBloodAt.toLocalDateTime() : null, medianSeconds);
+                });
+        return rows.stream().findFirst();
+    }
+
+    // The solve's start has to be in the table before time-to-solve is computed. Ahead of the
+    // feed, so a failed refresh makes the outbox retry before the solve was announced
+    @Order(1)
+    @EventListener
+    public void onSolveRecorded(OutboxDispatcher.SolveRecorded solve) {
+        flushStarts();
+        refreshSolves(solve.challengeId());
+    }
+
+    /**
+     * Recompute the solve-derived columns of one challenge, e.g. after a solve was deleted
+     */
+    public void refreshSolves(String challengeId) {
+        jdbc.update(REFRESH_SOLVES_SQL, new MapSqlParameterSource("challengeId", challengeId));
+    }
+
+    public void forget(String challengeId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("challengeId", challengeId);
+        jdbc.update("DELETE FROM challenge_starts WHERE challenge_id = :challengeId", params);
+        jdbc.update("DELETE FROM challenge_stats WHERE challenge_id = :challengeId", params);
+        attempts.remove(challengeId);
+    }
+
+    @Scheduled(fixedDelayString = "${challenge-stats.flush-interval-ms:5000}")
+    public void flush() {
+        try {
+            flushStarts();
+            flushAttempts();
+        } catch (Exception e) {
+            logger.warn("Flushing challenge stats failed: {}", e.getMessage());
+        }
+    }
+
+    synchronized void flushStarts() {
+        if (starts.isEmpty()) return;
+        List<Map.Entry<Start, LocalDateTime>> batch = new ArrayList<>(starts.entrySet());
+        SqlParameterSource[] params = batch.stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("challengeId", e.getKey().challengeId())
+                        .addValue("username", e.getKey().username())
+                        .addValue("startedAt", e.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate(START_SQL, params);
+        // Kept on failure; the insert is a no-op for starts already written
+        batch.forEach(e -> starts.remove(e.getKey(), e.getValue()));
+    }
+
+    synchronized void flushAttempts() {
+        List<MapSqlParameterSource> params = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : attempts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count == 0) {
+                // Idle for a whole interval; bounds the map when ids come from typos
+                attempts.remove(entry.getKey(), entry.getValue());
+            } else {
+                params.add(new MapSqlParameterSource()
+                        .addValue("challengeId", entry.getKey())
+                        .addValue("attempts", count));
+            }
+        }
+        if (params.isEmpty()) return;
+        try {
+            jdbc.batchUpdate(ATTEMPTS_SQL, params.toArray(SqlParameterSource[]::new));
+        } catch (Exception e) {
+            // Put them back for the next flush
+            params.forEach(p -> attempts.computeIfAbsent((String) p.getValue("challengeId"), id -> new LongAdder())
+                    .add((Long) p.getValue("attempts")));
+            throw e;
+        }
+    }
+
+    /**
+     * Fill the read model from the existing tables the first time it's empty
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            Long rows = jdbc.queryForObject("SELECT COUNT(*) FROM challenge_stats", Map.of(), Long.class);
+            if (rows != null && rows > 0) return;
+            int startRows = jdbc.update(BACKFILL_STARTS_SQL, Map.of());
+            int statRows = jdbc.update(BACKFILL_STATS_SQL, Map.of());
+            logger.info("Challenge stats backfilled: {} challenges, {} starts", statRows, startRows);
+        } catch (Exception e) {
+            logger.warn("Backfilling challenge stats failed: {}", e.getMessage());
+        }
+    }
+}
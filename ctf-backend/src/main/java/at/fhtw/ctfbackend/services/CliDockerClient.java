@@ -0,0 +1,483 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DockerClient that shells out to the docker CLI, one process per call.
+ */
+@Component
+@ConditionalOnProperty(name = "docker.client", havingValue = "cli", matchIfMissing = true)
+public class CliDockerClient implements DockerClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(CliDockerClient.class);
+
+    private static final Pattern PUBLISHED_PORT = Pattern.compile("(\\d+)->");
+    private static final Pattern SIZE = Pattern.compile("([0-9.]+)\\s*([A-Za-z]*)");
+    private static final long EXEC_TIMEOUT_SECONDS = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // DOCKER_HOST for every call, null for the environment's default daemon
+    private final String dockerHost;
+
+    public CliDockerClient() {
+        this(null);
+    }
+
+    /**
+     * Client for another daemon, e.g. a worker at tcp://10.0.0.11:2375
+     */
+    public CliDockerClient(String dockerHost) {
+        this.dockerHost = dockerHost;
+    }
+
+    private ProcessBuilder process(String... command) {
+        return process(Arrays.asList(command));
+    }
+
+    private ProcessBuilder process(List<String> command) {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        if (dockerHost != null) {
+            pb.environment().put("DOCKER_HOST", dockerHost);
+        }
+        return pb;
+    }
+
+    @Override
+    public boolean containerExists(String containerName) {
+        try {
+            ProcessBuilder pb = process("docker", "inspect", containerName);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+            p.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return p.waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getContainerStatus(String containerName) {
+        try {
+            ProcessBuilder pb = process("docker", "inspect",
+                    "--format", "{{.State.Status}}", containerName);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            String status = reader.readLine();
+            int exitCode = p.waitFor();
+
+            return exitCode == 0 && status != null ? status : "unknown";
+        } catch (Exception e) {
+            return "error";
+        }
+    }
+
+    @Override
+    public void runContainer(ContainerSpec spec) {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                "docker", "run", "-d",
+                "--name", spec.name(),
+                "--network", spec.network(),
+                "-p", spec.hostPort() + ":" + spec.containerPort()
+        ));
+
+        spec.env().forEach((key, value) -> {
+            command.add("-e");
+            command.add(key + "=" + value);
+        });
+
+        command.add("--memory=" + spec.memoryBytes() + "b");
+        command.add("--cpus=" + (spec.nanoCpus() / 1_000_000_000.0));
+        spec.tmpfs().forEach((path, options) -> command.add("--tmpfs=" + path + ":" + options));
+        spec.labels().forEach((key, value) -> command.add("--label=" + key + "=" + value));
+
+        command.add(spec.image());
+
+        try {
+            ProcessBuilder pb = process(command);
+            pb.redirectErrorStream(true);
+            Process process = pb.start();
+
+            // Read output in real-time
+            StringBuilder output = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.debug("   {}", line);
+                    output.append(line).append("\n");
+                }
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new RuntimeException("Docker run failed with exit code " + exitCode + ":\n" + output);
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to run container: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void stopContainer(String containerName, int timeoutSeconds) {
+        run("docker", "stop", "-t", String.valueOf(timeoutSeconds), containerName);
+    }
+
+    @Override
+    public void removeContainer(String containerName) {
+        run("docker", "rm", "-f", containerName);
+    }
+
+    @Override
+    public void removeContainers(List<String> containerNames) {
+        if (containerNames.isEmpty()) return;
+        List<String> command = new ArrayList<>(List.of("docker", "rm", "-f"));
+        command.addAll(containerNames);
+        run(command.toArray(String[]::new));
+    }
+
+    @Override
+    public void killContainer(String containerName) {
+        run("docker", "kill", containerName);
+    }
+
+    @Override
+    public void pauseContainer(String containerName) {
+        runChecked("pause " + containerName, "docker", "pause", containerName);
+    }
+
+    @Override
+    public void unpauseContainer(String containerName) {
+        runChecked("unpause " + containerName, "docker", "unpause", containerName);
+    }
+
+    @Override
+    public Map<String, ContainerStats> sampleStats(List<String> containerNames) {
+        Map<String, ContainerStats> stats = new HashMap<>();
+        if (containerNames.isEmpty()) return stats;
+        try {
+            // One call samples all of them; unknown names make it exit non-zero but the rest is still printed
+            List<String> command = new ArrayList<>(List.of("docker", "stats", "--no-stream",
+                    "--format", "{{.Name}}\t{{.CPUPerc}}\t{{.MemUsage}}\t{{.NetIO}}"));
+            command.addAll(containerNames);
+            Process p = process(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ContainerStats parsed = parseStatsLine(line);
+                if (parsed != null) {
+                    stats.put(line.substring(0, line.indexOf('\t')).trim(), parsed);
+                }
+            }
+            p.waitFor();
+        } catch (IOException | InterruptedException e) {
+            logger.error("docker stats failed: {}", e.getMessage());
+        }
+        return stats;
+    }
+
+    @Override
+    public HostInfo hostInfo() {
+        String output = runChecked("info", "docker", "info", "--format", "{{.NCPU}} {{.MemTotal}}");
+        String[] fields = output.split("\\s+");
+        try {
+            return new HostInfo(Integer.parseInt(fields[0]), Long.parseLong(fields[1]));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new RuntimeException("Unexpected docker info output: " + output);
+        }
+    }
+
+    /**
+     * "name\t0.07%\t1.5MiB / 512MiB\t1.2kB / 648B", or null for containers that
+     * stopped while sampling ("--" values)
+     */
+    static ContainerStats parseStatsLine(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length < 4 || !fields[1].trim().endsWith("%")) return null;
+        String[] mem = fields[2].split("/");
+        String[] net = fields[3].split("/");
+        if (mem.length < 2 || net.length < 2) return null;
+        try {
+            String cpu = fields[1].trim();
+            return new ContainerStats(Double.parseDouble(cpu.substring(0, cpu.length() - 1)),
+                    parseSize(mem[0]), parseSize(mem[1]), parseSize(net[0]), parseSize(net[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // docker stats prints memory in binary units (MiB) and network I/O in decimal ones (kB)
+    private static long parseSize(String value) {
+        Matcher m = SIZE.matcher(value.trim());
+        if (!m.matches()) throw new NumberFormatException("Not a size: " + value);
+        double number = Double.parseDouble(m.group(1));
+        long unit = switch (m.group(2).toLowerCase(Locale.ROOT)) {
+            case "", "b" -> 1L;
+            case "kb" -> 1000L;
+            case "mb" -> 1000L * 1000;
+            case "gb" -> 1000L * 1000 * 1000;
+            case "tb" -> 1000L * 1000 * 1000 * 1000;
+            case "kib" -> 1024L;
+            case "mib" -> 1024L * 1024;
+            case "gib" -> 1024L * 1024 * 1024;
+            case "tib" -> 1024L * 1024 * 1024 * 1024;
+            default -> throw new NumberFormatException("Unknown unit in " + value);
+        };
+        return Math.round(number * unit);
+    }
+
+    @Override
+    public ExecResult exec(String containerName, String user, Map<String, String> env, List<String> command) {
+        List<String> args = new ArrayList<>(List.of("docker", "exec", "-u", user));
+        env.forEach((key, value) -> {
+            args.add("-e");
+            args.add(key + "=" + value);
+        });
+        args.add(containerName);
+        args.addAll(command);
+
+        // Output goes to a file: reading the pipe would block until the process exits, and the
+        // timeout below would never get a say over a hung exec
+        Path output = null;
+        Process p = null;
+        try {
+            output = Files.createTempFile("docker-exec-", ".out");
+            ProcessBuilder pb = process(args);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(output.toFile());
+            p = pb.start();
+
+            if (!p.waitFor(EXEC_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new RuntimeException("docker exec timed out in " + containerName);
+            }
+            return new ExecResult(p.exitValue(), new String(Files.readAllBytes(output)));
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("docker exec failed in " + containerName + ": " + e.getMessage(), e);
+        } finally {
+            if (p != null && p.isAlive()) p.destroyForcibly();
+            if (output != null) {
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException e) {
+                    logger.debug("Could not delete {}: {}", output, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean imageExists(String imageName) {
+        try {
+            // Try exact name first
+            ProcessBuilder pb = process("docker", "image", "inspect", imageName);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+            p.getInputStream().transferTo(OutputStream.nullOutputStream());
+            if (p.waitFor() == 0) {
+                return true;
+            }
+
+            // Try with :latest tag
+            pb = process("docker", "image", "inspect", imageName + ":latest");
+            pb.redirectErrorStream(true);
+            p = pb.start();
+            p.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return p.waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void removeImage(String imageName) {
+        run("docker", "rmi", "-f", imageName);
+    }
+
+    @Override
+    public long getImageSize(String imageName) {
+        try {
+            ProcessBuilder pb = process("docker", "image", "inspect", "--format", "{{.Size}}", imageName);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+
+            String output = new String(p.getInputStream().readAllBytes()).trim();
+            return p.waitFor() == 0 ? Long.parseLong(output) : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public List<String> listContainerNames(String nameFilter) {
+        List<String> containers = new ArrayList<>();
+        try {
+            ProcessBuilder pb = process("docker", "ps",
+                    "--filter", "name=" + nameFilter,
+                    "--format", "{{.Names}}");
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    containers.add(line.trim());
+                }
+            }
+            p.waitFor();
+        } catch (Exception e) {
+            logger.error("Failed to list containers: {}", e.getMessage());
+        }
+        return containers;
+    }
+
+    @Override
+    public Set<Integer> listPublishedPorts() {
+        Set<Integer> ports = new HashSet<>();
+        try {
+            ProcessBuilder pb = process("docker", "ps", "-a", "--format", "{{.Ports}}");
+            Process p = pb.start();
+
+            // e.g. "0.0.0.0:30001->22/tcp, :::30001->22/tcp"; the host port is the number before "->"
+            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher m = PUBLISHED_PORT.matcher(line);
+                while (m.find()) {
+                    ports.add(Integer.parseInt(m.group(1)));
+                }
+            }
+
+            if (p.waitFor() != 0) {
+                throw new RuntimeException("docker ps exited with " + p.exitValue());
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to list published ports: " + e.getMessage(), e);
+        }
+        return ports;
+    }
+
+    @Override
+    public List<ContainerInfo> listContainersByLabel(String label) {
+        List<ContainerInfo> containers = new ArrayList<>();
+        try {
+            ProcessBuilder pb = process("docker", "ps", "-a", "--no-trunc",
+                    "--filter", "label=" + label,
+                    "--format", "{{.Names}}\t{{.State}}\t{{.Labels}}\t{{.Ports}}");
+            Process p = pb.start();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields.length < 4 || fields[0].isBlank()) continue;
+
+                // Labels come as "k1=v1,k2=v2"; ours never contain commas
+                Map<String, String> labels = new HashMap<>();
+                for (String pair : fields[2].split(",")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) labels.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+
+                Set<Integer> ports = new HashSet<>();
+                Matcher m = PUBLISHED_PORT.matcher(fields[3]);
+                while (m.find()) {
+                    ports.add(Integer.parseInt(m.group(1)));
+                }
+                containers.add(new ContainerInfo(fields[0].trim(), fields[1].trim(), labels, ports));
+            }
+
+            if (p.waitFor() != 0) {
+                throw new RuntimeException("docker ps exited with " + p.exitValue());
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to list containers: " + e.getMessage(), e);
+        }
+        return containers;
+    }
+
+    @Override
+    public EventStream openContainerEvents(String label, long sinceNanos) {
+        List<String> command = new ArrayList<>(List.of("docker", "events",
+                "--filter", "type=container", "--filter", "label=" + label, "--format", "{{json .}}"));
+        if (sinceNanos > 0) {
+            command.addAll(List.of("--since", ContainerEvent.since(sinceNanos)));
+        }
+
+        Process p;
+        try {
+            p = process(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to subscribe to Docker events: " + e.getMessage(), e);
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+        return new EventStream() {
+            @Override
+            public ContainerEvent next() throws IOException {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        return ContainerEvent.fromJson(objectMapper.readTree(line));
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void close() {
+                p.destroy();
+            }
+        };
+    }
+
+    /**
+     * Run a docker command and throw with its output if it fails
+     */
+    private String runChecked(String description, String... command) {
+        try {
+            ProcessBuilder pb = process(command);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+            String output = new String(p.getInputStream().readAllBytes()).trim();
+            if (p.waitFor() != 0) {
+                throw new RuntimeException("docker " + description + " failed: " + output);
+            }
+            return output;
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("docker " + description + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run a docker command, ignoring its exit code the same way the old inline calls did
+     */
+    private void run(String... command) {
+        try {
+            ProcessBuilder pb = process(command);
+            pb.redirectErrorStream(true);
+            Process p = pb.start();
+            p.getInputStream().transferTo(OutputStream.nullOutputStream());
+            p.waitFor();
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException(String.join(" ", command) + " failed: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeEntity;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a small number of idle, already started containers per
+ * instance challenge so that a start only has to claim one and inject the flag.
+ * Pool containers always run on the local Docker host; only instances placed
+ * there can claim one.
+ */
+@Service
+public class ContainerPoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerPoolService.class);
+
+    public record PooledContainer(String challengeId, String containerName, String imageName,
+                                  int sshPort, Instant createdAt) {}
+
+    private final DockerService dockerService;
+    private final PortAllocationService portAllocator;
+    private final ChallengeRepository challengeRepo;
+    private final ImageBuildCoordinator imageBuilds;
+    private final ReadinessProber readiness;
+    private final ResourceScheduler scheduler;
+
+    private final Map<String, Deque<PooledContainer>> pools = new ConcurrentHashMap<>();
+    private final Set<String> refillsPending = ConcurrentHashMap.newKeySet();
+
+    // Refills run one at a time so a burst of claims never turns into a burst of docker runs
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "container-pool-refill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${environment.pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${environment.pool.size:2}")
+    private int poolSize;
+
+    public ContainerPoolService(DockerService dockerService,
+                                PortAllocationService portAllocator,
+                                ChallengeRepository challengeRepo,
+                                ImageBuildCoordinator imageBuilds,
+                                ReadinessProber readiness,
+                                ResourceScheduler scheduler) {
+        this.dockerService = dockerService;
+        this.portAllocator = portAllocator;
+        this.challengeRepo = challengeRepo;
+        this.imageBuilds = imageBuilds;
+        this.readiness = readiness;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Fill the pools for all instance challenges once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || poolSize <= 0) {
+            logger.info("Container pool disabled");
+            return;
+        }
+
+        challengeRepo.findAll().stream()
+                .filter(ChallengeEntity::isRequiresInstance)
+                .map(ChallengeEntity::getId)
+                .forEach(this::requestRefill);
+    }
+
+    /**
+     * Take an idle container for the challenge, if one is ready.
+     * Always schedules a refill so the pool recovers in the background.
+     */
+    public Optional<PooledContainer> claim(String challengeId) {
+        if (!enabled || poolSize <= 0) {
+            return Optional.empty();
+        }
+
+        Deque<PooledContainer> pool = pools.get(challengeId);
+        String currentImage = pool != null ? imageBuilds.currentImage(challengeId).orElse(null) : null;
+
+        // Containers of an outdated image (the challenge files changed) are dropped instead of handed out
+        PooledContainer container = pool != null ? pool.pollFirst() : null;
+        while (container != null && !container.imageName().equals(currentImage)) {
+            logger.info("Discarding pooled container {} of outdated image {}", container.containerName(), container.imageName());
+            PooledContainer stale = container;
+            refillExecutor.submit(() -> removeContainer(stale));
+            container = pool.pollFirst();
+        }
+        requestRefill(challengeId);
+
+        if (container != null) {
+            // The instance was admitted with its own reservation
+            scheduler.releasePooled(container.containerName());
+            logger.info("Claimed pooled container {} for challenge {}", container.containerName(), challengeId);
+        }
+        return Optional.ofNullable(container);
+    }
+
+    /**
+     * Throw away a claimed container that turned out to be unusable
+     */
+    public void discard(PooledContainer container) {
+        removeContainer(container);
+    }
+
+    /**
+     * Drop all idle containers of a challenge, e.g. after its Docker files changed
+     */
+    public void evict(String challengeId) {
+        Deque<PooledContainer> pool = pools.remove(challengeId);
+        if (pool == null) {
+            return;
+        }
+
+        PooledContainer container;
+        while ((container = pool.pollFirst()) != null) {
+            PooledContainer toRemove = container;
+            refillExecutor.submit(() -> removeContainer(toRemove));
+        }
+    }
+
+    public void requestRefill(String challengeId) {
+        if (!enabled || poolSize <= 0 || !refillsPending.add(challengeId)) {
+            return;
+        }
+
+        refillExecutor.submit(() -> {
+            try {
+                refill(challengeId);
+            } catch (Exception e) {
+                logger.warn("Pool refill failed for challenge {}: {}", challengeId, e.getMessage());
+            } finally {
+                refillsPending.remove(challengeId);
+            }
+        });
+    }
+
+    /**
+     * Whether the container is currently idle in one of the pools
+     */
+    public boolean isPooled(String containerName) {
+        return pools.values().stream()
+                .flatMap(Deque::stream)
+                .anyMatch(c -> c.containerName().equals(containerName));
+    }
+
+    public Map<String, Integer> getPoolSizes() {
+        Map<String, Integer> sizes = new HashMap<>();
+        pools.forEach((challengeId, pool) -> sizes.put(challengeId, pool.size()));
+        return sizes;
+    }
+
+    private void refill(String challengeId) {
+        // The pool never builds; a challenge without an image is started the slow way
+        Optional<String> image = imageBuilds.currentImage(challengeId);
+        if (image.isEmpty()) {
+            logger.debug("No current image for challenge {} yet, skipping pool refill", challengeId);
+            return;
+        }
+        String imageName = image.get();
+
+        Deque<PooledContainer> pool = pools.computeIfAbsent(challengeId, id -> new ConcurrentLinkedDeque<>());
+        ResourceProfile profile = scheduler.profileFor(challengeId);
+        while (pool.size() < poolSize) {
+            String containerName = "ctf-" + UUID.randomUUID().toString().substring(0, 8);
+            // Idle containers take memory like instances do; don't crowd out admitted ones
+            if (!scheduler.reservePooled(containerName, profile)) {
+                logger.debug("No room on the local host for another pooled container of {}", challengeId);
+                return;
+            }
+            int sshPort;
+            try {
+                sshPort = portAllocator.allocatePort(DockerHostRegistry.LOCAL);
+            } catch (Exception e) {
+                scheduler.releasePooled(containerName);
+                throw e;
+            }
+
+            try {
+                dockerService.runContainer(DockerHostRegistry.LOCAL, containerName, imageName, null, sshPort, DockerService.poolLabels(challengeId),
+                        profile);
+            } catch (Exception e) {
+                portAllocator.releasePort(DockerHostRegistry.LOCAL, sshPort);
+                scheduler.releasePooled(containerName);
+                throw e;
+            }
+
+            // Only pool containers whose sshd answers, so a claim is usable right away
+            try {
+                readiness.awaitSsh(sshPort);
+            } catch (Exception e) {
+                removeContainer(new PooledContainer(challengeId, containerName, imageName, sshPort, Instant.now()));
+                throw e;
+            }
+
+            pool.addLast(new PooledContainer(challengeId, containerName, imageName, sshPort, Instant.now()));
+            logger.info("Pooled container {} ready for challenge {} ({}/{})",
+                    containerName, challengeId, pool.size(), poolSize);
+        }
+    }
+
+    private void removeContainer(PooledContainer container) {
+        try {
+            dockerService.stopContainer(container.containerName());
+        } catch (Exception e) {
+            logger.warn("Failed to remove pooled container {}: {}", container.containerName(), e.getMessage());
+            dockerService.killContainer(container.containerName());
+        }
+        portAllocator.releasePort(DockerHostRegistry.LOCAL, container.sshPort());
+        scheduler.releasePooled(container.containerName());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+
+        // Idle containers hold no user state, remove them instead of leaking ports
+        for (Deque<PooledContainer> pool : pools.values()) {
+            PooledContainer container;
+            while ((container = pool.pollFirst()) != null) {
+                removeContainer(container);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Keeps challenge_instances and Docker in agreement, using a single labelled
+ * container listing per cycle instead of inspecting containers one by one:
+ * - RUNNING instances whose container is gone or stopped are marked DEAD and free their port
+ * - managed containers no active instance or pool knows about (crash leftovers) are removed
+ * - ports published by live containers are put back into the port map
+ *
+ * A finding only counts once two consecutive cycles agree, so containers that are
+ * being started or torn down at snapshot time are left alone. DockerEventService
+ * catches crashes as they happen; this is the backstop for events that were missed.
+ */
+@Service
+public class ContainerReconcileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerReconcileService.class);
+
+    private final ChallengeInstanceRepository instanceRepo;
+    private final DockerService dockerService;
+    private final PortAllocationService portAllocator;
+    private final ContainerPoolService containerPool;
+    private final AdmissionService admission;
+    private final FlagVerificationIndex flagIndex;
+
+    // Seen once in the previous cycle; guarded by this
+    private Set<String> suspectedDead = new HashSet<>();
+    private Set<String> suspectedOrphans = new HashSet<>();
+
+    public ContainerReconcileService(ChallengeInstanceRepository instanceRepo,
+                                     DockerService dockerService,
+                                     PortAllocationService portAllocator,
+                                     ContainerPoolService containerPool,
+                                     AdmissionService admission,
+                                     FlagVerificationIndex flagIndex) {
+        this.instanceRepo = instanceRepo;
+        this.dockerService = dockerService;
+        this.portAllocator = portAllocator;
+        this.containerPool = containerPool;
+        this.admission = admission;
+        this.flagIndex = flagIndex;
+    }
+
+    @Scheduled(fixedDelayString = "${environment.reconcile.interval-ms:60000}",
+               initialDelayString = "${environment.reconcile.interval-ms:60000}")
+    public synchronized void reconcile() {
+        List<DockerClient.ContainerInfo> snapshot;
+        try {
+            snapshot = dockerService.listManagedContainers();
+        } catch (Exception e) {
+            // Without a snapshot every instance would look dead
+            logger.warn("Container reconcile skipped: {}", e.getMessage());
+            return;
+        }
+
+        Map<String, DockerClient.ContainerInfo> containers = new HashMap<>();
+        snapshot.forEach(c -> containers.put(c.name(), c));
+
+        List<ChallengeInstanceEntity> active = instanceRepo.findByStatusIn(List.of("RUNNING", "PROVISIONING"));
+        Set<String> referenced = new HashSet<>();
+        active.forEach(inst -> referenced.add(inst.getContainerName()));
+
+        List<String> toRemove = new ArrayList<>();
+
+        // 1. Instances whose container died
+        Set<String> deadNow = new HashSet<>();
+        List<ChallengeInstanceEntity> dead = new ArrayList<>();
+        for (ChallengeInstanceEntity inst : active) {
+            if (!"RUNNING".equals(inst.getStatus())) continue;
+
+            DockerClient.ContainerInfo container = containers.get(inst.getContainerName());
+            // Idle instances are paused on purpose
+            if (container != null && ("running".equals(container.state()) || "paused".equals(container.state()))) continue;
+
+            if (suspectedDead.contains(inst.getInstanceId())) {
+                dead.add(inst);
+                if (container != null) toRemove.add(container.name());
+            } else {
+                deadNow.add(inst.getInstanceId());
+            }
+        }
+        suspectedDead = deadNow;
+
+        // 2. Containers nobody owns
+        Set<String> orphansNow = new HashSet<>();
+        int orphans = 0;
+        Map<String, Set<Integer>> orphanPorts = new HashMap<>();   // by Docker host
+        for (DockerClient.ContainerInfo container : snapshot) {
+            if (referenced.contains(container.name()) || containerPool.isPooled(container.name())) continue;
+
+            if (suspectedOrphans.contains(container.name())) {
+                orphans++;
+                toRemove.add(container.name());
+                orphanPorts.computeIfAbsent(hostOf(container), h -> new HashSet<>()).addAll(container.publishedPorts());
+            } else {
+                orphansNow.add(container.name());
+            }
+        }
+        suspectedOrphans = orphansNow;
+
+        boolean removed = true;
+        if (!toRemove.isEmpty()) {
+            try {
+                dockerService.removeContainers(toRemove);
+            } catch (Exception e) {
+                removed = false;
+                logger.warn("Failed to remove {} dead/orphaned containers: {}", toRemove.size(), e.getMessage());
+            }
+        }
+
+        for (ChallengeInstanceEntity inst : dead) {
+            logger.warn("Container {} of instance {} is gone, marking it DEAD", inst.getContainerName(), inst.getInstanceId());
+            if (inst.getSshPort() != null) {
+                portAllocator.releasePort(inst.getDockerHost(), inst.getSshPort());
+            }
+            inst.setStatus("DEAD");
+        }
+        if (!dead.isEmpty()) {
+            instanceRepo.saveAll(dead);
+            dead.forEach(flagIndex::removeInstance);
+            dead.forEach(inst -> admission.release(inst.getInstanceId()));
+        }
+        if (removed) {
+            orphanPorts.forEach((host, ports) -> ports.forEach(port -> portAllocator.releasePort(host, port)));
+        }
+
+        // 3. Ports published by containers that are still around
+        Map<String, Set<Integer>> livePorts = new HashMap<>();
+        for (DockerClient.ContainerInfo container : snapshot) {
+            if (!removed || !toRemove.contains(container.name())) {
+                livePorts.computeIfAbsent(hostOf(container), h -> new HashSet<>()).addAll(container.publishedPorts());
+            }
+        }
+        int restored = 0;
+        for (Map.Entry<String, Set<Integer>> entry : livePorts.entrySet()) {
+            restored += portAllocator.markInUse(entry.getKey(), entry.getValue());
+        }
+
+        if (!dead.isEmpty() || orphans > 0 || restored > 0) {
+            logger.info("Container reconcile: {} containers, {} instances marked DEAD, {} orphans removed, {} ports restored",
+                    snapshot.size(), dead.size(), removed ? orphans : 0, restored);
+        }
+    }
+
+    private String hostOf(DockerClient.ContainerInfo container) {
+        String host = dockerService.hostOf(container.name());
+        return host != null ? host : DockerHostRegistry.LOCAL;
+    }
+}
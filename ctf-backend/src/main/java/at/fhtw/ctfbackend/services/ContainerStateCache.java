@@ -0,0 +1,111 @@
+package at.fhtw.ctfbackend.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Docker state of every managed container, kept current by DockerEventService.
+ *
+ * While the event subscription is live, DockerService answers exists/status checks from
+ * here instead of running docker inspect. DockerService also records its own stops and
+ * removals as expected exits, so the die/destroy events they cause aren't mistaken for
+ * crashes.
+ *
+ * With several Docker hosts each one has its own subscription. A container is answered for
+ * while its host's subscription is live; that a name doesn't exist anywhere only once all
+ * hosts are.
+ */
+@Component
+public class ContainerStateCache {
+
+    // How long a stop/remove we issued explains the events that follow it
+    private static final long EXPECTED_EXIT_TTL_MS = 120_000;
+
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+    private final Map<String, String> hosts = new ConcurrentHashMap<>();   // container -> host id
+    private final Map<String, Long> expectedExits = new ConcurrentHashMap<>();
+    private final Set<String> liveHosts = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> expectedHosts = Set.of(DockerHostRegistry.LOCAL);
+
+    /**
+     * Docker state ("running", "exited", ...) of a managed container, "unknown" if it doesn't exist,
+     * or empty while there is no live subscription and the cache can't be trusted
+     */
+    public Optional<String> state(String containerName) {
+        String host = hosts.get(containerName);
+        if (host != null) {
+            return liveHosts.contains(host) ? Optional.ofNullable(states.get(containerName)) : Optional.empty();
+        }
+        return isLive() ? Optional.of("unknown") : Optional.empty();
+    }
+
+    /**
+     * Whether the subscriptions of all hosts are live
+     */
+    public boolean isLive() {
+        return liveHosts.containsAll(expectedHosts);
+    }
+
+    /**
+     * Hosts that have a subscription; a name is only "unknown" once all of them are live
+     */
+    void expectHosts(Collection<String> hostIds) {
+        expectedHosts = Set.copyOf(hostIds);
+    }
+
+    /**
+     * Replace everything of the host with a fresh container listing and start answering queries for it
+     */
+    void reset(String hostId, Collection<DockerClient.ContainerInfo> containers) {
+        Map<String, String> fresh = new ConcurrentHashMap<>();
+        containers.forEach(c -> fresh.put(c.name(), c.state()));
+        hosts.entrySet().removeIf(e -> e.getValue().equals(hostId) && !fresh.containsKey(e.getKey()));
+        states.keySet().retainAll(hosts.keySet());
+        fresh.forEach((name, state) -> put(hostId, name, state));
+        liveHosts.add(hostId);
+    }
+
+    /**
+     * Stop answering queries for the host, e.g. after its subscription broke and events may be missed
+     */
+    void invalidate(String hostId) {
+        liveHosts.remove(hostId);
+    }
+
+    void invalidate() {
+        liveHosts.clear();
+    }
+
+    void put(String hostId, String containerName, String state) {
+        hosts.put(containerName, hostId);
+        states.put(containerName, state);
+    }
+
+    void remove(String containerName) {
+        states.remove(containerName);
+        hosts.remove(containerName);
+    }
+
+    /**
+     * Mark that the backend is about to stop or remove the container
+     */
+    void expectExit(String containerName) {
+        long now = System.currentTimeMillis();
+        expectedExits.values().removeIf(until -> until < now);
+        expectedExits.put(containerName, now + EXPECTED_EXIT_TTL_MS);
+    }
+
+    boolean isExitExpected(String containerName) {
+        Long until = expectedExits.get(containerName);
+        return until != null && until >= System.currentTimeMillis();
+    }
+
+    void clearExpectedExit(String containerName) {
+        expectedExits.remove(containerName);
+    }
+}
@@ -0,0 +1,123 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples CPU, memory and network I/O of all RUNNING instances in one sweep per interval
+ * into ContainerStatsStore, and ends abandoned instances early.
+ *
+ * An instance counts as abandoned when it had no terminal activity for
+ * environment.stats.abandon-after-ms and the samples covering that whole window show
+ * neither CPU above environment.stats.abandon-cpu-percent nor more than
+ * environment.stats.abandon-net-bytes of traffic. Such an instance is expired right away
+ * instead of holding its slot and port until expiresAt.
+ */
+@Service
+public class ContainerStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerStatsService.class);
+
+    private final ChallengeInstanceRepository instanceRepo;
+    private final DockerService dockerService;
+    private final EnvironmentService envService;
+    private final ContainerStatsStore store;
+
+    private final boolean enabled;
+    private final boolean abandonEnabled;
+    private final long abandonAfterMs;
+    private final double abandonCpuPercent;
+    private final long abandonNetBytes;
+
+    public ContainerStatsService(ChallengeInstanceRepository instanceRepo,
+                                 DockerService dockerService,
+                                 EnvironmentService envService,
+                                 ContainerStatsStore store,
+                                 @Value("${environment.stats.enabled:true}") boolean enabled,
+                                 @Value("${environment.stats.abandon-enabled:true}") boolean abandonEnabled,
+                                 @Value("${environment.stats.abandon-after-ms:1800000}") long abandonAfterMs,
+                                 @Value("${environment.stats.abandon-cpu-percent:2.0}") double abandonCpuPercent,
+                                 @Value("${environment.stats.abandon-net-bytes:65536}") long abandonNetBytes) {
+        this.instanceRepo = instanceRepo;
+        this.dockerService = dockerService;
+        this.envService = envService;
+        this.store = store;
+        this.enabled = enabled;
+        this.abandonEnabled = abandonEnabled;
+        this.abandonAfterMs = abandonAfterMs;
+        this.abandonCpuPercent = abandonCpuPercent;
+        this.abandonNetBytes = abandonNetBytes;
+
+        if (abandonEnabled && (long) store.capacity() * store.intervalMs() < abandonAfterMs) {
+            logger.warn("environment.stats.samples x interval-ms is shorter than abandon-after-ms, "
+                    + "abandoned instances will never be detected");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${environment.stats.interval-ms:30000}",
+               initialDelayString = "${environment.stats.interval-ms:30000}")
+    public void sample() {
+        if (!enabled) return;
+
+        List<ChallengeInstanceEntity> running = instanceRepo.findByStatus("RUNNING");
+        store.retain(running.stream().map(ChallengeInstanceEntity::getInstanceId).toList());
+        if (running.isEmpty()) return;
+
+        Map<String, DockerClient.ContainerStats> stats;
+        try {
+            stats = dockerService.sampleStats(running.stream().map(ChallengeInstanceEntity::getContainerName).toList());
+        } catch (Exception e) {
+            logger.warn("Sampling container stats failed: {}", e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (ChallengeInstanceEntity inst : running) {
+            DockerClient.ContainerStats s = stats.get(inst.getContainerName());
+            if (s != null) store.record(inst.getInstanceId(), now, s);
+        }
+
+        if (!abandonEnabled) return;
+        for (ChallengeInstanceEntity inst : running) {
+            String reason = abandonReason(inst, now);
+            if (reason == null) continue;
+            logger.info("Ending abandoned instance {} of {} ({}), {} s before it would expire", inst.getInstanceId(),
+                    inst.getUsername(), reason, (inst.getExpiresAt().toEpochMilli() - now) / 1000);
+            envService.cleanupAndReleasePort(inst.getInstanceId());
+        }
+    }
+
+    /**
+     * Why the instance counts as abandoned, or null if it doesn't
+     */
+    String abandonReason(ChallengeInstanceEntity inst, long now) {
+        long idleMs = now - envService.lastActiveAt(inst);
+        if (idleMs < abandonAfterMs) return null;
+
+        long windowStart = now - abandonAfterMs;
+        List<ContainerStatsStore.Sample> window = store.history(inst.getInstanceId(), windowStart);
+        // Only judge a window we actually watched, e.g. not right after a restart
+        if (window.size() < 2 || window.get(0).sampledAt() > windowStart + store.intervalMs()) return null;
+
+        double maxCpu = 0;
+        for (ContainerStatsStore.Sample s : window) {
+            maxCpu = Math.max(maxCpu, s.cpuPercent());
+        }
+        ContainerStatsStore.Sample first = window.get(0);
+        ContainerStatsStore.Sample last = window.get(window.size() - 1);
+        long traffic = (last.netRxBytes() + last.netTxBytes()) - (first.netRxBytes() + first.netTxBytes());
+        // A negative delta means the counters were reset, so something happened
+        if (maxCpu >= abandonCpuPercent || traffic < 0 || traffic > abandonNetBytes) return null;
+
+        return String.format("no activity for %d min, max CPU %.1f%%, %d bytes of traffic",
+                idleMs / 60_000, maxCpu, traffic);
+    }
+}
@@ -0,0 +1,126 @@
+package at.fhtw.ctfbackend.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recent resource samples per running instance, filled by ContainerStatsService.
+ *
+ * Each instance gets a fixed-size ring of primitive arrays, so an hour of samples for a
+ * few hundred instances stays in the low megabytes and old samples are overwritten
+ * instead of collected.
+ */
+@Component
+public class ContainerStatsStore {
+
+    public record Sample(long sampledAt, double cpuPercent, long memoryBytes, long memoryLimitBytes,
+                         long netRxBytes, long netTxBytes) {}
+
+    private final int capacity;
+    private final long intervalMs;
+    private final Map<String, StatsRing> rings = new ConcurrentHashMap<>();
+
+    public ContainerStatsStore(@Value("${environment.stats.samples:120}") int capacity,
+                               @Value("${environment.stats.interval-ms:30000}") long intervalMs) {
+        this.capacity = Math.max(2, capacity);
+        this.intervalMs = intervalMs;
+    }
+
+    public void record(String instanceId, long sampledAt, DockerClient.ContainerStats stats) {
+        rings.computeIfAbsent(instanceId, id -> new StatsRing(capacity)).add(sampledAt, stats);
+    }
+
+    public Optional<Sample> latest(String instanceId) {
+        StatsRing ring = rings.get(instanceId);
+        return ring != null ? ring.latest() : Optional.empty();
+    }
+
+    /**
+     * Latest sample if it's from the last two sampling intervals, i.e. still describes the container
+     */
+    public Optional<Sample> recent(String instanceId) {
+        long cutoff = System.currentTimeMillis() - 2 * intervalMs;
+        return latest(instanceId).filter(s -> s.sampledAt() >= cutoff);
+    }
+
+    /**
+     * Samples taken at or after sinceMs, oldest first
+     */
+    public List<Sample> history(String instanceId, long sinceMs) {
+        StatsRing ring = rings.get(instanceId);
+        return ring != null ? ring.since(sinceMs) : List.of();
+    }
+
+    /**
+     * Drop the rings of instances that are no longer running
+     */
+    public void retain(Collection<String> instanceIds) {
+        rings.keySet().retainAll(instanceIds);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long intervalMs() {
+        return intervalMs;
+    }
+
+    static final class StatsRing {
+        private final long[] sampledAt;
+        private final double[] cpuPercent;
+        private final long[] memoryBytes;
+        private final long[] netRxBytes;
+        private final long[] netTxBytes;
+        // Only changes with a docker update, no need to keep it per sample
+        private long memoryLimitBytes;
+        private int next;
+        private int size;
+
+        StatsRing(int capacity) {
+            sampledAt = new long[capacity];
+            cpuPercent = new double[capacity];
+            memoryBytes = new long[capacity];
+            netRxBytes = new long[capacity];
+            netTxBytes = new long[capacity];
+        }
+
+        synchronized void add(long at, DockerClient.ContainerStats stats) {
+            sampledAt[next] = at;
+            cpuPercent[next] = stats.cpuPercent();
+            memoryBytes[next] = stats.memoryBytes();
+            netRxBytes[next] = stats.netRxBytes();
+            netTxBytes[next] = stats.netTxBytes();
+            memoryLimitBytes = stats.memoryLimitBytes();
+            next = (next + 1) % sampledAt.length;
+            size = Math.min(size + 1, sampledAt.length);
+        }
+
+        synchronized Optional<Sample> latest() {
+            if (size == 0) return Optional.empty();
+            return Optional.of(sample((next - 1 + sampledAt.length) % sampledAt.length));
+        }
+
+        synchronized List<Sample> since(long sinceMs) {
+            List<Sample> samples = new ArrayList<>();
+            int oldest = (next - size + sampledAt.length) % sampledAt.length;
+            for (int i = 0; i < size; i++) {
+                int idx = (oldest + i) % sampledAt.length;
+                if (sampledAt[idx] >= sinceMs) samples.add(sample(idx));
+            }
+            return samples;
+        }
+
+        private Sample sample(int idx) {
+            return new Sample(sampledAt[idx], cpuPercent[idx], memoryBytes[idx], memoryLimitBytes,
+                    netRxBytes[idx], netTxBytes[idx]);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Low-level container operations used by DockerService.
+ * Selected with docker.client=cli (default, forks the docker binary)
+ * or docker.client=socket (Engine API over the daemon socket).
+ */
+public interface DockerClient {
+
+    record ContainerSpec(String name, String image, String network,
+                         Map<String, String> env, int hostPort, int containerPort,
+                         long memoryBytes, long nanoCpus, Map<String, String> tmpfs,
+                         Map<String, String> labels) {}
+
+    /**
+     * One row of a container listing. state is Docker's State ("running", "exited", ...);
+     * publishedPorts is empty unless the container is running.
+     */
+    record ContainerInfo(String name, String state, Map<String, String> labels, Set<Integer> publishedPorts) {}
+
+    record ExecResult(int exitCode, String output) {}
+
+    /**
+     * One container event from the daemon. action is Docker's Action ("start", "die", "oom",
+     * "destroy", "health_status: unhealthy", ...); attributes hold the container's labels
+     * plus event details such as "exitCode".
+     */
+    record ContainerEvent(String name, String action, Map<String, String> attributes, long timeNanos) {
+
+        /**
+         * From one JSON message of the events API (the CLI's --format '{{json .}}' prints the same)
+         */
+        static ContainerEvent fromJson(JsonNode event) {
+            JsonNode actor = event.path("Actor");
+            Map<String, String> attributes = new HashMap<>();
+            actor.path("Attributes").fields().forEachRemaining(e -> attributes.put(e.getKey(), e.getValue().asText()));
+            long timeNanos = event.has("timeNano") ? event.path("timeNano").asLong()
+                    : event.path("time").asLong() * 1_000_000_000L;
+            return new ContainerEvent(attributes.getOrDefault("name", actor.path("ID").asText()),
+                    event.path("Action").asText(event.path("status").asText()), attributes, timeNanos);
+        }
+
+        /**
+         * The "since" value both the API and the CLI accept: seconds with a nanosecond fraction
+         */
+        static String since(long timeNanos) {
+            return String.format("%d.%09d", timeNanos / 1_000_000_000L, timeNanos % 1_000_000_000L);
+        }
+    }
+
+    /**
+     * An open event subscription. Closing it from another thread ends a blocked next().
+     */
+    interface EventStream extends Closeable {
+        /**
+         * Block until the next event
+         *
+         * @return the event, or null once the daemon ended the stream
+         */
+        ContainerEvent next() throws IOException;
+
+        @Override
+        void close();
+    }
+
+    boolean containerExists(String containerName);
+
+    /**
+     * @return Docker's State.Status ("running", "exited", ...) or "unknown" if the container does not exist
+     */
+    String getContainerStatus(String containerName);
+
+    /**
+     * Create and start a detached container
+     */
+    void runContainer(ContainerSpec spec);
+
+    void stopContainer(String containerName, int timeoutSeconds);
+
+    /**
+     * Force-remove a container, ignoring containers that are already gone
+     */
+    void removeContainer(String containerName);
+
+    /**
+     * Force-remove several containers, in a single call where the backend allows it.
+     * Containers that are already gone are ignored.
+     */
+    void removeContainers(List<String> containerNames);
+
+    void killContainer(String containerName);
+
+    /**
+     * Freeze all processes of a running container (cgroup freezer); memory and state are kept
+     */
+    void pauseContainer(String containerName);
+
+    void unpauseContainer(String containerName);
+
+    /**
+     * One resource reading of a container. cpuPercent is in percent of one core;
+     * the network counters are cumulative since the container started.
+     */
+    record ContainerStats(double cpuPercent, long memoryBytes, long memoryLimitBytes,
+                          long netRxBytes, long netTxBytes) {}
+
+    /**
+     * Resource usage of the given containers, sampled in one sweep.
+     * Containers that can't be sampled (gone, not running) are left out.
+     */
+    Map<String, ContainerStats> sampleStats(List<String> containerNames);
+
+    /**
+     * CPUs and memory of the Docker host, as the daemon sees them
+     */
+    record HostInfo(int cpus, long memoryBytes) {}
+
+    HostInfo hostInfo();
+
+    ExecResult exec(String containerName, String user, Map<String, String> env, List<String> command);
+
+    boolean imageExists(String imageName);
+
+    void removeImage(String imageName);
+
+    /**
+     * Image size in bytes, or -1 if the image doesn't exist or can't be inspected
+     */
+    long getImageSize(String imageName);
+
+    /**
+     * Names of running containers whose name contains the given fragment
+     */
+    List<String> listContainerNames(String nameFilter);
+
+    /**
+     * Host ports published by any container, from a single listing.
+     * Throws if the daemon can't be queried, so callers never mistake an error for "no ports".
+     */
+    Set<Integer> listPublishedPorts();
+
+    /**
+     * All containers (including stopped ones) carrying the label, given as "key" or "key=value",
+     * from a single listing. Throws if the daemon can't be queried.
+     */
+    List<ContainerInfo> listContainersByLabel(String label);
+
+    /**
+     * Subscribe to events of containers carrying the label. With sinceNanos > 0 the daemon
+     * first replays events from that point on, so a reconnect doesn't lose any.
+     * Throws if the subscription can't be opened.
+     */
+    EventStream openContainerEvents(String label, long sinceNanos);
+}
@@ -0,0 +1,180 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Long-lived consumer of the Docker event stream for managed containers.
+ *
+ * Every event updates ContainerStateCache. A container that dies, runs out of memory,
+ * turns unhealthy or disappears without the backend having asked for it takes its
+ * RUNNING instance down right away: the instance is marked DEAD, the container removed
+ * and the port and admission slot released, instead of waiting for expiry or the
+ * reconciler.
+ *
+ * On (re)connect the cache is rebuilt from one container listing, and the subscription
+ * resumes from the last event seen so nothing in between is lost.
+ *
+ * Every Docker host gets its own subscription thread, so one unreachable worker only
+ * takes its own containers out of the cache.
+ */
+@Service
+public class DockerEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerEventService.class);
+
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final DockerService dockerService;
+    private final ContainerStateCache stateCache;
+    private final ChallengeInstanceRepository instanceRepo;
+    private final PortAllocationService portAllocator;
+    private final AdmissionService admission;
+    private final FlagVerificationIndex flagIndex;
+    private final boolean enabled;
+
+    private volatile boolean running;
+    private final Map<String, Thread> consumers = new ConcurrentHashMap<>();
+    private final Map<String, DockerClient.EventStream> current = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastEventNanos = new ConcurrentHashMap<>();
+
+    public DockerEventService(DockerService dockerService,
+                              ContainerStateCache stateCache,
+                              ChallengeInstanceRepository instanceRepo,
+                              PortAllocationService portAllocator,
+                              AdmissionService admission,
+                              FlagVerificationIndex flagIndex,
+                              @Value("${docker.events.enabled:true}") boolean enabled) {
+        this.dockerService = dockerService;
+        this.stateCache = stateCache;
+        this.instanceRepo = instanceRepo;
+        this.portAllocator = portAllocator;
+        this.admission = admission;
+        this.flagIndex = flagIndex;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || running) return;
+        running = true;
+        for (String hostId : dockerService.hostIds()) {
+            Thread t = new Thread(() -> consume(hostId), "docker-events-" + hostId);
+            t.setDaemon(true);
+            consumers.put(hostId, t);
+            t.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        current.values().forEach(DockerClient.EventStream::close);
+        consumers.values().forEach(Thread::interrupt);
+    }
+
+    private void consume(String hostId) {
+        long backoff = INITIAL_BACKOFF_MS;
+        while (running) {
+            long since = lastEventNanos.getOrDefault(hostId, 0L);
+            try (DockerClient.EventStream stream = dockerService.openManagedContainerEvents(hostId, since)) {
+                current.put(hostId, stream);
+                // Listing after subscribing: anything that changes in between shows up as an event
+                stateCache.reset(hostId, dockerService.listManagedContainers(hostId));
+                logger.info("Subscribed to Docker events of {}", hostId);
+                backoff = INITIAL_BACKOFF_MS;
+
+                DockerClient.ContainerEvent event;
+                while (running && (event = stream.next()) != null) {
+                    handle(hostId, event);
+                }
+                if (running) logger.warn("Docker event stream of {} ended, reconnecting", hostId);
+            } catch (Exception e) {
+                if (running) logger.warn("Docker event stream of {} failed: {}", hostId, e.getMessage());
+            } finally {
+                current.remove(hostId);
+                stateCache.invalidate(hostId);
+            }
+
+            if (!running) return;
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    void handle(String hostId, DockerClient.ContainerEvent event) {
+        lastEventNanos.merge(hostId, event.timeNanos(), Math::max);
+        String name = event.name();
+        String action = event.action();
+
+        String failure = null;
+        switch (action) {
+            case "create" -> stateCache.put(hostId, name, "created");
+            case "start", "unpause" -> stateCache.put(hostId, name, "running");
+            case "pause" -> stateCache.put(hostId, name, "paused");
+            case "die" -> {
+                stateCache.put(hostId, name, "exited");
+                failure = "exited with code " + event.attributes().getOrDefault("exitCode", "?");
+            }
+            case "oom" -> failure = "ran out of memory";
+            case "destroy" -> {
+                stateCache.remove(name);
+                failure = "was removed";
+            }
+            default -> {
+                if (action.startsWith("health_status") && action.contains("unhealthy")) {
+                    failure = "turned unhealthy";
+                }
+            }
+        }
+
+        if (failure == null) return;
+        if (stateCache.isExitExpected(name)) {
+            // Our own stop, expiry or cleanup
+            if ("destroy".equals(action)) stateCache.clearExpectedExit(name);
+            return;
+        }
+        // Pool containers and anything else without a RUNNING instance are the reconciler's business
+        Optional<ChallengeInstanceEntity> inst = instanceRepo.findFirstByContainerNameAndStatus(name, "RUNNING");
+        if (inst.isPresent()) {
+            markDead(inst.get(), failure);
+        }
+    }
+
+    private void markDead(ChallengeInstanceEntity inst, String reason) {
+        if (instanceRepo.transitionStatus(inst.getInstanceId(), "RUNNING", "DEAD") == 0) {
+            return; // stopped or expired in the meantime
+        }
+        logger.warn("Container {} of instance {} {}, marking it DEAD", inst.getContainerName(), inst.getInstanceId(), reason);
+        flagIndex.removeInstance(inst);
+        admission.release(inst.getInstanceId());
+
+        try {
+            dockerService.removeContainers(List.of(inst.getContainerName()));
+        } catch (Exception e) {
+            // The port stays taken until the port allocator's next reconcile
+            logger.warn("Failed to remove dead container {}: {}", inst.getContainerName(), e.getMessage());
+            return;
+        }
+        if (inst.getSshPort() != null) {
+            portAllocator.releasePort(inst.getDockerHost(), inst.getSshPort());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package at.fhtw.ctfbackend.services;
+
+/**
+ * One Docker daemon instances can run on.
+ *
+ * @param endpoint    DOCKER_HOST-style address (unix:///..., tcp://host:port), null for the default local daemon
+ * @param sshAddress  where ports published on this host are reachable from the backend and the terminal gateway
+ */
+public record DockerHost(String id, String endpoint, String sshAddress, DockerClient client) {
+
+    public boolean isLocal() {
+        return DockerHostRegistry.LOCAL.equals(id);
+    }
+}
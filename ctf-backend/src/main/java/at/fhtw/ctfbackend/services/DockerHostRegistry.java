@@ -0,0 +1,107 @@
+package at.fhtw.ctfbackend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The Docker daemons instances are placed on.
+ *
+ * "local" is the daemon next to the backend, driven by the DockerClient bean; images are
+ * built there. Worker daemons come from docker.hosts, a comma-separated list of
+ * id=endpoint entries (e.g. worker1=tcp://10.0.0.11:2375) and use the same client type
+ * as the local one. Published SSH ports of a worker are reached at the endpoint's host name.
+ */
+@Component
+public class DockerHostRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerHostRegistry.class);
+
+    public static final String LOCAL = "local";
+
+    private final Map<String, DockerHost> hosts = new LinkedHashMap<>();
+
+    @Autowired
+    public DockerHostRegistry(DockerClient localClient,
+                              @Value("${docker.hosts:}") String workers,
+                              @Value("${docker.client:cli}") String clientType,
+                              @Value("${docker.api.version:v1.43}") String apiVersion,
+                              @Value("${docker.socket.pool-size:8}") int poolSize,
+                              @Value("${docker.socket.connect-timeout-ms:5000}") long connectTimeoutMs,
+                              @Value("${docker.socket.read-timeout-ms:60000}") long readTimeoutMs,
+                              @Value("${docker.stats.parallelism:16}") int statsParallelism,
+                              @Value("${docker.stats.timeout-ms:5000}") long statsTimeoutMs,
+                              @Value("${environment.readiness.host:127.0.0.1}") String localSshAddress) {
+        this(List.of(new DockerHost(LOCAL, null, localSshAddress, localClient)));
+
+        for (String entry : workers.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || hosts.containsKey(parts[0].trim())) {
+                throw new IllegalArgumentException("Invalid docker.hosts entry (expected unique id=endpoint): " + entry);
+            }
+            String id = parts[0].trim();
+            String endpoint = parts[1].trim();
+            URI uri = URI.create(endpoint);
+            DockerClient client = "socket".equals(clientType)
+                    ? new SocketDockerClient(new DockerHttpClient(socketAddress(uri), apiVersion, poolSize,
+                            connectTimeoutMs, readTimeoutMs), readTimeoutMs, statsParallelism, statsTimeoutMs)
+                    : new CliDockerClient(endpoint);
+            String sshAddress = uri.getHost() != null ? uri.getHost() : localSshAddress;
+            hosts.put(id, new DockerHost(id, endpoint, sshAddress, client));
+            logger.info("Docker worker {} at {} (SSH via {})", id, endpoint, sshAddress);
+        }
+    }
+
+    public DockerHostRegistry(List<DockerHost> hosts) {
+        hosts.forEach(h -> this.hosts.put(h.id(), h));
+        if (!this.hosts.containsKey(LOCAL)) {
+            throw new IllegalArgumentException("The local Docker host is required");
+        }
+    }
+
+    public DockerHost local() {
+        return hosts.get(LOCAL);
+    }
+
+    /**
+     * The host with that id; null (rows from before multi-host) means the local one
+     */
+    public DockerHost get(String id) {
+        if (id == null) return local();
+        DockerHost host = hosts.get(id);
+        if (host == null) {
+            throw new IllegalArgumentException("Unknown Docker host: " + id);
+        }
+        return host;
+    }
+
+    public Collection<DockerHost> all() {
+        return Collections.unmodifiableCollection(hosts.values());
+    }
+
+    public List<String> ids() {
+        return List.copyOf(hosts.keySet());
+    }
+
+    public int size() {
+        return hosts.size();
+    }
+
+    private static SocketAddress socketAddress(URI uri) {
+        return switch (uri.getScheme()) {
+            case "unix" -> UnixDomainSocketAddress.of(Path.of(uri.getPath()));
+            case "tcp" -> new InetSocketAddress(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 2375);
+            default -> throw new IllegalArgumentException("Unsupported Docker endpoint: " + uri);
+        };
+    }
+}
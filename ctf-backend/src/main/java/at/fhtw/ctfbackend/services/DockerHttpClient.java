@@ -0,0 +1,437 @@
+package at.fhtw.ctfbackend.services;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Minimal HTTP/1.1 client for the Docker Engine API.
+ * Keeps a small pool of keep-alive connections to one daemon address,
+ * which can be a UnixDomainSocketAddress or an InetSocketAddress.
+ *
+ * Connecting and each request/response exchange have a deadline. Blocking socket channels
+ * ignore SO_TIMEOUT, so a shared watchdog closes the connection when one passes, which ends
+ * the blocked call. Only idempotent requests are retried; a POST that reached the daemon
+ * may have run even if its response was lost.
+ */
+public class DockerHttpClient implements Closeable {
+
+    public static final long DEFAULT_CONNECT_TIMEOUT_MS = 5_000;
+    public static final long DEFAULT_READ_TIMEOUT_MS = 60_000;
+
+    private static final Set<String> IDEMPOTENT = Set.of("GET", "HEAD", "DELETE");
+
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "docker-http-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        WATCHDOG.setRemoveOnCancelPolicy(true);
+    }
+
+    public record Response(int status, Map<String, String> headers, byte[] body) {
+        public String bodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    /**
+     * Response of a long-lived streaming request. body is already de-chunked;
+     * closing it closes the connection, which also ends a read blocked on it.
+     */
+    public record StreamingResponse(int status, Map<String, String> headers, InputStream body) implements Closeable {
+        @Override
+        public void close() {
+            try {
+                body.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class Connection implements Closeable {
+        final SocketChannel channel;
+        final InputStream in;
+        final OutputStream out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new BufferedInputStream(Channels.newInputStream(channel));
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel));
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private final SocketAddress address;
+    private final String apiVersion;
+    private final BlockingQueue<Connection> idle;
+    private final long connectTimeoutMs;
+    private final long readTimeoutMs;
+
+    public DockerHttpClient(SocketAddress address, String apiVersion, int maxIdleConnections) {
+        this(address, apiVersion, maxIdleConnections, DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS);
+    }
+
+    /**
+     * @param readTimeoutMs default deadline for sending a request and reading its whole response
+     */
+    public DockerHttpClient(SocketAddress address, String apiVersion, int maxIdleConnections,
+                            long connectTimeoutMs, long readTimeoutMs) {
+        this.address = address;
+        this.apiVersion = apiVersion;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, maxIdleConnections));
+        this.connectTimeoutMs = Math.max(1, connectTimeoutMs);
+        this.readTimeoutMs = Math.max(1, readTimeoutMs);
+    }
+
+    public Response get(String path) throws IOException {
+        return send("GET", path, null);
+    }
+
+    public Response post(String path, String jsonBody) throws IOException {
+        return send("POST", path, jsonBody);
+    }
+
+    public Response delete(String path) throws IOException {
+        return send("DELETE", path, null);
+    }
+
+    public Response send(String method, String path, String jsonBody) throws IOException {
+        return send(method, path, jsonBody, readTimeoutMs);
+    }
+
+    /**
+     * @param timeoutMs deadline for this exchange instead of the client's read timeout
+     */
+    public Response send(String method, String path, String jsonBody, long timeoutMs) throws IOException {
+        Connection conn = pooled();
+        boolean reused = conn != null;
+        if (conn == null) {
+            conn = open();
+        }
+
+        try {
+            Response response = exchange(conn, method, path, jsonBody, timeoutMs);
+            release(conn, response);
+            return response;
+        } catch (IOException e) {
+            conn.close();
+            // The daemon may have closed the keep-alive connection between the probe and the request.
+            // Retried once on a fresh one, but only where running the request twice is harmless
+            if (reused && !(e instanceof SocketTimeoutException) && IDEMPOTENT.contains(method)) {
+                Connection fresh = open();
+                try {
+                    Response response = exchange(fresh, method, path, jsonBody, timeoutMs);
+                    release(fresh, response);
+                    return response;
+                } catch (IOException retryEx) {
+                    fresh.close();
+                    throw retryEx;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * GET an endpoint that keeps streaming (such as /events) on a dedicated connection outside the pool
+     */
+    public StreamingResponse stream(String path) throws IOException {
+        Connection conn = open();
+        try {
+            // Only the response head has a deadline; the body streams for as long as the caller wants
+            int status;
+            Map<String, String> headers;
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> alarm = closeAfter(conn.channel, readTimeoutMs, timedOut);
+            try {
+                writeRequest(conn, "GET", path, null);
+                status = readStatus(conn.in);
+                headers = readHeaders(conn.in);
+            } catch (IOException e) {
+                throw timedOut.get() ? timeout("GET " + path, readTimeoutMs) : e;
+            } finally {
+                alarm.cancel(false);
+            }
+
+            InputStream raw = "chunked".equalsIgnoreCase(headers.get("transfer-encoding"))
+                    ? new ChunkedInputStream(conn.in) : conn.in;
+            InputStream body = new FilterInputStream(raw) {
+                @Override
+                public void close() {
+                    conn.close();
+                }
+            };
+            return new StreamingResponse(status, headers, body);
+        } catch (IOException e) {
+            conn.close();
+            throw e;
+        }
+    }
+
+    private Connection open() throws IOException {
+        SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> alarm = closeAfter(channel, connectTimeoutMs, timedOut);
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            if (timedOut.get()) {
+                throw new SocketTimeoutException("Connecting to Docker at " + address + " timed out after "
+                        + connectTimeoutMs + " ms");
+            }
+            throw e;
+        } finally {
+            alarm.cancel(false);
+        }
+        return new Connection(channel);
+    }
+
+    /**
+     * An idle connection that is still usable. One the daemon closed reads EOF without blocking.
+     */
+    private Connection pooled() {
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            try {
+                conn.channel.configureBlocking(false);
+                int read = conn.channel.read(ByteBuffer.allocate(1));
+                conn.channel.configureBlocking(true);
+                // Nothing is expected between responses: EOF or stray bytes both mean don't reuse it
+                if (read == 0) return conn;
+            } catch (IOException ignored) {
+            }
+            conn.close();
+        }
+        return null;
+    }
+
+    private static ScheduledFuture<?> closeAfter(SocketChannel channel, long timeoutMs, AtomicBoolean timedOut) {
+        return WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static SocketTimeoutException timeout(String request, long timeoutMs) {
+        return new SocketTimeoutException("Docker API " + request + " timed out after " + timeoutMs + " ms");
+    }
+
+    private void release(Connection conn, Response response) {
+        boolean keepAlive = !"close".equalsIgnoreCase(response.headers().get("connection"))
+                && (response.status() == 204 || response.status() == 304
+                    || response.headers().containsKey("content-length")
+                    || "chunked".equalsIgnoreCase(response.headers().get("transfer-encoding")));
+
+        if (!keepAlive || !conn.channel.isOpen() || !idle.offer(conn)) {
+            conn.close();
+        }
+    }
+
+    private Response exchange(Connection conn, String method, String path, String jsonBody, long timeoutMs)
+            throws IOException {
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> alarm = closeAfter(conn.channel, timeoutMs, timedOut);
+        try {
+            return exchange(conn, method, path, jsonBody);
+        } catch (IOException e) {
+            throw timedOut.get() ? timeout(method + " " + path, timeoutMs) : e;
+        } finally {
+            alarm.cancel(false);
+        }
+    }
+
+    private Response exchange(Connection conn, String method, String path, String jsonBody) throws IOException {
+        writeRequest(conn, method, path, jsonBody);
+        int status = readStatus(conn.in);
+        Map<String, String> headers = readHeaders(conn.in);
+
+        byte[] responseBody;
+        if ("HEAD".equals(method) || status == 204 || status == 304) {
+            responseBody = new byte[0];
+        } else if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            responseBody = readChunked(conn.in);
+        } else if (headers.containsKey("content-length")) {
+            responseBody = conn.in.readNBytes(Integer.parseInt(headers.get("content-length")));
+        } else {
+            // No framing (e.g. hijacked exec streams): the body ends when the daemon closes
+            responseBody = conn.in.readAllBytes();
+        }
+
+        return new Response(status, headers, responseBody);
+    }
+
+    private void writeRequest(Connection conn, String method, String path, String jsonBody) throws IOException {
+        byte[] body = jsonBody != null ? jsonBody.getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+        StringBuilder request = new StringBuilder();
+        request.append(method).append(' ').append('/').append(apiVersion).append(path).append(" HTTP/1.1\r\n");
+        request.append("Host: docker\r\n");
+        if (jsonBody != null) {
+            request.append("Content-Type: application/json\r\n");
+        }
+        request.append("Content-Length: ").append(body.length).append("\r\n");
+        request.append("\r\n");
+
+        conn.out.write(request.toString().getBytes(StandardCharsets.US_ASCII));
+        conn.out.write(body);
+        conn.out.flush();
+    }
+
+    private static int readStatus(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        if (statusLine == null) {
+            throw new EOFException("Docker daemon closed the connection");
+        }
+        String[] statusParts = statusLine.split(" ", 3);
+        if (statusParts.length < 2) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+        return Integer.parseInt(statusParts[1]);
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static byte[] readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            if (sizeLine == null) {
+                throw new EOFException("Truncated chunked response");
+            }
+            int size = chunkSize(sizeLine);
+            if (size == 0) {
+                // Skip trailers
+                String trailer;
+                while ((trailer = readLine(in)) != null && !trailer.isEmpty()) {
+                    // ignored
+                }
+                return out.toByteArray();
+            }
+            out.write(in.readNBytes(size));
+            readLine(in);
+        }
+    }
+
+    private static int chunkSize(String sizeLine) {
+        int semicolon = sizeLine.indexOf(';');
+        return Integer.parseInt((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+    }
+
+    /**
+     * De-chunks a chunked body as it arrives, for streams that never end on their own
+     */
+    private static final class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private int remaining;
+        private boolean first = true;
+        private boolean done;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) return -1;
+            if (remaining == 0) {
+                if (!first) {
+                    readLine(in); // CRLF after the previous chunk
+                }
+                first = false;
+                String sizeLine = readLine(in);
+                if (sizeLine == null) {
+                    throw new EOFException("Truncated chunked response");
+                }
+                remaining = chunkSize(sizeLine);
+                if (remaining == 0) {
+                    done = true;
+                    return -1;
+                }
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n == -1) {
+                throw new EOFException("Truncated chunked response");
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int len = line.size();
+                byte[] bytes = line.toByteArray();
+                return new String(bytes, 0, len > 0 && bytes[len - 1] == '\r' ? len - 1 : len, StandardCharsets.US_ASCII);
+            }
+            line.write(b);
+        }
+        return line.size() > 0 ? line.toString(StandardCharsets.US_ASCII) : null;
+    }
+
+    @Override
+    public void close() {
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            conn.close();
+        }
+    }
+}
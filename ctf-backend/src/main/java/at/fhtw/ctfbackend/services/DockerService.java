@@ -6,10 +6,19 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -25,8 +34,26 @@ public class DockerService {
     // Validation patterns for security
     private static final Pattern CONTAINER_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9][a-zA-Z0-9_.-]{0,62}$");
     private static final Pattern IMAGE_NAME_PATTERN = Pattern.compile("^[a-z0-9][a-z0-9._/-]{0,127}(:[a-zA-Z0-9._-]{0,127})?$");
+    // Lines of build output kept for the exception message; the full log goes to the sink
+    private static final int BUILD_ERROR_TAIL_LINES = 50;
     private static final Pattern CHALLENGE_ID_PATTERN = Pattern.compile("^[a-z0-9][a-z0-9_.-]{0,62}$");
 
+    // Labels on every container the backend starts; the reconciler finds them with one listing
+    public static final String LABEL_MANAGED = "ctf.managed";
+    public static final String LABEL_INSTANCE = "ctf.instance";
+    public static final String LABEL_USER = "ctf.user";
+    public static final String LABEL_CHALLENGE = "ctf.challenge";
+    public static final String LABEL_POOL = "ctf.pool";
+
+    // Optional per-image hook for challenges that keep the flag somewhere other than /flag.txt
+    public static final String FLAG_INJECT_HOOK = "/usr/local/bin/inject-flag";
+
+    // Executed inside the container on claim, FLAG is passed via the exec environment
+    private static final String FLAG_INJECT_SCRIPT =
+            "if [ -x " + FLAG_INJECT_HOOK + " ]; then exec " + FLAG_INJECT_HOOK + "; fi; "
+            + "printf '%s\\n' \"$FLAG\" > /flag.txt && "
+            + "(chown ctfuser:ctfuser /flag.txt 2>/dev/null || true) && chmod 600 /flag.txt";
+
     // Base path for challenges
     @Value("${challenges.base.path:./challenges}")
     private String challengesBasePath;
@@ -34,16 +61,43 @@ public class DockerService {
     // Add the ChallengeFileStorageService dependency
     private final ChallengeFileStorageService fileStorageService;
 
-    public DockerService(ChallengeFileStorageService fileStorageService) {
+    // Daemons containers can run on; images are built on the local one
+    private final DockerHostRegistry hosts;
+
+    // CLI or Engine API backend of the local host, see docker.client
+    private final DockerClient dockerClient;
+
+    // Fed by the Docker event stream; answers status checks without an inspect
+    private final ContainerStateCache stateCache;
+
+    // Which host a container runs on, from our own starts and the listings
+    private final Map<String, String> containerHosts = new ConcurrentHashMap<>();
+    // Images known to be present on worker hosts, by host id
+    private final Map<String, Set<String>> hostImages = new ConcurrentHashMap<>();
+
+    public DockerService(ChallengeFileStorageService fileStorageService, DockerHostRegistry hosts,
+                         ContainerStateCache stateCache) {
         this.fileStorageService = fileStorageService;
+        this.hosts = hosts;
+        this.dockerClient = hosts.local().client();
+        this.stateCache = stateCache;
+        stateCache.expectHosts(hosts.ids());
     }
 
     /**
      * Build a Docker image from a challenge directory
      */
     public String buildImage(String challengeId, String tag) {
+        return buildImage(challengeId, tag, line -> logger.debug("   {}", line));
+    }
+
+    /**
+     * Build a Docker image, handing every output line to the sink as it arrives.
+     * Only the last lines are kept for the error message.
+     */
+    public String buildImage(String challengeId, String tag, Consumer<String> outputSink) {
         validateChallengeId(challengeId);
-        validateImageTag(tag);
+        validateImageName(tag);
 
         // Determine challenge directory path and Dockerfile location
         String buildContextDir = getBuildContextDir(challengeId);
@@ -65,18 +119,26 @@ public class DockerService {
 
             ProcessBuilder pb = new ProcessBuilder(command);
             pb.redirectErrorStream(true);
-            pb.redirectError(ProcessBuilder.Redirect.PIPE);
             Process process = pb.start();
 
-            // Read and log output in real-time
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    logger.debug("   {}", line);
-                    output.append(line).append("\n");
+            // Stream output as it arrives; stderr is merged into stdout
+            Deque<String> tail = new ArrayDeque<>(BUILD_ERROR_TAIL_LINES);
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        outputSink.accept(line);
+                        synchronized (tail) {
+                            if (tail.size() == BUILD_ERROR_TAIL_LINES) tail.removeFirst();
+                            tail.addLast(line);
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // process was destroyed
                 }
-            }
+            }, "docker-build-output");
+            reader.setDaemon(true);
+            reader.start();
 
             boolean completed = process.waitFor(5, TimeUnit.MINUTES);
 
@@ -84,21 +146,16 @@ public class DockerService {
                 process.destroy();
                 throw new RuntimeException("Docker build timed out after 5 minutes");
             }
-
-            // Also capture stderr
-            StringBuilder stderr = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    logger.warn("   [stderr] {}", line);
-                    stderr.append(line).append("\n");
-                }
-            }
+            reader.join(5000);
 
             int exitCode = process.exitValue();
 
             if (exitCode != 0) {
-                throw new RuntimeException("Docker build failed with exit code " + exitCode + ":\nSTDOUT:\n" + output + "\nSTDERR:\n" + stderr);
+                String output;
+                synchronized (tail) {
+                    output = String.join("\n", tail);
+                }
+                throw new RuntimeException("Docker build failed with exit code " + exitCode + ":\n" + output);
             }
 
             logger.info(" Image built successfully: {}", tag);
@@ -110,38 +167,23 @@ public class DockerService {
     }
 
     /**
-     * Build and run a challenge in one step with automatic file setup
+     * Build context for a challenge (its directory), making sure it has a Dockerfile
      */
-    public String buildAndRun(String challengeId,
-            String containerName,
-            String flag,
-            int sshPort) {
-
+    public Path resolveBuildContext(String challengeId) {
         validateChallengeId(challengeId);
 
-        // Ensure challenge has a valid Dockerfile
+        // Creates a minimal Dockerfile if none exists, so it is part of the context before anyone hashes it
         String dockerfilePath = getDockerfilePath(challengeId);
         logger.debug("Dockerfile at: {}", dockerfilePath);
 
-        if (!Files.exists(Paths.get(dockerfilePath))) {
-            throw new RuntimeException("Dockerfile not found for challenge: " + challengeId
-                    + " at path: " + dockerfilePath);
-        }
-
-        // Build image
-        String imageTag = "ctf-" + challengeId.toLowerCase().replaceAll("[^a-z0-9-]", "");
-        if (!imageExists(imageTag)) {
-            logger.info(" Building image: {}", imageTag);
-            buildImage(challengeId, imageTag);
-        } else {
-            logger.info(" Using cached image: {}", imageTag);
-        }
-
-        // Run container
-        logger.info(" Running container: {}", containerName);
-        runContainer(containerName, imageTag, flag, sshPort);
+        return Paths.get(getBuildContextDir(challengeId));
+    }
 
-        return containerName;
+    /**
+     * Image repository used for a challenge's containers; tags are chosen by ImageBuildCoordinator
+     */
+    public static String imageNameFor(String challengeId) {
+        return "ctf-" + challengeId.toLowerCase().replaceAll("[^a-z0-9-]", "");
     }
 
     /**
@@ -242,13 +284,30 @@ public class DockerService {
     }
 
     /**
-     * Run a container with security constraints
+     * Labels for a container started for a student's instance
      */
-    public void runContainer(String containerName, String imageName, String flag,
-            int sshPort) {
+    public static Map<String, String> instanceLabels(String instanceId, String username, String challengeId) {
+        return Map.of(LABEL_INSTANCE, instanceId, LABEL_USER, username, LABEL_CHALLENGE, challengeId);
+    }
 
-        logger.debug("Running container - Image: {}, Name: {}, SSH Port: {}", imageName, containerName, sshPort);
+    /**
+     * Labels for an idle pool container; a claimed one keeps them, the instance row refers to it by name
+     */
+    public static Map<String, String> poolLabels(String challengeId) {
+        return Map.of(LABEL_POOL, "true", LABEL_CHALLENGE, challengeId);
+    }
 
+    /**
+     * Run a container with security constraints on the given Docker host
+     */
+    public void runContainer(String hostId, String containerName, String imageName, String flag,
+            int sshPort, Map<String, String> labels, ResourceProfile resources) {
+
+        logger.debug("Running container - Host: {}, Image: {}, Name: {}, SSH Port: {}", hostId, imageName,
+                containerName, sshPort);
+        DockerHost host = hosts.get(hostId);
+        validateContainerName(containerName);
+        validatePort(sshPort);
 
         // Check for existing container with same name (race condition with cleanup)
         if (containerExists(containerName)) {
@@ -261,50 +320,51 @@ public class DockerService {
             }
         }
 
+        // Pool containers start without a flag; it is injected on claim
+        Map<String, String> env = flag != null ? Map.of("FLAG", flag) : Map.of();
+
         try {
-            // Build command
-            List<String> command = new ArrayList<>(Arrays.asList(
-                    "docker", "run", "-d",
-                    "--name", containerName,
-                    "--network", "ctf-isolated",
-                    "-e", "FLAG=" + flag,
-                    "-p", sshPort + ":22"
+            host.client().runContainer(new DockerClient.ContainerSpec(
+                    containerName,
+                    imageName,
+                    "ctf-isolated",
+                    env,
+                    sshPort,
+                    22,
+                    resources.memoryBytes(),
+                    resources.nanoCpus(),
+                    Map.of("/tmp", "rw,noexec,nosuid,size=100m"),
+                    withManagedLabel(labels)
             ));
+            containerHosts.put(containerName, host.id());
+            stateCache.put(host.id(), containerName, "running");
+            // Returns as soon as the container is started; readiness is checked by ReadinessProber
 
-            // Add memory limits and security constraints
-            command.add("--memory=512m");
-            command.add("--cpus=1.0");
-            command.add("--tmpfs=/tmp:rw,noexec,nosuid,size=100m");
-
-            command.add(imageName);
-
-            ProcessBuilder pb = new ProcessBuilder(command);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-
-            // Read output in real-time
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    logger.debug("   {}", line);
-                    output.append(line).append("\n");
-                }
-            }
+        } catch (Exception e) {
+            logger.error("runContainer failed: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to run container: " + e.getMessage(), e);
+        }
+    }
 
-            // Wait for process to complete
-            int exitCode = process.waitFor();
+    private static Map<String, String> withManagedLabel(Map<String, String> labels) {
+        Map<String, String> all = new HashMap<>(labels);
+        all.put(LABEL_MANAGED, "true");
+        return all;
+    }
 
-            if (exitCode != 0) {
-                throw new RuntimeException("Docker run failed with exit code " + exitCode + ":\n" + output);
-            }
+    /**
+     * Write the per-instance flag into an already running container.
+     * Runs the image's own inject-flag hook if it ships one, otherwise
+     * writes /flag.txt the same way the entrypoint template does.
+     */
+    public void injectFlag(String containerName, String flag) {
+        validateContainerName(containerName);
 
-            // Wait a moment for container to fully initialize
-            Thread.sleep(2000);
+        DockerClient.ExecResult result = hostFor(containerName).client().exec(containerName, "root",
+                Map.of("FLAG", flag), List.of("sh", "-c", FLAG_INJECT_SCRIPT));
 
-        } catch (Exception e) {
-            logger.error("runContainer failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to run container: " + e.getMessage(), e);
+        if (result.exitCode() != 0) {
+            throw new RuntimeException("Flag injection failed with exit code " + result.exitCode() + ": " + result.output());
         }
     }
 
@@ -317,15 +377,13 @@ public class DockerService {
         try {
             logger.info(" Stopping container: {}", containerName);
 
-            // Stop container (timeout after 10 seconds)
-            ProcessBuilder stopCmd = new ProcessBuilder("docker", "stop", "-t", "10", containerName);
-            Process stopProc = stopCmd.start();
-            stopProc.waitFor();
-
-            // Remove container
-            ProcessBuilder rmCmd = new ProcessBuilder("docker", "rm", "-f", containerName);
-            Process rmProc = rmCmd.start();
-            rmProc.waitFor();
+            // Stop container (timeout after 10 seconds), then remove it
+            DockerClient client = hostFor(containerName).client();
+            stateCache.expectExit(containerName);
+            client.stopContainer(containerName, 10);
+            client.removeContainer(containerName);
+            stateCache.remove(containerName);
+            containerHosts.remove(containerName);
 
             logger.info(" Container stopped and removed: {}", containerName);
 
@@ -335,44 +393,43 @@ public class DockerService {
     }
 
     /**
-     * Check if container exists
+     * Force-remove several containers at once, without the graceful stop timeout
      */
-    public boolean containerExists(String containerName) {
-        validateContainerName(containerName);
+    public void removeContainers(List<String> containerNames) {
+        containerNames.forEach(this::validateContainerName);
+        if (containerNames.isEmpty()) return;
 
         try {
-            ProcessBuilder pb = new ProcessBuilder("docker", "inspect", containerName);
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
-            return p.waitFor() == 0;
+            containerNames.forEach(stateCache::expectExit);
+            for (Map.Entry<DockerHost, List<String>> group : byHost(containerNames).entrySet()) {
+                group.getKey().client().removeContainers(group.getValue());
+            }
+            containerNames.forEach(stateCache::remove);
+            containerNames.forEach(containerHosts::remove);
+            logger.info(" Removed {} containers", containerNames.size());
         } catch (Exception e) {
-            return false;
+            throw new RuntimeException("Failed to remove containers: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Check if container exists
+     */
+    public boolean containerExists(String containerName) {
+        validateContainerName(containerName);
+        return stateCache.state(containerName)
+                .map(state -> !"unknown".equals(state))
+                .orElseGet(() -> containerHosts.containsKey(containerName) || hosts.size() == 1
+                        ? hostFor(containerName).client().containerExists(containerName)
+                        : locate(containerName).isPresent());
+    }
+
     /**
      * Check if image exists locally (checks both exact name and with :latest tag)
      */
     public boolean imageExists(String imageName) {
         validateImageName(imageName);
-
-        try {
-            // Try exact name first
-            ProcessBuilder pb = new ProcessBuilder("docker", "image", "inspect", imageName);
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
-            if (p.waitFor() == 0) {
-                return true;
-            }
-
-            // Try with :latest tag
-            pb = new ProcessBuilder("docker", "image", "inspect", imageName + ":latest");
-            pb.redirectErrorStream(true);
-            p = pb.start();
-            return p.waitFor() == 0;
-        } catch (Exception e) {
-            return false;
-        }
+        return dockerClient.imageExists(imageName);
     }
 
     /**
@@ -383,9 +440,12 @@ public class DockerService {
 
         try {
             logger.info(" Removing image: {}", imageName);
-            ProcessBuilder pb = new ProcessBuilder("docker", "rmi", "-f", imageName);
-            Process p = pb.start();
-            p.waitFor();
+            dockerClient.removeImage(imageName);
+            for (Map.Entry<String, Set<String>> copies : hostImages.entrySet()) {
+                if (copies.getValue().remove(imageName)) {
+                    hosts.get(copies.getKey()).client().removeImage(imageName);
+                }
+            }
             logger.info(" Image removed: {}", imageName);
         } catch (Exception e) {
             logger.error("Failed to remove image {}: {}", imageName, e.getMessage());
@@ -399,9 +459,8 @@ public class DockerService {
         validateContainerName(containerName);
 
         try {
-            ProcessBuilder pb = new ProcessBuilder("docker", "kill", containerName);
-            Process p = pb.start();
-            p.waitFor();
+            stateCache.expectExit(containerName);
+            hostFor(containerName).client().killContainer(containerName);
             logger.info(" Container killed: {}", containerName);
         } catch (Exception e) {
             logger.error("Failed to kill container {}: {}", containerName, e.getMessage());
@@ -409,55 +468,178 @@ public class DockerService {
     }
 
     /**
-     * Get container status
+     * Freeze an idle container; it keeps its memory, processes and port
      */
-    public String getContainerStatus(String containerName) {
+    public void pauseContainer(String containerName) {
         validateContainerName(containerName);
+        DockerHost host = hostFor(containerName);
+        host.client().pauseContainer(containerName);
+        stateCache.put(host.id(), containerName, "paused");
+    }
 
-        try {
-            ProcessBuilder pb = new ProcessBuilder("docker", "inspect",
-                    "--format", "{{.State.Status}}", containerName);
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
+    public void unpauseContainer(String containerName) {
+        validateContainerName(containerName);
+        DockerHost host = hostFor(containerName);
+        host.client().unpauseContainer(containerName);
+        stateCache.put(host.id(), containerName, "running");
+    }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
-            String status = reader.readLine();
-            p.waitFor();
+    public DockerClient.HostInfo hostInfo(String hostId) {
+        return hosts.get(hostId).client().hostInfo();
+    }
+
+    public List<String> hostIds() {
+        return hosts.ids();
+    }
+
+    /**
+     * Host a container was last seen on; null if it's unknown
+     */
+    public String hostOf(String containerName) {
+        return containerHosts.get(containerName);
+    }
+
+    /**
+     * Where SSH ports published on the host are reachable
+     */
+    public String sshAddress(String hostId) {
+        return hosts.get(hostId).sshAddress();
+    }
 
-            return status != null ? status : "unknown";
+    /**
+     * Whether the image can be started on the host without copying it there first
+     */
+    public boolean hasImage(String hostId, String imageName) {
+        validateImageName(imageName);
+        DockerHost host = hosts.get(hostId);
+        if (host.isLocal()) return dockerClient.imageExists(imageName);
+
+        Set<String> present = hostImages.computeIfAbsent(host.id(), id -> ConcurrentHashMap.newKeySet());
+        if (present.contains(imageName)) return true;
+        try {
+            if (host.client().imageExists(imageName)) {
+                present.add(imageName);
+                return true;
+            }
         } catch (Exception e) {
-            return "error";
+            logger.debug("Image check on {} failed: {}", host.id(), e.getMessage());
         }
+        return false;
     }
 
     /**
-     * List all running containers for a specific challenge
+     * Make an image built on the local host available on a worker, streaming it over with
+     * docker save | docker load. Images are only ever built locally.
      */
-    public List<String> getRunningContainersForChallenge(String challengeId) {
-        validateChallengeId(challengeId);
+    public void ensureImage(String hostId, String imageName) {
+        DockerHost host = hosts.get(hostId);
+        if (host.isLocal() || hasImage(hostId, imageName)) return;
 
-        List<String> containers = new ArrayList<>();
+        logger.info(" Copying image {} to Docker host {}", imageName, host.id());
         try {
-            ProcessBuilder pb = new ProcessBuilder("docker", "ps",
-                    "--filter", "name=ctf-" + challengeId,
-                    "--format", "{{.Names}}");
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
+            ProcessBuilder save = new ProcessBuilder("docker", "save", imageName)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD);
+            ProcessBuilder load = new ProcessBuilder("docker", "load", "-q")
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            load.environment().put("DOCKER_HOST", host.endpoint());
+
+            List<Process> pipeline = ProcessBuilder.startPipeline(List.of(save, load));
+            Process loader = pipeline.get(1);
+            if (!loader.waitFor(10, TimeUnit.MINUTES)) {
+                pipeline.forEach(Process::destroyForcibly);
+                throw new RuntimeException("Copying image timed out after 10 minutes");
+            }
+            if (pipeline.get(0).waitFor() != 0 || loader.exitValue() != 0) {
+                throw new RuntimeException("docker save | docker load failed");
+            }
+            hostImages.computeIfAbsent(host.id(), id -> ConcurrentHashMap.newKeySet()).add(imageName);
+            logger.info(" Image {} available on {}", imageName, host.id());
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Failed to copy image to " + host.id() + ": " + e.getMessage(), e);
+        }
+    }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) {
-                    containers.add(line.trim());
-                }
+    /**
+     * CPU, memory and network usage per container, sampled in one sweep
+     */
+    public Map<String, DockerClient.ContainerStats> sampleStats(List<String> containerNames) {
+        containerNames.forEach(this::validateContainerName);
+        if (hosts.size() == 1) return dockerClient.sampleStats(containerNames);
+
+        Map<String, DockerClient.ContainerStats> stats = new HashMap<>();
+        for (Map.Entry<DockerHost, List<String>> group : byHost(containerNames).entrySet()) {
+            try {
+                stats.putAll(group.getKey().client().sampleStats(group.getValue()));
+            } catch (Exception e) {
+                logger.warn("Sampling stats on {} failed: {}", group.getKey().id(), e.getMessage());
             }
-            p.waitFor();
+        }
+        return stats;
+    }
 
-            return containers;
-        } catch (Exception e) {
-            logger.error("Failed to list containers: {}", e.getMessage());
-            return containers;
+    /**
+     * Get container status, from the event-fed cache while the Docker event stream is connected
+     */
+    public String getContainerStatus(String containerName) {
+        validateContainerName(containerName);
+        return stateCache.state(containerName)
+                .orElseGet(() -> hostFor(containerName).client().getContainerStatus(containerName));
+    }
+
+    /**
+     * List all running containers for a specific challenge
+     */
+    public List<String> getRunningContainersForChallenge(String challengeId) {
+        validateChallengeId(challengeId);
+        List<String> running = new ArrayList<>();
+        for (DockerHost host : hosts.all()) {
+            for (DockerClient.ContainerInfo c : host.client().listContainersByLabel(LABEL_CHALLENGE + "=" + challengeId)) {
+                containerHosts.put(c.name(), host.id());
+                if ("running".equals(c.state())) running.add(c.name());
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Every container started by the backend on any host, running or not, from one listing per host.
+     * Fails if any host can't be listed, so callers never mistake its containers for gone.
+     */
+    public List<DockerClient.ContainerInfo> listManagedContainers() {
+        List<DockerClient.ContainerInfo> all = new ArrayList<>();
+        for (String hostId : hosts.ids()) {
+            all.addAll(listManagedContainers(hostId));
         }
+        return all;
+    }
+
+    public List<DockerClient.ContainerInfo> listManagedContainers(String hostId) {
+        List<DockerClient.ContainerInfo> containers = hosts.get(hostId).client().listContainersByLabel(LABEL_MANAGED + "=true");
+        containers.forEach(c -> containerHosts.put(c.name(), hostId));
+        return containers;
+    }
+
+    /**
+     * Subscribe to events of containers started by the backend on one host
+     */
+    public DockerClient.EventStream openManagedContainerEvents(String hostId, long sinceNanos) {
+        return hosts.get(hostId).client().openContainerEvents(LABEL_MANAGED + "=true", sinceNanos);
+    }
+
+    /**
+     * Image size in bytes, or -1 if it can't be determined
+     */
+    public long getImageSize(String imageName) {
+        validateImageName(imageName);
+        return dockerClient.getImageSize(imageName);
+    }
+
+    /**
+     * Host ports currently published by Docker containers on the host
+     */
+    public Set<Integer> getPublishedPorts(String hostId) {
+        return hosts.get(hostId).client().listPublishedPorts();
     }
 
     /**
@@ -476,6 +658,37 @@ public class DockerService {
         }
     }
 
+    // ===== HOST ROUTING =====
+    private DockerHost hostFor(String containerName) {
+        if (hosts.size() == 1) return hosts.local();
+        return locate(containerName).orElseGet(hosts::local);
+    }
+
+    // Known route, or ask every host; remembered so it's asked once per container
+    private Optional<DockerHost> locate(String containerName) {
+        String id = containerHosts.get(containerName);
+        if (id != null) return Optional.of(hosts.get(id));
+        for (DockerHost host : hosts.all()) {
+            try {
+                if (host.client().containerExists(containerName)) {
+                    containerHosts.put(containerName, host.id());
+                    return Optional.of(host);
+                }
+            } catch (Exception e) {
+                logger.debug("Looking for {} on {} failed: {}", containerName, host.id(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Map<DockerHost, List<String>> byHost(List<String> containerNames) {
+        Map<DockerHost, List<String>> groups = new LinkedHashMap<>();
+        for (String name : containerNames) {
+            groups.computeIfAbsent(hostFor(name), h -> new ArrayList<>()).add(name);
+        }
+        return groups;
+    }
+
     // ===== VALIDATION METHODS =====
     private void validateContainerName(String name) {
         if (name == null || name.isEmpty()) {
@@ -498,15 +711,6 @@ public class DockerService {
         }
     }
 
-    private void validateImageTag(String tag) {
-        if (tag == null || tag.isEmpty()) {
-            throw new IllegalArgumentException("Image tag cannot be empty");
-        }
-        if (tag.contains("..") || tag.contains("/") || tag.matches(".*[^a-z0-9_.-].*")) {
-            throw new IllegalArgumentException("Invalid image tag: " + tag);
-        }
-    }
-
     private void validateChallengeId(String challengeId) {
         if (challengeId == null || challengeId.isEmpty()) {
             throw new IllegalArgumentException("Challenge ID cannot be empty");
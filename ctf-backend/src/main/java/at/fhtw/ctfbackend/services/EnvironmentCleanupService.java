@@ -2,13 +2,28 @@ package at.fhtw.ctfbackend.services;
 
 import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
 import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Expires instances shortly after their deadline.
+ *
+ * A periodic sweep loads RUNNING instances that expire before the next sweep (indexed
+ * on status + expires_at) into a timer wheel. A fast tick pops the due ones and tears
+ * them down in batches on a small pool: one forced docker rm per batch instead of a
+ * graceful stop per container, then the ports go back to the allocator.
+ */
 @Service
 public class EnvironmentCleanupService {
 
@@ -16,24 +31,126 @@ public class EnvironmentCleanupService {
 
     private final ChallengeInstanceRepository instanceRepo;
     private final EnvironmentService envService;
+    private final DockerService dockerService;
+    private final AdmissionService admission;
+    private final FlagVerificationIndex flagIndex;
+
+    private final ExpiryTimerWheel wheel;
+    private final long horizonMs;
+    private final int batchSize;
+    private final ThreadPoolExecutor teardown;
+    // Instances handed to a teardown task, so the next sweep doesn't schedule them again
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
 
     public EnvironmentCleanupService(ChallengeInstanceRepository instanceRepo,
-                                     EnvironmentService envService) {
+                                     EnvironmentService envService,
+                                     DockerService dockerService,
+                                     AdmissionService admission,
+                                     FlagVerificationIndex flagIndex,
+                                     @Value("${environment.expiry.tick-ms:1000}") long tickMs,
+                                     @Value("${environment.expiry.sweep-interval-ms:60000}") long sweepIntervalMs,
+                                     @Value("${environment.expiry.teardown-threads:4}") int threads,
+                                     @Value("${environment.expiry.batch-size:20}") int batchSize) {
         this.instanceRepo = instanceRepo;
         this.envService = envService;
+        this.dockerService = dockerService;
+        this.admission = admission;
+        this.flagIndex = flagIndex;
+
+        // Look two sweeps ahead so a slow sweep never lets a deadline slip through
+        this.horizonMs = 2 * sweepIntervalMs;
+        this.batchSize = Math.max(1, batchSize);
+        int slots = (int) Math.min(Integer.MAX_VALUE, horizonMs / tickMs + 1);
+        this.wheel = new ExpiryTimerWheel(tickMs, slots, Instant.now());
+
+        AtomicInteger counter = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.teardown = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(100),
+                r -> {
+                    Thread t = new Thread(r, "expiry-teardown-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                // A full queue slows the tick down instead of dropping expiries
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Schedule RUNNING instances that expire before the sweep after next.
+     * Runs right at startup, which also picks up everything that expired while the backend was down.
+     */
+    @Scheduled(fixedDelayString = "${environment.expiry.sweep-interval-ms:60000}")
+    public void scheduleUpcomingExpiries() {
+        Instant until = Instant.now().plusMillis(horizonMs);
+        for (ChallengeInstanceEntity inst : instanceRepo.findByStatusAndExpiresAtBefore("RUNNING", until)) {
+            if (!inFlight.contains(inst.getInstanceId())) {
+                wheel.schedule(inst.getInstanceId(), inst.getExpiresAt());
+            }
+        }
     }
 
-    // Run every minute
-    @Scheduled(fixedDelay = 60000)
+    /**
+     * Hand instances whose deadline has passed to the teardown pool, in batches
+     */
+    @Scheduled(fixedDelayString = "${environment.expiry.tick-ms:1000}")
     public void cleanupExpired() {
-        Instant now = Instant.now();
+        List<String> due = new ArrayList<>(wheel.advance(Instant.now()));
+        due.removeIf(id -> !inFlight.add(id));
+
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<String> batch = List.copyOf(due.subList(from, Math.min(due.size(), from + batchSize)));
+            teardown.execute(() -> expire(batch));
+        }
+    }
 
-        var all = instanceRepo.findAll();
-        for (ChallengeInstanceEntity inst : all) {
-            if ("RUNNING".equals(inst.getStatus()) && inst.getExpiresAt().isBefore(now)) {
-                logger.info("Cleaning expired instance: {}", inst.getInstanceId());
-                envService.cleanupAndReleasePort(inst.getInstanceId());
+    void expire(List<String> instanceIds) {
+        try {
+            Instant now = Instant.now();
+            List<ChallengeInstanceEntity> expired = new ArrayList<>();
+            for (ChallengeInstanceEntity inst : instanceRepo.findAllById(instanceIds)) {
+                if (!"RUNNING".equals(inst.getStatus())) continue; // stopped in the meantime
+
+                if (inst.getExpiresAt().isAfter(now)) {
+                    wheel.schedule(inst.getInstanceId(), inst.getExpiresAt());
+                } else {
+                    expired.add(inst);
+                }
+            }
+            if (expired.isEmpty()) return;
+
+            try {
+                dockerService.removeContainers(expired.stream().map(ChallengeInstanceEntity::getContainerName).toList());
+            } catch (Exception e) {
+                logger.error("Batch removal of {} expired containers failed, cleaning up one by one: {}",
+                        expired.size(), e.getMessage());
+                for (ChallengeInstanceEntity inst : expired) {
+                    envService.cleanupAndReleasePort(inst.getInstanceId());
+                }
+                return;
+            }
+
+            for (ChallengeInstanceEntity inst : expired) {
+                envService.releasePort(inst.getDockerHost(), inst.getSshPort());
+                inst.setStatus("EXPIRED");
             }
+            instanceRepo.saveAll(expired);
+            expired.forEach(flagIndex::removeInstance);
+            expired.forEach(inst -> admission.release(inst.getInstanceId()));
+            logger.info("Expired {} instances", expired.size());
+        } catch (Exception e) {
+            logger.error("Expiry teardown failed for {}: {}", instanceIds, e.getMessage());
+        } finally {
+            instanceIds.forEach(inFlight::remove);
         }
     }
+
+    public int getScheduledCount() {
+        return wheel.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        teardown.shutdown();
+    }
 }
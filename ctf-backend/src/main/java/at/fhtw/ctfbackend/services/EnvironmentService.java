@@ -1,21 +1,27 @@
 package at.fhtw.ctfbackend.services;
 
-import at.fhtw.ctfbackend.entity.ChallengeEntity;
+import at.fhtw.ctfbackend.controller.TooManyInstancesException;
 import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
 import at.fhtw.ctfbackend.entity.UserEntity;
 import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
 import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.ServerSocket;
-import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,102 +35,84 @@ public class EnvironmentService {
     private final ChallengeInstanceRepository instanceRepo;
     private final ChallengeRepository challengeRepo;
     private final UserService userService;
-
-    // Thread-safe port allocation tracking
-    private final Set<Integer> allocatedPorts = ConcurrentHashMap.newKeySet();
-    private static final int SSH_BASE = 30000;
-    private static final int PORT_RANGE = 1000;
+    private final PortAllocationService portAllocator;
+    private final ContainerPoolService containerPool;
+    private final ProvisioningService provisioning;
+    private final ImageBuildCoordinator imageBuilds;
+    private final ReadinessProber readiness;
+    private final AdmissionService admission;
+    private final ContainerStatsStore statsStore;
+    private final ResourceScheduler scheduler;
+    private final FlagVerificationIndex flagIndex;
+    private final ChallengeStatsService challengeStats;
+
+    // Idle mode: RUNNING instances without terminal traffic and with next to no CPU get docker paused
+    private final boolean idlePauseEnabled;
+    private final long idleAfterMs;
+    private final double idleCpuPercent;
+    // Last activity per instance (epoch ms); without an entry an instance counts from readyAt
+    private final Map<String, Long> lastActivity = new ConcurrentHashMap<>();
+    // Instances paused or about to be; checked by touch() without a DB read
+    private final Set<String> paused = ConcurrentHashMap.newKeySet();
+    private final Object pauseLock = new Object();
+    private final long startedAt = System.currentTimeMillis();
+    // Post-solve teardown runs here, not on the outbox thread that delivers the solve
+    private final ThreadPoolExecutor solveTeardown;
+    private final Set<String> tearingDown = ConcurrentHashMap.newKeySet();
 
     public EnvironmentService(
             ChallengeInstanceRepository instanceRepo,
             DockerService dockerService,
             ChallengeRepository challengeRepo,
-            UserService userService) {
+            UserService userService,
+            PortAllocationService portAllocator,
+            ContainerPoolService containerPool,
+            ProvisioningService provisioning,
+            ImageBuildCoordinator imageBuilds,
+            ReadinessProber readiness,
+            AdmissionService admission,
+            ContainerStatsStore statsStore,
+            ResourceScheduler scheduler,
+            FlagVerificationIndex flagIndex,
+            ChallengeStatsService challengeStats,
+            @Value("${environment.idle.pause-enabled:true}") boolean idlePauseEnabled,
+            @Value("${environment.idle.after-ms:900000}") long idleAfterMs,
+            @Value("${environment.idle.cpu-percent:1.0}") double idleCpuPercent) {
 
         this.instanceRepo = instanceRepo;
         this.dockerService = dockerService;
         this.challengeRepo = challengeRepo;
         this.userService = userService;
-
-        // Initialize with existing allocated ports
-        loadAllocatedPorts();
+        this.portAllocator = portAllocator;
+        this.containerPool = containerPool;
+        this.provisioning = provisioning;
+        this.imageBuilds = imageBuilds;
+        this.readiness = readiness;
+        this.admission = admission;
+        this.statsStore = statsStore;
+        this.scheduler = scheduler;
+        this.flagIndex = flagIndex;
+        this.challengeStats = challengeStats;
+        this.idlePauseEnabled = idlePauseEnabled;
+        this.idleAfterMs = idleAfterMs;
+        this.idleCpuPercent = idleCpuPercent;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.solveTeardown = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(100),
+                r -> {
+                    Thread t = new Thread(r, "solve-teardown-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
     }
 
+    /**
+     * Start an environment from the challenge's existing image.
+     * Returns immediately with a PROVISIONING instance; progress is streamed via ProvisioningService.
+     */
     public ChallengeInstanceEntity startEnvironment(String username, String challengeId) {
-        UserEntity user = userService.getRequiredUser(username);
-
-        // 1. Check if already has running instance
-        var existing = instanceRepo.findByUserAndChallengeIdAndStatus(
-                user, challengeId, "RUNNING"
-        );
-        if (!existing.isEmpty()) return existing.get(0);
-
-        // 2. Load challenge metadata
-        ChallengeEntity challenge = challengeRepo.findById(challengeId)
-                .orElseThrow(() -> new RuntimeException("Challenge not found: " + challengeId));
-
-        // 3. Generate dynamic flag
-        String realFlag = generateFlag(challengeId);
-        String flagHash = sha256(realFlag);
-
-        // 4. Allocate available SSH port (with retry logic)
-        int maxRetries = 3;
-        int sshPort = 0;
-
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            try {
-                sshPort = allocatePort(SSH_BASE);
-                break; // Success
-            } catch (RuntimeException e) {
-                if (attempt == maxRetries - 1) {
-                    // Release any partially allocated ports
-                    if (sshPort != 0) releasePort(sshPort);
-                    throw new RuntimeException("Failed to allocate SSH port after " + maxRetries + " attempts", e);
-                }
-                // Wait before retry
-                try { Thread.sleep(100); } catch (InterruptedException ignored) {}
-            }
-        }
-
-        // 5. Create instance entry
-        String instanceId = UUID.randomUUID().toString();
-        String containerName = "ctf-" + instanceId.substring(0, 8); // Shorter container names
-
-        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
-        inst.setInstanceId(instanceId);
-        inst.setUser(user);
-        inst.setUsername(user.getUsername());
-        inst.setChallengeId(challengeId);
-        inst.setContainerName(containerName);
-        inst.setFlagHash(flagHash);
-        inst.setCreatedAt(Instant.now());
-        inst.setExpiresAt(Instant.now().plusSeconds(3600)); // 1 hour
-        inst.setStatus("RUNNING");
-        inst.setSshPort(sshPort);
-
-        try {
-            instanceRepo.save(inst);
-
-            // 6. Generate image name from challenge ID and start Docker container with real FLAG
-            String imageName = "ctf-" + challengeId.toLowerCase().replaceAll("[^a-z0-9-]", "");
-            dockerService.runContainer(
-                    containerName,
-                    imageName,
-                    realFlag,
-                    sshPort
-            );
-
-            return inst;
-
-        } catch (Exception e) {
-            try {
-                instanceRepo.delete(inst);
-            } catch (Exception dbEx) {
-                logger.error("CRITICAL: Failed to rollback DB record for instance: {} - {}", instanceId, dbEx.getMessage());
-            }
-            releasePort(sshPort);
-            throw new RuntimeException("Failed to start container", e);
-        }
+        return requestInstance(username, challengeId, false);
     }
 
     public ChallengeInstanceEntity getInstance(String instanceId) {
@@ -145,6 +133,7 @@ public class EnvironmentService {
         boolean portReleased = false;
 
         try {
+            unpauseBeforeStop(inst);
             dockerService.stopContainer(inst.getContainerName());
             dockerStopped = true;
         } catch (Exception e) {
@@ -163,7 +152,10 @@ public class EnvironmentService {
         }
 
         try {
-            releasePort(inst.getSshPort());
+            // A DEAD instance already gave its port back when its container died
+            if (!"DEAD".equals(inst.getStatus())) {
+                releasePort(inst.getDockerHost(), inst.getSshPort());
+            }
             portReleased = true;
         } catch (Exception e) {
             logger.error("ERROR stopEnvironment: Failed to release port {}: {}", inst.getSshPort(), e.getMessage());
@@ -171,6 +163,8 @@ public class EnvironmentService {
 
         inst.setStatus("STOPPED");
         instanceRepo.save(inst);
+        flagIndex.removeInstance(inst);
+        admission.release(instanceId);
 
         String errorMsg = null;
         if (!dockerStopped) {
@@ -185,116 +179,378 @@ public class EnvironmentService {
 
         return new StopResult(true, dockerStopped, portReleased, errorMsg);
     }
-    // In EnvironmentService.java, add this method: 
-
+    /**
+     * Like startEnvironment, but builds the image first if it isn't cached yet
+     */
     public ChallengeInstanceEntity buildAndStartChallenge(String username, String challengeId) {
+        return requestInstance(username, challengeId, true);
+    }
+
+    private ChallengeInstanceEntity requestInstance(String username, String challengeId, boolean build) {
         UserEntity user = userService.getRequiredUser(username);
-        // Check for existing instance
-        var existing = instanceRepo.findByUserAndChallengeIdAndStatus(
-                user, challengeId, "RUNNING"
-        );
-        if (!existing.isEmpty()) return existing.get(0);
-
-        // Load challenge metadata
-        ChallengeEntity challenge = challengeRepo.findById(challengeId)
+
+        // 1. Reuse an instance that is running or still being provisioned
+        var existing = findActiveInstance(user, challengeId);
+        if (existing.isPresent()) return existing.get();
+
+        // 2. Load challenge metadata
+        challengeRepo.findById(challengeId)
                 .orElseThrow(() -> new RuntimeException("Challenge not found: " + challengeId));
 
-        // Generate dynamic flag
+        // 3. Generate dynamic flag; only the hash is stored, the flag itself lives in the queued task
         String realFlag = generateFlag(challengeId);
         String flagHash = sha256(realFlag);
 
-        // Allocate SSH port
-        int sshPort = allocatePort(SSH_BASE);
-
-        // Create instance entry
+        // 4. Record the instance; port and container are assigned by the provisioning worker
         String instanceId = UUID.randomUUID().toString();
-        String containerName = "ctf-" + instanceId.substring(0, 8);
+        String containerName = "ctf-" + instanceId.substring(0, 8); // Shorter container names
 
-        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
-        inst.setInstanceId(instanceId);
-        inst.setUser(user);
-        inst.setUsername(user.getUsername());
-        inst.setChallengeId(challengeId);
-        inst.setContainerName(containerName);
-        inst.setFlagHash(flagHash);
-        inst.setCreatedAt(Instant.now());
-        inst.setExpiresAt(Instant.now().plusSeconds(3600));
-        inst.setStatus("RUNNING");
-        inst.setSshPort(sshPort);
+        ChallengeInstanceEntity inst = newInstance(instanceId, user, challengeId, containerName, flagHash, null);
+        instanceRepo.save(inst);
 
         try {
-            instanceRepo.save(inst);
+            admission.admit(inst, () -> startProvisioning(inst, realFlag, build));
+        } catch (TooManyInstancesException | RejectedExecutionException e) {
+            // Nothing was started, don't leave a row behind
+            instanceRepo.delete(inst);
+            throw e;
+        }
+        challengeStats.recordStart(username, challengeId);
+        return inst;
+    }
+
+    /**
+     * Hand an admitted instance to a provisioning worker. Runs on the request thread,
+     * or later on whichever thread freed the slot for a queued instance.
+     */
+    private void startProvisioning(ChallengeInstanceEntity inst, String realFlag, boolean build) {
+        try {
+            provisioning.submit(inst, () -> provision(inst, realFlag, build));
+        } catch (RejectedExecutionException e) {
+            logger.error("Provisioning queue rejected instance {}: {}", inst.getInstanceId(), e.getMessage());
+            if (instanceRepo.transitionStatus(inst.getInstanceId(), "PROVISIONING", "FAILED") > 0) {
+                inst.setStatus("FAILED");
+                admission.release(inst.getInstanceId());
+            }
+            provisioning.publish(inst, ProvisioningService.Phase.FAILED, e.getMessage());
+        }
+    }
 
-            // Build and run the challenge
-            dockerService.buildAndRun(
-                    challengeId,
-                    containerName,
-                    realFlag,
-                    sshPort
-            );
+    private Optional<ChallengeInstanceEntity> findActiveInstance(UserEntity user, String challengeId) {
+        for (String status : List.of("RUNNING", "PROVISIONING")) {
+            var found = instanceRepo.findByUserAndChallengeIdAndStatus(user, challengeId, status);
+            if (!found.isEmpty()) return Optional.of(found.get(0));
+        }
+        return Optional.empty();
+    }
 
-            return inst;
+    /**
+     * Runs on a provisioning worker: claim a pooled container or build/start one,
+     * then flip the instance to RUNNING (or FAILED) and report each step.
+     */
+    private void provision(ChallengeInstanceEntity inst, String realFlag, boolean build) {
+        String challengeId = inst.getChallengeId();
+        String host = inst.getDockerHost() != null ? inst.getDockerHost() : DockerHostRegistry.LOCAL;
+        Integer sshPort = null;
+
+        try {
+            // Fast path: hand out a pre-warmed container (probed for SSH when it was pooled); the pool is local
+            if (DockerHostRegistry.LOCAL.equals(host) && startFromPool(inst, realFlag)) {
+                markReady(inst);
+                return;
+            }
+
+            String imageName;
+            if (build) {
+                if (imageBuilds.needsBuild(challengeId)) {
+                    provisioning.publish(inst, ProvisioningService.Phase.BUILDING, "Building challenge image");
+                }
+                imageName = imageBuilds.ensureImage(challengeId);
+            } else {
+                imageName = imageBuilds.currentImage(challengeId)
+                        .orElseThrow(() -> new RuntimeException("Image for challenge " + challengeId + " is not built yet"));
+            }
+
+            // Images are built locally; a worker gets a copy the first time it runs the challenge
+            if (!dockerService.hasImage(host, imageName)) {
+                provisioning.publish(inst, ProvisioningService.Phase.STARTING, "Copying image to " + host);
+                dockerService.ensureImage(host, imageName);
+            }
+
+            sshPort = portAllocator.allocatePort(host);
+            inst.setDockerHost(host);
+            inst.setSshPort(sshPort);
+            if (instanceRepo.assignPort(inst.getInstanceId(), host, sshPort) == 0) {
+                discardStopped(inst, false);
+                return;
+            }
+
+            provisioning.publish(inst, ProvisioningService.Phase.STARTING, "Starting container");
+            dockerService.runContainer(host, inst.getContainerName(), imageName, realFlag, sshPort,
+                    DockerService.instanceLabels(inst.getInstanceId(), inst.getUsername(), challengeId),
+                    scheduler.profileFor(challengeId));
+
+            provisioning.publish(inst, ProvisioningService.Phase.STARTING, "Waiting for SSH");
+            readiness.awaitSsh(dockerService.sshAddress(host), sshPort);
+
+            markReady(inst);
 
         } catch (Exception e) {
-            try {
-                instanceRepo.delete(inst);
-            } catch (Exception dbEx) {
-                logger.error("CRITICAL: Failed to rollback DB record for instance: {} - {}", instanceId, dbEx.getMessage());
+            logger.error("Provisioning failed for instance {}: {}", inst.getInstanceId(), e.getMessage());
+            if (sshPort != null) {
+                try {
+                    dockerService.killContainer(inst.getContainerName());
+                } catch (Exception ignored) {
+                }
             }
-            releasePort(sshPort);
-            throw new RuntimeException("Failed to build and start challenge", e);
+            if (instanceRepo.transitionStatus(inst.getInstanceId(), "PROVISIONING", "FAILED") == 0) {
+                discardStopped(inst, false);
+                return;
+            }
+            releasePort(host, sshPort);
+            inst.setStatus("FAILED");
+            admission.release(inst.getInstanceId());
+            provisioning.publish(inst, ProvisioningService.Phase.FAILED, e.getMessage());
         }
     }
 
-    // ===== PORT MANAGEMENT =====
-    private synchronized int allocatePort(int basePort) {
-        // Try multiple attempts with random offsets
-        List<Integer> triedPorts = new ArrayList<>();
-        Random random = new Random();
+    /**
+     * Flip a provisioned instance to RUNNING, unless it was stopped while provisioning
+     */
+    private void markReady(ChallengeInstanceEntity inst) {
+        Instant readyAt = Instant.now();
+        Instant expiresAt = readyAt.plusSeconds(3600); // 1 hour from when it became usable
+        if (instanceRepo.markRunning(inst.getInstanceId(), readyAt, expiresAt) == 0) {
+            discardStopped(inst, true);
+            return;
+        }
 
-        for (int attempt = 0; attempt < 50; attempt++) { // Try up to 50 ports
-            // Add some randomness to avoid predictable port allocation
-            int offset = random.nextInt(PORT_RANGE);
-            int port = basePort + offset;
+        inst.setStatus("RUNNING");
+        inst.setReadyAt(readyAt);
+        inst.setExpiresAt(expiresAt);
+        flagIndex.putInstance(inst);
+        provisioning.publish(inst, ProvisioningService.Phase.READY, null);
+    }
 
-            // Skip if already tried
-            if (triedPorts.contains(port)) {
-                continue;
+    /**
+     * The instance left PROVISIONING under the worker (stopped meanwhile): remove what the
+     * worker started and give back the port, unless stopEnvironment already did
+     */
+    private void discardStopped(ChallengeInstanceEntity inst, boolean containerStarted) {
+        logger.info("Instance {} was stopped while provisioning, discarding container", inst.getInstanceId());
+        if (containerStarted) {
+            try {
+                dockerService.stopContainer(inst.getContainerName());
+            } catch (Exception e) {
+                logger.warn("Failed to remove container {}: {}", inst.getContainerName(), e.getMessage());
             }
+        }
+        // stopEnvironment released the port if it saw it in the row; its write replaced the whole row
+        var current = instanceRepo.findByInstanceId(inst.getInstanceId());
+        if (current.isEmpty() || !Objects.equals(current.get().getSshPort(), inst.getSshPort())) {
+            releasePort(inst.getDockerHost(), inst.getSshPort());
+        }
+        inst.setStatus(current.map(ChallengeInstanceEntity::getStatus).orElse("STOPPED"));
+        provisioning.publish(inst, ProvisioningService.Phase.FAILED, "Instance was stopped");
+    }
+
+    /**
+     * Try to serve a start from the pre-warmed pool. The container is already
+     * running, so only the flag injection is left to do.
+     */
+    private boolean startFromPool(ChallengeInstanceEntity inst, String realFlag) {
+        var claimed = containerPool.claim(inst.getChallengeId());
+        if (claimed.isEmpty()) return false;
 
-            // Skip if already allocated in our tracking
-            if (allocatedPorts.contains(port)) {
-                triedPorts.add(port);
-                continue;
+        var container = claimed.get();
+        try {
+            dockerService.injectFlag(container.containerName(), realFlag);
+            inst.setContainerName(container.containerName());
+            inst.setDockerHost(DockerHostRegistry.LOCAL);
+            inst.setSshPort(container.sshPort());
+            // Not written if stopped meanwhile; markReady then fails the same check and removes the container
+            instanceRepo.assignContainer(inst.getInstanceId(), DockerHostRegistry.LOCAL, container.containerName(),
+                    container.sshPort());
+            return true;
+        } catch (Exception e) {
+            logger.warn("Pooled container {} unusable, falling back to cold start: {}",
+                    container.containerName(), e.getMessage());
+            containerPool.discard(container);
+            return false;
+        }
+    }
+
+    /**
+     * Record activity on an instance (terminal traffic, a gateway reconnect, the user opening it)
+     * and unpause it if it was paused for being idle
+     *
+     * @return the instance, or null if it doesn't exist
+     */
+    public ChallengeInstanceEntity touch(String instanceId) {
+        // Written before paused is read; pauseIdleInstances does it the other way round
+        lastActivity.put(instanceId, System.currentTimeMillis());
+        if (!paused.contains(instanceId)) {
+            return getInstance(instanceId);
+        }
+
+        synchronized (pauseLock) {
+            ChallengeInstanceEntity inst = getInstance(instanceId);
+            if (inst == null || inst.getPausedAt() == null) {
+                paused.remove(instanceId);
+                return inst;
             }
+            try {
+                dockerService.unpauseContainer(inst.getContainerName());
+                logger.info("Resumed instance {} after {} s paused", instanceId,
+                        (System.currentTimeMillis() - inst.getPausedAt().toEpochMilli()) / 1000);
+            } catch (Exception e) {
+                // Gone or no longer paused; the event stream/reconciler deal with a dead container
+                logger.warn("Unpausing instance {} failed: {}", instanceId, e.getMessage());
+            }
+            instanceRepo.updatePausedAt(instanceId, null);
+            inst.setPausedAt(null);
+            paused.remove(instanceId);
+            return inst;
+        }
+    }
 
-            // Verify port is actually available
-            if (isPortAvailable(port)) {
-                allocatedPorts.add(port);
-                return port;
+    /**
+     * Pause RUNNING instances that saw no activity for environment.idle.after-ms
+     * and use less than environment.idle.cpu-percent of a core
+     */
+    @Scheduled(fixedDelayString = "${environment.idle.check-interval-ms:60000}",
+               initialDelayString = "${environment.idle.check-interval-ms:60000}")
+    public void pauseIdleInstances() {
+        if (!idlePauseEnabled) return;
+
+        List<ChallengeInstanceEntity> running = instanceRepo.findByStatus("RUNNING");
+        Set<String> runningIds = new HashSet<>();
+        List<ChallengeInstanceEntity> candidates = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (ChallengeInstanceEntity inst : running) {
+            runningIds.add(inst.getInstanceId());
+            if (inst.getPausedAt() != null) {
+                paused.add(inst.getInstanceId()); // e.g. paused before a restart
+            } else if (now - lastActiveAt(inst) >= idleAfterMs) {
+                candidates.add(inst);
             }
+        }
+        lastActivity.keySet().retainAll(runningIds);
+        paused.retainAll(runningIds);
+        if (candidates.isEmpty()) return;
+
+        // A busy process (e.g. a script left running) keeps its instance awake. CPU comes from the
+        // stats sampler; only candidates without a recent sample are sampled here, in one go
+        Map<String, Double> cpu = new HashMap<>();
+        List<String> unsampled = new ArrayList<>();
+        for (ChallengeInstanceEntity inst : candidates) {
+            statsStore.recent(inst.getInstanceId()).ifPresentOrElse(
+                    s -> cpu.put(inst.getContainerName(), s.cpuPercent()),
+                    () -> unsampled.add(inst.getContainerName()));
+        }
+        if (!unsampled.isEmpty()) {
+            dockerService.sampleStats(unsampled).forEach((name, s) -> cpu.put(name, s.cpuPercent()));
+        }
 
-            triedPorts.add(port);
+        int count = 0;
+        for (ChallengeInstanceEntity inst : candidates) {
+            Double usage = cpu.get(inst.getContainerName());
+            if (usage == null || usage >= idleCpuPercent) continue;
+
+            synchronized (pauseLock) {
+                String instanceId = inst.getInstanceId();
+                paused.add(instanceId);
+                // Activity may have come in while sampling
+                if (System.currentTimeMillis() - lastActiveAt(inst) < idleAfterMs) {
+                    paused.remove(instanceId);
+                    continue;
+                }
+                try {
+                    dockerService.pauseContainer(inst.getContainerName());
+                } catch (Exception e) {
+                    logger.warn("Pausing idle instance {} failed: {}", instanceId, e.getMessage());
+                    paused.remove(instanceId);
+                    continue;
+                }
+                instanceRepo.updatePausedAt(instanceId, Instant.now());
+                count++;
+            }
+        }
+        if (count > 0) {
+            logger.info("Paused {} idle instances", count);
         }
+    }
 
-        // If we can't find a port in the randomized range, try sequentially
-        for (int offset = 0; offset < PORT_RANGE; offset++) {
-            int port = basePort + offset;
+    /**
+     * When the instance was last used (epoch ms): terminal activity, or when it became ready
+     */
+    public long lastActiveAt(ChallengeInstanceEntity inst) {
+        Instant ready = inst.getReadyAt() != null ? inst.getReadyAt() : inst.getCreatedAt();
+        // Activity from before a restart is unknown, so everyone gets a full idle window after one
+        long since = Math.max(ready.toEpochMilli(), startedAt);
+        return Math.max(since, lastActivity.getOrDefault(inst.getInstanceId(), 0L));
+    }
+
+    // docker stop can't signal frozen processes; thaw first
+    private void unpauseBeforeStop(ChallengeInstanceEntity inst) {
+        paused.remove(inst.getInstanceId());
+        lastActivity.remove(inst.getInstanceId());
+        if (inst.getPausedAt() == null) return;
+        try {
+            dockerService.unpauseContainer(inst.getContainerName());
+        } catch (Exception e) {
+            logger.warn("Unpausing {} before stop failed: {}", inst.getContainerName(), e.getMessage());
+        }
+        inst.setPausedAt(null);
+    }
 
-            if (!allocatedPorts.contains(port) && isPortAvailable(port)) {
-                allocatedPorts.add(port);
-                return port;
+    /**
+     * Provisioning tasks don't survive a restart; fail instances that were cut off mid-way
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedProvisioning() {
+        for (ChallengeInstanceEntity inst : instanceRepo.findByStatus("PROVISIONING")) {
+            logger.warn("Instance {} was still provisioning at startup, marking it FAILED", inst.getInstanceId());
+            try {
+                dockerService.killContainer(inst.getContainerName());
+            } catch (Exception ignored) {
             }
+            inst.setStatus("FAILED");
+            instanceRepo.save(inst);
         }
+    }
+
+    private ChallengeInstanceEntity newInstance(String instanceId, UserEntity user, String challengeId,
+                                                String containerName, String flagHash, Integer sshPort) {
+        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
+        inst.setInstanceId(instanceId);
+        inst.setUser(user);
+        inst.setUsername(user.getUsername());
+        inst.setChallengeId(challengeId);
+        inst.setContainerName(containerName);
+        inst.setFlagHash(flagHash);
+        inst.setCreatedAt(Instant.now());
+        inst.setExpiresAt(Instant.now().plusSeconds(3600)); // 1 hour
+        inst.setStatus("PROVISIONING");
+        inst.setSshPort(sshPort);
+        return inst;
+    }
 
-        throw new RuntimeException("No available ports in range " + basePort + "-" + (basePort + PORT_RANGE));
+    /**
+     * Release port back to the pool of the Docker host it was allocated on
+     */
+    public void releasePort(String dockerHost, Integer port) {
+        if (port == null) return; // never got past provisioning
+        portAllocator.releasePort(dockerHost, port);
     }
 
     /**
-     * Release port back to available pool
+     * Address the gateway connects to for the instance's SSH port; null for the local host
      */
-    public synchronized void releasePort(int port) {
-        allocatedPorts.remove(port);
+    public String sshHost(ChallengeInstanceEntity inst) {
+        String host = inst.getDockerHost();
+        if (host == null || DockerHostRegistry.LOCAL.equals(host)) return null;
+        return dockerService.sshAddress(host);
     }
 
     /**
@@ -318,6 +574,7 @@ public class EnvironmentService {
         boolean portReleased = false;
 
         try {
+            unpauseBeforeStop(inst);
             dockerService.stopContainer(inst.getContainerName());
             dockerStopped = true;
         } catch (Exception e) {
@@ -331,7 +588,7 @@ public class EnvironmentService {
         }
 
         try {
-            releasePort(inst.getSshPort());
+            releasePort(inst.getDockerHost(), inst.getSshPort());
             portReleased = true;
         } catch (Exception e) {
             logger.error("cleanupAndReleasePort: Failed to release port {}: {}", inst.getSshPort(), e.getMessage());
@@ -339,6 +596,8 @@ public class EnvironmentService {
 
         inst.setStatus("EXPIRED");
         instanceRepo.save(inst);
+        flagIndex.removeInstance(inst);
+        admission.release(instanceId);
 
         if (!dockerStopped || !portReleased) {
             logger.warn("cleanupAndReleasePort: PARTIAL CLEANUP for instance {} docker={} port={}", instanceId, dockerStopped, portReleased);
@@ -348,74 +607,42 @@ public class EnvironmentService {
     }
 
     /**
-     * Check if port is available by checking Docker and system usage
+     * A solved dynamic challenge doesn't need its instance anymore. Dispatched from the outbox,
+     * so it may run more than once for the same solve. The teardown itself is handed to a
+     * separate pool and logs its own failures: a slow or failing container stop neither holds up
+     * the other solve listeners nor makes the outbox redeliver the solve to them. An instance
+     * whose teardown is dropped or fails is still removed by the expiry sweep.
      */
-    private boolean isPortAvailable(int port) {
-        // 1. First check if Docker is already using this port
-        if (isPortUsedByDocker(port)) {
-            return false;
-        }
-
-        // 2. Then check if system can bind to this port
-        try (ServerSocket socket = new ServerSocket(port)) {
-            socket.setReuseAddress(true);
-            return true;
-        } catch (IOException e) {
-            return false;
+    @Order(3)
+    @EventListener
+    public void onSolveRecorded(OutboxDispatcher.SolveRecorded solve) {
+        for (ChallengeInstanceEntity inst : instanceRepo.findByUsernameAndChallengeIdAndStatus(
+                solve.username(), solve.challengeId(), "RUNNING")) {
+            String instanceId = inst.getInstanceId();
+            if (!tearingDown.add(instanceId)) continue;
+            try {
+                solveTeardown.execute(() -> teardownSolved(instanceId));
+            } catch (RejectedExecutionException e) {
+                tearingDown.remove(instanceId);
+                logger.warn("Teardown queue full, leaving {} to the expiry sweep", instanceId);
+            }
         }
     }
 
-    /**
-     * Check if Docker is already using this port on the host (running or stopped containers)
-     */
-    private boolean isPortUsedByDocker(int port) {
+    private void teardownSolved(String instanceId) {
         try {
-            // Check both running and stopped containers
-            ProcessBuilder pb = new ProcessBuilder(
-                    "docker", "ps", "-a",
-                    "--format", "{{.Ports}}"
-            );
-
-            Process process = pb.start();
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream())
-            );
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Handle multiple port format patterns Docker can produce:
-                // 0.0.0.0:30001->22/tcp, :::30001->22/tcp, 30001/tcp, 0.0.0.0:30001
-                if (line.contains(":" + port + "->") ||
-                    line.contains(":" + port + "/") ||
-                    line.matches("^" + port + "/.*") ||
-                    line.matches(".*:?" + port + "$")) {
-                    return true; // Port is already mapped by Docker
-                }
-            }
-
-            process.waitFor();
-            return false;
-
+            cleanupAndReleasePort(instanceId);
+            logger.info("Auto-cleaned environment after solve: {}", instanceId);
         } catch (Exception e) {
-            // If we can't check Docker, assume port might be in use
-            logger.warn("Warning: Could not check Docker port usage: {}", e.getMessage());
-            return true; // Be conservative
+            logger.error("Auto-cleanup after solve failed for {}: {}", instanceId, e.getMessage());
+        } finally {
+            tearingDown.remove(instanceId);
         }
     }
-    /**
-     * Load currently allocated ports from database on startup
-     */
-    private void loadAllocatedPorts() {
-        List<ChallengeInstanceEntity> runningInstances =
-                instanceRepo.findAll().stream()
-                        .filter(inst -> "RUNNING".equals(inst.getStatus()))
-                        .toList();
-
-        for (ChallengeInstanceEntity inst : runningInstances) {
-            allocatedPorts.add(inst.getSshPort());
-        }
 
-        logger.info("Loaded {} allocated ports from database", allocatedPorts.size());
+    @PreDestroy
+    public void shutdown() {
+        solveTeardown.shutdown();
     }
 
     // ===== UTILITY METHODS =====
@@ -429,14 +656,6 @@ public class EnvironmentService {
     }
 
     public String sha256(String s) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(s.getBytes());
-            StringBuilder hex = new StringBuilder();
-            for (byte b : digest) hex.append(String.format("%02x", b));
-            return hex.toString();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return HexFormat.of().formatHex(FlagVerificationIndex.sha256(s));
     }
 }
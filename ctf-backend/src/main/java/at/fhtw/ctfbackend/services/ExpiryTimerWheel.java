@@ -0,0 +1,100 @@
+package at.fhtw.ctfbackend.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel for instance expiry deadlines.
+ *
+ * Each deadline lands in slot (deadlineTick % slots), so scheduling, cancelling and
+ * advancing by one tick are O(1) regardless of how many instances are running.
+ * Deadlines further out than one revolution stay in their slot until their tick comes round.
+ */
+public class ExpiryTimerWheel {
+
+    private record Timer(String key, long deadlineTick) {}
+
+    private final long tickMs;
+    private final List<Timer>[] wheel;
+    private final Map<String, Timer> timers = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public ExpiryTimerWheel(long tickMs, int slots, Instant start) {
+        if (tickMs <= 0 || slots <= 0) {
+            throw new IllegalArgumentException("tickMs and slots must be positive");
+        }
+        this.tickMs = tickMs;
+        this.wheel = new List[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.currentTick = tickOf(start);
+    }
+
+    /**
+     * Schedule (or move) the deadline for a key. Deadlines in the past fire on the next advance.
+     */
+    public synchronized void schedule(String key, Instant deadline) {
+        cancel(key);
+        // Never file a timer behind the hand, it would wait a full revolution
+        long deadlineTick = Math.max(tickOf(deadline), currentTick + 1);
+        Timer timer = new Timer(key, deadlineTick);
+        wheel[slotOf(deadlineTick)].add(timer);
+        timers.put(key, timer);
+    }
+
+    public synchronized boolean cancel(String key) {
+        Timer timer = timers.remove(key);
+        if (timer == null) return false;
+        wheel[slotOf(timer.deadlineTick())].remove(timer);
+        return true;
+    }
+
+    public synchronized boolean contains(String key) {
+        return timers.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return timers.size();
+    }
+
+    /**
+     * Move the hand up to the given time and return the keys whose deadline has passed
+     */
+    public synchronized List<String> advance(Instant now) {
+        long targetTick = tickOf(now);
+        List<String> due = new ArrayList<>();
+        if (targetTick <= currentTick) {
+            return due;
+        }
+
+        // After a long pause every slot has been passed at least once
+        long steps = Math.min(targetTick - currentTick, wheel.length);
+        for (long i = 1; i <= steps; i++) {
+            Iterator<Timer> it = wheel[slotOf(currentTick + i)].iterator();
+            while (it.hasNext()) {
+                Timer timer = it.next();
+                if (timer.deadlineTick() <= targetTick) {
+                    it.remove();
+                    timers.remove(timer.key());
+                    due.add(timer.key());
+                }
+            }
+        }
+        currentTick = targetTick;
+        return due;
+    }
+
+    private long tickOf(Instant time) {
+        return Math.floorDiv(time.toEpochMilli(), tickMs);
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) wheel.length);
+    }
+}
@@ -0,0 +1,168 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * What a flag submission is checked against, kept in memory so the hot path needs no DB round trip.
+ *
+ * Holds the SHA-256 of every static flag per challenge and the flag hash of every RUNNING
+ * instance per (user, challenge). EnvironmentService adds an instance once it is ready and
+ * every path that ends one removes it again; ChallengeService keeps the challenge table
+ * current. A miss falls back to a narrow query and caches the answer, and a periodic
+ * resync rebuilds both tables from the DB in case an update was lost.
+ */
+@Component
+public class FlagVerificationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlagVerificationIndex.class);
+
+    record ChallengeFlag(boolean requiresInstance, byte[] staticFlagHash) {}
+
+    private record InstanceFlag(String instanceId, byte[] flagHash, long indexedAt) {}
+
+    private final ChallengeRepository challengeRepo;
+    private final ChallengeInstanceRepository instanceRepo;
+
+    private final Map<String, ChallengeFlag> challenges = new ConcurrentHashMap<>();
+    private final Map<String, InstanceFlag> instances = new ConcurrentHashMap<>();
+    // Instances removed since the last resync; its snapshot may still show them as RUNNING
+    private final Map<String, Long> removedAt = new ConcurrentHashMap<>();
+
+    public FlagVerificationIndex(ChallengeRepository challengeRepo, ChallengeInstanceRepository instanceRepo) {
+        this.challengeRepo = challengeRepo;
+        this.instanceRepo = instanceRepo;
+    }
+
+    /**
+     * True if the submitted flag is the one for this user and challenge: the instance's flag
+     * for challenges that require one, the static flag otherwise
+     */
+    public boolean matches(String username, String challengeId, String submittedFlag) {
+        ChallengeFlag challenge = challenge(challengeId);
+        byte[] expected = challenge.requiresInstance()
+                ? instanceFlagHash(username, challengeId)
+                : challenge.staticFlagHash();
+        return expected != null && MessageDigest.isEqual(expected, sha256(submittedFlag));
+    }
+
+    public void putInstance(ChallengeInstanceEntity inst) {
+        if (inst.getUsername() == null || inst.getFlagHash() == null) return;
+        instances.put(key(inst.getUsername(), inst.getChallengeId()), new InstanceFlag(inst.getInstanceId(),
+                HexFormat.of().parseHex(inst.getFlagHash()), System.currentTimeMillis()));
+    }
+
+    /**
+     * Forget an instance that stopped running. Leaves a newer instance of the same user and challenge alone.
+     */
+    public void removeInstance(ChallengeInstanceEntity inst) {
+        removedAt.put(inst.getInstanceId(), System.currentTimeMillis());
+        if (inst.getUsername() == null) return;
+        instances.computeIfPresent(key(inst.getUsername(), inst.getChallengeId()),
+                (k, indexed) -> indexed.instanceId().equals(inst.getInstanceId()) ? null : indexed);
+    }
+
+    public void putChallenge(String challengeId, boolean requiresInstance, String staticFlag) {
+        challenges.put(challengeId, new ChallengeFlag(requiresInstance, staticFlag != null ? sha256(staticFlag) : null));
+    }
+
+    public void evictChallenge(String challengeId) {
+        challenges.remove(challengeId);
+    }
+
+    /**
+     * Rebuild both tables from the DB. Entries added or removed while the snapshot was
+     * being read win over the snapshot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${flags.index.resync-interval-ms:300000}",
+               initialDelayString = "${flags.index.resync-interval-ms:300000}")
+    public void resync() {
+        long snapshotAt = System.currentTimeMillis();
+        try {
+            Map<String, ChallengeFlag> freshChallenges = new HashMap<>();
+            for (Object[] row : challengeRepo.findFlagInfo()) {
+                String flag = (String) row[2];
+                freshChallenges.put((String) row[0],
+                        new ChallengeFlag(Boolean.TRUE.equals(row[1]), flag != null ? sha256(flag) : null));
+            }
+            challenges.keySet().retainAll(freshChallenges.keySet());
+            challenges.putAll(freshChallenges);
+
+            Map<String, InstanceFlag> freshInstances = new HashMap<>();
+            for (ChallengeInstanceEntity inst : instanceRepo.findByStatus("RUNNING")) {
+                Long removed = removedAt.get(inst.getInstanceId());
+                if (inst.getUsername() == null || inst.getFlagHash() == null || (removed != null && removed >= snapshotAt)) continue;
+                freshInstances.put(key(inst.getUsername(), inst.getChallengeId()), new InstanceFlag(inst.getInstanceId(),
+                        HexFormat.of().parseHex(inst.getFlagHash()), snapshotAt));
+            }
+            instances.entrySet().removeIf(e -> e.getValue().indexedAt() < snapshotAt && !freshInstances.containsKey(e.getKey()));
+            freshInstances.forEach((k, fresh) -> instances.merge(k, fresh,
+                    (current, snap) -> current.indexedAt() >= snapshotAt ? current : snap));
+            removedAt.values().removeIf(at -> at < snapshotAt);
+
+            logger.debug("Flag index holds {} challenges and {} running instances", challenges.size(), instances.size());
+        } catch (Exception e) {
+            logger.warn("Resyncing the flag index failed: {}", e.getMessage());
+        }
+    }
+
+    private ChallengeFlag challenge(String challengeId) {
+        ChallengeFlag cached = challenges.get(challengeId);
+        if (cached != null) return cached;
+
+        List<Object[]> rows = challengeRepo.findFlagInfoById(challengeId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Challenge not found: " + challengeId);
+        }
+        Object[] row = rows.get(0);
+        String flag = (String) row[2];
+        ChallengeFlag loaded = new ChallengeFlag(Boolean.TRUE.equals(row[1]), flag != null ? sha256(flag) : null);
+        challenges.put(challengeId, loaded);
+        return loaded;
+    }
+
+    private byte[] instanceFlagHash(String username, String challengeId) {
+        InstanceFlag cached = instances.get(key(username, challengeId));
+        if (cached != null) return cached.flagHash();
+
+        List<ChallengeInstanceEntity> running = instanceRepo.findByUsernameAndChallengeIdAndStatus(
+                username, challengeId, "RUNNING");
+        if (running.isEmpty()) {
+            logger.warn("No running instance found for dynamic challenge");
+            return null;
+        }
+        ChallengeInstanceEntity inst = running.get(0);
+        // Don't resurrect an instance that ended while we were reading it
+        if (!removedAt.containsKey(inst.getInstanceId())) putInstance(inst);
+        return inst.getFlagHash() != null ? HexFormat.of().parseHex(inst.getFlagHash()) : null;
+    }
+
+    private static String key(String username, String challengeId) {
+        return username + '\0' + challengeId;
+    }
+
+    static byte[] sha256(String s) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
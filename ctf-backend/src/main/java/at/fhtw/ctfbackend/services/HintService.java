@@ -17,17 +17,20 @@ import java.util.Optional;
 public class HintService {
 
     // Penalties per hint index: Hint 0 = 10%, Hint 1 = 20%, Hint 2 = 25%
-    private static final int[] HINT_PENALTIES = {10, 20, 25};
+    static final int[] HINT_PENALTIES = {10, 20, 25};
 
     // How many seconds a user must wait before unlocking the next hint
     private static final int LOCK_SECONDS = 60;
 
     private final HintRevealRepository hintRevealRepository;
+    private final ChallengeStatsService challengeStats;
     private final ChallengeRepository challengeRepository;
     private final UserService userService;
 
-    public HintService(HintRevealRepository hintRevealRepository, ChallengeRepository challengeRepository, UserService userService) {
+    public HintService(HintRevealRepository hintRevealRepository, ChallengeRepository challengeRepository, UserService userService,
+                       ChallengeStatsService challengeStats) {
         this.hintRevealRepository = hintRevealRepository;
+        this.challengeStats = challengeStats;
         this.challengeRepository = challengeRepository;
         this.userService = userService;
     }
@@ -74,6 +77,7 @@ public class HintService {
         // All checks passed — save the reveal and return the hint text
         HintReveal reveal = new HintReveal(user, challenge, hintIndex);
         hintRevealRepository.save(reveal);
+        challengeStats.recordStart(username, challengeId);
 
         return hints.get(hintIndex);
     }
@@ -0,0 +1,253 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Decides which image a challenge runs on and makes sure it gets built exactly once.
+ *
+ * Images are tagged ctf-&lt;challengeId&gt;:&lt;hash of the build context&gt;, so editing the
+ * Dockerfile or any file in the context yields a new tag instead of silently reusing a
+ * stale image. Concurrent requests for the same tag share one build, and at most
+ * docker.build.max-parallel builds run at the same time.
+ */
+@Service
+public class ImageBuildCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageBuildCoordinator.class);
+
+    private static final int TAG_LENGTH = 12;
+    private static final int MAX_ERROR_LENGTH = 4000;
+
+    private record ContextHash(String fingerprint, String hash) {}
+
+    private final DockerService dockerService;
+    private final ChallengeRepository challengeRepo;
+    private final BuildLogService buildLogs;
+    private final Semaphore buildSlots;
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ContextHash> hashes = new ConcurrentHashMap<>();
+    private final Set<String> knownImages = ConcurrentHashMap.newKeySet();
+
+    public ImageBuildCoordinator(DockerService dockerService,
+                                 ChallengeRepository challengeRepo,
+                                 BuildLogService buildLogs,
+                                 @Value("${docker.build.max-parallel:2}") int maxParallelBuilds) {
+        this.dockerService = dockerService;
+        this.challengeRepo = challengeRepo;
+        this.buildLogs = buildLogs;
+        this.buildSlots = new Semaphore(Math.max(1, maxParallelBuilds), true);
+    }
+
+    /**
+     * Image reference for the challenge's current build context, e.g. ctf-web-101:3f9a0c1b2d4e
+     */
+    public String imageFor(String challengeId) {
+        return DockerService.imageNameFor(challengeId) + ":" + contextHash(challengeId);
+    }
+
+    /**
+     * The current image if it has been built, without building it
+     */
+    public Optional<String> currentImage(String challengeId) {
+        String image = imageFor(challengeId);
+        return isBuilt(image) ? Optional.of(image) : Optional.empty();
+    }
+
+    public boolean needsBuild(String challengeId) {
+        return currentImage(challengeId).isEmpty();
+    }
+
+    /**
+     * Return the current image, building it first if needed. Callers asking for an
+     * image that is already being built wait for that build instead of starting another.
+     */
+    public String ensureImage(String challengeId) {
+        String image = imageFor(challengeId);
+        if (isBuilt(image)) {
+            logger.info(" Using cached image: {}", image);
+            return image;
+        }
+
+        CompletableFuture<String> build = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(image, build);
+        if (running != null) {
+            logger.info(" Waiting for running build of {}", image);
+            return await(running);
+        }
+
+        try {
+            buildSlots.acquire();
+            try {
+                // Someone may have finished the same build while we waited for a slot
+                if (!isBuilt(image)) {
+                    build(challengeId, image);
+                }
+            } finally {
+                buildSlots.release();
+            }
+            build.complete(image);
+            return image;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RuntimeException ex = new RuntimeException("Interrupted while waiting for a build slot", e);
+            build.completeExceptionally(ex);
+            throw ex;
+        } catch (RuntimeException e) {
+            build.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(image, build);
+        }
+    }
+
+    /**
+     * Run the docker build, streaming its output to the build log and
+     * recording status, duration and size on the challenge
+     */
+    private void build(String challengeId, String image) {
+        logger.info(" Building image: {}", image);
+        challengeRepo.updateImageBuildStatus(challengeId, "BUILDING");
+        buildLogs.begin(challengeId, image);
+        long started = System.nanoTime();
+
+        try {
+            dockerService.buildImage(challengeId, image, line -> buildLogs.append(challengeId, line));
+        } catch (RuntimeException e) {
+            long durationMs = (System.nanoTime() - started) / 1_000_000;
+            buildLogs.finish(challengeId, false, e.getMessage());
+            challengeRepo.recordImageBuild(challengeId, "FAILED", image, durationMs, null, Instant.now(),
+                    truncate(e.getMessage()));
+            throw e;
+        }
+
+        long durationMs = (System.nanoTime() - started) / 1_000_000;
+        knownImages.add(image);
+        recordReady(challengeId, image, durationMs);
+        buildLogs.finish(challengeId, true, "Built in " + durationMs + " ms");
+    }
+
+    /**
+     * Record an image that is present, e.g. one built before the challenge tracked its builds
+     */
+    public void recordReady(String challengeId, String image, Long durationMs) {
+        long size = dockerService.getImageSize(image);
+        challengeRepo.recordImageBuild(challengeId, "READY", image, durationMs,
+                size >= 0 ? size : null, Instant.now(), null);
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) return message;
+        // The end of a failed build's output is where the error is
+        return "..." + message.substring(message.length() - MAX_ERROR_LENGTH);
+    }
+
+    public int getRunningBuildCount() {
+        return inFlight.size();
+    }
+
+    private boolean isBuilt(String image) {
+        if (knownImages.contains(image)) {
+            return true;
+        }
+        if (dockerService.imageExists(image)) {
+            knownImages.add(image);
+            return true;
+        }
+        return false;
+    }
+
+    private static String await(CompletableFuture<String> build) {
+        try {
+            return build.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException re ? re : new RuntimeException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for image build", e);
+        }
+    }
+
+    /**
+     * SHA-256 over the relative paths and contents of every file in the build context.
+     * Files are only re-read when their names, sizes or modification times changed.
+     */
+    private String contextHash(String challengeId) {
+        Path context = dockerService.resolveBuildContext(challengeId);
+        List<Path> files = listFiles(context);
+
+        MessageDigest meta = sha256();
+        for (Path file : files) {
+            try {
+                meta.update(context.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                meta.update(("\0" + Files.size(file) + "\0" + Files.getLastModifiedTime(file).toMillis() + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to stat " + file, e);
+            }
+        }
+        String fingerprint = HexFormat.of().formatHex(meta.digest());
+
+        ContextHash cached = hashes.get(challengeId);
+        if (cached != null && cached.fingerprint().equals(fingerprint)) {
+            return cached.hash();
+        }
+
+        MessageDigest content = sha256();
+        byte[] buffer = new byte[8192];
+        for (Path file : files) {
+            content.update(context.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            content.update((byte) 0);
+            try (InputStream in = Files.newInputStream(file)) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    content.update(buffer, 0, n);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        }
+        String hash = HexFormat.of().formatHex(content.digest()).substring(0, TAG_LENGTH);
+
+        hashes.put(challengeId, new ContextHash(fingerprint, hash));
+        return hash;
+    }
+
+    private static List<Path> listFiles(Path context) {
+        try (Stream<Path> walk = Files.walk(context)) {
+            return walk.filter(Files::isRegularFile).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list build context " + context, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeEntity;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds challenge images as soon as their files are saved, so the first
+ * student to start an instance finds a ready image and build errors surface
+ * in the admin UI instead of at exam time.
+ */
+@Service
+public class ImagePrebuildService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePrebuildService.class);
+
+    /**
+     * Published by ChallengeService when a challenge's Docker build context changed
+     */
+    public record ChallengeFilesChanged(String challengeId) {}
+
+    private final ImageBuildCoordinator imageBuilds;
+    private final ChallengeRepository challengeRepo;
+    private final ContainerPoolService containerPool;
+
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+
+    public ImagePrebuildService(ImageBuildCoordinator imageBuilds,
+                                ChallengeRepository challengeRepo,
+                                ContainerPoolService containerPool,
+                                @Value("${docker.build.max-parallel:2}") int threads) {
+        this.imageBuilds = imageBuilds;
+        this.challengeRepo = challengeRepo;
+        this.containerPool = containerPool;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "image-prebuild-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Only after commit: the build must see the saved files and a rolled-back create must not build
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onChallengeFilesChanged(ChallengeFilesChanged event) {
+        queue(event.challengeId());
+    }
+
+    /**
+     * Catch up on instance challenges whose current image doesn't exist yet,
+     * e.g. after files were changed on disk or images were pruned
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prebuildMissing() {
+        for (ChallengeEntity challenge : challengeRepo.findAll()) {
+            if (!challenge.isRequiresInstance()) continue;
+
+            try {
+                String image = imageBuilds.imageFor(challenge.getId());
+                if (imageBuilds.needsBuild(challenge.getId())) {
+                    queue(challenge.getId());
+                } else if (!image.equals(challenge.getImageTag()) || !"READY".equals(challenge.getImageBuildStatus())) {
+                    imageBuilds.recordReady(challenge.getId(), image, null);
+                }
+            } catch (Exception e) {
+                logger.warn("Skipping prebuild check for challenge {}: {}", challenge.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queue a build of the challenge's current image; no-op if one is already queued
+     */
+    public void queue(String challengeId) {
+        if (!queued.add(challengeId)) {
+            return;
+        }
+
+        challengeRepo.updateImageBuildStatus(challengeId, "QUEUED");
+        executor.submit(() -> {
+            queued.remove(challengeId);
+            try {
+                ChallengeEntity challenge = challengeRepo.findById(challengeId).orElse(null);
+                if (challenge == null || !challenge.isRequiresInstance()) {
+                    challengeRepo.updateImageBuildStatus(challengeId, null);
+                    return;
+                }
+
+                String image = imageBuilds.ensureImage(challengeId);
+
+                // If the image already existed (e.g. identical files re-uploaded) no build recorded it
+                ChallengeEntity after = challengeRepo.findById(challengeId).orElse(challenge);
+                if (!image.equals(after.getImageTag()) || !"READY".equals(after.getImageBuildStatus())) {
+                    imageBuilds.recordReady(challengeId, image, null);
+                }
+
+                // Warm the pool with the new image right away
+                containerPool.requestRefill(challengeId);
+                logger.info("Prebuilt image {} for challenge {}", image, challengeId);
+            } catch (Exception e) {
+                logger.error("Prebuild failed for challenge {}: {}", challengeId, e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,147 @@
+package at.fhtw.ctfbackend.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Sorted set as a treap whose nodes also carry their subtree size, so besides insert and
+ * remove it answers "how many entries come before x" and "entries k..k+n" in O(log n)
+ * expected. Not thread-safe; ScoreboardService guards it with a lock.
+ */
+final class OrderStatisticTreap<T> {
+
+    private static final class Node<T> {
+        final T value;
+        final int priority;
+        Node<T> left;
+        Node<T> right;
+        int size = 1;
+
+        Node(T value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<? super T> order;
+    private final SplittableRandom random = new SplittableRandom();
+    private Node<T> root;
+
+    OrderStatisticTreap(Comparator<? super T> order) {
+        this.order = order;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Add a value that isn't in the set yet (by the comparator)
+     */
+    void insert(T value) {
+        Node<T>[] parts = split(root, value);
+        root = merge(merge(parts[0], new Node<>(value, random.nextInt())), parts[1]);
+    }
+
+    boolean remove(T value) {
+        int before = size(root);
+        root = remove(root, value);
+        return size(root) < before;
+    }
+
+    /**
+     * Number of entries ordered before the value, i.e. its 0-based position if present
+     */
+    int rank(T value) {
+        int rank = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = order.compare(value, node.value);
+            if (cmp <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Up to count entries starting at 0-based position from, in order
+     */
+    List<T> range(int from, int count) {
+        List<T> out = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        collect(root, Math.max(0, from), count, out);
+        return out;
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    // Entries before position skip are passed over using the subtree sizes
+    private void collect(Node<T> node, int skip, int count, List<T> out) {
+        if (node == null || out.size() >= count) return;
+        int leftSize = size(node.left);
+        if (skip < leftSize) collect(node.left, skip, count, out);
+        if (out.size() >= count) return;
+        if (skip <= leftSize) out.add(node.value);
+        collect(node.right, Math.max(0, skip - leftSize - 1), count, out);
+    }
+
+    // [entries before value, entries at or after value]
+    @SuppressWarnings("unchecked")
+    private Node<T>[] split(Node<T> node, T value) {
+        if (node == null) return new Node[]{null, null};
+        if (order.compare(node.value, value) < 0) {
+            Node<T>[] parts = split(node.right, value);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+            return parts;
+        }
+        Node<T>[] parts = split(node.left, value);
+        node.left = parts[1];
+        update(node);
+        parts[1] = node;
+        return parts;
+    }
+
+    // Every entry of a is ordered before every entry of b
+    private Node<T> merge(Node<T> a, Node<T> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) return null;
+        int cmp = order.compare(value, node.value);
+        if (cmp == 0) return merge(node.left, node.right);
+        if (cmp < 0) {
+            node.left = remove(node.left, value);
+        } else {
+            node.right = remove(node.right, value);
+        }
+        update(node);
+        return node;
+    }
+
+    private static int size(Node<?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+}
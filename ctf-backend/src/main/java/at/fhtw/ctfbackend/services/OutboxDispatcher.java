@@ -0,0 +1,199 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Carries out the side effects recorded in outbox_events after their write committed.
+ *
+ * A solve inserts its SOLVE_RECORDED row in the same statement as the solve, so the submit
+ * response doesn't wait for instance teardown and the like. Pending rows are claimed with
+ * FOR UPDATE SKIP LOCKED plus a lease, published as Spring events on a small pool, and
+ * marked DONE once every listener returned. A listener that throws gets the event again
+ * with backoff; after outbox.max-attempts the row stays FAILED for an admin to look at.
+ * Listeners must therefore be idempotent.
+ *
+ * SolveRecorded listeners run in explicit @Order: scoreboard, challenge stats, live feed,
+ * then environment teardown. Anything that can fail goes before the feed, so a retry doesn't
+ * announce the solve twice; slow work (stopping containers) is handed off to its own pool and
+ * reports its own failures instead of failing the event.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    public static final String SOLVE_RECORDED = "SOLVE_RECORDED";
+
+    /**
+     * Published for every recorded solve, once the solve committed.
+     * firstBlood: nobody had solved the challenge before.
+     */
+    public record SolveRecorded(String username, String challengeId, int pointsEarned, LocalDateTime solvedAt,
+                                boolean firstBlood) {}
+
+    record Claimed(long id, String eventType, String payload, int attempts) {}
+
+    private static final String CLAIM_SQL = """
+            UPDATE outbox_events
+            SET attempts = attempts + 1, available_at = now() + :leaseMs * interval '1 millisecond'
+            WHERE id IN (
+                SELECT id FROM outbox_events
+                WHERE status = 'PENDING' AND available_at <= now()
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, event_type, payload, attempts
+            """;
+
+    private static final String DONE_SQL =
+            "UPDATE outbox_events SET status = 'DONE', processed_at = now(), last_error = NULL WHERE id = :id";
+
+    private static final String RETRY_SQL = """
+            UPDATE outbox_events
+            SET status = :status, available_at = now() + :backoffMs * interval '1 millisecond', last_error = :error
+            WHERE id = :id
+            """;
+
+    private static final String PURGE_SQL =
+            "DELETE FROM outbox_events WHERE status = 'DONE' AND processed_at < now() - :retentionMs * interval '1 millisecond'";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final int batchSize;
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final long retryMs;
+    private final long retentionMs;
+    private final ThreadPoolExecutor dispatch;
+
+    public OutboxDispatcher(NamedParameterJdbcTemplate jdbc,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${outbox.batch-size:50}") int batchSize,
+                            @Value("${outbox.lease-ms:60000}") long leaseMs,
+                            @Value("${outbox.max-attempts:5}") int maxAttempts,
+                            @Value("${outbox.retry-ms:5000}") long retryMs,
+                            @Value("${outbox.retention-ms:86400000}") long retentionMs,
+                            @Value("${outbox.dispatch-threads:2}") int threads) {
+        this.jdbc = jdbc;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseMs = leaseMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryMs = retryMs;
+        this.retentionMs = retentionMs;
+
+        AtomicInteger counter = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.dispatch = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "outbox-dispatch-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Dispatch right away instead of at the next poll, e.g. after a solve committed
+     */
+    public void wake() {
+        try {
+            dispatch.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the rows stay PENDING
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:1000}")
+    public void poll() {
+        // Don't claim more than the pool works off before the lease runs out
+        int room = batchSize - dispatch.getQueue().size();
+        if (room <= 0) return;
+
+        List<Claimed> claimed;
+        try {
+            claimed = jdbc.query(CLAIM_SQL,
+                    new MapSqlParameterSource().addValue("leaseMs", leaseMs).addValue("limit", room),
+                    (rs, i) -> new Claimed(rs.getLong("id"), rs.getString("event_type"),
+                            rs.getString("payload"), rs.getInt("attempts")));
+        } catch (Exception e) {
+            logger.warn("Claiming outbox events failed: {}", e.getMessage());
+            return;
+        }
+
+        for (Claimed event : claimed) {
+            try {
+                dispatch.execute(() -> handle(event));
+            } catch (RejectedExecutionException e) {
+                return; // shutting down; the lease runs out and the rows get claimed again
+            }
+        }
+    }
+
+    void handle(Claimed event) {
+        try {
+            eventPublisher.publishEvent(decode(event));
+            jdbc.update(DONE_SQL, new MapSqlParameterSource("id", event.id()));
+        } catch (Exception e) {
+            boolean giveUp = event.attempts() >= maxAttempts;
+            String error = String.valueOf(e.getMessage());
+            if (giveUp) {
+                logger.error("Outbox event {} ({}) failed {} times, giving up: {}", event.id(), event.eventType(),
+                        event.attempts(), error);
+            } else {
+                logger.warn("Outbox event {} ({}) failed, retrying: {}", event.id(), event.eventType(), error);
+            }
+            try {
+                jdbc.update(RETRY_SQL, new MapSqlParameterSource()
+                        .addValue("id", event.id())
+                        .addValue("status", giveUp ? "FAILED" : "PENDING")
+                        .addValue("backoffMs", retryMs << Math.min(event.attempts() - 1, 10))
+                        .addValue("error", error.length() > 1000 ? error.substring(0, 1000) : error));
+            } catch (Exception updateEx) {
+                logger.warn("Recording outbox failure for {} failed: {}", event.id(), updateEx.getMessage());
+            }
+        }
+    }
+
+    private Object decode(Claimed event) throws Exception {
+        if (SOLVE_RECORDED.equals(event.eventType())) {
+            return objectMapper.readValue(event.payload(), SolveRecorded.class);
+        }
+        throw new IllegalStateException("Unknown outbox event type: " + event.eventType());
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        try {
+            int deleted = jdbc.update(PURGE_SQL, new MapSqlParameterSource("retentionMs", retentionMs));
+            if (deleted > 0) logger.debug("Purged {} processed outbox events", deleted);
+        } catch (Exception e) {
+            logger.warn("Purging outbox events failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatch.shutdown();
+    }
+}
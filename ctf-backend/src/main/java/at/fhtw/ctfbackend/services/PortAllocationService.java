@@ -0,0 +1,222 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hands out host SSH ports for challenge containers.
+ * Shared by EnvironmentService and the pre-warmed container pool.
+ *
+ * Ports are tracked in a bitmap over SSH_BASE..SSH_BASE+PORT_RANGE-1; allocation
+ * walks a rotating cursor to the next clear bit, so a just-released port isn't
+ * handed out again right away. Nothing on the allocate/release path touches
+ * Docker or the network. The bitmap is rebuilt from the DB plus one Docker
+ * snapshot at startup and periodically, which also repairs leaked ports.
+ *
+ * Every Docker host has its own bitmap, since the same port is free independently on
+ * each machine. A null host id means the local one.
+ */
+@Service
+public class PortAllocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortAllocationService.class);
+
+    public static final int SSH_BASE = 30000;
+    public static final int PORT_RANGE = 1000;
+
+    // Ports handed out this recently survive a rebuild even if neither the DB nor Docker shows them yet
+    private static final long RESERVATION_GRACE_MS = 120_000;
+
+    private final ChallengeInstanceRepository instanceRepo;
+    private final DockerService dockerService;
+
+    // Guarded by this
+    private final Map<String, HostPorts> hosts = new HashMap<>();
+
+    public PortAllocationService(ChallengeInstanceRepository instanceRepo, DockerService dockerService) {
+        this.instanceRepo = instanceRepo;
+        this.dockerService = dockerService;
+
+        // Initialize with existing allocated ports; Docker is consulted once the app is ready
+        int loaded = 0;
+        synchronized (this) {
+            for (Map.Entry<String, BitSet> entry : portsFromDatabase().entrySet()) {
+                ports(entry.getKey()).used.or(entry.getValue());
+                loaded += entry.getValue().cardinality();
+            }
+        }
+        logger.info("Loaded {} allocated ports from database", loaded);
+    }
+
+    public int allocatePort(String hostId) {
+        synchronized (this) {
+            HostPorts ports = ports(hostId);
+            int offset = ports.used.nextClearBit(ports.cursor);
+            if (offset >= PORT_RANGE) {
+                offset = ports.used.nextClearBit(0);
+            }
+            if (offset >= PORT_RANGE) {
+                throw new RuntimeException("No available ports in range " + SSH_BASE + "-" + (SSH_BASE + PORT_RANGE)
+                        + " on " + key(hostId));
+            }
+
+            ports.used.set(offset);
+            ports.allocatedAt[offset] = System.currentTimeMillis();
+            ports.cursor = (offset + 1) % PORT_RANGE;
+            return SSH_BASE + offset;
+        }
+    }
+
+    /**
+     * Release port back to available pool
+     */
+    public void releasePort(String hostId, int port) {
+        int offset = port - SSH_BASE;
+        if (offset < 0 || offset >= PORT_RANGE) return;
+
+        synchronized (this) {
+            HostPorts ports = ports(hostId);
+            ports.used.clear(offset);
+            ports.allocatedAt[offset] = 0;
+        }
+    }
+
+    /**
+     * Mark ports that are known to be taken, e.g. published by a running container.
+     * Only ever sets bits, so a partial picture can't free a port that is in use.
+     *
+     * @return how many of them the map had lost
+     */
+    public int markInUse(String hostId, Collection<Integer> ports) {
+        int restored = 0;
+        synchronized (this) {
+            BitSet used = ports(hostId).used;
+            for (int port : ports) {
+                int offset = port - SSH_BASE;
+                if (offset >= 0 && offset < PORT_RANGE && !used.get(offset)) {
+                    used.set(offset);
+                    restored++;
+                }
+            }
+        }
+        return restored;
+    }
+
+    public synchronized int getAvailableCount(String hostId) {
+        return PORT_RANGE - ports(hostId).used.cardinality();
+    }
+
+    /**
+     * Rebuild the bitmaps from active instances and the ports Docker has published.
+     * Runs before the container pool warms up so the pool never picks a port taken by a leftover container.
+     * A host that can't be listed keeps its current state.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${environment.ports.reconcile-interval-ms:300000}",
+               initialDelayString = "${environment.ports.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long snapshotAt = System.currentTimeMillis();
+
+        Map<String, BitSet> fromDatabase;
+        try {
+            fromDatabase = portsFromDatabase();
+        } catch (Exception e) {
+            logger.warn("Port reconcile skipped: {}", e.getMessage());
+            return;
+        }
+
+        for (String hostId : dockerService.hostIds()) {
+            Set<Integer> published;
+            try {
+                published = dockerService.getPublishedPorts(hostId);
+            } catch (Exception e) {
+                // Rebuilding from partial data could free ports that are in use; keep the current state
+                logger.warn("Port reconcile of {} skipped: {}", hostId, e.getMessage());
+                continue;
+            }
+            BitSet inUse = fromDatabase.getOrDefault(hostId, new BitSet(PORT_RANGE));
+            for (int port : published) {
+                int offset = port - SSH_BASE;
+                if (offset >= 0 && offset < PORT_RANGE) {
+                    inUse.set(offset);
+                }
+            }
+            rebuild(hostId, inUse, snapshotAt);
+        }
+    }
+
+    private void rebuild(String hostId, BitSet inUse, long snapshotAt) {
+        int freed;
+        int added;
+        synchronized (this) {
+            HostPorts ports = ports(hostId);
+            // Keep reservations that are still on their way into the DB or Docker
+            for (int i = ports.used.nextSetBit(0); i >= 0; i = ports.used.nextSetBit(i + 1)) {
+                if (ports.allocatedAt[i] > snapshotAt - RESERVATION_GRACE_MS) {
+                    inUse.set(i);
+                }
+            }
+
+            BitSet leaked = (BitSet) ports.used.clone();
+            leaked.andNot(inUse);
+            BitSet discovered = (BitSet) inUse.clone();
+            discovered.andNot(ports.used);
+            freed = leaked.cardinality();
+            added = discovered.cardinality();
+
+            for (int i = leaked.nextSetBit(0); i >= 0; i = leaked.nextSetBit(i + 1)) {
+                ports.allocatedAt[i] = 0;
+            }
+            ports.used.clear();
+            ports.used.or(inUse);
+        }
+
+        if (freed > 0 || added > 0) {
+            logger.info("Port reconcile of {}: freed {} leaked ports, marked {} ports in use", hostId, freed, added);
+        }
+    }
+
+    private Map<String, BitSet> portsFromDatabase() {
+        Map<String, BitSet> ports = new HashMap<>();
+        List<ChallengeInstanceEntity> active = instanceRepo.findByStatusIn(List.of("RUNNING", "PROVISIONING"));
+        for (ChallengeInstanceEntity inst : active) {
+            Integer port = inst.getSshPort();
+            if (port != null && port >= SSH_BASE && port < SSH_BASE + PORT_RANGE) {
+                ports.computeIfAbsent(key(inst.getDockerHost()), h -> new BitSet(PORT_RANGE)).set(port - SSH_BASE);
+            }
+        }
+        return ports;
+    }
+
+    // Caller holds the lock
+    private HostPorts ports(String hostId) {
+        return hosts.computeIfAbsent(key(hostId), h -> new HostPorts());
+    }
+
+    private static String key(String hostId) {
+        return hostId != null ? hostId : DockerHostRegistry.LOCAL;
+    }
+
+    // bit i set = port SSH_BASE + i is taken
+    private static final class HostPorts {
+        final BitSet used = new BitSet(PORT_RANGE);
+        final long[] allocatedAt = new long[PORT_RANGE];
+        int cursor;
+    }
+}
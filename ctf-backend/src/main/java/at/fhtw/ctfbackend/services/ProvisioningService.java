@@ -0,0 +1,149 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.dto.InstanceProgressEvent;
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs instance provisioning (image build, container start) on a bounded
+ * worker pool so the start/build requests return right away, and streams
+ * the progress of each instance to SSE subscribers.
+ */
+@Service
+public class ProvisioningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvisioningService.class);
+
+    public enum Phase {
+        QUEUED, BUILDING, STARTING, READY, FAILED;
+
+        public boolean isTerminal() {
+            return this == READY || this == FAILED;
+        }
+    }
+
+    private static final String EVENT_NAME = "progress";
+
+    private final ThreadPoolExecutor executor;
+    private final SseEmitterRegistry<String> streams;
+
+    // Last phase per in-flight instance, so a late subscriber sees BUILDING instead of just PROVISIONING
+    private final Map<String, InstanceProgressEvent> latest = new ConcurrentHashMap<>();
+
+    public ProvisioningService(@Value("${environment.provisioning.threads:4}") int threads,
+                               @Value("${environment.provisioning.queue-capacity:200}") int queueCapacity,
+                               @Value("${environment.provisioning.sse-timeout-ms:600000}") long sseTimeoutMs) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "instance-provisioning-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.streams = new SseEmitterRegistry<>(sseTimeoutMs);
+    }
+
+    /**
+     * Queue provisioning work for an instance.
+     *
+     * @throws RejectedExecutionException if the queue is full; the caller must undo the instance
+     */
+    public void submit(ChallengeInstanceEntity inst, Runnable work) {
+        String instanceId = inst.getInstanceId();
+        publish(inst, Phase.QUEUED, null);
+
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    // The work reports its own FAILED phase; this only guards the worker thread
+                    logger.error("Provisioning of instance {} failed: {}", instanceId, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            latest.remove(instanceId);
+            throw new RejectedExecutionException("Too many environments are being started, please retry shortly", e);
+        }
+    }
+
+    public void publish(ChallengeInstanceEntity inst, Phase phase, String message) {
+        InstanceProgressEvent event = new InstanceProgressEvent(inst.getInstanceId(), phase.name(),
+                inst.getStatus(), inst.getSshPort(), message);
+
+        if (phase.isTerminal()) {
+            latest.remove(inst.getInstanceId());
+        } else {
+            latest.put(inst.getInstanceId(), event);
+        }
+
+        streams.send(inst.getInstanceId(), EVENT_NAME, event);
+        if (phase.isTerminal()) {
+            streams.complete(inst.getInstanceId());
+        }
+    }
+
+    /**
+     * Open a progress stream for an instance. Register first and read the
+     * instance afterwards, so a terminal event can't fall between the two.
+     */
+    public SseEmitter subscribe(String instanceId, Callable<ChallengeInstanceEntity> loader) throws Exception {
+        SseEmitter emitter = streams.register(instanceId);
+
+        ChallengeInstanceEntity inst = loader.call();
+        if (inst == null) {
+            emitter.complete();
+            return emitter;
+        }
+
+        InstanceProgressEvent current = latest.get(instanceId);
+        Phase phase = current != null ? Phase.valueOf(current.getPhase()) : phaseOf(inst.getStatus());
+        if (phase == null) {
+            // STOPPED / EXPIRED: nothing left to report
+            streams.send(emitter, EVENT_NAME, new InstanceProgressEvent(instanceId, null, inst.getStatus(),
+                    inst.getSshPort(), null));
+            emitter.complete();
+            return emitter;
+        }
+
+        streams.send(emitter, EVENT_NAME, current != null ? current
+                : new InstanceProgressEvent(instanceId, phase.name(), inst.getStatus(), inst.getSshPort(), null));
+        if (phase.isTerminal()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private static Phase phaseOf(String status) {
+        return switch (status) {
+            case "PROVISIONING" -> Phase.QUEUED;
+            case "RUNNING" -> Phase.READY;
+            case "FAILED" -> Phase.FAILED;
+            default -> null;
+        };
+    }
+
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
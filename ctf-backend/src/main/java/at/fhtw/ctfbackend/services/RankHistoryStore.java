@@ -0,0 +1,163 @@
+package at.fhtw.ctfbackend.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Score history per user for the timeline chart, appended on every counted solve.
+ *
+ * Each user's solves are one byte stream of (seconds since the previous solve, points earned)
+ * pairs as zigzag varints, i.e. the cumulative score delta-encoded over time. A solve takes
+ * 2-4 bytes, so the whole history stays small enough to decode on request. Not thread-safe;
+ * ScoreboardService guards it with its lock.
+ */
+final class RankHistoryStore {
+
+    /**
+     * A user's score after each of their solves, in time order
+     */
+    record Series(long[] seconds, int[] cumulative) {
+
+        int size() {
+            return seconds.length;
+        }
+
+        /**
+         * Score at each of the given times (epoch seconds, ascending)
+         */
+        int[] sample(long[] at) {
+            int[] out = new int[at.length];
+            int next = 0;
+            int score = 0;
+            for (int i = 0; i < at.length; i++) {
+                while (next < seconds.length && seconds[next] <= at[i]) {
+                    score = cumulative[next++];
+                }
+                out[i] = score;
+            }
+            return out;
+        }
+    }
+
+    private static final class Stream {
+        byte[] bytes = new byte[8];
+        int length;
+        int count;
+        long lastSecond;
+        // False once a solve arrived with an earlier time than the one before it
+        boolean ordered = true;
+    }
+
+    private final Map<String, Stream> streams = new HashMap<>();
+
+    void append(String username, LocalDateTime solvedAt, int points) {
+        Stream stream = streams.computeIfAbsent(username, u -> new Stream());
+        long second = toSecond(solvedAt);
+        if (stream.count > 0 && second < stream.lastSecond) stream.ordered = false;
+
+        writeVarint(stream, zigzag(second - stream.lastSecond));
+        writeVarint(stream, zigzag(points));
+        stream.lastSecond = second;
+        stream.count++;
+    }
+
+    void remove(String username) {
+        streams.remove(username);
+    }
+
+    void clear() {
+        streams.clear();
+    }
+
+    /**
+     * Encoded size of all histories, for logging
+     */
+    long bytes() {
+        long total = 0;
+        for (Stream stream : streams.values()) total += stream.length;
+        return total;
+    }
+
+    Series decode(String username) {
+        Stream stream = streams.get(username);
+        if (stream == null) return new Series(new long[0], new int[0]);
+
+        long[] seconds = new long[stream.count];
+        int[] points = new int[stream.count];
+        int[] pos = {0};
+        long second = 0;
+        for (int i = 0; i < stream.count; i++) {
+            second += unzigzag(readVarint(stream.bytes, pos));
+            seconds[i] = second;
+            points[i] = (int) unzigzag(readVarint(stream.bytes, pos));
+        }
+
+        if (!stream.ordered) sortByTime(seconds, points);
+
+        int[] cumulative = new int[points.length];
+        int score = 0;
+        for (int i = 0; i < points.length; i++) {
+            score += points[i];
+            cumulative[i] = score;
+        }
+        return new Series(seconds, cumulative);
+    }
+
+    static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromSecond(long second) {
+        return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+    }
+
+    // Insertion sort: only a few solves per user, and out-of-order ones are rare
+    private static void sortByTime(long[] seconds, int[] points) {
+        for (int i = 1; i < seconds.length; i++) {
+            long s = seconds[i];
+            int p = points[i];
+            int j = i - 1;
+            while (j >= 0 && seconds[j] > s) {
+                seconds[j + 1] = seconds[j];
+                points[j + 1] = points[j];
+                j--;
+            }
+            seconds[j + 1] = s;
+            points[j + 1] = p;
+        }
+    }
+
+    private static void writeVarint(Stream stream, long value) {
+        if (stream.length + 10 > stream.bytes.length) {
+            stream.bytes = Arrays.copyOf(stream.bytes, Math.max(stream.bytes.length * 2, stream.length + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            stream.bytes[stream.length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.bytes[stream.length++] = (byte) value;
+    }
+
+    private static long readVarint(byte[] bytes, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
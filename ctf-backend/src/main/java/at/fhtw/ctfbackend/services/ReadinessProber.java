@@ -0,0 +1,96 @@
+package at.fhtw.ctfbackend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Waits until a freshly started container's sshd answers on its published port.
+ * A probe is a TCP connect plus reading the "SSH-2.0-..." banner; an open port alone
+ * isn't enough because Docker's proxy accepts connections before sshd is up.
+ * Failed probes are retried with a short exponential backoff until the timeout.
+ */
+@Service
+public class ReadinessProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadinessProber.class);
+
+    private static final long INITIAL_BACKOFF_MS = 50;
+    private static final long MAX_BACKOFF_MS = 1000;
+    private static final int IO_TIMEOUT_MS = 1000;
+
+    private final String host;
+    private final long timeoutMs;
+
+    public ReadinessProber(@Value("${environment.readiness.host:127.0.0.1}") String host,
+                           @Value("${environment.readiness.timeout-ms:30000}") long timeoutMs) {
+        this.host = host;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Block until sshd answers on the port
+     *
+     * @return milliseconds it took
+     * @throws RuntimeException if it doesn't within environment.readiness.timeout-ms
+     */
+    public long awaitSsh(int port) {
+        return awaitSsh(host, port);
+    }
+
+    /**
+     * Same for a container on another Docker host, reached at that host's address
+     */
+    public long awaitSsh(String host, int port) {
+        long started = System.nanoTime();
+        long deadline = started + timeoutMs * 1_000_000;
+        long backoff = INITIAL_BACKOFF_MS;
+        int attempts = 0;
+        String lastError = null;
+
+        while (true) {
+            attempts++;
+            try {
+                probe(host, port);
+                long tookMs = (System.nanoTime() - started) / 1_000_000;
+                logger.debug("SSH on {}:{} ready after {} ms ({} probes)", host, port, tookMs, attempts);
+                return tookMs;
+            } catch (IOException e) {
+                lastError = e.getMessage();
+            }
+
+            long remainingMs = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMs <= 0) {
+                throw new RuntimeException("SSH on " + host + ":" + port + " not ready after " + timeoutMs
+                        + " ms (" + attempts + " probes, last error: " + lastError + ")");
+            }
+            try {
+                Thread.sleep(Math.min(backoff, remainingMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for SSH on port " + port, e);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void probe(String host, int port) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), IO_TIMEOUT_MS);
+            socket.setSoTimeout(IO_TIMEOUT_MS);
+
+            InputStream in = socket.getInputStream();
+            byte[] banner = in.readNBytes(4);
+            if (!"SSH-".equals(new String(banner, StandardCharsets.US_ASCII))) {
+                throw new IOException("no SSH banner");
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package at.fhtw.ctfbackend.services;
+
+/**
+ * CPU and memory one challenge container may use. The same numbers become the container's
+ * --memory/--cpus limits and what ResourceScheduler commits for it on the host.
+ */
+public record ResourceProfile(long memoryBytes, long nanoCpus) {
+
+    public static ResourceProfile of(int memoryMb, double cpus) {
+        return new ResourceProfile(memoryMb * 1024L * 1024, Math.round(cpus * 1_000_000_000L));
+    }
+
+    public long memoryMb() {
+        return memoryBytes / (1024 * 1024);
+    }
+
+    public double cpus() {
+        return nanoCpus / 1_000_000_000.0;
+    }
+}
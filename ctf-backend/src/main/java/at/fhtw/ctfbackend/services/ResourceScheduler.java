@@ -0,0 +1,368 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeEntity;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resource budgets of the Docker hosts.
+ *
+ * Every challenge has a ResourceProfile (its own cpu/memory columns, or the defaults).
+ * Admitted instances commit their profile against one host's capacity: memory as is,
+ * CPU times environment.resources.cpu-overcommit since CTF containers sit idle most of
+ * the time and CPU limits only throttle. An instance is admitted only while its profile
+ * still fits some host, so small challenges pack densely and a heavy one waits for room.
+ *
+ * Placement picks the least-loaded host the profile fits on, preferring hosts that
+ * already have the challenge's image so a start doesn't have to copy it first.
+ *
+ * A host's capacity comes from its docker info minus environment.resources.memory-reserve-mb
+ * for the backend and database. capacity-memory-mb / capacity-cpus override it for the local
+ * host. Hosts are sized at startup, and workers that couldn't be sized are asked again every
+ * environment.resources.resize-interval-ms, always outside the lock: placement runs under
+ * AdmissionService's lock and only reads the cached budgets. A host that isn't sized yet
+ * takes no instances.
+ *
+ * Idle pool containers run on the local host with their challenge's profile, so each one
+ * holds its own reservation there until it is claimed or removed.
+ */
+@Service
+public class ResourceScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceScheduler.class);
+
+    // Smallest limits an admin can set; below that sshd alone doesn't run reliably
+    static final int MIN_MEMORY_MB = 64;
+    static final double MIN_CPUS = 0.05;
+    public record Reservation(String hostId, ResourceProfile profile) {}
+
+    public record Usage(String hostId, long committedMemoryBytes, long committedNanoCpus,
+                        long capacityMemoryBytes, long capacityNanoCpus, int instances) {}
+
+    private final ChallengeRepository challengeRepo;
+    private final DockerService dockerService;
+    private final DockerHostRegistry hosts;
+    private final ImageBuildCoordinator imageBuilds;
+    private final ResourceProfile defaultProfile;
+    private final long configuredMemoryBytes;
+    private final double configuredCpus;
+    private final long memoryReserveBytes;
+    private final double cpuOvercommit;
+
+    private final Map<String, ResourceProfile> profiles = new ConcurrentHashMap<>(); // by challengeId
+
+    // All guarded by this
+    private final Map<String, Reservation> committed = new HashMap<>();              // by instanceId
+    private final Map<String, Budget> budgets = new LinkedHashMap<>();               // by host id, registry order
+    private final Map<String, ResourceProfile> pooled = new HashMap<>();             // by container name, local host
+
+    public ResourceScheduler(ChallengeRepository challengeRepo,
+                             DockerService dockerService,
+                             DockerHostRegistry hosts,
+                             ImageBuildCoordinator imageBuilds,
+                             @Value("${environment.resources.default-memory-mb:512}") int defaultMemoryMb,
+                             @Value("${environment.resources.default-cpus:1.0}") double defaultCpus,
+                             @Value("${environment.resources.capacity-memory-mb:0}") long capacityMemoryMb,
+                             @Value("${environment.resources.capacity-cpus:0}") double capacityCpus,
+                             @Value("${environment.resources.memory-reserve-mb:1024}") long memoryReserveMb,
+                             @Value("${environment.resources.cpu-overcommit:4.0}") double cpuOvercommit) {
+        this.challengeRepo = challengeRepo;
+        this.dockerService = dockerService;
+        this.hosts = hosts;
+        this.imageBuilds = imageBuilds;
+        this.defaultProfile = ResourceProfile.of(defaultMemoryMb, defaultCpus);
+        this.configuredMemoryBytes = capacityMemoryMb * 1024 * 1024;
+        this.configuredCpus = capacityCpus;
+        this.memoryReserveBytes = memoryReserveMb * 1024 * 1024;
+        this.cpuOvercommit = Math.max(1.0, cpuOvercommit);
+    }
+
+    /**
+     * Limits for containers of the challenge: its own profile, or the defaults
+     */
+    public ResourceProfile profileFor(String challengeId) {
+        if (challengeId == null) return defaultProfile;
+        return profiles.computeIfAbsent(challengeId, id -> challengeRepo.findById(id)
+                .map(this::profileOf)
+                .orElse(defaultProfile));
+    }
+
+    /**
+     * Set or (with nulls) reset the challenge's limits. Applies to containers started from now on.
+     */
+    public ResourceProfile updateProfile(String challengeId, Integer memoryMb, Double cpus) {
+        ChallengeEntity challenge = challengeRepo.findById(challengeId)
+                .orElseThrow(() -> new RuntimeException("Challenge not found: " + challengeId));
+
+        if (memoryMb != null && memoryMb < MIN_MEMORY_MB) {
+            throw new IllegalArgumentException("Memory limit must be at least " + MIN_MEMORY_MB + " MB");
+        }
+        if (cpus != null && cpus < MIN_CPUS) {
+            throw new IllegalArgumentException("CPU limit must be at least " + MIN_CPUS);
+        }
+        ResourceProfile profile = ResourceProfile.of(
+                memoryMb != null ? memoryMb : (int) defaultProfile.memoryMb(),
+                cpus != null ? cpus : defaultProfile.cpus());
+        if (!fitsEmptyHost(profile)) {
+            throw new IllegalArgumentException("Limits exceed the capacity of every host");
+        }
+
+        challenge.setMemoryLimitMb(memoryMb);
+        challenge.setCpuLimit(cpus);
+        challengeRepo.save(challenge);
+        profiles.put(challengeId, profile);
+        logger.info("Resource profile of challenge {} set to {} MB / {} CPUs", challengeId,
+                profile.memoryMb(), profile.cpus());
+        return profile;
+    }
+
+    /**
+     * Hosts that already have the challenge's current image. Asks Docker, so call it outside
+     * any lock; with a single host there is nothing to choose and it returns right away.
+     */
+    public Set<String> hostsWithImage(String challengeId) {
+        if (hosts.size() == 1 || challengeId == null) return Set.of();
+        Set<String> warm = new HashSet<>();
+        try {
+            String image = imageBuilds.imageFor(challengeId);
+            for (String hostId : hosts.ids()) {
+                if (dockerService.hasImage(hostId, image)) warm.add(hostId);
+            }
+        } catch (Exception e) {
+            logger.debug("Image lookup for {} failed: {}", challengeId, e.getMessage());
+        }
+        return warm;
+    }
+
+    /**
+     * Commit the profile for the instance on the least-loaded host it fits on, preferring
+     * hosts in warmHosts (see hostsWithImage)
+     *
+     * @return the chosen host, empty if it fits nowhere right now
+     */
+    public synchronized Optional<String> tryPlace(String instanceId, ResourceProfile profile, Set<String> warmHosts) {
+        Reservation existing = committed.get(instanceId);
+        if (existing != null) return Optional.of(existing.hostId());
+
+        String best = null;
+        double bestLoad = Double.MAX_VALUE;
+        boolean bestWarm = false;
+        for (String hostId : hosts.ids()) {
+            Budget budget = budget(hostId);
+            if (!budget.fits(profile)) continue;
+            boolean warm = warmHosts.contains(hostId);
+            double load = budget.load();
+            if (best == null || (warm && !bestWarm) || (warm == bestWarm && load < bestLoad)) {
+                best = hostId;
+                bestLoad = load;
+                bestWarm = warm;
+            }
+        }
+        if (best == null) return Optional.empty();
+        add(instanceId, new Reservation(best, profile));
+        return Optional.of(best);
+    }
+
+    /**
+     * Whether the profile could ever be admitted, i.e. fits some host with nothing else running.
+     * A host that isn't sized yet might fit it, so the start waits instead of being refused.
+     */
+    public synchronized boolean fitsEmptyHost(ResourceProfile profile) {
+        for (String hostId : hosts.ids()) {
+            Budget budget = budget(hostId);
+            if (!budget.sized) return true;
+            if (profile.memoryBytes() <= budget.capacityMemoryBytes && profile.nanoCpus() <= budget.capacityNanoCpus) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reserve an idle pool container's profile on the local host
+     *
+     * @return false if the local host has no room for it, the container shouldn't be started then
+     */
+    public synchronized boolean reservePooled(String containerName, ResourceProfile profile) {
+        if (pooled.containsKey(containerName)) return true;
+        Budget local = budget(DockerHostRegistry.LOCAL);
+        if (!local.fits(profile)) return false;
+        pooled.put(containerName, profile);
+        local.add(profile);
+        return true;
+    }
+
+    /**
+     * The pool container was claimed (the instance's own reservation takes over) or removed
+     */
+    public synchronized void releasePooled(String containerName) {
+        ResourceProfile profile = pooled.remove(containerName);
+        if (profile != null) {
+            budget(DockerHostRegistry.LOCAL).remove(profile);
+        }
+    }
+
+    public synchronized void release(String instanceId) {
+        Reservation reservation = committed.remove(instanceId);
+        if (reservation != null) {
+            budget(reservation.hostId()).remove(reservation.profile());
+        }
+    }
+
+    /**
+     * Replace all reservations, e.g. when AdmissionService rebuilds its slot table
+     */
+    public synchronized void reset(Map<String, Reservation> reservations) {
+        committed.clear();
+        budgets.values().forEach(Budget::clear);
+        reservations.forEach(this::add);
+        pooled.values().forEach(budget(DockerHostRegistry.LOCAL)::add);
+    }
+
+    /**
+     * Size hosts that have no capacity yet (startup, or docker info failed last time). Runs
+     * docker info without holding the lock, then swaps the result in with the reservations
+     * committed meanwhile.
+     */
+    @Order(0) // before AdmissionService rebuilds its slots and starts placing
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${environment.resources.resize-interval-ms:60000}",
+               initialDelayString = "${environment.resources.resize-interval-ms:60000}")
+    public void refreshCapacity() {
+        for (String hostId : hosts.ids()) {
+            synchronized (this) {
+                if (budget(hostId).sized) continue;
+            }
+            Budget sized = resolveCapacity(hostId);
+            synchronized (this) {
+                sized.copyCommitted(budget(hostId));
+                budgets.put(hostId, sized);
+            }
+        }
+    }
+
+    public synchronized List<Usage> usage() {
+        List<Usage> usage = new ArrayList<>();
+        for (String hostId : hosts.ids()) {
+            Budget b = budget(hostId);
+            usage.add(new Usage(hostId, b.committedMemoryBytes, b.committedNanoCpus,
+                    b.capacityMemoryBytes, b.capacityNanoCpus, b.instances));
+        }
+        return usage;
+    }
+
+    private void add(String instanceId, Reservation reservation) {
+        committed.put(instanceId, reservation);
+        budget(reservation.hostId()).add(reservation.profile());
+    }
+
+    private ResourceProfile profileOf(ChallengeEntity challenge) {
+        return ResourceProfile.of(
+                challenge.getMemoryLimitMb() != null ? challenge.getMemoryLimitMb() : (int) defaultProfile.memoryMb(),
+                challenge.getCpuLimit() != null ? challenge.getCpuLimit() : defaultProfile.cpus());
+    }
+
+    // Caller holds the lock. Never asks Docker: an unknown host gets an empty budget until refreshCapacity sizes it
+    private Budget budget(String hostId) {
+        return budgets.computeIfAbsent(hostId, id -> new Budget(0, 0, false));
+    }
+
+    // Asks Docker, never call it with the lock held
+    private Budget resolveCapacity(String hostId) {
+        boolean local = DockerHostRegistry.LOCAL.equals(hostId);
+        long memory = local ? configuredMemoryBytes : 0;
+        double cpus = local ? configuredCpus : 0;
+        if (memory <= 0 || cpus <= 0) {
+            DockerClient.HostInfo host;
+            try {
+                host = dockerService.hostInfo(hostId);
+            } catch (Exception e) {
+                if (!local) {
+                    // Don't place anything on a worker we can't size
+                    logger.warn("docker info on {} failed, not placing instances there: {}", hostId, e.getMessage());
+                    return new Budget(0, 0, false);
+                }
+                // The backend runs next to the local daemon, so its own machine is the best guess
+                logger.warn("docker info failed, sizing from the local machine: {}", e.getMessage());
+                host = new DockerClient.HostInfo(Runtime.getRuntime().availableProcessors(),
+                        ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                                .getTotalMemorySize());
+            }
+            if (memory <= 0) memory = Math.max(0, host.memoryBytes() - memoryReserveBytes);
+            if (cpus <= 0) cpus = host.cpus();
+        }
+        logger.info("Instance capacity of {}: {} MB memory, {} CPUs ({}x overcommit)",
+                hostId, memory / (1024 * 1024), cpus, cpuOvercommit);
+        return new Budget(memory, Math.round(cpus * cpuOvercommit * 1_000_000_000L), true);
+    }
+
+    // Committed and available resources of one host
+    private static final class Budget {
+        final long capacityMemoryBytes;
+        final long capacityNanoCpus;
+        // False until docker info (or the configured capacity) answered; no capacity until then
+        final boolean sized;
+        long committedMemoryBytes;
+        long committedNanoCpus;
+        int instances;
+
+        Budget(long capacityMemoryBytes, long capacityNanoCpus, boolean sized) {
+            this.capacityMemoryBytes = capacityMemoryBytes;
+            this.capacityNanoCpus = capacityNanoCpus;
+            this.sized = sized;
+        }
+
+        boolean fits(ResourceProfile profile) {
+            return committedMemoryBytes + profile.memoryBytes() <= capacityMemoryBytes
+                    && committedNanoCpus + profile.nanoCpus() <= capacityNanoCpus;
+        }
+
+        // Fuller dimension counts, so memory-heavy and CPU-heavy hosts both look busy
+        double load() {
+            return Math.max((double) committedMemoryBytes / Math.max(1, capacityMemoryBytes),
+                    (double) committedNanoCpus / Math.max(1, capacityNanoCpus));
+        }
+
+        void add(ResourceProfile profile) {
+            committedMemoryBytes += profile.memoryBytes();
+            committedNanoCpus += profile.nanoCpus();
+            instances++;
+        }
+
+        void remove(ResourceProfile profile) {
+            committedMemoryBytes -= profile.memoryBytes();
+            committedNanoCpus -= profile.nanoCpus();
+            instances--;
+        }
+
+        void copyCommitted(Budget other) {
+            committedMemoryBytes = other.committedMemoryBytes;
+            committedNanoCpus = other.committedNanoCpus;
+            instances = other.instances;
+        }
+
+        void clear() {
+            committedMemoryBytes = 0;
+            committedNanoCpus = 0;
+            instances = 0;
+        }
+    }
+}
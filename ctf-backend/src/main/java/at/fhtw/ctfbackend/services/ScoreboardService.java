@@ -0,0 +1,221 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.SolveRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Points ranking of all users, loaded once from the solves table and then updated in place
+ * from the SolveRecorded outbox events.
+ *
+ * Standings are kept in an OrderStatisticTreap ordered by points (desc), time of the last
+ * solve (asc, earlier reaches a score first) and username, so both a page of the board and
+ * a single user's rank cost O(log n) instead of a GROUP BY over all solves. Every counted
+ * solve is also appended to a RankHistoryStore for the score-over-time chart.
+ */
+@Service
+public class ScoreboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScoreboardService.class);
+
+    public record Standing(String username, int points, int solveCount, LocalDateTime lastSolveAt) {}
+
+    public record Ranked(int rank, Standing standing) {}
+
+    public record TimelineSeries(int rank, String username, int[] points) {}
+
+    /**
+     * Scores of the top users sampled at the same points in time
+     */
+    public record Timeline(List<LocalDateTime> at, List<TimelineSeries> series) {}
+
+    static final Comparator<Standing> ORDER = Comparator.comparingInt(Standing::points).reversed()
+            .thenComparing(Standing::lastSolveAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Standing::username);
+
+    private final SolveRepository solveRepository;
+
+    // All fields below are guarded by lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OrderStatisticTreap<Standing> ranking = new OrderStatisticTreap<>(ORDER);
+    private final Map<String, Standing> byUser = new HashMap<>();
+    // Challenges already counted per user: the outbox may deliver a solve more than once
+    private final Map<String, Set<String>> counted = new HashMap<>();
+    private final RankHistoryStore history = new RankHistoryStore();
+    private boolean loaded;
+    // Solves that arrived while the initial load was running, replayed on top of it
+    private final List<OutboxDispatcher.SolveRecorded> pending = new ArrayList<>();
+
+    public ScoreboardService(SolveRepository solveRepository) {
+        this.solveRepository = solveRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Object[]> rows = solveRepository.findScoreRows();
+
+        lock.writeLock().lock();
+        try {
+            ranking.clear();
+            byUser.clear();
+            counted.clear();
+            history.clear();
+            for (Object[] row : rows) {
+                apply((String) row[0], (String) row[1], points(row[2]), (LocalDateTime) row[3]);
+            }
+            pending.forEach(solve -> apply(solve.username(), solve.challengeId(), solve.pointsEarned(), solve.solvedAt()));
+            pending.clear();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Scoreboard loaded: {} users from {} solves, {} bytes of history", byUser.size(), rows.size(),
+                history.bytes());
+    }
+
+    // Before the other listeners, so SolveFeedService already sees the new rank
+    @Order(0)
+    @EventListener
+    public void onSolveRecorded(OutboxDispatcher.SolveRecorded solve) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                pending.add(solve);
+                return;
+            }
+            apply(solve.username(), solve.challengeId(), solve.pointsEarned(),
+                    solve.solvedAt() != null ? solve.solvedAt() : LocalDateTime.now());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuild one user's standing from the DB, e.g. after an admin deleted one of their solves
+     */
+    public void refreshUser(String username) {
+        List<Object[]> rows = solveRepository.findScoreRowsByUsername(username);
+
+        lock.writeLock().lock();
+        try {
+            Standing old = byUser.remove(username);
+            if (old != null) ranking.remove(old);
+            counted.remove(username);
+            history.remove(username);
+            for (Object[] row : rows) {
+                apply(username, (String) row[1], points(row[2]), (LocalDateTime) row[3]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One page of the board, ranks starting at 1
+     */
+    public List<Ranked> page(int page, int size) {
+        // long: a large page number would overflow into some other page
+        long offset = (long) Math.max(0, page) * size;
+        lock.readLock().lock();
+        try {
+            if (offset >= byUser.size()) return List.of();
+            int from = (int) offset;
+            List<Standing> standings = ranking.range(from, size);
+            List<Ranked> result = new ArrayList<>(standings.size());
+            for (int i = 0; i < standings.size(); i++) {
+                result.add(new Ranked(from + i + 1, standings.get(i)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<Ranked> rankOf(String username) {
+        lock.readLock().lock();
+        try {
+            Standing standing = byUser.get(username);
+            return standing != null ? Optional.of(new Ranked(ranking.rank(standing) + 1, standing)) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Score over time of the current top users, sampled at the given number of evenly spaced
+     * points from the first of their solves until now. Cost depends on their solves only.
+     */
+    public Timeline timeline(int top, int points) {
+        int samples = Math.max(2, points);
+        lock.readLock().lock();
+        try {
+            List<Standing> leaders = ranking.range(0, top);
+            List<RankHistoryStore.Series> histories = new ArrayList<>(leaders.size());
+            long from = Long.MAX_VALUE;
+            long to = RankHistoryStore.toSecond(LocalDateTime.now());
+            for (Standing standing : leaders) {
+                RankHistoryStore.Series series = history.decode(standing.username());
+                histories.add(series);
+                if (series.size() > 0) {
+                    from = Math.min(from, series.seconds()[0]);
+                    to = Math.max(to, series.seconds()[series.size() - 1]);
+                }
+            }
+            if (from == Long.MAX_VALUE) return new Timeline(List.of(), List.of());
+
+            long[] at = new long[samples];
+            List<LocalDateTime> times = new ArrayList<>(samples);
+            for (int i = 0; i < samples; i++) {
+                at[i] = from + (to - from) * i / (samples - 1);
+                times.add(RankHistoryStore.fromSecond(at[i]));
+            }
+
+            List<TimelineSeries> series = new ArrayList<>(leaders.size());
+            for (int i = 0; i < leaders.size(); i++) {
+                series.add(new TimelineSeries(i + 1, leaders.get(i).username(), histories.get(i).sample(at)));
+            }
+            return new Timeline(times, series);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int userCount() {
+        lock.readLock().lock();
+        try {
+            return byUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(String username, String challengeId, int points, LocalDateTime solvedAt) {
+        if (!counted.computeIfAbsent(username, u -> new HashSet<>()).add(challengeId)) return;
+
+        Standing old = byUser.get(username);
+        Standing updated;
+        if (old == null) {
+            updated = new Standing(username, points, 1, solvedAt);
+        } else {
+            ranking.remove(old);
+            LocalDateTime last = old.lastSolveAt() == null || (solvedAt != null && solvedAt.isAfter(old.lastSolveAt()))
+                    ? solvedAt : old.lastSolveAt();
+            updated = new Standing(username, old.points() + points, old.solveCount() + 1, last);
+        }
+        byUser.put(username, updated);
+        ranking.insert(updated);
+        if (solvedAt != null) history.append(username, solvedAt, points);
+    }
+
+    private static int points(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+}
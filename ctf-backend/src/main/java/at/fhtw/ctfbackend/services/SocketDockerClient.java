@@ -0,0 +1,464 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.UnixDomainSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DockerClient that talks to the Engine API directly over the daemon socket,
+ * reusing pooled keep-alive connections instead of forking the CLI.
+ */
+@Component
+@ConditionalOnProperty(name = "docker.client", havingValue = "socket")
+public class SocketDockerClient implements DockerClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketDockerClient.class);
+
+    public static final int DEFAULT_STATS_PARALLELISM = 16;
+    public static final long DEFAULT_STATS_TIMEOUT_MS = 5_000;
+
+    private final DockerHttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long readTimeoutMs;
+    private final long statsTimeoutMs;
+    // Stats calls of one sweep run side by side; threads are only created once a sweep needs them
+    private final ExecutorService statsPool;
+
+    @Autowired
+    public SocketDockerClient(@Value("${docker.socket.path:/var/run/docker.sock}") String socketPath,
+                              @Value("${docker.api.version:v1.43}") String apiVersion,
+                              @Value("${docker.socket.pool-size:8}") int poolSize,
+                              @Value("${docker.socket.connect-timeout-ms:5000}") long connectTimeoutMs,
+                              @Value("${docker.socket.read-timeout-ms:60000}") long readTimeoutMs,
+                              @Value("${docker.stats.parallelism:16}") int statsParallelism,
+                              @Value("${docker.stats.timeout-ms:5000}") long statsTimeoutMs) {
+        this(new DockerHttpClient(UnixDomainSocketAddress.of(Path.of(socketPath)), apiVersion, poolSize,
+                connectTimeoutMs, readTimeoutMs), readTimeoutMs, statsParallelism, statsTimeoutMs);
+        logger.info("Using Docker Engine API at unix://{} ({})", socketPath, apiVersion);
+    }
+
+    public SocketDockerClient(DockerHttpClient http) {
+        this(http, DockerHttpClient.DEFAULT_READ_TIMEOUT_MS, DEFAULT_STATS_PARALLELISM, DEFAULT_STATS_TIMEOUT_MS);
+    }
+
+    public SocketDockerClient(DockerHttpClient http, long readTimeoutMs, int statsParallelism, long statsTimeoutMs) {
+        this.http = http;
+        this.readTimeoutMs = readTimeoutMs;
+        this.statsTimeoutMs = statsTimeoutMs;
+        AtomicInteger counter = new AtomicInteger();
+        this.statsPool = Executors.newFixedThreadPool(Math.max(1, statsParallelism), r -> {
+            Thread t = new Thread(r, "docker-stats-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public boolean containerExists(String containerName) {
+        try {
+            return http.get("/containers/" + containerName + "/json").isSuccess();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getContainerStatus(String containerName) {
+        try {
+            DockerHttpClient.Response response = http.get("/containers/" + containerName + "/json");
+            if (response.status() == 404) {
+                return "unknown";
+            }
+            expectSuccess(response, "inspect " + containerName);
+            return objectMapper.readTree(response.body()).path("State").path("Status").asText("unknown");
+        } catch (Exception e) {
+            return "error";
+        }
+    }
+
+    @Override
+    public void runContainer(ContainerSpec spec) {
+        String port = spec.containerPort() + "/tcp";
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("Image", spec.image());
+        ArrayNode env = body.putArray("Env");
+        spec.env().forEach((key, value) -> env.add(key + "=" + value));
+        body.putObject("ExposedPorts").putObject(port);
+        ObjectNode labels = body.putObject("Labels");
+        spec.labels().forEach(labels::put);
+
+        ObjectNode hostConfig = body.putObject("HostConfig");
+        hostConfig.put("NetworkMode", spec.network());
+        hostConfig.put("Memory", spec.memoryBytes());
+        hostConfig.put("NanoCpus", spec.nanoCpus());
+        ObjectNode tmpfs = hostConfig.putObject("Tmpfs");
+        spec.tmpfs().forEach(tmpfs::put);
+        hostConfig.putObject("PortBindings").putArray(port).addObject()
+                .put("HostPort", String.valueOf(spec.hostPort()));
+
+        try {
+            DockerHttpClient.Response created = http.post("/containers/create?name=" + encode(spec.name()),
+                    objectMapper.writeValueAsString(body));
+            expectSuccess(created, "create " + spec.name());
+
+            String id = objectMapper.readTree(created.body()).path("Id").asText(spec.name());
+            DockerHttpClient.Response started = http.post("/containers/" + id + "/start", null);
+            expectSuccess(started, "start " + spec.name());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to run container: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void stopContainer(String containerName, int timeoutSeconds) {
+        // The daemon answers after the grace period at the latest
+        call("POST", "/containers/" + containerName + "/stop?t=" + timeoutSeconds, "stop " + containerName,
+                readTimeoutMs + timeoutSeconds * 1000L);
+    }
+
+    @Override
+    public void removeContainer(String containerName) {
+        call("DELETE", "/containers/" + containerName + "?force=true", "remove " + containerName);
+    }
+
+    @Override
+    public void removeContainers(List<String> containerNames) {
+        // The Engine API has no bulk delete, but every call reuses a pooled connection
+        for (String containerName : containerNames) {
+            removeContainer(containerName);
+        }
+    }
+
+    @Override
+    public void killContainer(String containerName) {
+        call("POST", "/containers/" + containerName + "/kill", "kill " + containerName);
+    }
+
+    @Override
+    public void pauseContainer(String containerName) {
+        call("POST", "/containers/" + containerName + "/pause", "pause " + containerName);
+    }
+
+    @Override
+    public void unpauseContainer(String containerName) {
+        call("POST", "/containers/" + containerName + "/unpause", "unpause " + containerName);
+    }
+
+    @Override
+    public Map<String, ContainerStats> sampleStats(List<String> containerNames) {
+        // No bulk stats endpoint, and each call takes about a second, so they are fanned out.
+        // Every call has its own deadline; a container that doesn't answer in time is left out
+        Map<String, Future<ContainerStats>> pending = new LinkedHashMap<>();
+        for (String containerName : containerNames) {
+            pending.put(containerName, statsPool.submit(() -> sampleOne(containerName)));
+        }
+
+        Map<String, ContainerStats> result = new HashMap<>();
+        for (Map.Entry<String, Future<ContainerStats>> entry : pending.entrySet()) {
+            try {
+                ContainerStats stats = entry.getValue().get();
+                if (stats != null) result.put(entry.getKey(), stats);
+            } catch (ExecutionException e) {
+                logger.warn("Failed to sample stats of {}: {}", entry.getKey(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                pending.values().forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return result;
+    }
+
+    // stream=false makes the daemon take two readings so the CPU delta is included
+    private ContainerStats sampleOne(String containerName) throws IOException {
+        DockerHttpClient.Response response = http.send("GET", "/containers/" + containerName + "/stats?stream=false",
+                null, statsTimeoutMs);
+        if (!response.isSuccess()) return null;
+
+        JsonNode stats = objectMapper.readTree(response.body());
+        JsonNode now = stats.path("cpu_stats");
+        JsonNode before = stats.path("precpu_stats");
+        long cpuDelta = now.path("cpu_usage").path("total_usage").asLong()
+                - before.path("cpu_usage").path("total_usage").asLong();
+        long systemDelta = now.path("system_cpu_usage").asLong() - before.path("system_cpu_usage").asLong();
+        int cpus = now.path("online_cpus").asInt(Math.max(1, now.path("cpu_usage").path("percpu_usage").size()));
+        double cpu = systemDelta > 0 ? 100.0 * cpuDelta / systemDelta * cpus : 0.0;
+
+        // Same as the CLI: page cache doesn't count (inactive_file on cgroup v2, cache on v1)
+        JsonNode memory = stats.path("memory_stats");
+        long cache = memory.path("stats").path("inactive_file").asLong(memory.path("stats").path("cache").asLong());
+        long memoryBytes = Math.max(0, memory.path("usage").asLong() - cache);
+
+        long rx = 0, tx = 0;
+        for (JsonNode net : stats.path("networks")) {
+            rx += net.path("rx_bytes").asLong();
+            tx += net.path("tx_bytes").asLong();
+        }
+        return new ContainerStats(cpu, memoryBytes, memory.path("limit").asLong(), rx, tx);
+    }
+
+    @Override
+    public ExecResult exec(String containerName, String user, Map<String, String> env, List<String> command) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("User", user);
+        body.put("AttachStdout", true);
+        body.put("AttachStderr", true);
+        ArrayNode envArray = body.putArray("Env");
+        env.forEach((key, value) -> envArray.add(key + "=" + value));
+        ArrayNode cmd = body.putArray("Cmd");
+        command.forEach(cmd::add);
+
+        try {
+            DockerHttpClient.Response created = http.post("/containers/" + containerName + "/exec",
+                    objectMapper.writeValueAsString(body));
+            expectSuccess(created, "exec create in " + containerName);
+            String execId = objectMapper.readTree(created.body()).path("Id").asText();
+
+            // Non-detached start returns the multiplexed output and ends when the command exits
+            DockerHttpClient.Response started = http.post("/exec/" + execId + "/start",
+                    "{\"Detach\":false,\"Tty\":false}");
+            expectSuccess(started, "exec start in " + containerName);
+
+            DockerHttpClient.Response inspected = http.get("/exec/" + execId + "/json");
+            expectSuccess(inspected, "exec inspect in " + containerName);
+            int exitCode = objectMapper.readTree(inspected.body()).path("ExitCode").asInt(-1);
+
+            return new ExecResult(exitCode, demultiplex(started.body()));
+        } catch (IOException e) {
+            throw new RuntimeException("docker exec failed in " + containerName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean imageExists(String imageName) {
+        // The API resolves an untagged name to :latest itself, so one request covers both checks
+        try {
+            return http.get("/images/" + imageName + "/json").isSuccess();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void removeImage(String imageName) {
+        call("DELETE", "/images/" + imageName + "?force=true", "remove image " + imageName);
+    }
+
+    @Override
+    public HostInfo hostInfo() {
+        try {
+            DockerHttpClient.Response response = http.get("/info");
+            if (!response.isSuccess()) {
+                throw new RuntimeException("docker info failed: " + response.status());
+            }
+            JsonNode info = objectMapper.readTree(response.body());
+            return new HostInfo(info.path("NCPU").asInt(), info.path("MemTotal").asLong());
+        } catch (IOException e) {
+            throw new RuntimeException("docker info failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getImageSize(String imageName) {
+        try {
+            DockerHttpClient.Response response = http.get("/images/" + imageName + "/json");
+            if (!response.isSuccess()) {
+                return -1;
+            }
+            return objectMapper.readTree(response.body()).path("Size").asLong(-1);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public List<String> listContainerNames(String nameFilter) {
+        List<String> containers = new ArrayList<>();
+        try {
+            String filters = objectMapper.writeValueAsString(Map.of("name", List.of(nameFilter)));
+            DockerHttpClient.Response response = http.get("/containers/json?filters=" + encode(filters));
+            expectSuccess(response, "list containers");
+
+            for (JsonNode container : objectMapper.readTree(response.body())) {
+                JsonNode names = container.path("Names");
+                if (names.size() > 0) {
+                    containers.add(stripSlash(names.get(0).asText()));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Failed to list containers: {}", e.getMessage());
+        }
+        return containers;
+    }
+
+    @Override
+    public Set<Integer> listPublishedPorts() {
+        Set<Integer> ports = new HashSet<>();
+        try {
+            DockerHttpClient.Response response = http.get("/containers/json?all=true");
+            expectSuccess(response, "list containers");
+
+            for (JsonNode container : objectMapper.readTree(response.body())) {
+                for (JsonNode port : container.path("Ports")) {
+                    if (port.has("PublicPort")) {
+                        ports.add(port.path("PublicPort").asInt());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list published ports: " + e.getMessage(), e);
+        }
+        return ports;
+    }
+
+    @Override
+    public List<ContainerInfo> listContainersByLabel(String label) {
+        List<ContainerInfo> containers = new ArrayList<>();
+        try {
+            String filters = objectMapper.writeValueAsString(Map.of("label", List.of(label)));
+            DockerHttpClient.Response response = http.get("/containers/json?all=true&filters=" + encode(filters));
+            expectSuccess(response, "list containers");
+
+            for (JsonNode container : objectMapper.readTree(response.body())) {
+                JsonNode names = container.path("Names");
+                if (names.size() == 0) continue;
+
+                Map<String, String> labels = new HashMap<>();
+                container.path("Labels").fields().forEachRemaining(e -> labels.put(e.getKey(), e.getValue().asText()));
+
+                Set<Integer> ports = new HashSet<>();
+                for (JsonNode p : container.path("Ports")) {
+                    if (p.has("PublicPort")) {
+                        ports.add(p.path("PublicPort").asInt());
+                    }
+                }
+                containers.add(new ContainerInfo(stripSlash(names.get(0).asText()),
+                        container.path("State").asText("unknown"), labels, ports));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list containers: " + e.getMessage(), e);
+        }
+        return containers;
+    }
+
+    @Override
+    public EventStream openContainerEvents(String label, long sinceNanos) {
+        try {
+            String filters = objectMapper.writeValueAsString(Map.of("type", List.of("container"), "label", List.of(label)));
+            String path = "/events?filters=" + encode(filters)
+                    + (sinceNanos > 0 ? "&since=" + ContainerEvent.since(sinceNanos) : "");
+            DockerHttpClient.StreamingResponse response = http.stream(path);
+            if (response.status() < 200 || response.status() >= 300) {
+                String error = new String(response.body().readNBytes(4096), StandardCharsets.UTF_8).trim();
+                response.close();
+                throw new RuntimeException("Docker API events failed with HTTP " + response.status() + ": " + error);
+            }
+
+            // One JSON object per line
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+            return new EventStream() {
+                @Override
+                public ContainerEvent next() throws IOException {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            return ContainerEvent.fromJson(objectMapper.readTree(line));
+                        }
+                    }
+                    return null;
+                }
+
+                @Override
+                public void close() {
+                    response.close();
+                }
+            };
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to subscribe to Docker events: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Fire a request whose only interesting outcome is failure; 404 and 304 mean "already done"
+     */
+    private void call(String method, String path, String description) {
+        call(method, path, description, readTimeoutMs);
+    }
+
+    private void call(String method, String path, String description, long timeoutMs) {
+        try {
+            DockerHttpClient.Response response = http.send(method, path, null, timeoutMs);
+            if (response.status() != 404 && response.status() != 304) {
+                expectSuccess(response, description);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(description + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void expectSuccess(DockerHttpClient.Response response, String description) {
+        if (!response.isSuccess()) {
+            throw new RuntimeException("Docker API " + description + " failed with HTTP "
+                    + response.status() + ": " + response.bodyAsString().trim());
+        }
+    }
+
+    /**
+     * Strip the 8-byte stream headers Docker puts in front of each stdout/stderr frame
+     */
+    static String demultiplex(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        int pos = 0;
+        while (pos + 8 <= raw.length && raw[pos] <= 2 && raw[pos + 1] == 0 && raw[pos + 2] == 0 && raw[pos + 3] == 0) {
+            int size = ((raw[pos + 4] & 0xff) << 24) | ((raw[pos + 5] & 0xff) << 16)
+                    | ((raw[pos + 6] & 0xff) << 8) | (raw[pos + 7] & 0xff);
+            int end = Math.min(raw.length, pos + 8 + size);
+            out.write(raw, pos + 8, end - pos - 8);
+            pos = end;
+        }
+        if (pos < raw.length) {
+            // Not multiplexed (TTY exec); keep the rest as-is
+            out.write(raw, pos, raw.length - pos);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String stripSlash(String name) {
+        return name.startsWith("/") ? name.substring(1) : name;
+    }
+
+    // Names are validated by DockerService, so only query values need encoding
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void close() {
+        statsPool.shutdownNow();
+        http.close();
+    }
+}
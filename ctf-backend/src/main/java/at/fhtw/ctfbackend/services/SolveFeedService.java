@@ -0,0 +1,197 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live feed of committed solves for every open scoreboard / activity page, so they don't
+ * have to poll /api/solves/recent and friends.
+ *
+ * SolveRecorded events are handed to a single fan-out thread, which serializes each
+ * message once and puts it into every subscriber's bounded buffer. A small writer pool
+ * drains the buffers, one writer per connection at a time. A subscriber whose buffer is
+ * full is too slow to keep up and gets disconnected; EventSource reconnects on its own.
+ * Delivery is at least once, like the outbox it comes from.
+ */
+@Service
+public class SolveFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolveFeedService.class);
+
+    /**
+     * rank and totalPoints are the solver's standing right after the solve
+     */
+    public record SolveFeedEvent(String username, String challengeId, int pointsEarned, boolean firstBlood,
+                                 Integer rank, Integer totalPoints, LocalDateTime solvedAt) {}
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<String> buffer;
+        final AtomicBoolean writing = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void drain() {
+            while (true) {
+                String message = buffer.poll();
+                if (message == null) {
+                    writing.set(false);
+                    // A message offered after the poll but before the reset would be stranded
+                    if (buffer.isEmpty() || !writing.compareAndSet(false, true)) return;
+                    continue;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name("solve").data(message, MediaType.APPLICATION_JSON));
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Dropping solve feed subscriber: {}", e.getMessage());
+                    disconnect(this, e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private final ScoreboardService scoreboard;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int bufferSize;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor fanOut;
+    private final ExecutorService writers;
+
+    public SolveFeedService(ScoreboardService scoreboard,
+                            ObjectMapper objectMapper,
+                            @Value("${solves.feed.sse-timeout-ms:1800000}") long timeoutMs,
+                            @Value("${solves.feed.buffer-size:64}") int bufferSize,
+                            @Value("${solves.feed.backlog:1000}") int backlog,
+                            @Value("${solves.feed.writer-threads:4}") int writerThreads) {
+        this.scoreboard = scoreboard;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = Math.max(1, bufferSize);
+
+        this.fanOut = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, backlog)),
+                r -> daemon(r, "solve-feed-fanout"));
+        AtomicInteger counter = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(Math.max(1, writerThreads),
+                r -> daemon(r, "solve-feed-writer-" + counter.incrementAndGet()));
+    }
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Must not throw: the outbox would deliver the solve to every listener again. Last of the
+    // listeners that can fail, so a retried solve is announced only once it went through
+    @Order(2)
+    @EventListener
+    public void onSolveRecorded(OutboxDispatcher.SolveRecorded solve) {
+        if (subscribers.isEmpty()) return;
+        try {
+            fanOut.execute(() -> broadcast(solve));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Solve feed backlog full, not announcing {} / {}", solve.username(), solve.challengeId());
+        }
+    }
+
+    void broadcast(OutboxDispatcher.SolveRecorded solve) {
+        var ranked = scoreboard.rankOf(solve.username());
+        SolveFeedEvent event = new SolveFeedEvent(solve.username(), solve.challengeId(), solve.pointsEarned(),
+                solve.firstBlood(),
+                ranked.map(ScoreboardService.Ranked::rank).orElse(null),
+                ranked.map(r -> r.standing().points()).orElse(null),
+                solve.solvedAt());
+
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.warn("Could not serialize solve feed event: {}", e.getMessage());
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.buffer.offer(message)) {
+                logger.debug("Solve feed subscriber fell {} messages behind, disconnecting", bufferSize);
+                disconnect(subscriber, null);
+                continue;
+            }
+            if (subscriber.writing.compareAndSet(false, true)) {
+                try {
+                    writers.execute(subscriber::drain);
+                } catch (RejectedExecutionException e) {
+                    return; // shutting down
+                }
+            }
+        }
+    }
+
+    private void disconnect(Subscriber subscriber, Throwable error) {
+        subscribers.remove(subscriber);
+        subscriber.buffer.clear();
+        try {
+            if (error != null) {
+                subscriber.emitter.completeWithError(error);
+            } else {
+                subscriber.emitter.complete();
+            }
+        } catch (Exception e) {
+            // Already completed
+        }
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOut.shutdownNow();
+        writers.shutdownNow();
+        subscribers.forEach(s -> disconnect(s, null));
+    }
+}
@@ -0,0 +1,192 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.dto.SolveResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Solve listings (by challenge, category, difficulty, time range) ordered by (solvedAt, id).
+ *
+ * One query joins the challenge title instead of a lazy load per row. Callers either page
+ * with an opaque keyset cursor, which the (solved_at, id) and (challenge_id, solved_at, id)
+ * indexes turn into a range read from the cursor on instead of a sort of every match, or stream the
+ * whole listing: rows come from a forward-only JDBC cursor and are written as a JSON array
+ * as they arrive, so heap use doesn't grow with the result.
+ *
+ * A stream holds a pooled connection and a read-only transaction until the last row is
+ * written, so it gets solves.listing.stream-timeout-ms in total: the transaction timeout
+ * bounds the query, and every row checks the same deadline, so a client that reads too
+ * slowly can't keep the connection. Past it the query is abandoned and the body ends
+ * without its closing bracket, so a client can't mistake it for the full listing; big
+ * listings should be paged instead.
+ */
+@Service
+public class SolveListingService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * WHERE clause over solves s / challenges c with its parameters
+     */
+    public record Filter(String where, MapSqlParameterSource params) {
+
+        public static Filter challenge(String challengeId) {
+            return new Filter("s.challenge_id = :challengeId",
+                    new MapSqlParameterSource("challengeId", challengeId));
+        }
+
+        public static Filter category(String category) {
+            return new Filter("c.category = :category", new MapSqlParameterSource("category", category));
+        }
+
+        public static Filter difficulty(String difficulty) {
+            return new Filter("c.difficulty = :difficulty", new MapSqlParameterSource("difficulty", difficulty));
+        }
+
+        public static Filter timeRange(LocalDateTime start, LocalDateTime end) {
+            return new Filter("s.solved_at BETWEEN :start AND :end",
+                    new MapSqlParameterSource().addValue("start", start).addValue("end", end));
+        }
+    }
+
+    /**
+     * nextCursor is null on the last page
+     */
+    public record SolvePage(List<SolveResponse> items, String nextCursor) {}
+
+    record Cursor(LocalDateTime solvedAt, long id) {}
+
+    private static final String SELECT = """
+            SELECT s.id, s.username, s.challenge_id, c.title, s.solved_at, s.points_earned
+            FROM solves s
+            JOIN challenges c ON c.id = s.challenge_id
+            WHERE %s
+            """;
+
+    private static final String AFTER_CURSOR = " AND (s.solved_at, s.id) > (:afterSolvedAt, :afterId)";
+
+    private static final String ORDER = " ORDER BY s.solved_at, s.id";
+
+    private static final RowMapper<SolveResponse> ROW = (rs, i) -> {
+        Timestamp solvedAt = rs.getTimestamp("solved_at");
+        return new SolveResponse(rs.getLong("id"), rs.getString("username"), rs.getString("challenge_id"),
+                rs.getString("title"), solvedAt != null ? solvedAt.toLocalDateTime() : null,
+                (Integer) rs.getObject("points_earned"));
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    // Same pool, but fetching in batches; Postgres only uses a cursor inside a transaction
+    private final NamedParameterJdbcTemplate streamingJdbc;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+    private final long streamTimeoutMs;
+
+    public SolveListingService(NamedParameterJdbcTemplate jdbc,
+                               DataSource dataSource,
+                               PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${solves.listing.fetch-size:500}") int fetchSize,
+                               @Value("${solves.listing.stream-timeout-ms:30000}") long streamTimeoutMs) {
+        this.jdbc = jdbc;
+        JdbcTemplate cursorTemplate = new JdbcTemplate(dataSource);
+        cursorTemplate.setFetchSize(Math.max(1, fetchSize));
+        this.streamingJdbc = new NamedParameterJdbcTemplate(cursorTemplate);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.streamTimeoutMs = Math.max(1, streamTimeoutMs);
+        this.readOnly.setTimeout((int) Math.ceil(this.streamTimeoutMs / 1000.0));
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Up to limit solves after the cursor (from the start without one)
+     * @throws IllegalArgumentException for a cursor that wasn't issued by this service
+     */
+    public SolvePage page(Filter filter, String cursor, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        MapSqlParameterSource params = copy(filter.params()).addValue("limit", size + 1);
+        StringBuilder sql = new StringBuilder(SELECT.formatted(filter.where()));
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor after = decodeCursor(cursor);
+            sql.append(AFTER_CURSOR);
+            params.addValue("afterSolvedAt", after.solvedAt()).addValue("afterId", after.id());
+        }
+        sql.append(ORDER).append(" LIMIT :limit");
+
+        // One extra row tells whether there is a next page
+        List<SolveResponse> rows = jdbc.query(sql.toString(), params, ROW);
+        if (rows.size() <= size) return new SolvePage(rows, null);
+
+        List<SolveResponse> items = rows.subList(0, size);
+        SolveResponse last = items.get(size - 1);
+        return new SolvePage(List.copyOf(items), encodeCursor(new Cursor(last.getSolvedAt(), last.getId())));
+    }
+
+    /**
+     * Write every matching solve to out as one JSON array
+     * @throws QueryTimeoutException when the stream took longer than the stream timeout
+     */
+    public void stream(Filter filter, OutputStream out) throws IOException {
+        String sql = SELECT.formatted(filter.where()) + ORDER;
+        long deadline = System.nanoTime() + streamTimeoutMs * 1_000_000;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // A stream that ends early must not be closed into a valid (but short) array
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            json.writeStartArray();
+            readOnly.executeWithoutResult(status ->
+                    streamingJdbc.query(sql, filter.params(), rs -> {
+                        if (System.nanoTime() - deadline > 0) {
+                            throw new QueryTimeoutException("Solve listing stream exceeded " + streamTimeoutMs + " ms");
+                        }
+                        try {
+                            json.writeObject(ROW.mapRow(rs, 0));
+                        } catch (IOException e) {
+                            // Client went away; ends the query and the transaction
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+            json.writeEndArray();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static String encodeCursor(Cursor cursor) {
+        String raw = cursor.solvedAt() + "," + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int comma = raw.lastIndexOf(',');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static MapSqlParameterSource copy(MapSqlParameterSource params) {
+        return new MapSqlParameterSource(params.getValues());
+    }
+}
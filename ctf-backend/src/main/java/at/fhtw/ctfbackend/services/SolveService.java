@@ -6,7 +6,6 @@ import at.fhtw.ctfbackend.entity.Solve;
 import at.fhtw.ctfbackend.entity.UserEntity;
 import at.fhtw.ctfbackend.repository.ChallengeRepository;
 import at.fhtw.ctfbackend.repository.SolveRepository;
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -22,6 +21,10 @@ public class SolveService {
     private final SolveRepository solveRepository;
     private final ChallengeRepository challengeRepository;
     private final UserService userService;
+    private final SolvedStateCache solvedState;
+    private final ScoreboardService scoreboard;
+    private final ChallengeStatsService challengeStats;
+    private final UserStatsService userStats;
     private static final Logger logger = LoggerFactory.getLogger(
         FlagService.class
     );
@@ -29,11 +32,19 @@ public class SolveService {
     public SolveService(
         SolveRepository solveRepository,
         ChallengeRepository challengeRepository,
-        UserService userService
+        UserService userService,
+        SolvedStateCache solvedState,
+        ScoreboardService scoreboard,
+        ChallengeStatsService challengeStats,
+        UserStatsService userStats
     ) {
         this.solveRepository = solveRepository;
         this.challengeRepository = challengeRepository;
         this.userService = userService;
+        this.solvedState = solvedState;
+        this.scoreboard = scoreboard;
+        this.challengeStats = challengeStats;
+        this.userStats = userStats;
     }
 
     /**
@@ -70,6 +81,8 @@ public class SolveService {
             // Create and save the new solve record
             Solve solve = new Solve(user, challenge, pointsEarned);
             solveRepository.saveAndFlush(solve);
+            solvedState.markSolved(username, challengeId);
+            userStats.invalidate(username);
 
             return true; // This is a new solve
         } catch (Exception e) {
@@ -92,19 +105,6 @@ public class SolveService {
             .toList();
     }
 
-    /**
-     * Get all users who solved a specific challenge
-     * @param challengeId The challenge ID to query
-     * @return List of solves for the challenge
-     */
-    public List<SolveResponse> getSolversForChallenge(String challengeId) {
-        return solveRepository
-            .findByChallengeId(challengeId)
-            .stream()
-            .map(this::toDto)
-            .toList();
-    }
-
     /**
      * Check if a user has solved a specific challenge
      * @param username The username to check
@@ -112,10 +112,7 @@ public class SolveService {
      * @return true if the user has solved the challenge, false otherwise
      */
     public boolean hasUserSolvedChallenge(String username, String challengeId) {
-        UserEntity user = userService.getRequiredUser(username);
-        return solveRepository
-            .findByUserAndChallengeId(user, challengeId)
-            .isPresent();
+        return solvedState.isSolved(username, challengeId);
     }
 
     /**
@@ -152,21 +149,16 @@ public class SolveService {
     }
 
     /**
-     * Get top solvers by number of challenges solved
+     * Get the top of the scoreboard (ranked by points) with their solve counts
      * @param limit Maximum number of top solvers to return
-     * @return Map of username to solve count
+     * @return Map of username to solve count, in rank order
      */
     public Map<String, Long> getTopSolvers(int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        List<Object[]> results = solveRepository.findTopSolvers(pageable);
-        return results
-            .stream()
-            .collect(
-                Collectors.toMap(
-                    result -> (String) result[0],
-                    result -> (Long) result[1]
-                )
-            );
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (ScoreboardService.Ranked ranked : scoreboard.page(0, Math.max(0, limit))) {
+            top.put(ranked.standing().username(), (long) ranked.standing().solveCount());
+        }
+        return top;
     }
 
     /**
@@ -190,49 +182,6 @@ public class SolveService {
             );
     }
 
-    /**
-     * Get solves by category
-     * @param category The category to filter by
-     * @return List of solves in the specified category
-     */
-    public List<SolveResponse> getSolvesByCategory(String category) {
-        return solveRepository
-            .findByCategory(category)
-            .stream()
-            .map(this::toDto)
-            .toList();
-    }
-
-    /**
-     * Get solves by difficulty
-     * @param difficulty The difficulty to filter by
-     * @return List of solves with the specified difficulty
-     */
-    public List<SolveResponse> getSolvesByDifficulty(String difficulty) {
-        return solveRepository
-            .findByDifficulty(difficulty)
-            .stream()
-            .map(this::toDto)
-            .toList();
-    }
-
-    /**
-     * Get solves within a time range
-     * @param start Start time
-     * @param end End time
-     * @return List of solves within the time range
-     */
-    public List<SolveResponse> getSolvesByTimeRange(
-        LocalDateTime start,
-        LocalDateTime end
-    ) {
-        return solveRepository
-            .findBySolvedAtBetween(start, end)
-            .stream()
-            .map(this::toDto)
-            .toList();
-    }
-
     /**
      * Get the total number of solves in the system
      * @return Total solve count
@@ -265,7 +214,13 @@ public class SolveService {
      * @param solveId The ID of the solve record to delete
      */
     public void deleteSolve(Long solveId) {
-        solveRepository.deleteById(solveId);
+        solveRepository.findById(solveId).ifPresent(solve -> {
+            solveRepository.delete(solve);
+            solvedState.unmarkSolved(solve.getUsername(), solve.getChallenge().getId());
+            scoreboard.refreshUser(solve.getUsername());
+            userStats.invalidate(solve.getUsername());
+            challengeStats.refreshSolves(solve.getChallenge().getId());
+        });
     }
 
     /**
@@ -276,21 +231,27 @@ public class SolveService {
     public Map<String, Object> getChallengeStatistics(String challengeId) {
         Map<String, Object> stats = new HashMap<>();
 
-        long solveCount = getSolveCountForChallenge(challengeId);
-
-        ChallengeEntity challenge = challengeRepository
-            .findById(challengeId)
+        // One lookup in the challenge_stats read model, without the challenge's LOBs
+        ChallengeStatsService.ChallengeStatistics challenge = challengeStats
+            .getStatistics(challengeId)
             .orElseThrow(() ->
                 new RuntimeException("Challenge not found: " + challengeId)
             );
 
+        Double solveRate = challenge.solveRate();
+
         stats.put("challengeId", challengeId);
-        stats.put("challengeTitle", challenge.getTitle());
-        stats.put("solveCount", solveCount);
-        stats.put("category", challenge.getCategory());
-        stats.put("difficulty", challenge.getDifficulty());
-        stats.put("points", challenge.getPoints());
-        stats.put("solveRate", "N/A");
+        stats.put("challengeTitle", challenge.title());
+        stats.put("solveCount", challenge.solveCount());
+        stats.put("category", challenge.category());
+        stats.put("difficulty", challenge.difficulty());
+        stats.put("points", challenge.points());
+        stats.put("solveRate", solveRate != null ? String.format(Locale.ROOT, "%.1f%%", solveRate * 100) : "N/A");
+        stats.put("startedCount", challenge.startedCount());
+        stats.put("attemptCount", challenge.attemptCount());
+        stats.put("firstBloodUser", challenge.firstBloodUser());
+        stats.put("firstBloodAt", challenge.firstBloodAt());
+        stats.put("medianSolveSeconds", challenge.medianSolveSeconds());
 
         return stats;
     }
@@ -303,20 +264,15 @@ public class SolveService {
     public Map<String, Object> getUserStatistics(String username) {
         Map<String, Object> stats = new HashMap<>();
 
-        long totalSolves = getSolveCountForUser(username);
-        List<SolveResponse> userSolves = getSolvedChallengesByUser(username);
+        // One grouped query (or a cache hit) instead of loading every solve with its challenge
+        UserStatsService.UserStatistics user = userStats.getStatistics(username);
 
         stats.put("username", username);
-        stats.put("totalSolves", totalSolves);
-
-        int totalPoints = userSolves
-            .stream()
-            .mapToInt(SolveResponse::getPointsEarned)
-            .sum();
-        stats.put("totalPoints", totalPoints);
-
-        stats.put("categoryDistribution", Map.of());
-        stats.put("difficultyDistribution", Map.of());
+        stats.put("totalSolves", user.totalSolves());
+        stats.put("totalPoints", user.totalPoints());
+        stats.put("categoryDistribution", user.categoryDistribution());
+        stats.put("difficultyDistribution", user.difficultyDistribution());
+        stats.put("categoryPoints", user.categoryPoints());
 
         return stats;
     }
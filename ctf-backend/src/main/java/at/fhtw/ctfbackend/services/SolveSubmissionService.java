@@ -0,0 +1,89 @@
+package at.fhtw.ctfbackend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Records a correct submission in one round trip.
+ *
+ * A single statement works out the hint penalty, inserts the solve together with its
+ * SOLVE_RECORDED outbox row and returns the points and the new solve count. ON CONFLICT on
+ * (username, challenge_id) makes a second submission of the same user a no-op, so two
+ * concurrent correct submits record exactly one solve and one event.
+ */
+@Service
+public class SolveSubmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SolveSubmissionService.class);
+
+    public record RecordedSolve(int pointsEarned, long solveCount) {}
+
+    // The other parts of the statement don't see the row inserted by the CTE yet, hence the + 1
+    // and the NOT EXISTS for first blood
+    static final String RECORD_SOLVE_SQL = """
+            WITH penalty AS (
+                SELECT LEAST(COALESCE(SUM(%s), 0), 100) AS percent
+                FROM hint_reveals
+                WHERE username = :username AND challenge_id = :challengeId
+            ), inserted AS (
+                INSERT INTO solves (username, user_id, challenge_id, points_earned, solved_at)
+                SELECT u.username, u.id, c.id, COALESCE(c.points, 0) * (100 - p.percent) / 100, :solvedAt
+                FROM users u, challenges c, penalty p
+                WHERE u.username = :username AND c.id = :challengeId
+                ON CONFLICT (username, challenge_id) DO NOTHING
+                RETURNING points_earned
+            ), event AS (
+                INSERT INTO outbox_events (event_type, payload, status, attempts, created_at, available_at)
+                SELECT '%s',
+                       json_build_object('username', :username, 'challengeId', :challengeId,
+                                         'pointsEarned', i.points_earned, 'solvedAt', :solvedAt,
+                                         'firstBlood', NOT EXISTS (SELECT 1 FROM solves WHERE challenge_id = :challengeId))::text,
+                       'PENDING', 0, now(), now()
+                FROM inserted i
+            )
+            SELECT i.points_earned,
+                   (SELECT COUNT(*) FROM solves WHERE challenge_id = :challengeId) + 1 AS solve_count
+            FROM inserted i
+            """.formatted(penaltyCase(), OutboxDispatcher.SOLVE_RECORDED);
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public SolveSubmissionService(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Insert the solve with its hint penalty applied.
+     * Empty if the user had already solved the challenge (or user or challenge don't exist).
+     */
+    public Optional<RecordedSolve> recordSolve(String username, String challengeId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("username", username)
+                .addValue("challengeId", challengeId)
+                .addValue("solvedAt", LocalDateTime.now());
+
+        List<RecordedSolve> rows = jdbc.query(RECORD_SOLVE_SQL, params,
+                (rs, i) -> new RecordedSolve(rs.getInt("points_earned"), rs.getLong("solve_count")));
+        if (rows.isEmpty()) {
+            logger.info("No new solve for user: {}, challenge: {}", username, challengeId);
+            return Optional.empty();
+        }
+        return Optional.of(rows.get(0));
+    }
+
+    // Same table as HintService.calculatePenaltyPercent, evaluated per revealed hint
+    private static String penaltyCase() {
+        StringBuilder sql = new StringBuilder("CASE hint_index");
+        for (int i = 0; i < HintService.HINT_PENALTIES.length; i++) {
+            sql.append(" WHEN ").append(i).append(" THEN ").append(HintService.HINT_PENALTIES[i]);
+        }
+        return sql.append(" ELSE 0 END").toString();
+    }
+}
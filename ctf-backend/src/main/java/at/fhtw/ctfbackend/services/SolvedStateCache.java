@@ -0,0 +1,98 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.SolveRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which challenges a user has solved, for the solved checks on the submit path and the challenge pages.
+ *
+ * A user's solves are loaded in one query the first time they're asked for and then kept
+ * current by markSolved/unmarkSolved. At most solves.cache.max-users users are held; the
+ * least recently used one is dropped and simply loaded again on its next check.
+ */
+@Component
+public class SolvedStateCache {
+
+    private static final class UserSolves {
+        final Set<String> challengeIds = ConcurrentHashMap.newKeySet();
+        volatile boolean loaded;
+    }
+
+    private final SolveRepository solveRepository;
+    // Access order, so the eldest entry is the least recently used one; guarded by this
+    private final Map<String, UserSolves> users;
+
+    public SolvedStateCache(SolveRepository solveRepository,
+                            @Value("${solves.cache.max-users:10000}") int maxUsers) {
+        this.solveRepository = solveRepository;
+        int bound = Math.max(1, maxUsers);
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserSolves> eldest) {
+                return size() > bound;
+            }
+        };
+    }
+
+    public boolean isSolved(String username, String challengeId) {
+        return solvedBy(username).contains(challengeId);
+    }
+
+    /**
+     * Challenge ids the user has solved, loaded from the DB on a miss
+     */
+    public Set<String> solvedBy(String username) {
+        UserSolves entry;
+        boolean load;
+        synchronized (this) {
+            entry = users.get(username);
+            load = entry == null;
+            if (load) {
+                entry = new UserSolves();
+                users.put(username, entry);
+            }
+        }
+
+        if (load) {
+            // Solves recorded while the query runs land in the entry too, so none get lost
+            try {
+                entry.challengeIds.addAll(solveRepository.findChallengeIdsByUsername(username));
+                entry.loaded = true;
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    users.remove(username, entry);
+                }
+                throw e;
+            }
+        } else if (!entry.loaded) {
+            // Another request is loading this user right now
+            return Set.copyOf(solveRepository.findChallengeIdsByUsername(username));
+        }
+        return Collections.unmodifiableSet(entry.challengeIds);
+    }
+
+    public void markSolved(String username, String challengeId) {
+        UserSolves entry = peek(username);
+        if (entry != null) entry.challengeIds.add(challengeId);
+    }
+
+    public void unmarkSolved(String username, String challengeId) {
+        UserSolves entry = peek(username);
+        if (entry != null) entry.challengeIds.remove(challengeId);
+    }
+
+    public synchronized int size() {
+        return users.size();
+    }
+
+    private synchronized UserSolves peek(String username) {
+        return users.get(username);
+    }
+}
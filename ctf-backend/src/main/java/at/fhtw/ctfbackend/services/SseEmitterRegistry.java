@@ -0,0 +1,84 @@
+package at.fhtw.ctfbackend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the open SSE connections per key (instance, challenge, ...) and fans
+ * events out to them. Emitters that fail or time out are dropped.
+ */
+public class SseEmitterRegistry<K> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseEmitterRegistry.class);
+
+    private final Map<K, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+
+    public SseEmitterRegistry(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public SseEmitter register(K key) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitters.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(emitter);
+
+        emitter.onCompletion(() -> remove(key, emitter));
+        emitter.onTimeout(() -> remove(key, emitter));
+        emitter.onError(e -> remove(key, emitter));
+        return emitter;
+    }
+
+    public void send(K key, String eventName, Object data) {
+        List<SseEmitter> list = emitters.get(key);
+        if (list == null) return;
+
+        for (SseEmitter emitter : list) {
+            if (!send(emitter, eventName, data)) {
+                remove(key, emitter);
+            }
+        }
+    }
+
+    /**
+     * Send to a single emitter, e.g. the current state right after it subscribed.
+     * A failed emitter is completed and drops out of its list via its callbacks.
+     */
+    public boolean send(SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping SSE subscriber: {}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Close every stream for the key, e.g. once a terminal state was sent
+     */
+    public void complete(K key) {
+        List<SseEmitter> list = emitters.remove(key);
+        if (list == null) return;
+        list.forEach(SseEmitter::complete);
+    }
+
+    public int subscriberCount(K key) {
+        List<SseEmitter> list = emitters.get(key);
+        return list == null ? 0 : list.size();
+    }
+
+    private void remove(K key, SseEmitter emitter) {
+        emitters.computeIfPresent(key, (k, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.SolveRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-user solve statistics for /api/solves/me/stats, from one grouped query over the
+ * user's solves: (category, difficulty, count, points).
+ *
+ * Results are cached per user (at most solves.user-stats.max-users, least recently used
+ * dropped) and invalidated whenever one of the user's solves is recorded or deleted.
+ */
+@Service
+public class UserStatsService {
+
+    static final String UNKNOWN = "unknown";
+
+    public record UserStatistics(long totalSolves, long totalPoints,
+                                 Map<String, Long> categoryDistribution,
+                                 Map<String, Long> difficultyDistribution,
+                                 Map<String, Long> categoryPoints) {}
+
+    private final SolveRepository solveRepository;
+    private final UserService userService;
+
+    // Access order, so the eldest entry is the least recently used one; guarded by this
+    private final Map<String, UserStatistics> cache;
+    // One token per user with a load in flight; invalidating the user drops it, and a load
+    // only caches its result if its token is still there. Guarded by this
+    private final Map<String, Object> loading = new HashMap<>();
+
+    public UserStatsService(SolveRepository solveRepository, UserService userService,
+                            @Value("${solves.user-stats.max-users:10000}") int maxUsers) {
+        this.solveRepository = solveRepository;
+        this.userService = userService;
+        int bound = Math.max(1, maxUsers);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserStatistics> eldest) {
+                return size() > bound;
+            }
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException if the user doesn't exist
+     */
+    public UserStatistics getStatistics(String rawUsername) {
+        String username = userService.normalizeUsername(rawUsername);
+        Object token = new Object();
+        synchronized (this) {
+            UserStatistics cached = cache.get(username);
+            if (cached != null) return cached;
+            loading.put(username, token);
+        }
+
+        UserStatistics stats;
+        try {
+            List<Object[]> rows = solveRepository.findSolveDistributionByUsername(username);
+            // No row at all: the left join starts from users
+            if (rows.isEmpty()) {
+                throw new IllegalArgumentException("User not found: " + rawUsername);
+            }
+            stats = aggregate(rows);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(username, token);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // Gone if this user was invalidated meanwhile (or a newer load took over)
+            if (loading.remove(username, token)) cache.put(username, stats);
+        }
+        return stats;
+    }
+
+    public void invalidate(String rawUsername) {
+        String username = userService.normalizeUsername(rawUsername);
+        synchronized (this) {
+            cache.remove(username);
+            loading.remove(username);
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    // Rows: category, difficulty, solve count, points; one row of nulls and 0 without solves
+    private static UserStatistics aggregate(List<Object[]> rows) {
+        Map<String, Long> byCategory = new TreeMap<>();
+        Map<String, Long> byDifficulty = new TreeMap<>();
+        Map<String, Long> pointsByCategory = new TreeMap<>();
+        long totalSolves = 0;
+        long totalPoints = 0;
+
+        for (Object[] row : rows) {
+            long count = number(row[2]);
+            if (count == 0) continue;
+            long points = number(row[3]);
+            String category = row[0] != null ? (String) row[0] : UNKNOWN;
+            String difficulty = row[1] != null ? (String) row[1] : UNKNOWN;
+
+            byCategory.merge(category, count, Long::sum);
+            byDifficulty.merge(difficulty, count, Long::sum);
+            pointsByCategory.merge(category, points, Long::sum);
+            totalSolves += count;
+            totalPoints += points;
+        }
+        return new UserStatistics(totalSolves, totalPoints,
+                Collections.unmodifiableMap(byCategory),
+                Collections.unmodifiableMap(byDifficulty),
+                Collections.unmodifiableMap(pointsByCategory));
+    }
+
+    private static long number(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
@@ -0,0 +1,207 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.controller.TooManyInstancesException;
+import at.fhtw.ctfbackend.entity.ChallengeEntity;
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionServiceTest {
+
+    @Mock
+    private ChallengeInstanceRepository instanceRepo;
+
+    @Mock
+    private ProvisioningService provisioning;
+
+    @Mock
+    private ChallengeRepository challengeRepo;
+
+    @Mock
+    private DockerService dockerService;
+
+    @Mock
+    private ImageBuildCoordinator imageBuilds;
+
+    private final DockerHostRegistry hosts = new DockerHostRegistry(
+            List.of(new DockerHost(DockerHostRegistry.LOCAL, null, "127.0.0.1", null)));
+
+    private final List<String> started = new ArrayList<>();
+
+    private static ChallengeInstanceEntity instance(String id, String username) {
+        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
+        inst.setInstanceId(id);
+        inst.setUsername(username);
+        inst.setStatus("PROVISIONING");
+        return inst;
+    }
+
+    private Optional<AdmissionService.QueueStatus> admit(AdmissionService admission, String id, String username) {
+        return admission.admit(instance(id, username), () -> started.add(id));
+    }
+
+    // Fixed capacity (4 CPUs, no overcommit), defaults of 512 MB / 0.5 CPUs
+    private ResourceScheduler scheduler(int capacityMemoryMb) {
+        ResourceScheduler scheduler = new ResourceScheduler(challengeRepo, dockerService, hosts, imageBuilds,
+                512, 0.5, capacityMemoryMb, 4, 0, 1.0);
+        scheduler.refreshCapacity();
+        return scheduler;
+    }
+
+    private void challengeWithMemory(String challengeId, int memoryMb) {
+        ChallengeEntity challenge = new ChallengeEntity();
+        challenge.setId(challengeId);
+        challenge.setMemoryLimitMb(memoryMb);
+        when(challengeRepo.findById(challengeId)).thenReturn(Optional.of(challenge));
+    }
+
+    private Optional<AdmissionService.QueueStatus> admit(AdmissionService admission, String id, String username,
+                                                         String challengeId) {
+        ChallengeInstanceEntity inst = instance(id, username);
+        inst.setChallengeId(challengeId);
+        return admission.admit(inst, () -> started.add(id));
+    }
+
+    @Test
+    void admit_StartsRightAwayWhileSlotsAreFree() {
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 2, 2, 10, 120_000);
+
+        assertTrue(admit(admission, "i-1", "alice").isEmpty());
+        assertTrue(admit(admission, "i-2", "bob").isEmpty());
+
+        assertEquals(List.of("i-1", "i-2"), started);
+        assertEquals(2, admission.getActiveCount());
+        verify(provisioning, never()).publish(any(), any(), any());
+    }
+
+    @Test
+    void admit_QueuesInOrderAndStartsOnRelease() {
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 1, 2, 10, 120_000);
+        admit(admission, "i-1", "alice");
+
+        Optional<AdmissionService.QueueStatus> second = admit(admission, "i-2", "bob");
+        Optional<AdmissionService.QueueStatus> third = admit(admission, "i-3", "carol");
+
+        assertEquals(1, second.orElseThrow().position());
+        assertEquals(2, third.orElseThrow().position());
+        assertTrue(third.get().estimatedWaitSeconds() > second.get().estimatedWaitSeconds());
+        assertEquals(List.of("i-1"), started);
+
+        admission.release("i-1");
+
+        assertEquals(List.of("i-1", "i-2"), started);
+        assertEquals(1, admission.queueStatus("i-3").orElseThrow().position());
+        assertTrue(admission.queueStatus("i-2").isEmpty());
+    }
+
+    @Test
+    void release_OfQueuedInstanceDropsItWithoutStarting() {
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 1, 2, 10, 120_000);
+        admit(admission, "i-1", "alice");
+        admit(admission, "i-2", "bob");
+
+        admission.release("i-2");
+        admission.release("i-2");
+        admission.release("i-1");
+
+        assertEquals(List.of("i-1"), started);
+        assertEquals(0, admission.getActiveCount());
+        assertEquals(0, admission.getQueuedCount());
+    }
+
+    @Test
+    void admit_PerUserLimitCountsQueuedInstances() {
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 1, 2, 10, 120_000);
+        admit(admission, "i-1", "alice");
+        admit(admission, "i-2", "alice");
+
+        assertThrows(TooManyInstancesException.class, () -> admit(admission, "i-3", "alice"));
+        assertEquals(1, admission.getQueuedCount());
+    }
+
+    @Test
+    void admit_FullQueueIsRejected() {
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 1, 2, 1, 120_000);
+        admit(admission, "i-1", "alice");
+        admit(admission, "i-2", "bob");
+
+        assertThrows(RejectedExecutionException.class, () -> admit(admission, "i-3", "carol"));
+        assertEquals(List.of("i-1"), started);
+    }
+
+    @Test
+    void admit_PacksByResourceBudgetInsteadOfCount() {
+        challengeWithMemory("shell", 256);
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(1024), 10, 2, 10, 120_000);
+
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(admit(admission, "i-" + i, "user" + i, "shell").isEmpty());
+        }
+        assertTrue(admit(admission, "i-5", "user5", "shell").isPresent());
+
+        admission.release("i-1");
+        assertEquals(List.of("i-1", "i-2", "i-3", "i-4", "i-5"), started);
+    }
+
+    @Test
+    void admit_SmallInstancesBackfillOnlyWithinWindow() {
+        challengeWithMemory("shell", 256);
+        challengeWithMemory("web", 1024);
+        AdmissionService backfilling = new AdmissionService(instanceRepo, provisioning, scheduler(1024), 10, 2, 10, 120_000);
+        admit(backfilling, "i-1", "alice", "shell");
+        admit(backfilling, "i-2", "bob", "web");
+
+        // The heavy head doesn't fit yet, the small one behind it does
+        assertTrue(admit(backfilling, "i-3", "carol", "shell").isEmpty());
+
+        started.clear();
+        AdmissionService strict = new AdmissionService(instanceRepo, provisioning, scheduler(1024), 10, 2, 10, 0);
+        admit(strict, "i-1", "alice", "shell");
+        admit(strict, "i-2", "bob", "web");
+
+        assertTrue(admit(strict, "i-3", "carol", "shell").isPresent());
+        strict.release("i-1");
+        assertEquals(List.of("i-1", "i-2"), started);
+    }
+
+    @Test
+    void admit_ChallengeLargerThanHostIsRejected() {
+        challengeWithMemory("huge", 8192);
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 10, 2, 10, 120_000);
+
+        assertThrows(RejectedExecutionException.class, () -> admit(admission, "i-1", "alice", "huge"));
+        assertEquals(0, admission.getActiveCount());
+    }
+
+    @Test
+    void resync_FreesSlotsOfInstancesNoLongerActive() throws InterruptedException {
+        AdmissionService admission = new AdmissionService(instanceRepo, provisioning, scheduler(4096), 1, 2, 10, 120_000);
+        admit(admission, "i-1", "alice");
+        admit(admission, "i-2", "bob");
+
+        // i-1 stopped without its slot being given back
+        ChallengeInstanceEntity stillQueued = instance("i-2", "bob");
+        when(instanceRepo.findByStatusIn(anyCollection())).thenReturn(List.of(stillQueued));
+        // Slots taken in the same millisecond as the snapshot are kept
+        Thread.sleep(5);
+
+        admission.resync();
+
+        assertEquals(List.of("i-1", "i-2"), started);
+        assertEquals(1, admission.getActiveCount());
+    }
+}
@@ -0,0 +1,99 @@
+package at.fhtw.ctfbackend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChallengeStatsServiceTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+
+    private ChallengeStatsService stats;
+
+    @BeforeEach
+    void setUp() {
+        stats = new ChallengeStatsService(jdbc);
+    }
+
+    private SqlParameterSource[] batch(String sqlFragment) {
+        ArgumentCaptor<SqlParameterSource[]> params = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbc).batchUpdate(contains(sqlFragment), params.capture());
+        return params.getValue();
+    }
+
+    @Test
+    void flush_WritesOneRowPerChallengeAndUser() {
+        stats.recordAttempt("alice", "web-1");
+        stats.recordAttempt("alice", "web-1");
+        stats.recordAttempt("bob", "web-1");
+
+        stats.flush();
+
+        SqlParameterSource[] attempts = batch("attempt_count + EXCLUDED.attempt_count");
+        assertEquals(1, attempts.length);
+        assertEquals(3L, attempts[0].getValue("attempts"));
+        assertEquals(2, batch("INSERT INTO challenge_starts").length);
+
+        // Nothing new since
+        clearInvocations(jdbc);
+        stats.flush();
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void flushAttempts_KeepsCountsWhenTheWriteFails() {
+        stats.recordAttempt("alice", "web-1");
+        stats.recordAttempt("alice", "web-1");
+        when(jdbc.batchUpdate(contains("attempt_count"), any(SqlParameterSource[].class)))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(new int[]{1});
+
+        assertThrows(RuntimeException.class, () -> stats.flushAttempts());
+        stats.recordAttempt("alice", "web-1");
+        stats.flushAttempts();
+
+        ArgumentCaptor<SqlParameterSource[]> params = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbc, times(2)).batchUpdate(contains("attempt_count"), params.capture());
+        assertEquals(3L, params.getAllValues().get(1)[0].getValue("attempts"));
+    }
+
+    @Test
+    void onSolveRecorded_WritesStartsBeforeRecomputingTheChallenge() {
+        stats.recordStart("alice", "web-1");
+
+        stats.onSolveRecorded(new OutboxDispatcher.SolveRecorded("alice", "web-1", 100, LocalDateTime.now(), true));
+
+        InOrder order = inOrder(jdbc);
+        order.verify(jdbc).batchUpdate(contains("INSERT INTO challenge_starts"), any(SqlParameterSource[].class));
+        ArgumentCaptor<MapSqlParameterSource> refresh = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        order.verify(jdbc).update(contains("PERCENTILE_CONT"), refresh.capture());
+        assertEquals("web-1", refresh.getValue().getValue("challengeId"));
+    }
+
+    @Test
+    void solveRate_IsShareOfStartersAndUnknownWithoutStarts() {
+        assertEquals(0.25, statistics(1, 4).solveRate());
+        assertEquals(1.0, statistics(3, 2).solveRate());
+        assertNull(statistics(0, 0).solveRate());
+    }
+
+    private static ChallengeStatsService.ChallengeStatistics statistics(long solves, long started) {
+        return new ChallengeStatsService.ChallengeStatistics("web-1", "XSS", "web", "easy", 100,
+                solves, started, 0, null, null, null);
+    }
+}
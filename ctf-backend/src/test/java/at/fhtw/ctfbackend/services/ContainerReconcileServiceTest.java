@@ -0,0 +1,116 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContainerReconcileServiceTest {
+
+    @Mock
+    private ChallengeInstanceRepository instanceRepo;
+
+    @Mock
+    private DockerService dockerService;
+
+    @Mock
+    private PortAllocationService portAllocator;
+
+    @Mock
+    private ContainerPoolService containerPool;
+
+    @Mock
+    private AdmissionService admission;
+
+    @Mock
+    private FlagVerificationIndex flagIndex;
+
+    private ContainerReconcileService reconciler;
+
+    @BeforeEach
+    void setUp() {
+        reconciler = new ContainerReconcileService(instanceRepo, dockerService, portAllocator, containerPool, admission, flagIndex);
+    }
+
+    private static ChallengeInstanceEntity instance(String id, String containerName, int sshPort) {
+        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
+        inst.setInstanceId(id);
+        inst.setContainerName(containerName);
+        inst.setStatus("RUNNING");
+        inst.setSshPort(sshPort);
+        inst.setDockerHost(DockerHostRegistry.LOCAL);
+        return inst;
+    }
+
+    private static DockerClient.ContainerInfo container(String name, String state, Integer port) {
+        return new DockerClient.ContainerInfo(name, state, Map.of(DockerService.LABEL_MANAGED, "true"),
+                port != null ? Set.of(port) : Set.of());
+    }
+
+    @Test
+    void reconcile_MarksInstanceDeadAfterTwoCyclesWithoutContainer() {
+        ChallengeInstanceEntity inst = instance("i-1", "ctf-aaaa1111", 30005);
+        when(instanceRepo.findByStatusIn(anyCollection())).thenReturn(List.of(inst));
+        when(dockerService.listManagedContainers()).thenReturn(List.of());
+
+        reconciler.reconcile();
+        assertEquals("RUNNING", inst.getStatus());
+        verify(portAllocator, never()).releasePort(any(), anyInt());
+
+        reconciler.reconcile();
+        assertEquals("DEAD", inst.getStatus());
+        verify(portAllocator).releasePort(DockerHostRegistry.LOCAL, 30005);
+        verify(instanceRepo).saveAll(List.of(inst));
+        verify(admission).release("i-1");
+    }
+
+    @Test
+    void reconcile_RemovesOrphansButKeepsPooledAndReferencedContainers() {
+        when(instanceRepo.findByStatusIn(anyCollection())).thenReturn(List.of(instance("i-1", "ctf-owned", 30001)));
+        when(dockerService.listManagedContainers()).thenReturn(List.of(
+                container("ctf-owned", "running", 30001),
+                container("ctf-pooled", "running", 30002),
+                container("ctf-orphan", "running", 30003)));
+        when(containerPool.isPooled(anyString())).thenAnswer(inv -> "ctf-pooled".equals(inv.getArgument(0)));
+
+        reconciler.reconcile();
+        verify(dockerService, never()).removeContainers(anyList());
+
+        reconciler.reconcile();
+        verify(dockerService).removeContainers(List.of("ctf-orphan"));
+        verify(portAllocator).releasePort(DockerHostRegistry.LOCAL, 30003);
+    }
+
+    @Test
+    void reconcile_RestoresPortsOfLiveContainersFromOneListing() {
+        when(instanceRepo.findByStatusIn(anyCollection())).thenReturn(List.of(instance("i-1", "ctf-owned", 30001)));
+        when(dockerService.listManagedContainers()).thenReturn(List.of(container("ctf-owned", "running", 30001)));
+
+        reconciler.reconcile();
+
+        verify(portAllocator).markInUse(DockerHostRegistry.LOCAL, Set.of(30001));
+        verify(dockerService, times(1)).listManagedContainers();
+        verify(dockerService, never()).containerExists(anyString());
+    }
+
+    @Test
+    void reconcile_DockerUnavailable_ChangesNothing() {
+        when(dockerService.listManagedContainers()).thenThrow(new RuntimeException("daemon down"));
+
+        reconciler.reconcile();
+
+        verifyNoInteractions(instanceRepo, portAllocator);
+    }
+}
@@ -0,0 +1,118 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContainerStatsServiceTest {
+
+    private static final long INTERVAL_MS = 30_000;
+    private static final long ABANDON_AFTER_MS = 10 * INTERVAL_MS;
+
+    @Mock private ChallengeInstanceRepository instanceRepo;
+    @Mock private DockerService dockerService;
+    @Mock private EnvironmentService envService;
+
+    private ContainerStatsStore store;
+    private ContainerStatsService sampler;
+    private ChallengeInstanceEntity inst;
+
+    @BeforeEach
+    void setUp() {
+        store = new ContainerStatsStore(20, INTERVAL_MS);
+        sampler = new ContainerStatsService(instanceRepo, dockerService, envService, store,
+                true, true, ABANDON_AFTER_MS, 2.0, 65536);
+
+        inst = new ChallengeInstanceEntity();
+        inst.setInstanceId("i-1");
+        inst.setContainerName("ctf-aaaa1111");
+        inst.setUsername("alice");
+        inst.setStatus("RUNNING");
+        inst.setExpiresAt(Instant.now().plusSeconds(1800));
+    }
+
+    private static DockerClient.ContainerStats stats(double cpu, long netBytes) {
+        return new DockerClient.ContainerStats(cpu, 4 << 20, 512 << 20, netBytes, 0);
+    }
+
+    // One sample per interval over the whole abandon window, ending now
+    private long fillWindow(double cpu, long netPerSample) {
+        long now = System.currentTimeMillis();
+        for (int i = 10; i >= 0; i--) {
+            store.record("i-1", now - i * INTERVAL_MS, stats(cpu, (10 - i) * netPerSample));
+        }
+        return now;
+    }
+
+    @Test
+    void store_RingKeepsNewestSamplesInOrder() {
+        for (int i = 0; i < 25; i++) {
+            store.record("i-1", i, stats(i, 0));
+        }
+
+        List<ContainerStatsStore.Sample> history = store.history("i-1", 0);
+        assertEquals(20, history.size());
+        assertEquals(5, history.get(0).sampledAt());
+        assertEquals(24.0, store.latest("i-1").orElseThrow().cpuPercent());
+        assertEquals(List.of(22L, 23L, 24L), store.history("i-1", 22).stream().map(ContainerStatsStore.Sample::sampledAt).toList());
+    }
+
+    @Test
+    void sample_RecordsAllRunningInstancesFromOneSweep() {
+        when(instanceRepo.findByStatus("RUNNING")).thenReturn(List.of(inst));
+        when(dockerService.sampleStats(List.of("ctf-aaaa1111"))).thenReturn(Map.of("ctf-aaaa1111", stats(12.5, 100)));
+        when(envService.lastActiveAt(inst)).thenReturn(System.currentTimeMillis());
+
+        sampler.sample();
+
+        assertEquals(12.5, store.recent("i-1").orElseThrow().cpuPercent());
+        verify(dockerService, times(1)).sampleStats(anyList());
+        verify(envService, never()).cleanupAndReleasePort(anyString());
+    }
+
+    @Test
+    void abandonReason_QuietAndUntouchedForTheWholeWindow() {
+        long now = fillWindow(0.1, 100);
+        when(envService.lastActiveAt(inst)).thenReturn(now - ABANDON_AFTER_MS - 1);
+
+        assertNotNull(sampler.abandonReason(inst, now));
+    }
+
+    @Test
+    void abandonReason_BusyCpuOrTrafficKeepsInstance() {
+        long now = fillWindow(25.0, 0);
+        when(envService.lastActiveAt(inst)).thenReturn(now - ABANDON_AFTER_MS - 1);
+        assertNull(sampler.abandonReason(inst, now));
+
+        store.retain(List.of());
+        now = fillWindow(0.0, 100_000);
+        assertNull(sampler.abandonReason(inst, now));
+    }
+
+    @Test
+    void abandonReason_RecentActivityOrUncoveredWindowKeepsInstance() {
+        long now = System.currentTimeMillis();
+        when(envService.lastActiveAt(inst)).thenReturn(now - ABANDON_AFTER_MS - 1);
+        // Only the last two intervals watched, e.g. right after a restart
+        store.record("i-1", now - INTERVAL_MS, stats(0, 0));
+        store.record("i-1", now, stats(0, 0));
+        assertNull(sampler.abandonReason(inst, now));
+
+        now = fillWindow(0.0, 0);
+        when(envService.lastActiveAt(inst)).thenReturn(now - 1000);
+        assertNull(sampler.abandonReason(inst, now));
+    }
+}
@@ -0,0 +1,109 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DockerEventServiceTest {
+
+    @Mock
+    private DockerService dockerService;
+
+    @Mock
+    private ChallengeInstanceRepository instanceRepo;
+
+    @Mock
+    private PortAllocationService portAllocator;
+
+    @Mock
+    private AdmissionService admission;
+
+    @Mock
+    private FlagVerificationIndex flagIndex;
+
+    private ContainerStateCache stateCache;
+    private DockerEventService events;
+
+    @BeforeEach
+    void setUp() {
+        stateCache = new ContainerStateCache();
+        stateCache.reset(DockerHostRegistry.LOCAL, List.of());
+        events = new DockerEventService(dockerService, stateCache, instanceRepo, portAllocator, admission, flagIndex, false);
+    }
+
+    private static ChallengeInstanceEntity running(String id, String containerName, int sshPort) {
+        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
+        inst.setInstanceId(id);
+        inst.setContainerName(containerName);
+        inst.setStatus("RUNNING");
+        inst.setSshPort(sshPort);
+        inst.setDockerHost(DockerHostRegistry.LOCAL);
+        return inst;
+    }
+
+    private static DockerClient.ContainerEvent event(String name, String action, Map<String, String> attributes) {
+        return new DockerClient.ContainerEvent(name, action, attributes, System.nanoTime());
+    }
+
+    @Test
+    void handle_CrashMarksInstanceDeadAndFreesItsResources() {
+        ChallengeInstanceEntity inst = running("i-1", "ctf-aaaa1111", 30005);
+        when(instanceRepo.findFirstByContainerNameAndStatus("ctf-aaaa1111", "RUNNING")).thenReturn(Optional.of(inst));
+        when(instanceRepo.transitionStatus("i-1", "RUNNING", "DEAD")).thenReturn(1);
+
+        events.handle(DockerHostRegistry.LOCAL, event("ctf-aaaa1111", "oom", Map.of()));
+
+        verify(admission).release("i-1");
+        verify(dockerService).removeContainers(List.of("ctf-aaaa1111"));
+        verify(portAllocator).releasePort(DockerHostRegistry.LOCAL, 30005);
+    }
+
+    @Test
+    void handle_ExitCausedByBackendIsIgnored() {
+        stateCache.expectExit("ctf-aaaa1111");
+
+        events.handle(DockerHostRegistry.LOCAL, event("ctf-aaaa1111", "die", Map.of("exitCode", "143")));
+        events.handle(DockerHostRegistry.LOCAL, event("ctf-aaaa1111", "destroy", Map.of()));
+
+        verifyNoInteractions(instanceRepo, portAllocator, admission);
+        assertEquals(Optional.of("unknown"), stateCache.state("ctf-aaaa1111"));
+        assertFalse(stateCache.isExitExpected("ctf-aaaa1111"));
+    }
+
+    @Test
+    void handle_InstanceStoppedConcurrently_KeepsItsStatusAndPort() {
+        ChallengeInstanceEntity inst = running("i-1", "ctf-aaaa1111", 30005);
+        when(instanceRepo.findFirstByContainerNameAndStatus("ctf-aaaa1111", "RUNNING")).thenReturn(Optional.of(inst));
+        when(instanceRepo.transitionStatus("i-1", "RUNNING", "DEAD")).thenReturn(0);
+
+        events.handle(DockerHostRegistry.LOCAL, event("ctf-aaaa1111", "die", Map.of("exitCode", "1")));
+
+        verify(portAllocator, never()).releasePort(any(), anyInt());
+        verify(admission, never()).release(anyString());
+    }
+
+    @Test
+    void handle_LifecycleEventsKeepStateCacheCurrent() {
+        events.handle(DockerHostRegistry.LOCAL, event("ctf-aaaa1111", "start", Map.of()));
+        assertEquals(Optional.of("running"), stateCache.state("ctf-aaaa1111"));
+
+        events.handle(DockerHostRegistry.LOCAL, event("ctf-aaaa1111", "pause", Map.of()));
+        assertEquals(Optional.of("paused"), stateCache.state("ctf-aaaa1111"));
+
+        stateCache.invalidate(DockerHostRegistry.LOCAL);
+        assertEquals(Optional.empty(), stateCache.state("ctf-aaaa1111"));
+    }
+}
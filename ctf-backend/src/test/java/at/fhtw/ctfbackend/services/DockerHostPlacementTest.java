@@ -0,0 +1,168 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Placement across two Docker hosts, each a FakeDockerDaemon with 8 CPUs and 16 GiB
+ */
+@ExtendWith(MockitoExtension.class)
+class DockerHostPlacementTest {
+
+    private static final String LOCAL = DockerHostRegistry.LOCAL;
+    private static final String IMAGE = "ctf-web-101:abc";
+
+    @Mock private ChallengeRepository challengeRepo;
+    @Mock private ImageBuildCoordinator imageBuilds;
+
+    private FakeDockerDaemon localDaemon;
+    private FakeDockerDaemon workerDaemon;
+    private DockerHttpClient localHttp;
+    private DockerHttpClient workerHttp;
+    private DockerHostRegistry hosts;
+    private DockerService dockerService;
+    private ResourceScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        localDaemon = new FakeDockerDaemon();
+        workerDaemon = new FakeDockerDaemon();
+        localHttp = new DockerHttpClient(localDaemon.address(), "v1.43", 4);
+        workerHttp = new DockerHttpClient(workerDaemon.address(), "v1.43", 4);
+        hosts = new DockerHostRegistry(List.of(
+                new DockerHost(LOCAL, null, "127.0.0.1", new SocketDockerClient(localHttp)),
+                new DockerHost("worker1", "unix://" + workerDaemon.address().getPath(), "10.0.0.11",
+                        new SocketDockerClient(workerHttp))));
+        dockerService = new DockerService(null, hosts, new ContainerStateCache());
+        // Capacity from docker info, no reserve, no overcommit: 8 CPUs / 16 GiB per host
+        scheduler = new ResourceScheduler(challengeRepo, dockerService, hosts, imageBuilds, 512, 1.0, 0, 0, 0, 1.0);
+        scheduler.refreshCapacity();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        localHttp.close();
+        workerHttp.close();
+        localDaemon.close();
+        workerDaemon.close();
+    }
+
+    @Test
+    void tryPlace_SpreadsInstancesToTheLeastLoadedHost() {
+        ResourceProfile profile = ResourceProfile.of(2048, 2.0);
+
+        assertEquals(Optional.of(LOCAL), scheduler.tryPlace("i-1", profile, Set.of()));
+        assertEquals(Optional.of("worker1"), scheduler.tryPlace("i-2", profile, Set.of()));
+        assertEquals(Optional.of(LOCAL), scheduler.tryPlace("i-3", profile, Set.of()));
+
+        scheduler.release("i-1");
+        scheduler.release("i-3");
+        assertEquals(Optional.of(LOCAL), scheduler.tryPlace("i-4", profile, Set.of()));
+        assertEquals(2, scheduler.usage().stream().mapToInt(ResourceScheduler.Usage::instances).sum());
+    }
+
+    @Test
+    void tryPlace_PrefersHostThatAlreadyHasTheImage() {
+        workerDaemon.images.add(IMAGE);
+        when(imageBuilds.imageFor("web-101")).thenReturn(IMAGE);
+        scheduler.reset(Map.of("i-0", new ResourceScheduler.Reservation("worker1", ResourceProfile.of(4096, 4.0))));
+
+        Set<String> warm = scheduler.hostsWithImage("web-101");
+
+        assertEquals(Set.of("worker1"), warm);
+        assertEquals(Optional.of("worker1"), scheduler.tryPlace("i-1", ResourceProfile.of(512, 1.0), warm));
+    }
+
+    @Test
+    void tryPlace_FullHostsAreSkippedUntilNothingFits() {
+        ResourceProfile half = ResourceProfile.of(8192, 4.0);
+
+        assertTrue(scheduler.tryPlace("i-1", half, Set.of()).isPresent());
+        assertTrue(scheduler.tryPlace("i-2", half, Set.of()).isPresent());
+        assertTrue(scheduler.tryPlace("i-3", half, Set.of()).isPresent());
+        assertTrue(scheduler.tryPlace("i-4", half, Set.of()).isPresent());
+        assertEquals(Optional.empty(), scheduler.tryPlace("i-5", half, Set.of()));
+        assertFalse(scheduler.fitsEmptyHost(ResourceProfile.of(32768, 1.0)));
+    }
+
+    @Test
+    void tryPlace_OnlyReadsBudgetsSizedBeforehand() {
+        ResourceScheduler unsized = new ResourceScheduler(challengeRepo, dockerService, hosts, imageBuilds,
+                512, 1.0, 0, 0, 0, 1.0);
+        localDaemon.requests.clear();
+        workerDaemon.requests.clear();
+
+        // Placement runs under the admission lock, so it must not wait for docker info
+        assertEquals(Optional.empty(), unsized.tryPlace("i-1", ResourceProfile.of(512, 1.0), Set.of()));
+        assertTrue(unsized.fitsEmptyHost(ResourceProfile.of(32768, 1.0)));
+        assertEquals(List.of(), localDaemon.requests);
+        assertEquals(List.of(), workerDaemon.requests);
+
+        unsized.refreshCapacity();
+        assertTrue(unsized.tryPlace("i-1", ResourceProfile.of(512, 1.0), Set.of()).isPresent());
+    }
+
+    @Test
+    void reservePooled_IdlePoolContainersTakeRoomOnTheLocalHost() {
+        ResourceProfile quarter = ResourceProfile.of(4096, 2.0);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(scheduler.reservePooled("ctf-pool-" + i, quarter));
+        }
+        assertFalse(scheduler.reservePooled("ctf-pool-4", quarter));
+        // Survives the admission resync rebuilding the instance reservations
+        scheduler.reset(Map.of());
+
+        assertEquals(Optional.of("worker1"), scheduler.tryPlace("i-1", quarter, Set.of(LOCAL)));
+        scheduler.releasePooled("ctf-pool-0");
+        assertEquals(Optional.of(LOCAL), scheduler.tryPlace("i-2", quarter, Set.of(LOCAL)));
+    }
+
+    @Test
+    void runContainer_LaterCallsAreRoutedToTheChosenHost() {
+        workerDaemon.images.add(IMAGE);
+
+        dockerService.runContainer("worker1", "ctf-abc12345", IMAGE, "FLAG{x}", 30000,
+                DockerService.instanceLabels("i-1", "alice", "web-101"), ResourceProfile.of(512, 1.0));
+
+        assertTrue(workerDaemon.containers.containsKey("ctf-abc12345"));
+        assertFalse(localDaemon.containers.containsKey("ctf-abc12345"));
+        assertEquals("running", dockerService.getContainerStatus("ctf-abc12345"));
+        assertEquals(Set.of(30000), dockerService.getPublishedPorts("worker1"));
+        assertEquals(Set.of(), dockerService.getPublishedPorts(LOCAL));
+        assertEquals("10.0.0.11", dockerService.sshAddress("worker1"));
+
+        dockerService.stopContainer("ctf-abc12345");
+        assertFalse(workerDaemon.containers.containsKey("ctf-abc12345"));
+    }
+
+    @Test
+    void listManagedContainers_FindsContainersOnEveryHost() {
+        localDaemon.images.add(IMAGE);
+        workerDaemon.images.add(IMAGE);
+        dockerService.runContainer(LOCAL, "ctf-local001", IMAGE, null, 30000, Map.of(), ResourceProfile.of(512, 1.0));
+        dockerService.runContainer("worker1", "ctf-worker01", IMAGE, null, 30000, Map.of(), ResourceProfile.of(512, 1.0));
+
+        // A fresh service (e.g. after a restart) learns where containers live from the listing
+        DockerService restarted = new DockerService(null, hosts, new ContainerStateCache());
+        assertEquals(2, restarted.listManagedContainers().size());
+        assertEquals(LOCAL, restarted.hostOf("ctf-local001"));
+        assertEquals("worker1", restarted.hostOf("ctf-worker01"));
+
+        restarted.removeContainers(List.of("ctf-local001", "ctf-worker01"));
+        assertTrue(localDaemon.containers.isEmpty());
+        assertTrue(workerDaemon.containers.isEmpty());
+    }
+}
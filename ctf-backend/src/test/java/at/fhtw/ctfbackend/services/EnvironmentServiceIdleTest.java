@@ -0,0 +1,157 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnvironmentServiceIdleTest {
+
+    private static final long IDLE_AFTER_MS = 50;
+
+    @Mock private ChallengeInstanceRepository instanceRepo;
+    @Mock private DockerService dockerService;
+    @Mock private ChallengeRepository challengeRepo;
+    @Mock private UserService userService;
+    @Mock private PortAllocationService portAllocator;
+    @Mock private ContainerPoolService containerPool;
+    @Mock private ProvisioningService provisioning;
+    @Mock private ImageBuildCoordinator imageBuilds;
+    @Mock private ReadinessProber readiness;
+    @Mock private AdmissionService admission;
+    @Mock private ResourceScheduler scheduler;
+    @Mock private FlagVerificationIndex flagIndex;
+    @Mock private ChallengeStatsService challengeStats;
+
+    private ContainerStatsStore statsStore;
+    private EnvironmentService envService;
+    private ChallengeInstanceEntity inst;
+
+    @BeforeEach
+    void setUp() {
+        statsStore = new ContainerStatsStore(120, 30_000);
+        envService = new EnvironmentService(instanceRepo, dockerService, challengeRepo, userService, portAllocator,
+                containerPool, provisioning, imageBuilds, readiness, admission, statsStore, scheduler, flagIndex, challengeStats, true, IDLE_AFTER_MS, 1.0);
+
+        inst = new ChallengeInstanceEntity();
+        inst.setInstanceId("i-1");
+        inst.setContainerName("ctf-aaaa1111");
+        inst.setStatus("RUNNING");
+        inst.setCreatedAt(Instant.now());
+        inst.setReadyAt(Instant.now());
+    }
+
+    private void waitPastIdleWindow() throws InterruptedException {
+        Thread.sleep(IDLE_AFTER_MS + 20);
+    }
+
+    private static Map<String, DockerClient.ContainerStats> cpu(double percent) {
+        return Map.of("ctf-aaaa1111", new DockerClient.ContainerStats(percent, 0, 0, 0, 0));
+    }
+
+    @Test
+    void pauseIdleInstances_PausesQuietInstance() throws Exception {
+        when(instanceRepo.findByStatus("RUNNING")).thenReturn(List.of(inst));
+        when(dockerService.sampleStats(List.of("ctf-aaaa1111"))).thenReturn(cpu(0.2));
+        waitPastIdleWindow();
+
+        envService.pauseIdleInstances();
+
+        verify(dockerService).pauseContainer("ctf-aaaa1111");
+        verify(instanceRepo).updatePausedAt(eq("i-1"), any(Instant.class));
+    }
+
+    @Test
+    void pauseIdleInstances_BusyCpuKeepsInstanceRunning() throws Exception {
+        when(instanceRepo.findByStatus("RUNNING")).thenReturn(List.of(inst));
+        when(dockerService.sampleStats(anyList())).thenReturn(cpu(35.0));
+        waitPastIdleWindow();
+
+        envService.pauseIdleInstances();
+
+        verify(dockerService, never()).pauseContainer(anyString());
+    }
+
+    @Test
+    void pauseIdleInstances_RecentActivitySkipsSampling() throws Exception {
+        when(instanceRepo.findByStatus("RUNNING")).thenReturn(List.of(inst));
+        when(instanceRepo.findByInstanceId("i-1")).thenReturn(Optional.of(inst));
+        waitPastIdleWindow();
+        envService.touch("i-1");
+
+        envService.pauseIdleInstances();
+
+        verify(dockerService, never()).sampleStats(anyList());
+        verify(dockerService, never()).pauseContainer(anyString());
+    }
+
+    @Test
+    void pauseIdleInstances_UsesRecentSamplerReading() throws Exception {
+        when(instanceRepo.findByStatus("RUNNING")).thenReturn(List.of(inst));
+        statsStore.record("i-1", System.currentTimeMillis(), cpu(35.0).get("ctf-aaaa1111"));
+        waitPastIdleWindow();
+
+        envService.pauseIdleInstances();
+
+        verify(dockerService, never()).sampleStats(anyList());
+        verify(dockerService, never()).pauseContainer(anyString());
+    }
+
+    @Test
+    void touch_ResumesPausedInstance() throws Exception {
+        when(instanceRepo.findByStatus("RUNNING")).thenReturn(List.of(inst));
+        when(dockerService.sampleStats(anyList())).thenReturn(cpu(0.0));
+        waitPastIdleWindow();
+        envService.pauseIdleInstances();
+
+        inst.setPausedAt(Instant.now());
+        when(instanceRepo.findByInstanceId("i-1")).thenReturn(Optional.of(inst));
+
+        ChallengeInstanceEntity touched = envService.touch("i-1");
+
+        verify(dockerService).unpauseContainer("ctf-aaaa1111");
+        verify(instanceRepo).updatePausedAt("i-1", null);
+        assertNull(touched.getPausedAt());
+    }
+
+    @Test
+    void onSolveRecorded_HandsTheTeardownOffAndSchedulesItOnce() throws Exception {
+        inst.setSshPort(20_001);
+        when(instanceRepo.findByUsernameAndChallengeIdAndStatus("alice", "web-1", "RUNNING")).thenReturn(List.of(inst));
+        when(instanceRepo.findByInstanceId("i-1")).thenReturn(Optional.of(inst));
+        CountDownLatch stopping = new CountDownLatch(1);
+        doAnswer(inv -> {
+            stopping.await();
+            throw new RuntimeException("daemon went away");
+        }).when(dockerService).stopContainer("ctf-aaaa1111");
+        doThrow(new RuntimeException("daemon went away")).when(dockerService).killContainer("ctf-aaaa1111");
+        OutboxDispatcher.SolveRecorded solve =
+                new OutboxDispatcher.SolveRecorded("alice", "web-1", 100, LocalDateTime.now(), false);
+
+        // Neither call waits for the stop, and the redelivery doesn't queue a second teardown
+        envService.onSolveRecorded(solve);
+        envService.onSolveRecorded(solve);
+        stopping.countDown();
+
+        verify(portAllocator, timeout(1000)).releasePort(null, 20_001);
+        verify(dockerService).stopContainer("ctf-aaaa1111");
+        verify(instanceRepo, timeout(1000)).save(inst);
+        assertEquals("EXPIRED", inst.getStatus());
+    }
+}
@@ -0,0 +1,112 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeEntity;
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.entity.UserEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnvironmentServiceProvisioningTest {
+
+    @Mock private ChallengeInstanceRepository instanceRepo;
+    @Mock private DockerService dockerService;
+    @Mock private ChallengeRepository challengeRepo;
+    @Mock private UserService userService;
+    @Mock private PortAllocationService portAllocator;
+    @Mock private ContainerPoolService containerPool;
+    @Mock private ProvisioningService provisioning;
+    @Mock private ImageBuildCoordinator imageBuilds;
+    @Mock private ReadinessProber readiness;
+    @Mock private AdmissionService admission;
+    @Mock private ResourceScheduler scheduler;
+    @Mock private FlagVerificationIndex flagIndex;
+    @Mock private ChallengeStatsService challengeStats;
+
+    private EnvironmentService envService;
+    private String placedOn = "worker-1";
+
+    @BeforeEach
+    void setUp() {
+        envService = new EnvironmentService(instanceRepo, dockerService, challengeRepo, userService, portAllocator,
+                containerPool, provisioning, imageBuilds, readiness, admission, new ContainerStatsStore(120, 30_000),
+                scheduler, flagIndex, challengeStats, true, 900_000, 1.0);
+
+        UserEntity user = UserEntity.builder().username("alice").build();
+        when(userService.getRequiredUser("alice")).thenReturn(user);
+        when(challengeRepo.findById("web-1")).thenReturn(Optional.of(new ChallengeEntity()));
+        // Admission and the provisioning worker run inline; admission places the instance on a worker
+        when(admission.admit(any(), any())).thenAnswer(inv -> {
+            inv.<ChallengeInstanceEntity>getArgument(0).setDockerHost(placedOn);
+            inv.<Runnable>getArgument(1).run();
+            return Optional.empty();
+        });
+        doAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            return null;
+        }).when(provisioning).submit(any(), any());
+    }
+
+    @Test
+    void provision_PersistsTheHostWithThePort() throws Exception {
+        when(imageBuilds.currentImage("web-1")).thenReturn(Optional.of("ctf-web-1:abc"));
+        when(dockerService.hasImage("worker-1", "ctf-web-1:abc")).thenReturn(true);
+        when(portAllocator.allocatePort("worker-1")).thenReturn(20_001);
+        when(instanceRepo.assignPort(anyString(), anyString(), anyInt())).thenReturn(1);
+        when(instanceRepo.markRunning(anyString(), any(), any())).thenReturn(1);
+
+        ChallengeInstanceEntity inst = envService.startEnvironment("alice", "web-1");
+
+        // A reload only knows where the container runs from this write
+        verify(instanceRepo).assignPort(inst.getInstanceId(), "worker-1", 20_001);
+        verify(dockerService).runContainer(eq("worker-1"), any(), any(), any(), eq(20_001), any(), any());
+        assertEquals("RUNNING", inst.getStatus());
+    }
+
+    @Test
+    void stopBeforePortAssignment_NeverStartsTheContainer() throws Exception {
+        when(imageBuilds.currentImage("web-1")).thenReturn(Optional.of("ctf-web-1:abc"));
+        when(dockerService.hasImage(any(), eq("ctf-web-1:abc"))).thenReturn(true);
+        when(portAllocator.allocatePort(any())).thenReturn(20_001);
+        when(instanceRepo.assignPort(anyString(), anyString(), eq(20_001))).thenReturn(0);
+
+        ChallengeInstanceEntity inst = envService.startEnvironment("alice", "web-1");
+
+        verify(dockerService, never()).runContainer(any(), any(), any(), any(), anyInt(), any(), any());
+        verify(portAllocator).releasePort("worker-1", 20_001);
+        verify(instanceRepo, never()).markRunning(anyString(), any(), any());
+        assertEquals("STOPPED", inst.getStatus());
+    }
+
+    @Test
+    void stopWhilePooledContainerIsClaimed_RemovesItInsteadOfRunning() throws Exception {
+        placedOn = DockerHostRegistry.LOCAL;
+        when(containerPool.claim("web-1")).thenReturn(Optional.of(
+                new ContainerPoolService.PooledContainer("web-1", "ctf-pool-1", "ctf-web-1:abc", 20_002, Instant.now())));
+        when(instanceRepo.markRunning(anyString(), any(), any())).thenReturn(0);
+        // The stop wrote its own view of the row, without the pooled port
+        ChallengeInstanceEntity stopped = new ChallengeInstanceEntity();
+        stopped.setStatus("STOPPED");
+        when(instanceRepo.findByInstanceId(anyString())).thenReturn(Optional.of(stopped));
+
+        ChallengeInstanceEntity inst = envService.startEnvironment("alice", "web-1");
+
+        verify(dockerService).stopContainer("ctf-pool-1");
+        verify(instanceRepo).assignContainer(inst.getInstanceId(), DockerHostRegistry.LOCAL, "ctf-pool-1", 20_002);
+        verify(portAllocator).releasePort(DockerHostRegistry.LOCAL, 20_002);
+        verify(flagIndex, never()).putInstance(any());
+        assertEquals("STOPPED", inst.getStatus());
+    }
+}
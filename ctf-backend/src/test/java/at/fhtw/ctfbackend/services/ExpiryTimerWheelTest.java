@@ -0,0 +1,66 @@
+package at.fhtw.ctfbackend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryTimerWheelTest {
+
+    private final Instant start = Instant.parse("2025-01-01T10:00:00Z");
+
+    @Test
+    void advance_ReturnsOnlyDeadlinesThatPassed() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(1000, 60, start);
+        wheel.schedule("a", start.plusSeconds(5));
+        wheel.schedule("b", start.plusSeconds(10));
+
+        assertEquals(List.of(), wheel.advance(start.plusSeconds(4)));
+        assertEquals(List.of("a"), wheel.advance(start.plusSeconds(5)));
+        assertEquals(List.of("b"), wheel.advance(start.plusSeconds(30)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedule_DeadlineBeyondOneRevolutionWaitsForItsRound() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(1000, 10, start);
+        wheel.schedule("far", start.plusSeconds(25));
+
+        assertEquals(List.of(), wheel.advance(start.plusSeconds(10)));
+        assertEquals(List.of(), wheel.advance(start.plusSeconds(20)));
+        assertEquals(List.of("far"), wheel.advance(start.plusSeconds(26)));
+    }
+
+    @Test
+    void schedule_PastDeadlineFiresOnNextAdvance() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(1000, 10, start);
+        wheel.schedule("late", start.minusSeconds(300));
+
+        assertEquals(List.of("late"), wheel.advance(start.plusSeconds(1)));
+    }
+
+    @Test
+    void scheduleAndCancel_ReplaceEarlierDeadline() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(1000, 60, start);
+        wheel.schedule("a", start.plusSeconds(5));
+        wheel.schedule("a", start.plusSeconds(20));
+        wheel.schedule("b", start.plusSeconds(5));
+        assertTrue(wheel.cancel("b"));
+
+        assertEquals(List.of(), wheel.advance(start.plusSeconds(10)));
+        assertEquals(List.of("a"), wheel.advance(start.plusSeconds(20)));
+        assertFalse(wheel.cancel("a"));
+    }
+
+    @Test
+    void advance_AfterLongPauseCollectsEverythingDue() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(1000, 10, start);
+        for (int i = 1; i <= 9; i++) {
+            wheel.schedule("i" + i, start.plusSeconds(i));
+        }
+
+        assertEquals(9, wheel.advance(start.plusSeconds(3600)).size());
+    }
+}
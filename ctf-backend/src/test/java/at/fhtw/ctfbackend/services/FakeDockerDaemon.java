@@ -0,0 +1,331 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for dockerd: serves the handful of Engine API endpoints
+ * SocketDockerClient uses over a Unix socket in a temp directory.
+ */
+class FakeDockerDaemon implements Closeable {
+
+    static final class Container {
+        final String name;
+        final JsonNode createBody;
+        String status = "created";
+
+        Container(String name, JsonNode createBody) {
+            this.name = name;
+            this.createBody = createBody;
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final Thread acceptThread;
+
+    final Map<String, Container> containers = new ConcurrentHashMap<>();
+    final Set<String> images = ConcurrentHashMap.newKeySet();
+    final List<String> requests = new CopyOnWriteArrayList<>();
+    final AtomicInteger connections = new AtomicInteger();
+    // "METHOD target" requests that are recorded but never answered; the connection just closes
+    final Set<String> unanswered = ConcurrentHashMap.newKeySet();
+    // How long a stats call takes (the real daemon waits a second for its second reading)
+    volatile long statsDelayMs;
+    private final Map<String, Map<String, String>> execs = new ConcurrentHashMap<>();
+    private final List<BlockingQueue<String>> eventSubscribers = new CopyOnWriteArrayList<>();
+
+    FakeDockerDaemon() throws IOException {
+        Path dir = Files.createTempDirectory("fake-docker");
+        socketPath = dir.resolve("docker.sock");
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+
+        acceptThread = new Thread(this::acceptLoop, "fake-docker-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    UnixDomainSocketAddress address() {
+        return UnixDomainSocketAddress.of(socketPath);
+    }
+
+    private void acceptLoop() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                connections.incrementAndGet();
+                Thread worker = new Thread(() -> serve(channel), "fake-docker-conn");
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            OutputStream out = Channels.newOutputStream(channel);
+
+            String requestLine;
+            while ((requestLine = readLine(in)) != null && !requestLine.isEmpty()) {
+                int contentLength = 0;
+                String header;
+                while ((header = readLine(in)) != null && !header.isEmpty()) {
+                    if (header.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    }
+                }
+                byte[] body = in.readNBytes(contentLength);
+
+                String[] parts = requestLine.split(" ");
+                String method = parts[0];
+                // Drop the /v1.xx prefix
+                String target = parts[1].substring(parts[1].indexOf('/', 1));
+                requests.add(method + " " + target);
+                if (unanswered.contains(method + " " + target)) {
+                    return;
+                }
+
+                if (!handle(method, target, body, out)) {
+                    return;
+                }
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @return false if the connection was hijacked and must be closed
+     */
+    private boolean handle(String method, String target, byte[] body, OutputStream out) throws IOException {
+        String path = target.contains("?") ? target.substring(0, target.indexOf('?')) : target;
+        String query = target.contains("?") ? target.substring(target.indexOf('?') + 1) : "";
+        String[] seg = path.split("/");
+
+        if (method.equals("GET") && path.equals("/info")) {
+            respond(out, 200, "{\"NCPU\":8,\"MemTotal\":17179869184}");
+        } else if (method.equals("GET") && path.equals("/events")) {
+            // Chunked, one JSON event per line, until the client hangs up
+            BlockingQueue<String> events = new LinkedBlockingQueue<>();
+            eventSubscribers.add(events);
+            out.write("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            try {
+                while (true) {
+                    byte[] chunk = (events.take() + "\n").getBytes(StandardCharsets.UTF_8);
+                    out.write((Integer.toHexString(chunk.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.write(chunk);
+                    out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+            } catch (InterruptedException | IOException e) {
+                return false;
+            } finally {
+                eventSubscribers.remove(events);
+            }
+        } else if (method.equals("POST") && path.equals("/containers/create")) {
+            String name = query.replace("name=", "");
+            JsonNode spec = objectMapper.readTree(body);
+            if (!images.contains(spec.path("Image").asText())) {
+                respond(out, 404, "{\"message\":\"No such image\"}");
+                return true;
+            }
+            containers.put(name, new Container(name, spec));
+            respond(out, 201, "{\"Id\":\"" + name + "\",\"Warnings\":[]}");
+        } else if (method.equals("GET") && path.equals("/containers/json")) {
+            boolean all = query.contains("all=true");
+            String label = labelFilter(query);
+            StringBuilder json = new StringBuilder("[");
+            for (Container c : containers.values()) {
+                if (!all && !"running".equals(c.status)) continue;
+                if (label != null && !hasLabel(c, label)) continue;
+                if (json.length() > 1) json.append(',');
+                json.append("{\"Names\":[\"/").append(c.name).append("\"],\"State\":\"").append(c.status)
+                        .append("\",\"Labels\":").append(c.createBody.path("Labels").isObject() ? c.createBody.path("Labels") : "{}")
+                        .append(",\"Ports\":[");
+                if ("running".equals(c.status)) {
+                    String sep = "";
+                    for (JsonNode bindings : c.createBody.path("HostConfig").path("PortBindings")) {
+                        json.append(sep).append("{\"PrivatePort\":22,\"PublicPort\":")
+                                .append(bindings.get(0).path("HostPort").asText()).append(",\"Type\":\"tcp\"}");
+                        sep = ",";
+                    }
+                }
+                json.append("]}");
+            }
+            respond(out, 200, json.append(']').toString());
+        } else if (seg.length >= 3 && seg[1].equals("containers")) {
+            Container c = containers.get(seg[2]);
+            String action = seg.length > 3 ? seg[3] : "";
+            if (c == null) {
+                respond(out, 404, "{\"message\":\"No such container: " + seg[2] + "\"}");
+            } else if (method.equals("GET") && action.equals("json")) {
+                respond(out, 200, "{\"Name\":\"/" + c.name + "\",\"State\":{\"Status\":\"" + c.status + "\"}}");
+            } else if (method.equals("POST") && action.equals("start")) {
+                c.status = "running";
+                emit(c, "start", Map.of());
+                respond(out, 204, null);
+            } else if (method.equals("POST") && (action.equals("pause") || action.equals("unpause"))) {
+                if (!"running".equals(c.status) && !"paused".equals(c.status)) {
+                    respond(out, 409, "{\"message\":\"Container " + c.name + " is not running\"}");
+                } else {
+                    c.status = action.equals("pause") ? "paused" : "running";
+                    emit(c, action, Map.of());
+                    respond(out, 204, null);
+                }
+            } else if (method.equals("GET") && action.equals("stats")) {
+                if (statsDelayMs > 0) {
+                    try {
+                        Thread.sleep(statsDelayMs);
+                    } catch (InterruptedException e) {
+                        return false;
+                    }
+                }
+                // Two readings 1s apart: 0.25s of CPU time out of 4 CPUs' 4s => 25% of one core
+                long cpu = "running".equals(c.status) ? 250_000_000L : 0;
+                respond(out, 200, "{\"cpu_stats\":{\"cpu_usage\":{\"total_usage\":" + (1_000_000_000L + cpu)
+                        + "},\"system_cpu_usage\":14000000000,\"online_cpus\":4},"
+                        + "\"precpu_stats\":{\"cpu_usage\":{\"total_usage\":1000000000},\"system_cpu_usage\":10000000000},"
+                        + "\"memory_stats\":{\"usage\":8388608,\"limit\":536870912,\"stats\":{\"inactive_file\":2097152}},"
+                        + "\"networks\":{\"eth0\":{\"rx_bytes\":1000,\"tx_bytes\":500},\"eth1\":{\"rx_bytes\":500,\"tx_bytes\":200}}}");
+            } else if (method.equals("POST") && (action.equals("stop") || action.equals("kill"))) {
+                c.status = "exited";
+                emit(c, "die", Map.of("exitCode", action.equals("kill") ? "137" : "0"));
+                respond(out, 204, null);
+            } else if (method.equals("DELETE")) {
+                containers.remove(c.name);
+                emit(c, "destroy", Map.of());
+                respond(out, 204, null);
+            } else if (method.equals("POST") && action.equals("exec")) {
+                String execId = "exec-" + execs.size();
+                Map<String, String> env = new HashMap<>();
+                for (JsonNode e : objectMapper.readTree(body).path("Env")) {
+                    String[] kv = e.asText().split("=", 2);
+                    env.put(kv[0], kv[1]);
+                }
+                execs.put(execId, env);
+                respond(out, 201, "{\"Id\":\"" + execId + "\"}");
+            } else {
+                respond(out, 404, "{\"message\":\"page not found\"}");
+            }
+        } else if (seg.length >= 4 && seg[1].equals("exec")) {
+            Map<String, String> env = execs.get(seg[2]);
+            if (seg[3].equals("start")) {
+                // Hijacked, multiplexed stream without framing: write one stdout frame and close
+                byte[] payload = ("flag=" + env.get("FLAG") + "\n").getBytes(StandardCharsets.UTF_8);
+                out.write("HTTP/1.1 200 OK\r\nContent-Type: application/vnd.docker.raw-stream\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                out.write(new byte[]{1, 0, 0, 0, 0, 0, 0, (byte) payload.length});
+                out.write(payload);
+                out.flush();
+                return false;
+            }
+            respond(out, 200, "{\"ExitCode\":0,\"Running\":false}");
+        } else if (seg.length >= 3 && seg[1].equals("images")) {
+            String name = path.substring("/images/".length());
+            if (name.endsWith("/json")) {
+                name = name.substring(0, name.length() - "/json".length());
+            }
+            String normalized = name.contains(":") ? name : name + ":latest";
+            if (method.equals("GET") && images.contains(normalized)) {
+                respond(out, 200, "{\"Id\":\"sha256:abc\"}");
+            } else if (method.equals("DELETE") && images.remove(normalized)) {
+                respond(out, 200, "[]");
+            } else {
+                respond(out, 404, "{\"message\":\"No such image: " + name + "\"}");
+            }
+        } else {
+            respond(out, 404, "{\"message\":\"page not found\"}");
+        }
+        return true;
+    }
+
+    /**
+     * Send a container event to every /events subscriber, shaped like dockerd's
+     */
+    void emit(Container c, String action, Map<String, String> extra) {
+        var attributes = objectMapper.createObjectNode();
+        c.createBody.path("Labels").fields().forEachRemaining(e -> attributes.set(e.getKey(), e.getValue()));
+        extra.forEach(attributes::put);
+        attributes.put("name", c.name);
+
+        var event = objectMapper.createObjectNode();
+        event.put("Type", "container");
+        event.put("Action", action);
+        event.putObject("Actor").put("ID", c.name).set("Attributes", attributes);
+        event.put("timeNano", System.nanoTime());
+        eventSubscribers.forEach(q -> q.add(event.toString()));
+    }
+
+    boolean hasEventSubscriber() {
+        return !eventSubscribers.isEmpty();
+    }
+
+    private String labelFilter(String query) throws IOException {
+        for (String param : query.split("&")) {
+            if (param.startsWith("filters=")) {
+                JsonNode filters = objectMapper.readTree(URLDecoder.decode(param.substring(8), StandardCharsets.UTF_8));
+                JsonNode labels = filters.path("label");
+                return labels.size() > 0 ? labels.get(0).asText() : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasLabel(Container c, String filter) {
+        String[] kv = filter.split("=", 2);
+        JsonNode value = c.createBody.path("Labels").path(kv[0]);
+        return !value.isMissingNode() && (kv.length == 1 || value.asText().equals(kv[1]));
+    }
+
+    private static void respond(OutputStream out, int status, String json) throws IOException {
+        byte[] body = json != null ? json.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        String head = "HTTP/1.1 " + status + " X\r\n"
+                + (json != null ? "Content-Type: application/json\r\nContent-Length: " + body.length + "\r\n" : "")
+                + "\r\n";
+        out.write(head.getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int len = line.length();
+                return len > 0 && line.charAt(len - 1) == '\r' ? line.substring(0, len - 1) : line.toString();
+            }
+            line.append((char) b);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        Files.deleteIfExists(socketPath);
+    }
+}
@@ -0,0 +1,100 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FlagVerificationIndexTest {
+
+    @Mock
+    private ChallengeRepository challengeRepo;
+
+    @Mock
+    private ChallengeInstanceRepository instanceRepo;
+
+    private FlagVerificationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FlagVerificationIndex(challengeRepo, instanceRepo);
+    }
+
+    private static ChallengeInstanceEntity instance(String instanceId, String flag) {
+        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
+        inst.setInstanceId(instanceId);
+        inst.setUsername("alice");
+        inst.setChallengeId("web-1");
+        inst.setStatus("RUNNING");
+        inst.setFlagHash(HexFormat.of().formatHex(FlagVerificationIndex.sha256(flag)));
+        return inst;
+    }
+
+    @Test
+    void matches_StaticFlagLoadedOnceThenAnsweredFromMemory() {
+        when(challengeRepo.findFlagInfoById("crypto-1"))
+                .thenReturn(List.<Object[]>of(new Object[]{"crypto-1", false, "FLAG{static}"}));
+
+        assertTrue(index.matches("alice", "crypto-1", "FLAG{static}"));
+        assertFalse(index.matches("bob", "crypto-1", "FLAG{wrong}"));
+
+        verify(challengeRepo, times(1)).findFlagInfoById("crypto-1");
+        verifyNoInteractions(instanceRepo);
+    }
+
+    @Test
+    void matches_RunningInstanceWithoutDbAndNotAfterItEnded() {
+        index.putChallenge("web-1", true, null);
+        ChallengeInstanceEntity inst = instance("i-1", "FLAG{web-1_abc}");
+        index.putInstance(inst);
+
+        assertTrue(index.matches("alice", "web-1", "FLAG{web-1_abc}"));
+        assertFalse(index.matches("alice", "web-1", "FLAG{web-1_xyz}"));
+        verifyNoInteractions(challengeRepo, instanceRepo);
+
+        index.removeInstance(inst);
+        when(instanceRepo.findByUsernameAndChallengeIdAndStatus("alice", "web-1", "RUNNING")).thenReturn(List.of());
+        assertFalse(index.matches("alice", "web-1", "FLAG{web-1_abc}"));
+    }
+
+    @Test
+    void removeInstance_LeavesNewerInstanceOfSameUserAlone() {
+        index.putChallenge("web-1", true, null);
+        ChallengeInstanceEntity old = instance("i-1", "FLAG{old}");
+        index.putInstance(old);
+        index.putInstance(instance("i-2", "FLAG{new}"));
+
+        index.removeInstance(old);
+
+        assertTrue(index.matches("alice", "web-1", "FLAG{new}"));
+        verifyNoInteractions(instanceRepo);
+    }
+
+    @Test
+    void resync_DoesNotResurrectInstanceRemovedDuringSnapshot() {
+        ChallengeInstanceEntity ended = instance("i-1", "FLAG{web-1_abc}");
+        when(challengeRepo.findFlagInfo()).thenReturn(List.<Object[]>of(new Object[]{"web-1", true, null}));
+        // The stop lands while the snapshot is being read
+        when(instanceRepo.findByStatus("RUNNING")).thenAnswer(inv -> {
+            index.removeInstance(ended);
+            return List.of(ended);
+        });
+
+        index.resync();
+
+        when(instanceRepo.findByUsernameAndChallengeIdAndStatus("alice", "web-1", "RUNNING")).thenReturn(List.of());
+        assertFalse(index.matches("alice", "web-1", "FLAG{web-1_abc}"));
+        verify(challengeRepo, never()).findFlagInfoById(anyString());
+    }
+}
@@ -0,0 +1,150 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.ChallengeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageBuildCoordinatorTest {
+
+    @Mock
+    private DockerService dockerService;
+
+    @Mock
+    private ChallengeRepository challengeRepo;
+
+    @TempDir
+    Path challenges;
+
+    private final BuildLogService buildLogs = new BuildLogService(100, 60_000);
+
+    private final Set<String> builtImages = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (String id : List.of("web-101", "pwn-202")) {
+            Path dir = Files.createDirectories(challenges.resolve(id).resolve("docker"));
+            Files.writeString(dir.resolve("Dockerfile"), "FROM alpine:latest\n");
+            lenient().when(dockerService.resolveBuildContext(id)).thenReturn(challenges.resolve(id));
+        }
+        lenient().when(dockerService.imageExists(anyString())).thenAnswer(inv -> builtImages.contains(inv.<String>getArgument(0)));
+    }
+
+    private ImageBuildCoordinator coordinator(int maxParallel) {
+        return new ImageBuildCoordinator(dockerService, challengeRepo, buildLogs, maxParallel);
+    }
+
+    @Test
+    void imageFor_TagChangesWhenBuildContextChanges() throws Exception {
+        ImageBuildCoordinator coordinator = coordinator(2);
+
+        String before = coordinator.imageFor("web-101");
+        assertTrue(before.matches("ctf-web-101:[0-9a-f]{12}"));
+        assertEquals(before, coordinator.imageFor("web-101"));
+
+        Files.writeString(challenges.resolve("web-101/docker/Dockerfile"), "FROM alpine:3.20\n");
+        assertNotEquals(before, coordinator.imageFor("web-101"));
+    }
+
+    @Test
+    void ensureImage_ConcurrentRequestsShareOneBuild() throws Exception {
+        ImageBuildCoordinator coordinator = coordinator(2);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            builtImages.add(inv.getArgument(1));
+            return inv.getArgument(1);
+        }).when(dockerService).buildImage(eq("web-101"), anyString(), any());
+
+        ExecutorService pool = Executors.newFixedThreadPool(10);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(pool.submit(() -> coordinator.ensureImage("web-101")));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        String expected = coordinator.imageFor("web-101");
+        for (Future<String> result : results) {
+            assertEquals(expected, result.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        verify(dockerService, times(1)).buildImage(eq("web-101"), anyString(), any());
+        assertTrue(coordinator.currentImage("web-101").isPresent());
+    }
+
+    @Test
+    void ensureImage_FailedBuildIsReportedToAllWaitersAndRetriedLater() throws Exception {
+        ImageBuildCoordinator coordinator = coordinator(2);
+        doThrow(new RuntimeException("build failed")).when(dockerService).buildImage(eq("web-101"), anyString(), any());
+
+        assertThrows(RuntimeException.class, () -> coordinator.ensureImage("web-101"));
+        assertThrows(RuntimeException.class, () -> coordinator.ensureImage("web-101"));
+
+        verify(dockerService, times(2)).buildImage(eq("web-101"), anyString(), any());
+        verify(challengeRepo, times(2)).recordImageBuild(eq("web-101"), eq("FAILED"), anyString(),
+                anyLong(), isNull(), any(), eq("build failed"));
+        assertEquals(0, coordinator.getRunningBuildCount());
+    }
+
+    @Test
+    void ensureImage_StreamsOutputAndRecordsReadyImage() {
+        ImageBuildCoordinator coordinator = coordinator(2);
+        doAnswer(inv -> {
+            Consumer<String> sink = inv.getArgument(2);
+            sink.accept("Step 1/2 : FROM alpine:latest");
+            sink.accept("Successfully built abc123");
+            builtImages.add(inv.getArgument(1));
+            return inv.getArgument(1);
+        }).when(dockerService).buildImage(eq("web-101"), anyString(), any());
+        when(dockerService.getImageSize(anyString())).thenReturn(7_340_032L);
+
+        String image = coordinator.ensureImage("web-101");
+
+        assertEquals(List.of("Step 1/2 : FROM alpine:latest", "Successfully built abc123"), buildLogs.getLines("web-101"));
+        verify(challengeRepo).updateImageBuildStatus("web-101", "BUILDING");
+        verify(challengeRepo).recordImageBuild(eq("web-101"), eq("READY"), eq(image), anyLong(),
+                eq(7_340_032L), any(), isNull());
+    }
+
+    @Test
+    void ensureImage_LimitsParallelBuilds() throws Exception {
+        ImageBuildCoordinator coordinator = coordinator(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(inv -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            running.decrementAndGet();
+            builtImages.add(inv.getArgument(1));
+            return inv.getArgument(1);
+        }).when(dockerService).buildImage(anyString(), anyString(), any());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<String> web = pool.submit(() -> coordinator.ensureImage("web-101"));
+        Future<String> pwn = pool.submit(() -> coordinator.ensureImage("pwn-202"));
+        web.get(5, TimeUnit.SECONDS);
+        pwn.get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(1, maxRunning.get());
+    }
+}
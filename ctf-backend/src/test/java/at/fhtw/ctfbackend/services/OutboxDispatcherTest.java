@@ -0,0 +1,77 @@
+package at.fhtw.ctfbackend.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxDispatcherTest {
+
+    private static final String SOLVE_PAYLOAD = "{\"username\":\"alice\",\"challengeId\":\"web-1\",\"pointsEarned\":90,\"solvedAt\":\"2026-10-17T12:30:05.123456\",\"firstBlood\":true}";
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new OutboxDispatcher(jdbc, eventPublisher, 50, 60_000, 3, 5_000, 86_400_000, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    private MapSqlParameterSource lastUpdate(String sqlFragment) {
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbc).update(contains(sqlFragment), params.capture());
+        return params.getValue();
+    }
+
+    @Test
+    void handle_PublishesSolveAndMarksRowDone() {
+        dispatcher.handle(new OutboxDispatcher.Claimed(7, OutboxDispatcher.SOLVE_RECORDED, SOLVE_PAYLOAD, 1));
+
+        verify(eventPublisher).publishEvent(new OutboxDispatcher.SolveRecorded("alice", "web-1", 90,
+                LocalDateTime.of(2026, 10, 17, 12, 30, 5, 123_456_000), true));
+        assertEquals(7L, lastUpdate("'DONE'").getValue("id"));
+    }
+
+    @Test
+    void handle_FailingListenerRetriesWithBackoff() {
+        doThrow(new RuntimeException("docker unreachable")).when(eventPublisher).publishEvent(any(Object.class));
+
+        dispatcher.handle(new OutboxDispatcher.Claimed(7, OutboxDispatcher.SOLVE_RECORDED, SOLVE_PAYLOAD, 2));
+
+        MapSqlParameterSource retry = lastUpdate("last_error = :error");
+        assertEquals("PENDING", retry.getValue("status"));
+        assertEquals(10_000L, retry.getValue("backoffMs"));
+        assertEquals("docker unreachable", retry.getValue("error"));
+    }
+
+    @Test
+    void handle_GivesUpAfterMaxAttemptsAndOnUnknownTypes() {
+        dispatcher.handle(new OutboxDispatcher.Claimed(8, "SOMETHING_ELSE", "{}", 3));
+
+        assertEquals("FAILED", lastUpdate("last_error = :error").getValue("status"));
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,121 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.entity.ChallengeInstanceEntity;
+import at.fhtw.ctfbackend.repository.ChallengeInstanceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PortAllocationServiceTest {
+
+    private static final String LOCAL = DockerHostRegistry.LOCAL;
+
+    @Mock
+    private ChallengeInstanceRepository instanceRepo;
+
+    @Mock
+    private DockerService dockerService;
+
+    private PortAllocationService allocator;
+
+    @BeforeEach
+    void setUp() {
+        when(instanceRepo.findByStatusIn(anyCollection())).thenReturn(List.of(instance(30000)));
+        allocator = new PortAllocationService(instanceRepo, dockerService);
+    }
+
+    private static ChallengeInstanceEntity instance(int sshPort) {
+        ChallengeInstanceEntity inst = new ChallengeInstanceEntity();
+        inst.setStatus("RUNNING");
+        inst.setSshPort(sshPort);
+        return inst;
+    }
+
+    @Test
+    void allocatePort_SkipsPortsLoadedFromDatabase() {
+        assertEquals(30001, allocator.allocatePort(LOCAL));
+        assertEquals(30002, allocator.allocatePort(LOCAL));
+    }
+
+    @Test
+    void allocatePort_DoesNotReuseJustReleasedPort() {
+        int first = allocator.allocatePort(LOCAL);
+        allocator.releasePort(LOCAL, first);
+
+        assertNotEquals(first, allocator.allocatePort(LOCAL));
+    }
+
+    @Test
+    void allocatePort_HandsOutEveryPortOnceThenThrows() {
+        Set<Integer> ports = new HashSet<>();
+        for (int i = 0; i < PortAllocationService.PORT_RANGE - 1; i++) {
+            assertTrue(ports.add(allocator.allocatePort(LOCAL)));
+        }
+
+        assertThrows(RuntimeException.class, () -> allocator.allocatePort(LOCAL));
+        allocator.releasePort(LOCAL, 30500);
+        assertEquals(30500, allocator.allocatePort(LOCAL));
+    }
+
+    @Test
+    void reconcile_MarksPortsPublishedByDockerAsUsed() {
+        when(dockerService.hostIds()).thenReturn(List.of(LOCAL));
+        when(dockerService.getPublishedPorts(LOCAL)).thenReturn(Set.of(30001, 8080));
+
+        allocator.reconcile();
+
+        assertEquals(30002, allocator.allocatePort(LOCAL));
+        assertEquals(PortAllocationService.PORT_RANGE - 3, allocator.getAvailableCount(LOCAL));
+    }
+
+    @Test
+    void reconcile_KeepsFreshReservations() {
+        when(dockerService.hostIds()).thenReturn(List.of(LOCAL));
+        when(dockerService.getPublishedPorts(LOCAL)).thenReturn(Set.of());
+        int reserved = allocator.allocatePort(LOCAL);
+
+        allocator.reconcile();
+        allocator.releasePort(LOCAL, reserved);
+        allocator.reconcile();
+
+        assertEquals(PortAllocationService.PORT_RANGE - 1, allocator.getAvailableCount(LOCAL));
+    }
+
+    @Test
+    void reconcile_DockerUnavailable_KeepsCurrentState() {
+        allocator.allocatePort(LOCAL);
+        when(dockerService.hostIds()).thenReturn(List.of(LOCAL));
+        when(dockerService.getPublishedPorts(LOCAL)).thenThrow(new RuntimeException("daemon down"));
+
+        allocator.reconcile();
+
+        assertEquals(PortAllocationService.PORT_RANGE - 2, allocator.getAvailableCount(LOCAL));
+    }
+
+    @Test
+    void allocatePort_HostsHaveIndependentPortRanges() {
+        ChallengeInstanceEntity onWorker = instance(30001);
+        onWorker.setDockerHost("worker1");
+        when(instanceRepo.findByStatusIn(anyCollection())).thenReturn(List.of(instance(30000), onWorker));
+        allocator = new PortAllocationService(instanceRepo, dockerService);
+
+        assertEquals(30001, allocator.allocatePort(LOCAL));
+        assertEquals(30000, allocator.allocatePort("worker1"));
+        assertEquals(30002, allocator.allocatePort("worker1"));
+
+        allocator.releasePort("worker1", 30001);
+        assertEquals(PortAllocationService.PORT_RANGE - 2, allocator.getAvailableCount(LOCAL));
+        assertEquals(PortAllocationService.PORT_RANGE - 2, allocator.getAvailableCount("worker1"));
+    }
+}
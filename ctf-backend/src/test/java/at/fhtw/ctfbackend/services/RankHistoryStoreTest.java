@@ -0,0 +1,51 @@
+package at.fhtw.ctfbackend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankHistoryStoreTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 17, 12, 0);
+    private static final long S0 = RankHistoryStore.toSecond(T0);
+
+    @Test
+    void decode_RebuildsCumulativeScoreInTimeOrder() {
+        RankHistoryStore store = new RankHistoryStore();
+        store.append("alice", T0, 100);
+        store.append("alice", T0.plusSeconds(90), 50);
+        // Delivered late, solved in between
+        store.append("alice", T0.plusSeconds(30), 25);
+
+        RankHistoryStore.Series series = store.decode("alice");
+
+        assertArrayEquals(new long[]{S0, S0 + 30, S0 + 90}, series.seconds());
+        assertArrayEquals(new int[]{100, 125, 175}, series.cumulative());
+        assertEquals(0, store.decode("bob").size());
+    }
+
+    @Test
+    void append_StoresSolvesInAFewBytes() {
+        RankHistoryStore store = new RankHistoryStore();
+        for (int i = 0; i < 1000; i++) {
+            store.append("alice", T0.plusMinutes(i), 100);
+        }
+
+        // First solve carries the full timestamp, the rest are small deltas
+        assertTrue(store.bytes() < 1000 * 4, "bytes: " + store.bytes());
+        assertEquals(100_000, store.decode("alice").cumulative()[999]);
+    }
+
+    @Test
+    void sample_ReportsScoreAtOrBeforeEachTime() {
+        RankHistoryStore store = new RankHistoryStore();
+        store.append("alice", T0.plusSeconds(10), 100);
+        store.append("alice", T0.plusSeconds(20), 50);
+
+        int[] sampled = store.decode("alice").sample(new long[]{S0, S0 + 10, S0 + 15, S0 + 20, S0 + 60});
+
+        assertArrayEquals(new int[]{0, 100, 100, 150, 150}, sampled);
+    }
+}
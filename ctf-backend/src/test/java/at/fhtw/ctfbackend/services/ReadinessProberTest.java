@@ -0,0 +1,77 @@
+package at.fhtw.ctfbackend.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadinessProberTest {
+
+    private ServerSocket server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (server != null) server.close();
+    }
+
+    /**
+     * Accepts connections and answers with the banner from the given attempt on; earlier ones are closed silently
+     */
+    private int fakeSshd(int bannerFromAttempt) throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        AtomicInteger attempts = new AtomicInteger();
+        Thread t = new Thread(() -> {
+            while (!server.isClosed()) {
+                try (Socket s = server.accept()) {
+                    if (attempts.incrementAndGet() >= bannerFromAttempt) {
+                        OutputStream out = s.getOutputStream();
+                        out.write("SSH-2.0-OpenSSH_9.6\r\n".getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return server.getLocalPort();
+    }
+
+    @Test
+    void awaitSsh_ReturnsOnceBannerIsServed() throws Exception {
+        int port = fakeSshd(3);
+        ReadinessProber prober = new ReadinessProber("127.0.0.1", 5000);
+
+        long tookMs = prober.awaitSsh(port);
+
+        assertTrue(tookMs < 5000);
+    }
+
+    @Test
+    void awaitSsh_OpenPortWithoutBanner_TimesOut() throws Exception {
+        int port = fakeSshd(Integer.MAX_VALUE);
+        ReadinessProber prober = new ReadinessProber("127.0.0.1", 300);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> prober.awaitSsh(port));
+        assertTrue(e.getMessage().contains("not ready"));
+    }
+
+    @Test
+    void awaitSsh_ClosedPort_TimesOut() throws Exception {
+        int port;
+        try (ServerSocket free = new ServerSocket(0)) {
+            port = free.getLocalPort();
+        }
+        ReadinessProber prober = new ReadinessProber("127.0.0.1", 300);
+
+        assertThrows(RuntimeException.class, () -> prober.awaitSsh(port));
+    }
+}
@@ -0,0 +1,153 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.SolveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScoreboardServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Mock
+    private SolveRepository solveRepository;
+
+    private ScoreboardService scoreboard;
+
+    @BeforeEach
+    void setUp() {
+        scoreboard = new ScoreboardService(solveRepository);
+    }
+
+    private static Object[] row(String username, String challengeId, int points, int minute) {
+        return new Object[]{username, challengeId, points, T0.plusMinutes(minute)};
+    }
+
+    private List<String> board() {
+        return scoreboard.page(0, 10).stream().map(r -> r.standing().username()).toList();
+    }
+
+    @Test
+    void load_RanksByPointsThenEarliestLastSolve() {
+        when(solveRepository.findScoreRows()).thenReturn(List.<Object[]>of(
+                row("alice", "web-1", 100, 1),
+                row("bob", "web-1", 100, 2),
+                row("bob", "crypto-1", 50, 3),
+                row("carol", "crypto-1", 150, 1)));
+
+        scoreboard.load();
+
+        assertEquals(List.of("carol", "bob", "alice"), board());
+        ScoreboardService.Ranked bob = scoreboard.rankOf("bob").orElseThrow();
+        assertEquals(2, bob.rank());
+        assertEquals(150, bob.standing().points());
+        assertEquals(2, bob.standing().solveCount());
+        assertTrue(scoreboard.rankOf("dave").isEmpty());
+    }
+
+    @Test
+    void onSolveRecorded_MovesUserUpAndIgnoresRedelivery() {
+        when(solveRepository.findScoreRows()).thenReturn(List.<Object[]>of(row("alice", "web-1", 100, 1)));
+        scoreboard.load();
+
+        var solve = new OutboxDispatcher.SolveRecorded("bob", "web-2", 300, T0.plusMinutes(5), false);
+        scoreboard.onSolveRecorded(solve);
+        scoreboard.onSolveRecorded(solve);
+
+        assertEquals(List.of("bob", "alice"), board());
+        assertEquals(300, scoreboard.rankOf("bob").orElseThrow().standing().points());
+        assertEquals(2, scoreboard.userCount());
+    }
+
+    @Test
+    void onSolveRecorded_BeforeLoadIsReplayedOnTopOfIt() {
+        scoreboard.onSolveRecorded(new OutboxDispatcher.SolveRecorded("alice", "web-2", 200, T0.plusMinutes(9), false));
+        // The same solve may or may not be in the snapshot already
+        when(solveRepository.findScoreRows()).thenReturn(List.<Object[]>of(
+                row("alice", "web-1", 100, 1),
+                row("alice", "web-2", 200, 9)));
+
+        scoreboard.load();
+
+        assertEquals(300, scoreboard.rankOf("alice").orElseThrow().standing().points());
+    }
+
+    @Test
+    void page_ServesRanksAcrossPages() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            rows.add(row("user" + i, "web-1", i * 10, i));
+        }
+        when(solveRepository.findScoreRows()).thenReturn(rows);
+        scoreboard.load();
+
+        List<ScoreboardService.Ranked> second = scoreboard.page(1, 10);
+        assertEquals(10, second.size());
+        assertEquals(11, second.get(0).rank());
+        assertEquals("user14", second.get(0).standing().username());
+        assertEquals(5, scoreboard.page(2, 10).size());
+        assertEquals(List.of(), scoreboard.page(3, 10));
+        // page * size past Integer.MAX_VALUE, which used to wrap around to a real page
+        assertEquals(List.of(), scoreboard.page(429_496_730, 10));
+        assertEquals(25, scoreboard.rankOf("user0").orElseThrow().rank());
+    }
+
+    @Test
+    void timeline_SamplesTopUsersFromTheirFirstSolve() {
+        when(solveRepository.findScoreRows()).thenReturn(List.<Object[]>of(
+                row("alice", "web-1", 100, 0),
+                row("bob", "web-1", 100, 5),
+                row("alice", "crypto-1", 50, 10),
+                row("carol", "web-1", 10, 20)));
+        scoreboard.load();
+        scoreboard.onSolveRecorded(new OutboxDispatcher.SolveRecorded("bob", "crypto-1", 100, T0.plusMinutes(15), false));
+
+        ScoreboardService.Timeline timeline = scoreboard.timeline(2, 3);
+
+        assertEquals(3, timeline.at().size());
+        assertEquals(T0, timeline.at().get(0));
+        assertEquals(List.of("bob", "alice"), timeline.series().stream().map(ScoreboardService.TimelineSeries::username).toList());
+        assertArrayEquals(new int[]{0, 200, 200}, timeline.series().get(0).points());
+        assertArrayEquals(new int[]{100, 150, 150}, timeline.series().get(1).points());
+    }
+
+    @Test
+    void treap_MatchesSortedSetUnderRandomChanges() {
+        OrderStatisticTreap<Integer> treap = new OrderStatisticTreap<>(Comparator.naturalOrder());
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            int value = random.nextInt(500);
+            if (expected.contains(value)) {
+                assertTrue(treap.remove(value));
+                expected.remove(value);
+            } else {
+                treap.insert(value);
+                expected.add(value);
+            }
+        }
+
+        List<Integer> sorted = new ArrayList<>(expected);
+        assertEquals(sorted.size(), treap.size());
+        assertEquals(sorted, treap.range(0, sorted.size()));
+        assertEquals(sorted.subList(40, 60), treap.range(40, 20));
+        for (int i = 0; i < sorted.size(); i += 17) {
+            assertEquals(i, treap.rank(sorted.get(i)));
+        }
+        assertFalse(treap.remove(-1));
+    }
+}
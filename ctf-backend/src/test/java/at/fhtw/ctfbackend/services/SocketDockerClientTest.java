@@ -0,0 +1,242 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketDockerClientTest {
+
+    private FakeDockerDaemon daemon;
+    private DockerHttpClient http;
+    private SocketDockerClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        daemon = new FakeDockerDaemon();
+        daemon.images.add("ctf-web-101:latest");
+        http = new DockerHttpClient(daemon.address(), "v1.43", 4);
+        client = new SocketDockerClient(http);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        http.close();
+        daemon.close();
+    }
+
+    private DockerClient.ContainerSpec spec(String name) {
+        return new DockerClient.ContainerSpec(name, "ctf-web-101:latest", "ctf-isolated",
+                Map.of("FLAG", "FLAG{x}"), 30001, 22, 512L * 1024 * 1024, 1_000_000_000L,
+                Map.of("/tmp", "rw,noexec,nosuid,size=100m"),
+                Map.of("ctf.managed", "true", "ctf.instance", "inst-" + name, "ctf.challenge", "web-101"));
+    }
+
+    @Test
+    void runContainer_CreatesAndStartsWithLimitsAndPortBinding() {
+        client.runContainer(spec("ctf-abc12345"));
+
+        FakeDockerDaemon.Container container = daemon.containers.get("ctf-abc12345");
+        assertNotNull(container);
+        assertEquals("running", container.status);
+        assertEquals(536870912L, container.createBody.path("HostConfig").path("Memory").asLong());
+        assertEquals("30001", container.createBody.path("HostConfig").path("PortBindings")
+                .path("22/tcp").get(0).path("HostPort").asText());
+        assertEquals("FLAG=FLAG{x}", container.createBody.path("Env").get(0).asText());
+    }
+
+    @Test
+    void hostInfo_ReadsCpusAndMemoryFromDaemon() {
+        assertEquals(new DockerClient.HostInfo(8, 16L * 1024 * 1024 * 1024), client.hostInfo());
+    }
+
+    @Test
+    void runContainer_MissingImage_Throws() {
+        daemon.images.clear();
+        assertThrows(RuntimeException.class, () -> client.runContainer(spec("ctf-abc12345")));
+    }
+
+    @Test
+    void containerStatus_ReflectsLifecycle() {
+        assertFalse(client.containerExists("ctf-abc12345"));
+        assertEquals("unknown", client.getContainerStatus("ctf-abc12345"));
+
+        client.runContainer(spec("ctf-abc12345"));
+        assertTrue(client.containerExists("ctf-abc12345"));
+        assertEquals("running", client.getContainerStatus("ctf-abc12345"));
+
+        client.stopContainer("ctf-abc12345", 10);
+        assertEquals("exited", client.getContainerStatus("ctf-abc12345"));
+
+        client.removeContainer("ctf-abc12345");
+        assertFalse(client.containerExists("ctf-abc12345"));
+    }
+
+    @Test
+    void stopAndRemove_MissingContainer_IsNotAnError() {
+        assertDoesNotThrow(() -> client.stopContainer("ctf-gone", 10));
+        assertDoesNotThrow(() -> client.removeContainer("ctf-gone"));
+        assertDoesNotThrow(() -> client.killContainer("ctf-gone"));
+    }
+
+    @Test
+    void imageExists_UntaggedNameResolvesToLatestInOneRequest() {
+        assertTrue(client.imageExists("ctf-web-101"));
+        assertFalse(client.imageExists("ctf-other"));
+        assertEquals(2, daemon.requests.stream().filter(r -> r.startsWith("GET /images/")).count());
+    }
+
+    @Test
+    void exec_PassesEnvAndDemultiplexesOutput() {
+        client.runContainer(spec("ctf-abc12345"));
+
+        DockerClient.ExecResult result = client.exec("ctf-abc12345", "root",
+                Map.of("FLAG", "FLAG{injected}"), List.of("sh", "-c", "true"));
+
+        assertEquals(0, result.exitCode());
+        assertEquals("flag=FLAG{injected}\n", result.output());
+    }
+
+    @Test
+    void listContainerNames_ReturnsRunningContainers() {
+        client.runContainer(spec("ctf-abc12345"));
+        assertEquals(List.of("ctf-abc12345"), client.listContainerNames("ctf-"));
+    }
+
+    @Test
+    void listPublishedPorts_ReturnsHostPortsOfRunningContainers() {
+        client.runContainer(spec("ctf-abc12345"));
+        assertEquals(Set.of(30001), client.listPublishedPorts());
+
+        client.stopContainer("ctf-abc12345", 10);
+        assertEquals(Set.of(), client.listPublishedPorts());
+    }
+
+    @Test
+    void listContainersByLabel_ReturnsLabelledContainersWithStateAndPorts() {
+        client.runContainer(spec("ctf-abc12345"));
+        client.runContainer(spec("ctf-def67890"));
+        client.stopContainer("ctf-def67890", 10);
+        daemon.containers.put("unrelated", new FakeDockerDaemon.Container("unrelated",
+                new ObjectMapper().createObjectNode()));
+
+        List<DockerClient.ContainerInfo> containers = client.listContainersByLabel("ctf.managed=true");
+
+        assertEquals(2, containers.size());
+        DockerClient.ContainerInfo running = containers.stream()
+                .filter(c -> c.name().equals("ctf-abc12345")).findFirst().orElseThrow();
+        assertEquals("running", running.state());
+        assertEquals("inst-ctf-abc12345", running.labels().get("ctf.instance"));
+        assertEquals(Set.of(30001), running.publishedPorts());
+        assertTrue(containers.stream().anyMatch(c -> c.name().equals("ctf-def67890") && c.state().equals("exited")));
+        assertEquals(1, daemon.requests.stream().filter(r -> r.startsWith("GET /containers/json")).count());
+    }
+
+    @Test
+    void openContainerEvents_StreamsLifecycleEventsUntilClosed() throws Exception {
+        try (DockerClient.EventStream events = client.openContainerEvents("ctf.managed=true", 0)) {
+            while (!daemon.hasEventSubscriber()) Thread.sleep(5);
+
+            client.runContainer(spec("ctf-abc12345"));
+            client.killContainer("ctf-abc12345");
+
+            DockerClient.ContainerEvent started = events.next();
+            assertEquals("ctf-abc12345", started.name());
+            assertEquals("start", started.action());
+            assertEquals("inst-ctf-abc12345", started.attributes().get("ctf.instance"));
+
+            DockerClient.ContainerEvent died = events.next();
+            assertEquals("die", died.action());
+            assertEquals("137", died.attributes().get("exitCode"));
+            assertTrue(died.timeNanos() >= started.timeNanos());
+        }
+        // The stream had its own connection; the pool still works
+        assertFalse(client.listContainersByLabel("ctf.managed=true").isEmpty());
+    }
+
+    @Test
+    void pauseAndUnpause_FreezeAndThawRunningContainer() {
+        client.runContainer(spec("ctf-abc12345"));
+
+        client.pauseContainer("ctf-abc12345");
+        assertEquals("paused", client.getContainerStatus("ctf-abc12345"));
+        assertEquals(0.0, client.sampleStats(List.of("ctf-abc12345")).get("ctf-abc12345").cpuPercent());
+
+        client.unpauseContainer("ctf-abc12345");
+        assertEquals("running", client.getContainerStatus("ctf-abc12345"));
+        Map<String, DockerClient.ContainerStats> stats = client.sampleStats(List.of("ctf-abc12345", "ctf-gone"));
+        assertEquals(Set.of("ctf-abc12345"), stats.keySet());
+        assertEquals(25.0, stats.get("ctf-abc12345").cpuPercent(), 0.001);
+        assertEquals(6 * 1024 * 1024, stats.get("ctf-abc12345").memoryBytes()); // usage minus inactive_file
+        assertEquals(512L * 1024 * 1024, stats.get("ctf-abc12345").memoryLimitBytes());
+        assertEquals(1500, stats.get("ctf-abc12345").netRxBytes()); // summed over both networks
+        assertEquals(700, stats.get("ctf-abc12345").netTxBytes());
+
+        client.stopContainer("ctf-abc12345", 10);
+        assertThrows(RuntimeException.class, () -> client.pauseContainer("ctf-abc12345"));
+    }
+
+    @Test
+    void sampleStats_SamplesContainersSideBySideWithinTheirDeadline() {
+        List<String> names = List.of("ctf-s1", "ctf-s2", "ctf-s3", "ctf-s4", "ctf-s5", "ctf-s6", "ctf-s7", "ctf-s8");
+        names.forEach(name -> client.runContainer(spec(name)));
+        daemon.statsDelayMs = 300;
+
+        long started = System.nanoTime();
+        assertEquals(Set.copyOf(names), client.sampleStats(names).keySet());
+        // One after another would take 2.4s
+        assertTrue(System.nanoTime() - started < 1_500_000_000L);
+
+        // A daemon that stops answering costs one deadline, not one per container
+        daemon.statsDelayMs = 10_000;
+        SocketDockerClient impatient = new SocketDockerClient(http, 60_000, 8, 200);
+        try {
+            started = System.nanoTime();
+            assertTrue(impatient.sampleStats(names).isEmpty());
+            assertTrue(System.nanoTime() - started < 3_000_000_000L);
+        } finally {
+            impatient.close();
+        }
+    }
+
+    @Test
+    void sequentialCalls_ReuseOnePooledConnection() {
+        for (int i = 0; i < 20; i++) {
+            client.containerExists("ctf-abc12345");
+        }
+        client.runContainer(spec("ctf-abc12345"));
+        client.getContainerStatus("ctf-abc12345");
+
+        assertEquals(1, daemon.connections.get());
+    }
+
+    @Test
+    void lostResponse_PostIsNotSentTwice() {
+        client.containerExists("ctf-abc12345"); // leaves a pooled connection to reuse
+        daemon.unanswered.add("POST /containers/ctf-abc12345/kill");
+
+        assertThrows(RuntimeException.class, () -> client.killContainer("ctf-abc12345"));
+
+        assertEquals(1, daemon.requests.stream().filter("POST /containers/ctf-abc12345/kill"::equals).count());
+    }
+
+    @Test
+    void stalledDaemon_CallEndsAtTheReadDeadline() throws Exception {
+        client.runContainer(spec("ctf-abc12345"));
+        daemon.statsDelayMs = 10_000;
+
+        try (DockerHttpClient impatient = new DockerHttpClient(daemon.address(), "v1.43", 4, 1_000, 200)) {
+            long started = System.nanoTime();
+            assertThrows(SocketTimeoutException.class,
+                    () -> impatient.get("/containers/ctf-abc12345/stats?stream=false"));
+            assertTrue(System.nanoTime() - started < 5_000_000_000L);
+        }
+    }
+}
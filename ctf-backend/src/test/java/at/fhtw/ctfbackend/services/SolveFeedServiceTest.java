@@ -0,0 +1,101 @@
+package at.fhtw.ctfbackend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SolveFeedServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 17, 12, 0);
+
+    @Mock
+    private ScoreboardService scoreboard;
+
+    private SolveFeedService feed;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        feed = new SolveFeedService(scoreboard, objectMapper, 60_000, 1, 10, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+    }
+
+    private static OutboxDispatcher.SolveRecorded solve(String challengeId) {
+        return new OutboxDispatcher.SolveRecorded("alice", challengeId, 100, T0, true);
+    }
+
+    @Test
+    void broadcast_SendsSolveWithNewRank() throws Exception {
+        when(scoreboard.rankOf("alice")).thenReturn(Optional.of(new ScoreboardService.Ranked(3,
+                new ScoreboardService.Standing("alice", 250, 2, T0))));
+        SseEmitter emitter = mock(SseEmitter.class);
+        feed.subscribe(emitter);
+
+        feed.broadcast(solve("web-1"));
+
+        ArgumentCaptor<SseEmitter.SseEventBuilder> sent = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+        verify(emitter, timeout(1000)).send(sent.capture());
+        String body = sent.getValue().build().stream()
+                .map(d -> String.valueOf(d.getData()))
+                .collect(Collectors.joining());
+        assertTrue(body.contains("event:solve"), body);
+        assertTrue(body.contains("\"challengeId\":\"web-1\""), body);
+        assertTrue(body.contains("\"firstBlood\":true"), body);
+        assertTrue(body.contains("\"rank\":3"), body);
+        assertTrue(body.contains("\"totalPoints\":250"), body);
+    }
+
+    @Test
+    void broadcast_DisconnectsSubscriberWhoseBufferIsFull() throws Exception {
+        when(scoreboard.rankOf("alice")).thenReturn(Optional.empty());
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SseEmitter slow = mock(SseEmitter.class);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(slow).send(any(SseEmitter.SseEventBuilder.class));
+        feed.subscribe(slow);
+
+        feed.broadcast(solve("web-1"));
+        assertTrue(sending.await(1, TimeUnit.SECONDS));
+        feed.broadcast(solve("web-2")); // fills the buffer of one
+        feed.broadcast(solve("web-3")); // overflows it
+
+        verify(slow).complete();
+        assertEquals(0, feed.subscriberCount());
+        release.countDown();
+    }
+
+    @Test
+    void onSolveRecorded_SkipsWorkWithoutSubscribers() {
+        feed.onSolveRecorded(solve("web-1"));
+
+        verifyNoInteractions(scoreboard);
+    }
+}
@@ -0,0 +1,137 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.dto.SolveResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SolveListingServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SolveListingService listing;
+
+    @BeforeEach
+    void setUp() {
+        listing = new SolveListingService(jdbc, dataSource, transactionManager, new ObjectMapper(), 500, 30_000);
+    }
+
+    private static SolveResponse solve(long id, int minutes) {
+        return new SolveResponse(id, "user" + id, "web-1", "XSS 101", T0.plusMinutes(minutes), 100);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void returnRows(SolveResponse... rows) {
+        when(jdbc.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+                .thenReturn(List.of(rows));
+    }
+
+    @Test
+    void page_FetchesOneExtraRowToFindTheNextCursor() {
+        returnRows(solve(1, 0), solve(2, 1), solve(3, 2));
+
+        SolveListingService.SolvePage page = listing.page(SolveListingService.Filter.category("web"), null, 2);
+
+        assertEquals(List.of(1L, 2L), page.items().stream().map(SolveResponse::getId).toList());
+        assertEquals(new SolveListingService.Cursor(T0.plusMinutes(1), 2),
+                SolveListingService.decodeCursor(page.nextCursor()));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbc).query(sql.capture(), params.capture(), any(RowMapper.class));
+        assertFalse(sql.getValue().contains("(s.solved_at, s.id) >"));
+        assertTrue(sql.getValue().contains("ORDER BY s.solved_at, s.id LIMIT :limit"));
+        assertEquals(3, params.getValue().getValue("limit"));
+        assertEquals("web", params.getValue().getValue("category"));
+    }
+
+    @Test
+    void page_ContinuesAfterTheCursorAndEndsWithoutOne() {
+        returnRows(solve(3, 2));
+        String cursor = SolveListingService.encodeCursor(new SolveListingService.Cursor(T0.plusMinutes(1), 2));
+
+        SolveListingService.SolvePage page = listing.page(SolveListingService.Filter.challenge("web-1"), cursor, 2);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbc).query(sql.capture(), params.capture(), any(RowMapper.class));
+        assertTrue(sql.getValue().contains("(s.solved_at, s.id) > (:afterSolvedAt, :afterId)"));
+        assertEquals(T0.plusMinutes(1), params.getValue().getValue("afterSolvedAt"));
+        assertEquals(2L, params.getValue().getValue("afterId"));
+    }
+
+    @Test
+    void page_RejectsForeignCursors() {
+        SolveListingService.Filter filter = SolveListingService.Filter.difficulty("easy");
+
+        assertThrows(IllegalArgumentException.class, () -> listing.page(filter, "not a cursor", 10));
+        assertThrows(IllegalArgumentException.class, () -> listing.page(filter, "bm8tY29tbWE", 10));
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void stream_GivesUpAtTheDeadlineInsteadOfHoldingTheConnection() throws Exception {
+        SolveListingService bounded = new SolveListingService(jdbc, dataSource, transactionManager,
+                new ObjectMapper(), 500, 50);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rows = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rows);
+        // A listing far bigger than can be written in time
+        when(rows.next()).thenAnswer(inv -> {
+            Thread.sleep(1);
+            return true;
+        });
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        assertThrows(QueryTimeoutException.class,
+                () -> bounded.stream(SolveListingService.Filter.challenge("web-1"), body));
+
+        // Cut off, so it must not parse as a (shorter) complete listing
+        assertTrue(body.toString().startsWith("[{"));
+        assertThrows(JsonProcessingException.class, () -> new ObjectMapper().readTree(body.toString()));
+
+        verify(rows).close();
+        verify(connection).close();
+        ArgumentCaptor<TransactionDefinition> tx = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(tx.capture());
+        assertEquals(1, tx.getValue().getTimeout());
+        assertTrue(tx.getValue().isReadOnly());
+    }
+}
@@ -0,0 +1,66 @@
+package at.fhtw.ctfbackend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SolveSubmissionServiceTest {
+
+    @Mock
+    private NamedParameterJdbcTemplate jdbc;
+
+    private SolveSubmissionService submissions;
+
+    @BeforeEach
+    void setUp() {
+        submissions = new SolveSubmissionService(jdbc);
+    }
+
+    @Test
+    void recordSolveSql_PenaltyMatchesHintService() {
+        assertTrue(SolveSubmissionService.RECORD_SOLVE_SQL.contains("CASE hint_index WHEN 0 THEN 10 WHEN 1 THEN 20 WHEN 2 THEN 25 ELSE 0 END"));
+        assertTrue(SolveSubmissionService.RECORD_SOLVE_SQL.contains("ON CONFLICT (username, challenge_id) DO NOTHING"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordSolve_NewSolveReturnsPointsAndCountFromTheSameStatement() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt("points_earned")).thenReturn(90);
+        when(rs.getLong("solve_count")).thenReturn(7L);
+        when(jdbc.query(eq(SolveSubmissionService.RECORD_SOLVE_SQL), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(inv -> List.of(inv.getArgument(2, RowMapper.class).mapRow(rs, 0)));
+
+        Optional<SolveSubmissionService.RecordedSolve> recorded = submissions.recordSolve("alice", "web-1");
+
+        assertEquals(Optional.of(new SolveSubmissionService.RecordedSolve(90, 7)), recorded);
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbc, times(1)).query(anyString(), params.capture(), any(RowMapper.class));
+        assertEquals("alice", params.getValue().getValue("username"));
+        assertEquals("web-1", params.getValue().getValue("challengeId"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordSolve_ConflictMeansAlreadySolved() {
+        when(jdbc.query(anyString(), any(SqlParameterSource.class), any(RowMapper.class))).thenReturn(List.of());
+
+        assertTrue(submissions.recordSolve("alice", "web-1").isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.SolveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SolvedStateCacheTest {
+
+    @Mock
+    private SolveRepository solveRepository;
+
+    private SolvedStateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SolvedStateCache(solveRepository, 2);
+    }
+
+    @Test
+    void isSolved_LoadsUserOnceAndFollowsSolvesAndDeletes() {
+        when(solveRepository.findChallengeIdsByUsername("alice")).thenReturn(List.of("web-1"));
+
+        assertTrue(cache.isSolved("alice", "web-1"));
+        assertFalse(cache.isSolved("alice", "crypto-1"));
+
+        cache.markSolved("alice", "crypto-1");
+        assertTrue(cache.isSolved("alice", "crypto-1"));
+        cache.unmarkSolved("alice", "web-1");
+        assertFalse(cache.isSolved("alice", "web-1"));
+
+        verify(solveRepository, times(1)).findChallengeIdsByUsername("alice");
+    }
+
+    @Test
+    void markSolved_IgnoresUsersNotLoadedYet() {
+        cache.markSolved("bob", "web-1");
+
+        assertEquals(0, cache.size());
+        verifyNoInteractions(solveRepository);
+    }
+
+    @Test
+    void solvedBy_EvictsLeastRecentlyUsedUser() {
+        when(solveRepository.findChallengeIdsByUsername(anyString())).thenReturn(List.of());
+
+        cache.solvedBy("alice");
+        cache.solvedBy("bob");
+        cache.solvedBy("alice");
+        cache.solvedBy("carol");
+
+        assertEquals(2, cache.size());
+        cache.solvedBy("alice");
+        cache.solvedBy("bob");
+        verify(solveRepository, times(1)).findChallengeIdsByUsername("alice");
+        verify(solveRepository, times(2)).findChallengeIdsByUsername("bob");
+    }
+}
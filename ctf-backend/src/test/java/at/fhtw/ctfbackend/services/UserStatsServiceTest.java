@@ -0,0 +1,96 @@
+package at.fhtw.ctfbackend.services;
+
+import at.fhtw.ctfbackend.repository.SolveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserStatsServiceTest {
+
+    @Mock
+    private SolveRepository solveRepository;
+
+    @Mock
+    private UserService userService;
+
+    private UserStatsService userStats;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(userService.normalizeUsername(anyString())).thenAnswer(inv -> inv.getArgument(0));
+        userStats = new UserStatsService(solveRepository, userService, 100);
+    }
+
+    @Test
+    void getStatistics_SumsDistributionsFromGroupedRows() {
+        when(solveRepository.findSolveDistributionByUsername("alice")).thenReturn(List.<Object[]>of(
+                new Object[]{"web", "easy", 2L, 150L},
+                new Object[]{"web", "hard", 1L, 300L},
+                new Object[]{"crypto", "easy", 1L, 50L},
+                new Object[]{null, null, 1L, 10L}));
+
+        UserStatsService.UserStatistics stats = userStats.getStatistics("alice");
+
+        assertEquals(5, stats.totalSolves());
+        assertEquals(510, stats.totalPoints());
+        assertEquals(Map.of("web", 3L, "crypto", 1L, "unknown", 1L), stats.categoryDistribution());
+        assertEquals(Map.of("easy", 3L, "hard", 1L, "unknown", 1L), stats.difficultyDistribution());
+        assertEquals(450L, stats.categoryPoints().get("web"));
+    }
+
+    @Test
+    void getStatistics_CachedUntilInvalidated() {
+        when(solveRepository.findSolveDistributionByUsername("alice"))
+                .thenReturn(List.<Object[]>of(new Object[]{null, null, 0L, 0L}))
+                .thenReturn(List.<Object[]>of(new Object[]{"web", "easy", 1L, 100L}));
+
+        assertEquals(0, userStats.getStatistics("alice").totalSolves());
+        assertEquals(0, userStats.getStatistics("alice").totalSolves());
+        verify(solveRepository, times(1)).findSolveDistributionByUsername("alice");
+
+        userStats.invalidate("alice");
+
+        assertEquals(1, userStats.getStatistics("alice").totalSolves());
+        verify(solveRepository, times(2)).findSolveDistributionByUsername("alice");
+    }
+
+    @Test
+    void getStatistics_UnknownUserThrowsAndIsNotCached() {
+        when(solveRepository.findSolveDistributionByUsername("ghost")).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> userStats.getStatistics("ghost"));
+        assertEquals(0, userStats.size());
+    }
+
+    @Test
+    void getStatistics_OnlyInvalidatingTheSameUserKeepsALoadOutOfTheCache() {
+        Object[] row = {"web", "easy", 1L, 100L};
+        when(solveRepository.findSolveDistributionByUsername("alice")).thenAnswer(inv -> {
+            userStats.invalidate("bob"); // another user's solve lands mid-load
+            return List.<Object[]>of(row);
+        });
+        when(solveRepository.findSolveDistributionByUsername("carol")).thenAnswer(inv -> {
+            userStats.invalidate("carol");
+            return List.<Object[]>of(row);
+        });
+
+        userStats.getStatistics("alice");
+        userStats.getStatistics("alice");
+        userStats.getStatistics("carol");
+        userStats.getStatistics("carol");
+
+        verify(solveRepository, times(1)).findSolveDistributionByUsername("alice");
+        verify(solveRepository, times(2)).findSolveDistributionByUsername("carol");
+        assertEquals(1, userStats.size());
+    }
+}
@@ -6,13 +6,17 @@ import { WebLinksAddon } from "@xterm/addon-web-links";
 import "xterm/css/xterm.css";
 import { X, Copy, Clipboard } from "lucide-react";
 import { useToast } from "@/hooks/use-toast";
-interface KaliTerminalProps {
+export interface KaliTerminalProps {
     instanceId?: string;
     sshPort?: number;
+    // Worker host of the instance; the gateway connects to localhost without it
+    sshHost?: string;
     containerName?: string;
+    // Backend already verified SSH, the gateway can skip its own wait
+    ready?: boolean;
     onClose: () => void;
 }
-export default function KaliTerminal({ instanceId, sshPort, containerName, onClose }: KaliTerminalProps) {
+export default function KaliTerminal({ instanceId, sshPort, sshHost, containerName, ready, onClose }: KaliTerminalProps) {
     const terminalRef = useRef<HTMLDivElement>(null);
     const wsRef = useRef<WebSocket | null>(null);
     const terminalInstanceRef = useRef<Terminal | null>(null);
@@ -134,7 +138,7 @@ export default function KaliTerminal({ instanceId, sshPort, containerName, onClo
                 term.focus();
             }, 100);
             const terminalUrl = process.env.NEXT_PUBLIC_TERMINAL_URL || "ws://localhost:3001";
-            const wsUrl = `${terminalUrl}/?instanceId=${instanceId}&containerName=${containerName || `ctf-${instanceId.substring(0, 8)}`}&sshPort=${sshPort}`;
+            const wsUrl = `${terminalUrl}/?instanceId=${instanceId}&containerName=${containerName || `ctf-${instanceId.substring(0, 8)}`}&sshPort=${sshPort}${sshHost ? `&sshHost=${encodeURIComponent(sshHost)}` : ""}${ready ? "&ready=1" : ""}`;
             const ws = new WebSocket(wsUrl);
             ws.binaryType = 'arraybuffer';
             wsRef.current = ws;
@@ -190,7 +194,7 @@ export default function KaliTerminal({ instanceId, sshPort, containerName, onClo
             console.error("Terminal init error:", error);
             setConnectionStatus("error");
         }
-    }, [instanceId, sshPort, containerName]);
+    }, [instanceId, sshPort, sshHost, containerName]);
     useEffect(() => {
         const handleResize = () => {
             try {
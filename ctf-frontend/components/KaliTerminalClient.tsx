@@ -2,13 +2,8 @@
 
 import dynamic from 'next/dynamic';
 import { ComponentType } from 'react';
-
-interface KaliTerminalProps {
-    instanceId?: string;
-    sshPort?: number;
-    containerName?: string;
-    onClose: () => void;
-}
+// Type-only: erased at build time, so the terminal itself still loads only on the client
+import type { KaliTerminalProps } from './KaliTerminal';
 
 // Dynamically import with no SSR
 const KaliTerminal = dynamic<KaliTerminalProps>(
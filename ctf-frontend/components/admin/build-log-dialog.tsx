@@ -0,0 +1,111 @@
+"use client"
+
+import { useEffect, useRef, useState } from "react"
+import { Dialog, DialogContent, DialogHeader, DialogTitle } from "@/components/ui/dialog"
+import { Button } from "@/components/ui/button"
+import { Badge } from "@/components/ui/badge"
+import { Loader2, RefreshCw } from "lucide-react"
+import type { Challenge } from "@/lib/types"
+import {
+  getImageBuildInfo,
+  openBuildLogStream,
+  rebuildChallengeImage,
+  type ImageBuildInfo,
+} from "@/lib/api/challenges"
+
+interface BuildLogDialogProps {
+  challenge: Challenge
+  isOpen: boolean
+  onClose: () => void
+}
+
+const MAX_LINES = 1000
+
+export default function BuildLogDialog({ challenge, isOpen, onClose }: BuildLogDialogProps) {
+  const [info, setInfo] = useState<ImageBuildInfo | null>(null)
+  const [lines, setLines] = useState<string[]>([])
+  const [isQueueing, setIsQueueing] = useState(false)
+  const logRef = useRef<HTMLPreElement>(null)
+
+  useEffect(() => {
+    if (!isOpen) return
+
+    getImageBuildInfo(challenge.id).then(setInfo).catch(() => setInfo(null))
+
+    const source = openBuildLogStream(challenge.id)
+    source.addEventListener("start", () => {
+      setLines([])
+      setInfo((prev) => (prev ? { ...prev, status: "BUILDING", error: null } : prev))
+    })
+    source.addEventListener("line", (e) => {
+      const { line } = JSON.parse((e as MessageEvent).data)
+      setLines((prev) => [...prev.slice(-(MAX_LINES - 1)), line])
+    })
+    source.addEventListener("result", () => {
+      getImageBuildInfo(challenge.id).then(setInfo).catch(() => {})
+    })
+
+    return () => source.close()
+  }, [isOpen, challenge.id])
+
+  useEffect(() => {
+    logRef.current?.scrollTo({ top: logRef.current.scrollHeight })
+  }, [lines])
+
+  const handleRebuild = async () => {
+    setIsQueueing(true)
+    try {
+      await rebuildChallengeImage(challenge.id)
+      setInfo((prev) => (prev ? { ...prev, status: "QUEUED" } : prev))
+    } finally {
+      setIsQueueing(false)
+    }
+  }
+
+  const statusVariant: Record<string, "default" | "secondary" | "destructive" | "outline"> = {
+    READY: "default",
+    QUEUED: "secondary",
+    BUILDING: "secondary",
+    FAILED: "destructive",
+  }
+
+  return (
+    <Dialog open={isOpen} onOpenChange={(open) => !open && onClose()}>
+      <DialogContent className="max-w-3xl">
+        <DialogHeader>
+          <DialogTitle>Image build: {challenge.title}</DialogTitle>
+        </DialogHeader>
+
+        <div className="flex flex-wrap items-center gap-3 text-sm">
+          <Badge variant={statusVariant[info?.status ?? ""] ?? "outline"}>
+            {info?.status ?? "NOT BUILT"}
+          </Badge>
+          {info?.imageTag && <code className="text-muted-foreground">{info.imageTag}</code>}
+          {info?.durationMs != null && <span>{(info.durationMs / 1000).toFixed(1)} s</span>}
+          {info?.sizeBytes != null && <span>{(info.sizeBytes / 1024 / 1024).toFixed(1)} MB</span>}
+          <Button
+            variant="outline"
+            size="sm"
+            className="ml-auto"
+            onClick={handleRebuild}
+            disabled={isQueueing || info?.status === "QUEUED" || info?.status === "BUILDING"}
+          >
+            {isQueueing ? <Loader2 className="h-4 w-4 mr-2 animate-spin" /> : <RefreshCw className="h-4 w-4 mr-2" />}
+            Rebuild
+          </Button>
+        </div>
+
+        {info?.status === "FAILED" && info.error && lines.length === 0 && (
+          <p className="text-sm text-destructive whitespace-pre-wrap">{info.error}</p>
+        )}
+
+        <pre
+          ref={logRef}
+          className="h-96 overflow-auto rounded-md bg-muted p-3 text-xs font-mono whitespace-pre-wrap"
+        >
+          {lines.length > 0 ? lines.join("\n") : "No build output yet."}
+        </pre>
+      </DialogContent>
+    </Dialog>
+  )
+}
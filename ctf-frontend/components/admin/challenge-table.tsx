@@ -31,10 +31,12 @@ import {
   Trash2, 
   MoreVertical,
   Loader2,
-  Zap
+  Zap,
+  Hammer
 } from "lucide-react"
 import type { Challenge } from "@/lib/types"
 import EditChallengeModal from "./edit-challenge-modal"
+import BuildLogDialog from "./build-log-dialog"
 import { deleteChallenge } from "@/lib/api/challenges"
 import { useToast } from "@/hooks/use-toast"
 
@@ -44,6 +46,7 @@ interface ChallengeTableProps {
 
 export default function ChallengeTable({ challenges }: ChallengeTableProps) {
   const [editingChallenge, setEditingChallenge] = useState<Challenge | null>(null)
+  const [buildLogChallenge, setBuildLogChallenge] = useState<Challenge | null>(null)
   const [deleteTarget, setDeleteTarget] = useState<Challenge | null>(null)
   const [isDeleteLoading, setIsDeleteLoading] = useState(false)
   const { toast } = useToast()
@@ -170,6 +173,15 @@ export default function ChallengeTable({ challenges }: ChallengeTableProps) {
                           <Edit className="h-4 w-4 mr-2" />
                           Edit Challenge
                         </DropdownMenuItem>
+                        {challenge.requiresInstance && (
+                          <DropdownMenuItem
+                            onClick={() => setBuildLogChallenge(challenge)}
+                            className="cursor-pointer"
+                          >
+                            <Hammer className="h-4 w-4 mr-2" />
+                            Image Build
+                          </DropdownMenuItem>
+                        )}
                         <DropdownMenuItem
                           onClick={() => setDeleteTarget(challenge)}
                           className="cursor-pointer text-destructive focus:text-destructive-foreground focus:bg-destructive"
@@ -221,6 +233,14 @@ export default function ChallengeTable({ challenges }: ChallengeTableProps) {
         </AlertDialogContent>
       </AlertDialog>
 
+      {buildLogChallenge && (
+        <BuildLogDialog
+          challenge={buildLogChallenge}
+          isOpen={!!buildLogChallenge}
+          onClose={() => setBuildLogChallenge(null)}
+        />
+      )}
+
       {editingChallenge && (
         <EditChallengeModal
           challenge={editingChallenge}
@@ -165,8 +165,9 @@ export default function ChallengeDetail({ challenge, solveStats = null, setSolve
         if (environment && showTerminal && environment.status === "RUNNING") {
             intervalId = setInterval(async () => {
                 try {
+                    // touch=false: a background poll must not keep an idle instance awake
                     const res = await apiClient.get<EnvironmentInstance>(
-                        `/api/environment/instance/${environment.instanceId}`
+                        `/api/environment/instance/${environment.instanceId}?touch=false`
                     );
                     setEnvironment(res);
 
@@ -189,6 +190,56 @@ export default function ChallengeDetail({ challenge, solveStats = null, setSolve
         };
     }, [environment, showTerminal]);
 
+    const provisioningMessages: Record<string, string> = {
+        QUEUED: "Waiting for a free build slot...",
+        BUILDING: "Building challenge image...",
+        STARTING: "Starting container...",
+    };
+
+    function waitForInstance(instanceId: string): Promise<EnvironmentInstance> {
+        return new Promise((resolve, reject) => {
+            const source = new EventSource(
+                `${process.env.NEXT_PUBLIC_API_URL || ""}/api/environment/instance/${instanceId}/events`,
+                { withCredentials: true }
+            );
+
+            const finish = async () => {
+                source.close();
+                try {
+                    const res = await apiClient.get<EnvironmentInstance>(
+                        `/api/environment/instance/${instanceId}`
+                    );
+                    if (res.status === "RUNNING") resolve(res);
+                    else reject(new Error(res.message || `Environment ${res.status.toLowerCase()}`));
+                } catch (error) {
+                    reject(error);
+                }
+            };
+
+            source.addEventListener("progress", (e) => {
+                const event = JSON.parse((e as MessageEvent).data);
+                if (event.phase === "READY" || event.phase === "FAILED" || !event.phase) {
+                    if (event.phase === "FAILED") {
+                        source.close();
+                        reject(new Error(event.message || "Provisioning failed"));
+                    } else {
+                        finish();
+                    }
+                } else if (event.phase === "QUEUED" && event.message) {
+                    // Admission queue: the backend reports position and estimated wait
+                    setResult({ status: "info", message: event.message });
+                } else if (provisioningMessages[event.phase]) {
+                    setResult({ status: "info", message: provisioningMessages[event.phase] });
+                }
+            });
+
+            // Stream dropped (proxy timeout etc.): fall back to the current instance state
+            source.onerror = () => {
+                if (source.readyState === EventSource.CLOSED) finish();
+            };
+        });
+    }
+
     async function handleLaunchTerminal() {
         if (environment) {
             setShowTerminal(true);
@@ -199,11 +250,16 @@ export default function ChallengeDetail({ challenge, solveStats = null, setSolve
         setResult(null);
 
         try {
-            const res = await apiClient.post<EnvironmentInstance>(
+            let res = await apiClient.post<EnvironmentInstance>(
                 `/api/environment/build/${challenge.id}`,
                 {}
             );
 
+            // The backend provisions in the background; follow its progress until the container is up
+            if (res.status === "PROVISIONING") {
+                res = await waitForInstance(res.instanceId);
+            }
+
             setEnvironment(res);
             setShowTerminal(true);
 
@@ -814,7 +870,9 @@ export default function ChallengeDetail({ challenge, solveStats = null, setSolve
                 <KaliTerminal
                     instanceId={environment.instanceId}
                     sshPort={environment.sshPort}
+                    sshHost={environment.sshHost || undefined}
                     containerName={environment.containerName || ""}
+                    ready={!!environment.readyAt}
                     onClose={() => setShowTerminal(false)}
                 />
             )}
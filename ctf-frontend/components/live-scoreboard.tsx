@@ -0,0 +1,106 @@
+"use client"
+
+import { useEffect, useRef, useState } from "react"
+import { Trophy, Medal, Award } from "lucide-react"
+import { openSolveFeed, type SolveFeedEvent } from "@/lib/api/solves"
+import type { ScoreboardEntry } from "@/lib/types"
+
+interface LiveScoreboardProps {
+  initial: ScoreboardEntry[]
+}
+
+// Applies one solve to the list; ties keep whoever got there first ahead, like the backend ranking
+function applySolve(entries: ScoreboardEntry[], solve: SolveFeedEvent, size: number): ScoreboardEntry[] {
+  if (solve.totalPoints === null) return entries
+  const existing = entries.find((e) => e.username === solve.username)
+  const updated: ScoreboardEntry = existing
+    ? { ...existing, score: solve.totalPoints, solvedChallenges: existing.solvedChallenges + 1 }
+    : { id: solve.username, username: solve.username, score: solve.totalPoints, solvedChallenges: 1 }
+  const others = entries.filter((e) => e.username !== solve.username)
+  const at = others.findIndex((e) => e.score < updated.score)
+  const next = at === -1 ? [...others, updated] : [...others.slice(0, at), updated, ...others.slice(at)]
+  return next.slice(0, size)
+}
+
+export default function LiveScoreboard({ initial }: LiveScoreboardProps) {
+  const [scoreboard, setScoreboard] = useState(initial)
+  // The feed is at-least-once
+  const seen = useRef(new Set<string>())
+
+  useEffect(() => {
+    const size = Math.max(initial.length, 50)
+    const source = openSolveFeed()
+    source.addEventListener("solve", (e) => {
+      const solve: SolveFeedEvent = JSON.parse((e as MessageEvent).data)
+      const key = `${solve.username}/${solve.challengeId}`
+      if (seen.current.has(key)) return
+      seen.current.add(key)
+      setScoreboard((prev) => applySolve(prev, solve, size))
+    })
+    return () => source.close()
+  }, [initial.length])
+
+  return (
+    <>
+      {/* Top 3 Podium */}
+      <div className="grid grid-cols-1 md:grid-cols-3 gap-6 mb-12">
+        {scoreboard.slice(0, 3).map((user, index) => (
+          <div
+            key={user.username}
+            className={`bg-card p-6 rounded-lg border-2 ${
+              index === 0
+                ? "border-yellow-500 md:order-2"
+                : index === 1
+                  ? "border-gray-400 md:order-1"
+                  : "border-orange-600 md:order-3"
+            }`}
+          >
+            <div className="text-center">
+              <div className="mb-4">
+                {index === 0 && <Trophy className="w-16 h-16 mx-auto text-yellow-500" />}
+                {index === 1 && <Medal className="w-16 h-16 mx-auto text-gray-400" />}
+                {index === 2 && <Award className="w-16 h-16 mx-auto text-orange-600" />}
+              </div>
+              <div className="text-3xl font-bold mb-2">#{index + 1}</div>
+              <div className="text-xl font-semibold mb-1">{user.username}</div>
+              <div className="text-2xl font-bold text-primary">{user.score} pts</div>
+              <div className="text-sm text-muted-foreground mt-2">{user.solvedChallenges} challenges solved</div>
+            </div>
+          </div>
+        ))}
+      </div>
+
+      {/* Full Leaderboard */}
+      <div className="bg-card rounded-lg border border-border overflow-hidden">
+        <div className="overflow-x-auto">
+          <table className="w-full">
+            <thead className="bg-muted">
+              <tr>
+                <th className="px-6 py-4 text-left text-sm font-semibold">Rank</th>
+                <th className="px-6 py-4 text-left text-sm font-semibold">Username</th>
+                <th className="px-6 py-4 text-right text-sm font-semibold">Score</th>
+                <th className="px-6 py-4 text-right text-sm font-semibold">Solved</th>
+              </tr>
+            </thead>
+            <tbody className="divide-y divide-border">
+              {scoreboard.map((user, index) => (
+                <tr key={user.username} className="hover:bg-muted/50 transition-colors">
+                  <td className="px-6 py-4 text-sm font-medium">
+                    {index < 3 ? (
+                      <span className="text-primary">#{index + 1}</span>
+                    ) : (
+                      <span className="text-muted-foreground">#{index + 1}</span>
+                    )}
+                  </td>
+                  <td className="px-6 py-4 text-sm font-medium">{user.username}</td>
+                  <td className="px-6 py-4 text-sm font-bold text-primary text-right">{user.score}</td>
+                  <td className="px-6 py-4 text-sm text-muted-foreground text-right">{user.solvedChallenges}</td>
+                </tr>
+              ))}
+            </tbody>
+          </table>
+        </div>
+      </div>
+    </>
+  )
+}
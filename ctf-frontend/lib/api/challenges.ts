@@ -150,3 +150,30 @@ export async function downloadChallengeFile(id: string): Promise<Blob> {
     throw error;
   }
 }
+
+export interface ImageBuildInfo {
+  challengeId: string;
+  requiresInstance: boolean;
+  status: "QUEUED" | "BUILDING" | "READY" | "FAILED" | null;
+  imageTag: string | null;
+  durationMs: number | null;
+  sizeBytes: number | null;
+  builtAt: string | null;
+  error: string | null;
+}
+
+export async function getImageBuildInfo(id: string): Promise<ImageBuildInfo> {
+  return await apiClient.get<ImageBuildInfo>(`/api/challenges/admin/${id}/image`);
+}
+
+export async function rebuildChallengeImage(id: string): Promise<void> {
+  await apiClient.post(`/api/challenges/admin/${id}/image/build`, {});
+}
+
+// Server-Sent Events: "start", "line" and "result" (see BuildLogService)
+export function openBuildLogStream(id: string): EventSource {
+  return new EventSource(
+    `${process.env.NEXT_PUBLIC_API_URL || ""}/api/challenges/admin/${id}/image/logs`,
+    { withCredentials: true },
+  );
+}
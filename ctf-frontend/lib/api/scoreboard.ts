@@ -2,41 +2,56 @@
 // Using real API calls to the backend
 
 import type { ScoreboardEntry } from "@/lib/types"
-import { getTopSolvers } from "./solves"
-import { getUserStatistics } from "./solves"
-import { getUserInfo } from "./auth"
+import { apiClient } from "./client"
+
+interface ScoreboardPage {
+  entries: { rank: number; username: string; points: number; solveCount: number; lastSolveAt: string | null }[]
+  page: number
+  size: number
+  totalUsers: number
+}
 
 /**
  * Get scoreboard data from the backend
- * Uses solve count as the primary ranking metric
+ * Ranked by points (after hint penalties); ties go to whoever reached the score first
  */
-export async function getScoreboard(): Promise<ScoreboardEntry[]> {
+export async function getScoreboard(page: number = 0, size: number = 50): Promise<ScoreboardEntry[]> {
   try {
-    // Get top solvers from the backend
-    const topSolversResponse = await getTopSolvers(50) // Get top 50 solvers
-    
-    if (!topSolversResponse.success || !topSolversResponse.data) {
-      throw new Error('Failed to fetch scoreboard data')
-    }
-    
-    // Convert the data to ScoreboardEntry format
-    return topSolversResponse.data
-      .filter(entry => entry.username) // Filter out invalid entries
-      .map((entry, index) => ({
-        id: (index + 1).toString(),
-        username: entry.username || 'Unknown User',
-        score: (entry.solveCount || 0) * 100, // Simple scoring: 100 points per solve
-        solvedChallenges: entry.solveCount || 0
-      }))
-    
+    const board = await apiClient.get<ScoreboardPage>(`/api/scoreboard?page=${page}&size=${size}`)
+
+    return board.entries.map(entry => ({
+      id: entry.rank.toString(),
+      username: entry.username,
+      score: entry.points,
+      solvedChallenges: entry.solveCount
+    }))
+
   } catch (error) {
     console.error('Error fetching scoreboard:', error)
-    
+
     // Fallback to mock data if API fails
     return getMockScoreboard()
   }
 }
 
+export interface ScoreTimeline {
+  // Sample times shared by all series
+  timestamps: string[]
+  series: { rank: number; username: string; points: number[] }[]
+}
+
+/**
+ * Score over time of the top users, for the scoreboard chart
+ */
+export async function getScoreTimeline(top: number = 10, points: number = 100): Promise<ScoreTimeline> {
+  try {
+    return await apiClient.get<ScoreTimeline>(`/api/scoreboard/timeline?top=${top}&points=${points}`)
+  } catch (error) {
+    console.error('Error fetching score timeline:', error)
+    return { timestamps: [], series: [] }
+  }
+}
+
 // Mock scoreboard data as fallback
 export function getMockScoreboard(): ScoreboardEntry[] {
   return [
@@ -19,6 +19,7 @@ export interface SolveStatistics {
     totalPoints: number
     categoryDistribution: Record<string, number>
     difficultyDistribution: Record<string, number>
+    categoryPoints: Record<string, number>
     challengesSolved: number
 }
 
@@ -30,6 +31,11 @@ export interface ChallengeStatistics {
     difficulty: string
     points: number
     solveRate: string
+    startedCount: number
+    attemptCount: number
+    firstBloodUser: string | null
+    firstBloodAt: string | null
+    medianSolveSeconds: number | null
 }
 
 export interface LeaderboardEntry {
@@ -187,6 +193,7 @@ export async function getUserStatistics(): Promise<ApiResult<SolveStatistics>> {
                 totalPoints: data.totalPoints || 0,
                 categoryDistribution: data.categoryDistribution || {},
                 difficultyDistribution: data.difficultyDistribution || {},
+                categoryPoints: data.categoryPoints || {},
                 challengesSolved: data.totalSolves || 0 // Alias for consistency
             }
         }
@@ -227,7 +234,12 @@ export async function getChallengeStatistics(challengeId: string): Promise<ApiRe
                 category: data.category ?? '',
                 difficulty: data.difficulty ?? '',
                 points: data.points ?? 0,
-                solveRate: data.solveRate ?? 'N/A'
+                solveRate: data.solveRate ?? 'N/A',
+                startedCount: data.startedCount ?? 0,
+                attemptCount: data.attemptCount ?? 0,
+                firstBloodUser: data.firstBloodUser ?? null,
+                firstBloodAt: data.firstBloodAt ?? null,
+                medianSolveSeconds: data.medianSolveSeconds ?? null
             }
         }
     } catch (error) {
@@ -256,4 +268,22 @@ export async function getTotalSolveCount(): Promise<ApiResult<{ totalSolves: num
             error: error instanceof Error ? error.message : 'Failed to fetch total solve count'
         }
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Live feed of new solves (Server-Sent Events named "solve"), see SolveFeedService.
+ * Delivery is at least once: dedupe on username + challengeId.
+ */
+export interface SolveFeedEvent {
+    username: string
+    challengeId: string
+    pointsEarned: number
+    firstBlood: boolean
+    rank: number | null
+    totalPoints: number | null
+    solvedAt: string
+}
+
+export function openSolveFeed(): EventSource {
+    return new EventSource(`${process.env.NEXT_PUBLIC_API_URL || ""}/api/solves/stream`)
+}
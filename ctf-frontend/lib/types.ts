@@ -112,6 +112,15 @@ export interface EnvironmentInstance {
     vscodePort?: number
     desktopPort?: number
     expiresAt: string
+    // Set by the backend once sshd answered on sshPort
+    readyAt?: string | null
+    // Only while waiting for a free slot
+    queuePosition?: number | null
+    estimatedWaitSeconds?: number | null
+    // Set while the container is paused for being idle; the next terminal connect resumes it
+    pausedAt?: string | null
+    // Docker worker the SSH port is published on; absent for the backend's own host
+    sshHost?: string | null
     status: string
     containerName?: string
     message?: string
@@ -23,6 +23,32 @@ app.get("/health", (req, res) => {
     });
 });
 
+// Backend for activity reports: idle instances get paused and have to be woken up before SSH
+const BACKEND_URL = process.env.BACKEND_URL || "http://app:8080";
+const ACTIVITY_REPORT_MS = 60000;
+
+// Docker worker hosts instances may run on (comma-separated); the sshHost query parameter
+// is only followed to one of these so the gateway can't be pointed at arbitrary machines
+const SSH_HOSTS = new Set((process.env.SSH_HOSTS || "").split(",").map(h => h.trim()).filter(Boolean));
+
+// Tell the backend the instance is in use; resumes it if it was paused for being idle.
+// The user's auth cookie from the WebSocket upgrade is passed through.
+async function reportActivity(instanceId, cookie) {
+    if (!instanceId) return;
+    try {
+        const res = await fetch(`${BACKEND_URL}/api/environment/instance/${encodeURIComponent(instanceId)}/activity`, {
+            method: "POST",
+            headers: cookie ? { cookie } : {},
+            signal: AbortSignal.timeout(5000),
+        });
+        if (!res.ok) {
+            console.log(`[${instanceId}] Activity report answered ${res.status}`);
+        }
+    } catch (err) {
+        console.log(`[${instanceId}] Activity report failed: ${err.message}`);
+    }
+}
+
 // Helper to check if SSH port is actually responding
 async function checkSSHPort(host, port, timeout = 10000) {
     return new Promise((resolve) => {
@@ -141,6 +167,9 @@ wss.on("connection", async (ws, req) => {
     const containerName = url.searchParams.get("containerName");
     const instanceId = url.searchParams.get("instanceId");
     const sshPort = url.searchParams.get("sshPort");
+    const requestedSshHost = url.searchParams.get("sshHost");
+    // The backend probes sshd before it reports an instance as RUNNING (readyAt)
+    const backendReady = url.searchParams.get("ready") === "1";
 
     console.log(`[${instanceId}] New connection → Container: ${containerName}, SSH Port: ${sshPort}`);
 
@@ -151,18 +180,38 @@ wss.on("connection", async (ws, req) => {
         return;
     }
 
+    // Wake the container up in case it was paused while nobody was connected
+    await reportActivity(instanceId, req.headers.cookie);
+
+    // Report terminal traffic at most once per ACTIVITY_REPORT_MS
+    let lastActivityReport = Date.now();
+    const noteActivity = () => {
+        const now = Date.now();
+        if (now - lastActivityReport >= ACTIVITY_REPORT_MS) {
+            lastActivityReport = now;
+            reportActivity(instanceId, req.headers.cookie);
+        }
+    };
+
     // Use sshPort if provided (mapped port on host), otherwise use container name with port 22
-    // For containers in ctf-isolated network, connect via localhost with mapped port
-    const sshHost = sshPort ? '127.0.0.1' : containerName;
+    // For containers in ctf-isolated network, connect via localhost with mapped port,
+    // or via the worker's address for instances placed on another Docker host
+    if (requestedSshHost && !SSH_HOSTS.has(requestedSshHost)) {
+        ws.send("Error: Unknown SSH host\r\n");
+        ws.close();
+        return;
+    }
+    const sshHost = sshPort ? (requestedSshHost || '127.0.0.1') : containerName;
     const sshPortNum = sshPort ? parseInt(sshPort, 10) : 22;
 
     console.log(`[${instanceId}] Connecting to SSH at ${sshHost}:${sshPortNum}`);
 
-    // Send status update to client
-    ws.send(`\r\n\x1b[1;36m Waiting for SSH service to start...\x1b[0m\r\n`);
-    
-    // Wait for SSH to be ready
-    const sshReady = await waitForSSH(sshHost, sshPortNum);
+    // Wait for SSH to be ready, unless the backend already saw it answer
+    let sshReady = true;
+    if (!backendReady) {
+        ws.send(`\r\n\x1b[1;36m Waiting for SSH service to start...\x1b[0m\r\n`);
+        sshReady = await waitForSSH(sshHost, sshPortNum);
+    }
     
     if (!sshReady) {
         ws.send(`\r\n\x1b[1;31m SSH service failed to start\x1b[0m\r\n`);
@@ -216,6 +265,7 @@ wss.on("connection", async (ws, req) => {
 
         // SSH → WebSocket
         stream.on('data', (data) => {
+            noteActivity();
             if (ws.readyState === WebSocket.OPEN) {
                 ws.send(data);
             }
@@ -247,6 +297,7 @@ wss.on("connection", async (ws, req) => {
 
     // WebSocket → SSH
     ws.on('message', (data) => {
+        noteActivity();
         if (shell && shell.writable) {
             shell.write(data);
         } else {